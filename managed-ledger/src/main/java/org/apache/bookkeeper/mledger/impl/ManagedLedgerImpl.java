@@ -3298,32 +3298,23 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
     }
 
     private ManagedLedgerInfo getManagedLedgerInfo() {
-        ManagedLedgerInfo.Builder mlInfo = ManagedLedgerInfo.newBuilder().addAllLedgerInfo(ledgers.values());
-        if (state == State.Terminated) {
-            mlInfo.setTerminatedPosition(NestedPositionInfo.newBuilder().setLedgerId(lastConfirmedEntry.getLedgerId())
-                    .setEntryId(lastConfirmedEntry.getEntryId()));
-        }
-        if (managedLedgerInterceptor != null) {
-            managedLedgerInterceptor.onUpdateManagedLedgerInfo(propertiesMap);
-        }
-        for (Map.Entry<String, String> property : propertiesMap.entrySet()) {
-            mlInfo.addProperties(MLDataFormats.KeyValue.newBuilder()
-                    .setKey(property.getKey()).setValue(property.getValue()));
-        }
-
-        return mlInfo.build();
+        return buildManagedLedgerInfo(ledgers, propertiesMap);
     }
 
     private ManagedLedgerInfo buildManagedLedgerInfo(Map<Long, LedgerInfo> ledgers) {
+        return buildManagedLedgerInfo(ledgers, propertiesMap);
+    }
+
+    private ManagedLedgerInfo buildManagedLedgerInfo(Map<Long, LedgerInfo> ledgers, Map<String, String> properties) {
         ManagedLedgerInfo.Builder mlInfo = ManagedLedgerInfo.newBuilder().addAllLedgerInfo(ledgers.values());
         if (state == State.Terminated) {
             mlInfo.setTerminatedPosition(NestedPositionInfo.newBuilder().setLedgerId(lastConfirmedEntry.getLedgerId())
                     .setEntryId(lastConfirmedEntry.getEntryId()));
         }
         if (managedLedgerInterceptor != null) {
-            managedLedgerInterceptor.onUpdateManagedLedgerInfo(propertiesMap);
+            managedLedgerInterceptor.onUpdateManagedLedgerInfo(properties);
         }
-        for (Map.Entry<String, String> property : propertiesMap.entrySet()) {
+        for (Map.Entry<String, String> property : properties.entrySet()) {
             mlInfo.addProperties(MLDataFormats.KeyValue.newBuilder()
                     .setKey(property.getKey()).setValue(property.getValue()));
         }
@@ -3687,15 +3678,19 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
                 callback, ctx), 100, TimeUnit.MILLISECONDS);
             return;
         }
+        // Only expose the new properties once they are persisted
+        Map<String, String> newPropertiesMap = Maps.newHashMap(propertiesMap);
         if (isDelete) {
-            propertiesMap.remove(deleteKey);
+            newPropertiesMap.remove(deleteKey);
         } else {
-            propertiesMap.putAll(properties);
+            newPropertiesMap.putAll(properties);
         }
-        store.asyncUpdateLedgerIds(name, getManagedLedgerInfo(), ledgersStat, new MetaStoreCallback<Void>() {
+        store.asyncUpdateLedgerIds(name, buildManagedLedgerInfo(ledgers, newPropertiesMap), ledgersStat,
+                new MetaStoreCallback<Void>() {
             @Override
             public void operationComplete(Void result, Stat version) {
                 ledgersStat = version;
+                propertiesMap = newPropertiesMap;
                 callback.updatePropertiesComplete(propertiesMap, ctx);
                 metadataMutex.unlock();
             }
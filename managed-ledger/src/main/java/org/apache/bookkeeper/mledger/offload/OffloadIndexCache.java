@@ -0,0 +1,145 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Broker wide cache of the parsed indexes of offloaded ledgers, shared by all the offloader implementations.
+ *
+ * <p>Offloaded read handles are closed by the managed ledger when they are idle, so without this cache
+ * every reopen of an offloaded ledger would download and parse its index again. Entries are keyed by the
+ * ledger id and the uuid of the offload, so a re-offloaded ledger never sees a stale index. The cache is
+ * bounded by the estimated size of the cached indexes.
+ */
+@Slf4j
+public class OffloadIndexCache {
+
+    public static final long DEFAULT_MAX_SIZE_BYTES = 16 * 1024 * 1024;
+
+    private static volatile OffloadIndexCache instance = new OffloadIndexCache(DEFAULT_MAX_SIZE_BYTES);
+
+    /**
+     * Get the cache shared by all the offloaders in this process.
+     */
+    public static OffloadIndexCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Replace the shared cache with a new one bounded to the given size. A size of 0 disables caching.
+     */
+    public static synchronized void configure(long maxSizeBytes) {
+        if (instance.maxSizeBytes != maxSizeBytes) {
+            log.info("Configuring offload index cache with max size of {} bytes", maxSizeBytes);
+            instance.invalidateAll();
+            instance = new OffloadIndexCache(maxSizeBytes);
+        }
+    }
+
+    private final long maxSizeBytes;
+    private final Cache<Key, OffloadedLedgerIndex> cache;
+
+    OffloadIndexCache(long maxSizeBytes) {
+        this.maxSizeBytes = maxSizeBytes;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxSizeBytes)
+                .weigher((Key key, OffloadedLedgerIndex index) ->
+                        (int) Math.min(index.getEstimatedSize(), Integer.MAX_VALUE))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get the index of an offloaded ledger, loading it with the given loader if it is not cached yet.
+     * Concurrent lookups of the same ledger only load the index once.
+     */
+    public OffloadedLedgerIndex get(long ledgerId, UUID uuid, Callable<OffloadedLedgerIndex> loader)
+            throws IOException {
+        try {
+            return cache.get(new Key(ledgerId, uuid), loader);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    public OffloadedLedgerIndex getIfPresent(long ledgerId, UUID uuid) {
+        return cache.getIfPresent(new Key(ledgerId, uuid));
+    }
+
+    public void invalidate(long ledgerId, UUID uuid) {
+        cache.invalidate(new Key(ledgerId, uuid));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long getMaxSizeBytes() {
+        return maxSizeBytes;
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private static final class Key {
+        private final long ledgerId;
+        private final UUID uuid;
+
+        Key(long ledgerId, UUID uuid) {
+            this.ledgerId = ledgerId;
+            this.uuid = uuid;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return ledgerId == other.ledgerId && uuid.equals(other.uuid);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ledgerId, uuid);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+
+/**
+ * Immutable, parsed index of a single offloaded ledger.
+ *
+ * <p>The index entries are kept sorted by entry id in parallel primitive arrays, so a cached index costs
+ * roughly 20 bytes per entry and no per-entry objects. Offloaders which don't keep a block index (for
+ * example the filesystem offloader) only cache the ledger metadata and have no index entries.
+ */
+public class OffloadedLedgerIndex {
+
+    // rough estimation of the ledger metadata, array headers and the object itself
+    private static final int FIXED_OVERHEAD_BYTES = 1024;
+    private static final int BYTES_PER_INDEX_ENTRY = 8 + 4 + 8;
+
+    private static final long[] EMPTY_LONGS = new long[0];
+    private static final int[] EMPTY_INTS = new int[0];
+
+    private final LedgerMetadata ledgerMetadata;
+    private final long dataObjectLength;
+    private final long dataHeaderLength;
+    private final long[] entryIds;
+    private final int[] partIds;
+    private final long[] offsets;
+
+    public OffloadedLedgerIndex(LedgerMetadata ledgerMetadata) {
+        this(ledgerMetadata, -1, -1, EMPTY_LONGS, EMPTY_INTS, EMPTY_LONGS);
+    }
+
+    /**
+     * @param entryIds the first entry id of each index entry, in ascending order
+     * @param partIds the block part id of each index entry
+     * @param offsets the offset in the data object of each index entry
+     */
+    public OffloadedLedgerIndex(LedgerMetadata ledgerMetadata, long dataObjectLength, long dataHeaderLength,
+                                long[] entryIds, int[] partIds, long[] offsets) {
+        checkArgument(entryIds.length == partIds.length && entryIds.length == offsets.length,
+                "Index arrays must have the same length");
+        this.ledgerMetadata = ledgerMetadata;
+        this.dataObjectLength = dataObjectLength;
+        this.dataHeaderLength = dataHeaderLength;
+        this.entryIds = entryIds;
+        this.partIds = partIds;
+        this.offsets = offsets;
+    }
+
+    public LedgerMetadata getLedgerMetadata() {
+        return ledgerMetadata;
+    }
+
+    public long getDataObjectLength() {
+        return dataObjectLength;
+    }
+
+    public long getDataHeaderLength() {
+        return dataHeaderLength;
+    }
+
+    public int getIndexEntryCount() {
+        return entryIds.length;
+    }
+
+    public long getEntryId(int index) {
+        return entryIds[index];
+    }
+
+    public int getPartId(int index) {
+        return partIds[index];
+    }
+
+    public long getOffset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * Find the position of the greatest index entry whose entry id is less than or equal to the given entry id.
+     *
+     * @return the position of the index entry, or -1 if all index entries start after the given entry id
+     */
+    public int floorIndexOf(long entryId) {
+        int low = 0;
+        int high = entryIds.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midEntryId = entryIds[mid];
+            if (midEntryId < entryId) {
+                low = mid + 1;
+            } else if (midEntryId > entryId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Get the approximate heap usage of this index, used to bound the size of the {@link OffloadIndexCache}.
+     */
+    public long getEstimatedSize() {
+        return FIXED_OVERHEAD_BYTES + (long) entryIds.length * BYTES_PER_INDEX_ENTRY;
+    }
+}
@@ -53,6 +53,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
@@ -1267,6 +1268,38 @@ public class ManagedLedgerTest extends MockedBookKeeperTestCase {
         assertTrue(latch3.await(5, TimeUnit.SECONDS));
     }
 
+    @Test
+    public void testFailedAsyncUpdatePropertiesKeepsProperties() throws Exception {
+        ManagedLedger ledger = factory.open("my_test_ledger");
+        ledger.setProperty("key1", "value1");
+
+        zkc.failConditional(Code.CONNECTIONLOSS, (op, path) -> {
+                return path.equals("/managed-ledgers/my_test_ledger")
+                    && op == MockZooKeeper.Op.SET;
+            });
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        ledger.asyncSetProperty("key1", "value2", new AsyncCallbacks.UpdatePropertiesCallback() {
+            @Override
+            public void updatePropertiesComplete(Map<String, String> properties, Object ctx) {
+                future.complete(null);
+            }
+
+            @Override
+            public void updatePropertiesFailed(ManagedLedgerException exception, Object ctx) {
+                future.completeExceptionally(exception);
+            }
+        }, null);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Should have failed to update the properties");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ManagedLedgerException);
+        }
+
+        assertEquals(ledger.getProperties(), Collections.singletonMap("key1", "value1"));
+    }
+
     @Test
     public void testConcurrentAsyncSetProperties() throws Exception {
         final CountDownLatch latch = new CountDownLatch(1000);
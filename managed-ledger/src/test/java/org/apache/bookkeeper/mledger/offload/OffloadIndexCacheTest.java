@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+public class OffloadIndexCacheTest {
+
+    private static OffloadedLedgerIndex createIndex(long... entryIds) {
+        int[] partIds = new int[entryIds.length];
+        long[] offsets = new long[entryIds.length];
+        for (int i = 0; i < entryIds.length; i++) {
+            partIds[i] = i;
+            offsets[i] = i * 1024L;
+        }
+        return new OffloadedLedgerIndex(null, 4096, 128, entryIds, partIds, offsets);
+    }
+
+    @Test
+    public void testFloorIndexOf() {
+        OffloadedLedgerIndex index = createIndex(0, 10, 20, 30);
+        assertEquals(index.floorIndexOf(0), 0);
+        assertEquals(index.floorIndexOf(9), 0);
+        assertEquals(index.floorIndexOf(10), 1);
+        assertEquals(index.floorIndexOf(25), 2);
+        assertEquals(index.floorIndexOf(1000), 3);
+        assertEquals(createIndex(5, 10).floorIndexOf(1), -1);
+        assertEquals(createIndex().floorIndexOf(1), -1);
+    }
+
+    @Test
+    public void testIndexIsLoadedOnce() throws Exception {
+        OffloadIndexCache cache = new OffloadIndexCache(1024 * 1024);
+        UUID uuid = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+
+        OffloadedLedgerIndex index = cache.get(1, uuid, () -> {
+            loads.incrementAndGet();
+            return createIndex(0, 10);
+        });
+        assertSame(cache.get(1, uuid, () -> {
+            loads.incrementAndGet();
+            return createIndex(0, 10);
+        }), index);
+        assertEquals(loads.get(), 1);
+
+        // a different offload of the same ledger must not share the index
+        cache.get(1, UUID.randomUUID(), () -> {
+            loads.incrementAndGet();
+            return createIndex(0, 10);
+        });
+        assertEquals(loads.get(), 2);
+        assertEquals(cache.size(), 2);
+
+        cache.invalidate(1, uuid);
+        assertNull(cache.getIfPresent(1, uuid));
+        assertEquals(cache.size(), 1);
+    }
+
+    @Test
+    public void testLoadFailure() {
+        OffloadIndexCache cache = new OffloadIndexCache(1024 * 1024);
+        UUID uuid = UUID.randomUUID();
+        try {
+            cache.get(1, uuid, () -> {
+                throw new IOException("index not found");
+            });
+            fail("should have failed");
+        } catch (IOException e) {
+            assertEquals(e.getMessage(), "index not found");
+        }
+        assertNull(cache.getIfPresent(1, uuid));
+    }
+
+    @Test
+    public void testCacheIsSizeBounded() throws Exception {
+        OffloadedLedgerIndex template = createIndex(0, 10, 20);
+        OffloadIndexCache cache = new OffloadIndexCache(template.getEstimatedSize() * 10);
+        for (int i = 0; i < 100; i++) {
+            cache.get(i, UUID.randomUUID(), () -> createIndex(0, 10, 20));
+        }
+        assertTrue(cache.size() > 0);
+        assertTrue(cache.size() <= 10);
+
+        OffloadIndexCache disabled = new OffloadIndexCache(0);
+        disabled.get(1, UUID.randomUUID(), () -> createIndex(0, 10, 20));
+        assertEquals(disabled.size(), 0);
+    }
+}
@@ -725,6 +725,13 @@ public class ServiceConfiguration implements PulsarConfiguration {
     )
     private boolean enableNonPersistentTopics = true;
 
+    @FieldContext(
+        category = CATEGORY_SERVER,
+        doc = "Enable clients with a regex subscription to watch the list of topics of a namespace, instead of"
+            + " polling it periodically"
+    )
+    private boolean enableTopicListWatcher = true;
+
     @FieldContext(
         category = CATEGORY_SERVER,
         doc = "Enable to run bookie along with broker"
@@ -1899,6 +1906,13 @@ public class ServiceConfiguration implements PulsarConfiguration {
     )
     private int managedLedgerOffloadPrefetchRounds = 1;
 
+    @FieldContext(
+            category = CATEGORY_STORAGE_OFFLOADING,
+            doc = "Maximum size of the cache of offloaded ledger indexes, shared by all the offloaders."
+                    + " Setting it to 0 disables the cache"
+    )
+    private int managedLedgerOffloadIndexCacheSizeMB = 16;
+
     /**** --- Transaction config variables --- ****/
     @FieldContext(
             category = CATEGORY_TRANSACTION,
@@ -1920,6 +1934,53 @@ public class ServiceConfiguration implements PulsarConfiguration {
     private String transactionBufferProviderClassName =
             "org.apache.pulsar.broker.transaction.buffer.impl.TopicTransactionBufferProvider";
 
+    @FieldContext(
+            category = CATEGORY_TRANSACTION,
+            doc = "Number of transactions aborted on a topic after which the transaction buffer persists a snapshot"
+                    + " of its aborted transactions, so that it can recover without replaying the whole topic"
+    )
+    private int transactionBufferSnapshotMaxTransactionCount = 1000;
+
+    @FieldContext(
+            category = CATEGORY_TRANSACTION,
+            doc = "Interval in milliseconds after which the transaction buffer persists a snapshot once a transaction"
+                    + " aborts, even if fewer than transactionBufferSnapshotMaxTransactionCount did"
+    )
+    private long transactionBufferSnapshotMinTimeInMillis = 5000;
+
+    @FieldContext(
+            category = CATEGORY_TRANSACTION,
+            doc = "Persist the pending acks of transactions in a managed ledger per subscription, so that they"
+                    + " survive a broker restart. When disabled, pending acks are only kept in memory"
+    )
+    private boolean transactionPendingAckLogEnabled = false;
+
+    @FieldContext(
+            category = CATEGORY_TRANSACTION,
+            doc = "Group commit the operations of the transaction coordinator log, packing the operations appended"
+                    + " close together into a single entry. Brokers without this feature cannot read a log"
+                    + " written with it"
+    )
+    private boolean transactionLogBatchedWriteEnabled = false;
+
+    @FieldContext(
+            category = CATEGORY_TRANSACTION,
+            doc = "Maximum number of operations in a group committed transaction coordinator log entry"
+    )
+    private int transactionLogBatchedWriteMaxRecords = 512;
+
+    @FieldContext(
+            category = CATEGORY_TRANSACTION,
+            doc = "Maximum size in bytes of a group committed transaction coordinator log entry"
+    )
+    private int transactionLogBatchedWriteMaxSize = 1024 * 1024 * 4;
+
+    @FieldContext(
+            category = CATEGORY_TRANSACTION,
+            doc = "Maximum time in milliseconds an operation waits for others to be group committed with it"
+    )
+    private long transactionLogBatchedWriteMaxDelayInMillis = 1;
+
     /**** --- KeyStore TLS config variables --- ****/
     @FieldContext(
             category = CATEGORY_KEYSTORE_TLS,
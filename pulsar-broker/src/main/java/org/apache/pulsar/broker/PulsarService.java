@@ -61,6 +61,7 @@ import org.apache.bookkeeper.mledger.LedgerOffloader;
 import org.apache.bookkeeper.mledger.LedgerOffloaderFactory;
 import org.apache.bookkeeper.mledger.ManagedLedgerFactory;
 import org.apache.bookkeeper.mledger.impl.NullLedgerOffloader;
+import org.apache.bookkeeper.mledger.offload.OffloadIndexCache;
 import org.apache.bookkeeper.mledger.offload.OffloaderUtils;
 import org.apache.bookkeeper.mledger.offload.Offloaders;
 import org.apache.commons.configuration.ConfigurationException;
@@ -532,6 +533,7 @@ public class PulsarService implements AutoCloseable {
 
             this.offloaderManager = OffloaderUtils.searchForOffloaders(
                     config.getOffloadersDirectory(), config.getNarExtractionDirectory());
+            OffloadIndexCache.configure(config.getManagedLedgerOffloadIndexCacheSizeMB() * 1024L * 1024L);
             this.defaultOffloader = createManagedLedgerOffloader(
                     OffloadPolicies.create(this.getConfiguration().getProperties()));
             this.brokerInterceptor = BrokerInterceptors.load(config);
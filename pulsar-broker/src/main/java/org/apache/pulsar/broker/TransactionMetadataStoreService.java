@@ -37,6 +37,7 @@ import org.apache.pulsar.common.naming.NamespaceName;
 import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.util.FutureUtil;
 import org.apache.pulsar.transaction.coordinator.TransactionCoordinatorID;
+import org.apache.pulsar.transaction.coordinator.TransactionLogBatchConfig;
 import org.apache.pulsar.transaction.coordinator.TransactionMetadataStore;
 import org.apache.pulsar.transaction.coordinator.TransactionMetadataStoreProvider;
 import org.apache.pulsar.transaction.coordinator.TransactionSubscription;
@@ -58,6 +59,7 @@ public class TransactionMetadataStoreService {
     private final PulsarService pulsarService;
     private final TransactionBufferClient tbClient;
     private final TransactionTimeoutTrackerFactory timeoutTrackerFactory;
+    private final TransactionLogBatchConfig transactionLogBatchConfig;
 
     public TransactionMetadataStoreService(TransactionMetadataStoreProvider transactionMetadataStoreProvider,
                                            PulsarService pulsarService, TransactionBufferClient tbClient,
@@ -67,6 +69,10 @@ public class TransactionMetadataStoreService {
         this.transactionMetadataStoreProvider = transactionMetadataStoreProvider;
         this.tbClient = tbClient;
         this.timeoutTrackerFactory = new TransactionTimeoutTrackerFactoryImpl(this, timer);
+        ServiceConfiguration config = pulsarService.getConfiguration();
+        this.transactionLogBatchConfig = new TransactionLogBatchConfig(config.isTransactionLogBatchedWriteEnabled(),
+                config.getTransactionLogBatchedWriteMaxRecords(), config.getTransactionLogBatchedWriteMaxSize(),
+                config.getTransactionLogBatchedWriteMaxDelayInMillis(), timer);
     }
 
     public void start() {
@@ -125,7 +131,7 @@ public class TransactionMetadataStoreService {
                         LOG.error("Add transaction metadata store with id {} error", tcId.getId(), e);
                     } else {
                         transactionMetadataStoreProvider.openStore(tcId, pulsarService.getManagedLedgerFactory(), v,
-                                timeoutTrackerFactory.newTracker(tcId))
+                                timeoutTrackerFactory.newTracker(tcId), transactionLogBatchConfig)
                                 .whenComplete((store, ex) -> {
                                     if (ex != null) {
                                         LOG.error("Add transaction metadata store with id {} error", tcId.getId(), ex);
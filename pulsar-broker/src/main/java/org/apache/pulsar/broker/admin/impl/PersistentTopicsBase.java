@@ -94,6 +94,7 @@ import org.apache.pulsar.common.api.proto.KeyValue;
 import org.apache.pulsar.common.api.proto.MessageMetadata;
 import org.apache.pulsar.common.compression.CompressionCodec;
 import org.apache.pulsar.common.compression.CompressionCodecProvider;
+import org.apache.pulsar.common.events.EventsTopicNames;
 import org.apache.pulsar.common.naming.PartitionedManagedLedgerInfo;
 import org.apache.pulsar.common.naming.TopicDomain;
 import org.apache.pulsar.common.naming.TopicName;
@@ -155,7 +156,11 @@ public class PersistentTopicsBase extends AdminResource {
             String path = String.format("/managed-ledgers/%s/%s", namespaceName.toString(), domain());
             for (String topic : managedLedgerListCache().get(path)) {
                 if (domain().equals(TopicDomain.persistent.toString())) {
-                    topics.add(TopicName.get(domain(), namespaceName, decode(topic)).toString());
+                    TopicName topicName = TopicName.get(domain(), namespaceName, decode(topic));
+                    // Pending ack logs share the managed ledger path of the topics, but are not topics
+                    if (!EventsTopicNames.isTransactionInternalName(topicName)) {
+                        topics.add(topicName.toString());
+                    }
                 }
             }
         } catch (KeeperException.NoNodeException e) {
@@ -2452,7 +2457,10 @@ public class PersistentTopicsBase extends AdminResource {
         }
 
         // Decode if needed
-        CompressionCodec codec = CompressionCodecProvider.getCompressionCodec(metadata.getCompression());
+        CompressionCodec codec = CompressionCodecProvider.getCompressionCodec(metadata);
+        if (codec == null) {
+            throw new IOException("Unknown compression dictionary " + metadata.getCompressionDictionaryId());
+        }
         ByteBuf uncompressedPayload = codec.decode(metadataAndPayload, metadata.getUncompressedSize());
 
         // Copy into a heap buffer for output stream compatibility
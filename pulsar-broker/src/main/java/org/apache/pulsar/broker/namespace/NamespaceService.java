@@ -22,6 +22,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.String.format;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.bookkeeper.mledger.util.SafeRun.safeRun;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.apache.pulsar.broker.admin.AdminResource.PARTITIONED_TOPIC_PATH_ZNODE;
 import static org.apache.pulsar.broker.cache.ConfigurationCacheService.POLICIES;
@@ -29,6 +30,7 @@ import static org.apache.pulsar.broker.cache.LocalZooKeeperCacheService.LOCAL_PO
 import static org.apache.pulsar.broker.web.PulsarWebResource.joinPath;
 import static org.apache.pulsar.common.naming.NamespaceBundleFactory.getBundlesData;
 import static org.apache.pulsar.common.util.Codec.decode;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import com.google.common.hash.Hashing;
 import io.netty.channel.EventLoopGroup;
@@ -45,8 +47,10 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -75,6 +79,7 @@ import org.apache.pulsar.client.impl.ClientBuilderImpl;
 import org.apache.pulsar.client.impl.PulsarClientImpl;
 import org.apache.pulsar.client.impl.conf.ClientConfigurationData;
 import org.apache.pulsar.common.api.proto.CommandGetTopicsOfNamespace.Mode;
+import org.apache.pulsar.common.events.EventsTopicNames;
 import org.apache.pulsar.common.lookup.data.LookupData;
 import org.apache.pulsar.common.naming.NamespaceBundle;
 import org.apache.pulsar.common.naming.NamespaceBundleFactory;
@@ -150,6 +155,16 @@ public class NamespaceService {
 
     private final List<NamespaceBundleOwnershipListener> bundleOwnershipListeners;
 
+    private static final String MANAGED_LEDGERS_PATH_PREFIX = "/managed-ledgers/";
+    private static final String PERSISTENT_TOPICS_PATH_SUFFIX = "/" + TopicDomain.persistent.value();
+
+    // The lists of topics are read again at this interval, to re-arm the watches lost with the ZooKeeper session
+    private static final long TOPIC_LIST_RESYNC_INTERVAL_SECONDS = 60;
+    private static final long TOPIC_LIST_REFRESH_RETRY_DELAY_SECONDS = 5;
+
+    private final ConcurrentOpenHashMap<NamespaceName, TopicListListeners> topicListListeners;
+    private boolean watchingManagedLedgers = false;
+
 
     private static final Counter lookupRedirects = Counter.build("pulsar_broker_lookup_redirects", "-").register();
     private static final Counter lookupFailures = Counter.build("pulsar_broker_lookup_failures", "-").register();
@@ -177,6 +192,7 @@ public class NamespaceService {
         this.ownershipCache = new OwnershipCache(pulsar, bundleFactory, this);
         this.namespaceClients = new ConcurrentOpenHashMap<>();
         this.bundleOwnershipListeners = new CopyOnWriteArrayList<>();
+        this.topicListListeners = new ConcurrentOpenHashMap<>();
     }
 
     public void initialize() {
@@ -1063,6 +1079,136 @@ public class NamespaceService {
         getOwnedServiceUnits().forEach(bundle -> notifyNamespaceBundleOwnershipListener(bundle, listeners));
     }
 
+    /**
+     * Register a listener for the changes of the list of persistent topics of a namespace.
+     *
+     * @return a future completed once the listener got the current list of topics
+     */
+    public CompletableFuture<Void> addTopicListListener(NamespaceName namespaceName, TopicListListener listener) {
+        watchManagedLedgers();
+        TopicListListeners listeners;
+        synchronized (topicListListeners) {
+            listeners = topicListListeners.computeIfAbsent(namespaceName, k -> new TopicListListeners());
+            listeners.add(listener);
+        }
+        return listeners.enqueue(() -> getListOfPersistentTopics(namespaceName)
+                .thenAccept(listener::onTopicListChanged));
+    }
+
+    public void removeTopicListListener(NamespaceName namespaceName, TopicListListener listener) {
+        synchronized (topicListListeners) {
+            TopicListListeners listeners = topicListListeners.get(namespaceName);
+            if (listeners != null) {
+                listeners.remove(listener);
+                // Don't keep refreshing the namespaces nobody watches anymore
+                if (listeners.isEmpty()) {
+                    topicListListeners.remove(namespaceName, listeners);
+                }
+            }
+        }
+    }
+
+    @VisibleForTesting
+    boolean hasTopicListListeners(NamespaceName namespaceName) {
+        return topicListListeners.containsKey(namespaceName);
+    }
+
+    private synchronized void watchManagedLedgers() {
+        if (!watchingManagedLedgers) {
+            pulsar.getLocalZkCacheService().managedLedgerListCache()
+                    .registerChildrenChangedListener(this::handleManagedLedgersChanged);
+            pulsar.getExecutor().scheduleWithFixedDelay(safeRun(this::refreshTopicLists),
+                    TOPIC_LIST_RESYNC_INTERVAL_SECONDS, TOPIC_LIST_RESYNC_INTERVAL_SECONDS, SECONDS);
+            watchingManagedLedgers = true;
+        }
+    }
+
+    private void refreshTopicLists() {
+        topicListListeners.forEach(this::refreshTopicList);
+    }
+
+    private void handleManagedLedgersChanged(String path) {
+        if (!path.startsWith(MANAGED_LEDGERS_PATH_PREFIX) || !path.endsWith(PERSISTENT_TOPICS_PATH_SUFFIX)) {
+            return;
+        }
+        String namespace = path.substring(MANAGED_LEDGERS_PATH_PREFIX.length(),
+                path.length() - PERSISTENT_TOPICS_PATH_SUFFIX.length());
+        NamespaceName namespaceName;
+        try {
+            namespaceName = NamespaceName.get(namespace);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        TopicListListeners listeners = topicListListeners.get(namespaceName);
+        if (listeners != null) {
+            refreshTopicList(namespaceName, listeners);
+        }
+    }
+
+    private void refreshTopicList(NamespaceName namespaceName, TopicListListeners listeners) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        // Reading the list again also re-arms the watch on the namespace, so a failed read is retried
+        listeners.enqueue(() -> getListOfPersistentTopics(namespaceName)
+                .thenAccept(listeners::notifyTopicListChanged))
+                .exceptionally(ex -> {
+                    LOG.warn("Failed to refresh the list of topics of namespace {}, retrying in {} seconds",
+                            namespaceName, TOPIC_LIST_REFRESH_RETRY_DELAY_SECONDS, ex);
+                    if (listeners.scheduleRetry()) {
+                        pulsar.getExecutor().schedule(safeRun(() -> {
+                            listeners.retryStarted();
+                            refreshTopicList(namespaceName, listeners);
+                        }), TOPIC_LIST_REFRESH_RETRY_DELAY_SECONDS, SECONDS);
+                    }
+                    return null;
+                });
+    }
+
+    // Listeners of a namespace. The refreshes are chained so listeners see the successive lists in order.
+    private static class TopicListListeners {
+        private final List<TopicListListener> listeners = new CopyOnWriteArrayList<>();
+        private CompletableFuture<Void> lastRefresh = CompletableFuture.completedFuture(null);
+        private final AtomicBoolean retryScheduled = new AtomicBoolean();
+
+        void add(TopicListListener listener) {
+            listeners.add(listener);
+        }
+
+        void remove(TopicListListener listener) {
+            listeners.remove(listener);
+        }
+
+        boolean isEmpty() {
+            return listeners.isEmpty();
+        }
+
+        // Only one retry of a failed refresh is pending at a time
+        boolean scheduleRetry() {
+            return retryScheduled.compareAndSet(false, true);
+        }
+
+        void retryStarted() {
+            retryScheduled.set(false);
+        }
+
+        synchronized CompletableFuture<Void> enqueue(Supplier<CompletableFuture<Void>> refresh) {
+            CompletableFuture<Void> future = lastRefresh.thenCompose(__ -> refresh.get());
+            lastRefresh = future.handle((__, ex) -> null);
+            return future;
+        }
+
+        void notifyTopicListChanged(List<String> topics) {
+            for (TopicListListener listener : listeners) {
+                try {
+                    listener.onTopicListChanged(topics);
+                } catch (Throwable t) {
+                    LOG.error("Failed to notify topic list listener {}", listener, t);
+                }
+            }
+        }
+    }
+
     private void notifyNamespaceBundleOwnershipListener(NamespaceBundle bundle,
                     NamespaceBundleOwnershipListener... listeners) {
         if (listeners != null) {
@@ -1198,7 +1344,11 @@ public class NamespaceService {
                 .thenApply(znodes -> {
                     List<String> topics = Lists.newArrayList();
                     for (String znode : znodes) {
-                        topics.add(String.format("persistent://%s/%s", namespaceName, Codec.decode(znode)));
+                        String topic = String.format("persistent://%s/%s", namespaceName, Codec.decode(znode));
+                        // The pending ack logs of the subscriptions are managed ledgers, but not topics
+                        if (!EventsTopicNames.isTransactionInternalName(TopicName.get(topic))) {
+                            topics.add(topic);
+                        }
                     }
 
                     topics.sort(null);
@@ -1124,6 +1124,9 @@ public class BrokerService implements Closeable, ZooKeeperCacheListener<Policies
                                 replicationFuture.thenCompose(v -> {
                                     // Also check dedup status
                                     return persistentTopic.checkDeduplicationStatus();
+                                }).thenCompose(v -> {
+                                    // Aborted transactions must be known before dispatching any message
+                                    return persistentTopic.checkTransactionBufferRecovered();
                                 }).thenRun(() -> {
                                     log.info("Created topic {} - dedup is {}", topic,
                                             persistentTopic.isDeduplicationEnabled() ? "enabled" : "disabled");
@@ -1134,7 +1137,7 @@ public class BrokerService implements Closeable, ZooKeeperCacheListener<Policies
                                     topicFuture.complete(Optional.of(persistentTopic));
                                 }).exceptionally((ex) -> {
                                     log.warn(
-                                            "Replication or dedup check failed."
+                                            "Replication, dedup or transaction buffer check failed."
                                                     + " Removing topic from topics list {}, {}",
                                             topic, ex);
                                     persistentTopic.stopReplProducers().whenComplete((v, exception) -> {
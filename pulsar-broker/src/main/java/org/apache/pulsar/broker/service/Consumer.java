@@ -50,8 +50,10 @@ import org.apache.pulsar.common.api.proto.CommandSubscribe.SubType;
 import org.apache.pulsar.common.api.proto.KeyLongValue;
 import org.apache.pulsar.common.api.proto.KeySharedMeta;
 import org.apache.pulsar.common.api.proto.MessageIdData;
+import org.apache.pulsar.common.api.proto.MessageIdRange;
 import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.policies.data.ConsumerStats;
+import org.apache.pulsar.common.protocol.Commands;
 import org.apache.pulsar.common.stats.Rate;
 import org.apache.pulsar.common.util.DateFormatter;
 import org.apache.pulsar.common.util.FutureUtil;
@@ -352,6 +354,20 @@ public class Consumer {
                 return CompletableFuture.completedFuture(null);
             }
         } else {
+            // Reject the whole command before acknowledging anything, clients never send such ranges
+            for (int i = 0; i < ack.getMessageIdRangesCount(); i++) {
+                MessageIdRange range = ack.getMessageIdRangeAt(i);
+                if (range.getLastEntryId() < range.getFirstEntryId()
+                        || range.getLastEntryId() - range.getFirstEntryId() >= Commands.MAX_ACK_RANGE_SIZE) {
+                    log.warn("[{}] [{}] Rejecting ack with invalid range {}:{}-{}, at most {} entries are allowed",
+                            subscription, consumerId, range.getLedgerId(), range.getFirstEntryId(),
+                            range.getLastEntryId(), Commands.MAX_ACK_RANGE_SIZE);
+                    return FutureUtil.failedFuture(new BrokerServiceException.NotAllowedException(
+                            "Invalid ack range " + range.getLedgerId() + ":" + range.getFirstEntryId() + "-"
+                                    + range.getLastEntryId() + ", at most " + Commands.MAX_ACK_RANGE_SIZE
+                                    + " entries are allowed"));
+                }
+            }
             if (ack.hasTxnidLeastBits() && ack.hasTxnidMostBits()) {
                 return individualAckWithTransaction(ack);
             } else {
@@ -389,6 +405,7 @@ public class Consumer {
 
             checkAckValidationError(ack, position);
         }
+        forEachAckedRangePosition(ack, positionsAcked::add);
         subscription.acknowledgeMessage(positionsAcked, AckType.Individual, properties);
         CompletableFuture<Void> completableFuture = new CompletableFuture<>();
         completableFuture.complete(null);
@@ -441,6 +458,7 @@ public class Consumer {
 
             checkAckValidationError(ack, position);
         }
+        forEachAckedRangePosition(ack, position -> positionsAcked.add(new MutablePair<>(position, 0)));
 
         CompletableFuture<Void> completableFuture = transactionIndividualAcknowledge(ack.getTxnidMostBits(),
                 ack.getTxnidLeastBits(), positionsAcked);
@@ -458,6 +476,22 @@ public class Consumer {
         return completableFuture;
     }
 
+    private void forEachAckedRangePosition(CommandAck ack, java.util.function.Consumer<PositionImpl> action) {
+        for (int i = 0; i < ack.getMessageIdRangesCount(); i++) {
+            MessageIdRange range = ack.getMessageIdRangeAt(i);
+            for (long entryId = range.getFirstEntryId(); entryId <= range.getLastEntryId(); entryId++) {
+                PositionImpl position = PositionImpl.get(range.getLedgerId(), entryId);
+                action.accept(position);
+
+                if (Subscription.isIndividualAckMode(subType)) {
+                    removePendingAcks(position);
+                }
+
+                checkAckValidationError(ack, position);
+            }
+        }
+    }
+
     private void checkAckValidationError(CommandAck ack, PositionImpl position) {
         if (ack.hasValidationError()) {
             log.error("[{}] [{}] Received ack for corrupted message at {} - Reason: {}", subscription,
@@ -51,6 +51,11 @@ public interface PulsarCommandSender {
 
     void sendGetTopicsOfNamespaceResponse(List<String> topics, long requestId);
 
+    void sendWatchTopicListSuccess(long requestId, long watcherId, String topicsHash, List<String> topics);
+
+    void sendWatchTopicListUpdate(long watcherId, List<String> newTopics, List<String> deletedTopics,
+                                  String topicsHash);
+
     void sendGetSchemaResponse(long requestId, SchemaInfo schema, SchemaVersion version);
 
     void sendGetSchemaErrorResponse(long requestId, ServerError error, String errorMessage);
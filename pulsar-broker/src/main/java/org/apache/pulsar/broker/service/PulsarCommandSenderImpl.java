@@ -124,6 +124,23 @@ public class PulsarCommandSenderImpl implements PulsarCommandSender {
         cnx.ctx().writeAndFlush(outBuf);
     }
 
+    @Override
+    public void sendWatchTopicListSuccess(long requestId, long watcherId, String topicsHash, List<String> topics) {
+        BaseCommand command = Commands.newWatchTopicListSuccessCommand(requestId, watcherId, topicsHash, topics);
+        safeIntercept(command, cnx);
+        ByteBuf outBuf = Commands.serializeWithSize(command);
+        cnx.ctx().writeAndFlush(outBuf);
+    }
+
+    @Override
+    public void sendWatchTopicListUpdate(long watcherId, List<String> newTopics, List<String> deletedTopics,
+                                         String topicsHash) {
+        BaseCommand command = Commands.newWatchTopicUpdateCommand(watcherId, newTopics, deletedTopics, topicsHash);
+        safeIntercept(command, cnx);
+        ByteBuf outBuf = Commands.serializeWithSize(command);
+        cnx.ctx().writeAndFlush(outBuf);
+    }
+
     @Override
     public void sendGetSchemaResponse(long requestId, SchemaInfo schema, SchemaVersion version) {
         BaseCommand command = Commands.newGetSchemaResponseCommand(requestId, schema, version);
@@ -159,7 +176,8 @@ public class PulsarCommandSenderImpl implements PulsarCommandSender {
 
     @Override
     public void sendConnectedResponse(int clientProtocolVersion, int maxMessageSize) {
-        BaseCommand command = Commands.newConnectedCommand(clientProtocolVersion, maxMessageSize);
+        BaseCommand command = Commands.newConnectedCommand(clientProtocolVersion, maxMessageSize,
+                Commands.newBrokerFeatureFlags());
         safeIntercept(command, cnx);
         ByteBuf outBuf = Commands.serializeWithSize(command);
         cnx.ctx().writeAndFlush(outBuf);
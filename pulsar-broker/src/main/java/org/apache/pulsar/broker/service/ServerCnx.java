@@ -42,6 +42,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.naming.AuthenticationException;
 import javax.net.ssl.SSLSession;
@@ -94,6 +95,7 @@ import org.apache.pulsar.common.api.proto.CommandGetOrCreateSchema;
 import org.apache.pulsar.common.api.proto.CommandGetSchema;
 import org.apache.pulsar.common.api.proto.CommandGetTopicsOfNamespace;
 import org.apache.pulsar.common.api.proto.CommandLookupTopic;
+import org.apache.pulsar.common.api.proto.CommandLookupTopics;
 import org.apache.pulsar.common.api.proto.CommandNewTxn;
 import org.apache.pulsar.common.api.proto.CommandPartitionedTopicMetadata;
 import org.apache.pulsar.common.api.proto.CommandProducer;
@@ -104,6 +106,8 @@ import org.apache.pulsar.common.api.proto.CommandSubscribe;
 import org.apache.pulsar.common.api.proto.CommandSubscribe.InitialPosition;
 import org.apache.pulsar.common.api.proto.CommandSubscribe.SubType;
 import org.apache.pulsar.common.api.proto.CommandUnsubscribe;
+import org.apache.pulsar.common.api.proto.CommandWatchTopicList;
+import org.apache.pulsar.common.api.proto.CommandWatchTopicListClose;
 import org.apache.pulsar.common.api.proto.FeatureFlags;
 import org.apache.pulsar.common.api.proto.KeySharedMeta;
 import org.apache.pulsar.common.api.proto.KeySharedMode;
@@ -182,6 +186,7 @@ public class ServerCnx extends PulsarHandler implements TransportCnx {
             AtomicLongFieldUpdater.newUpdater(ServerCnx.class, "messagePublishBufferSize");
     private volatile long messagePublishBufferSize = 0;
     private PulsarCommandSender commandSender;
+    private final TopicListService topicListService;
 
     private static final KeySharedMeta emptyKeySharedMeta = new KeySharedMeta()
             .setKeySharedMode(KeySharedMode.AUTO_SPLIT);
@@ -211,6 +216,7 @@ public class ServerCnx extends PulsarHandler implements TransportCnx {
         this.preciseDispatcherFlowControl = pulsar.getConfiguration().isPreciseDispatcherFlowControl();
         this.preciseTopicPublishRateLimitingEnable = pulsar.getConfiguration().isPreciseTopicPublishRateLimiterEnable();
         this.encryptionRequireOnProducer = pulsar.getConfiguration().isEncryptionRequireOnProducer();
+        this.topicListService = new TopicListService(pulsar, this);
     }
 
     @Override
@@ -252,6 +258,7 @@ public class ServerCnx extends PulsarHandler implements TransportCnx {
                 log.warn("Consumer {} was already closed: {}", consumer, e);
             }
         });
+        topicListService.inactivate();
     }
 
     @Override
@@ -420,6 +427,18 @@ public class ServerCnx extends PulsarHandler implements TransportCnx {
         }
     }
 
+    @Override
+    protected void handleLookupTopics(CommandLookupTopics lookupTopics) {
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Received {} lookups at once", remoteAddress, lookupTopics.getLookupsCount());
+        }
+
+        // Every lookup gets its own response, the client matches them with their request ids
+        for (int i = 0; i < lookupTopics.getLookupsCount(); i++) {
+            handleLookup(lookupTopics.getLookupAt(i));
+        }
+    }
+
     @Override
     protected void handlePartitionMetadataRequest(CommandPartitionedTopicMetadata partitionMetadata) {
         final long requestId = partitionMetadata.getRequestId();
@@ -550,7 +569,7 @@ public class ServerCnx extends PulsarHandler implements TransportCnx {
 
     // complete the connect and sent newConnected command
     private void completeConnect(int clientProtoVersion, String clientVersion) {
-        ctx.writeAndFlush(Commands.newConnected(clientProtoVersion, maxMessageSize));
+        ctx.writeAndFlush(Commands.newConnected(clientProtoVersion, maxMessageSize, Commands.newBrokerFeatureFlags()));
         state = State.Connected;
         setRemoteEndpointProtocolVersion(clientProtoVersion);
         if (isNotBlank(clientVersion) && !clientVersion.contains(" ") /* ignore default version: pulsar client */) {
@@ -1675,6 +1694,29 @@ public class ServerCnx extends PulsarHandler implements TransportCnx {
                 });
     }
 
+    @Override
+    protected void handleWatchTopicList(CommandWatchTopicList commandWatchTopicList) {
+        final long requestId = commandWatchTopicList.getRequestId();
+        final long watcherId = commandWatchTopicList.getWatcherId();
+        final NamespaceName namespaceName;
+        final Pattern topicsPattern;
+        try {
+            namespaceName = NamespaceName.get(commandWatchTopicList.getNamespace());
+            topicsPattern = Pattern.compile(commandWatchTopicList.getTopicsPattern());
+        } catch (IllegalArgumentException e) {
+            commandSender.sendErrorResponse(requestId, ServerError.InvalidTopicName, e.getMessage());
+            return;
+        }
+        final String topicsHash = commandWatchTopicList.hasTopicsHash() ? commandWatchTopicList.getTopicsHash() : null;
+
+        topicListService.handleWatchTopicList(namespaceName, watcherId, requestId, topicsPattern, topicsHash);
+    }
+
+    @Override
+    protected void handleWatchTopicListClose(CommandWatchTopicListClose commandWatchTopicListClose) {
+        topicListService.handleWatchTopicListClose(commandWatchTopicListClose);
+    }
+
     @Override
     protected void handleGetSchema(CommandGetSchema commandGetSchema) {
         if (log.isDebugEnabled()) {
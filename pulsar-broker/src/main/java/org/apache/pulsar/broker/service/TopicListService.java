@@ -0,0 +1,278 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.apache.pulsar.broker.PulsarService;
+import org.apache.pulsar.broker.namespace.NamespaceService;
+import org.apache.pulsar.broker.namespace.TopicListListener;
+import org.apache.pulsar.broker.service.BrokerServiceException.ServerMetadataException;
+import org.apache.pulsar.common.api.proto.CommandWatchTopicListClose;
+import org.apache.pulsar.common.api.proto.ServerError;
+import org.apache.pulsar.common.naming.NamespaceName;
+import org.apache.pulsar.common.naming.TopicName;
+import org.apache.pulsar.common.topics.TopicList;
+import org.apache.pulsar.common.util.FutureUtil;
+import org.apache.pulsar.common.util.collections.ConcurrentLongHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves the topic list watchers registered by the clients of a connection.
+ *
+ * <p>A watcher pushes the changes of the list of persistent topics of a namespace that match a pattern, so regex
+ * consumers don't have to poll the whole list of topics of the namespace.
+ */
+public class TopicListService {
+
+    // The patterns are given by the clients, so a pathological one must not hold the broker threads
+    private static final long MAX_PATTERN_MATCH_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Keeps the topics matching the pattern of a client watcher and sends it the changes.
+     */
+    public static class TopicListWatcher implements TopicListListener {
+
+        private final TopicListService topicListService;
+        private final NamespaceName namespaceName;
+        private final long id;
+        private final long requestId;
+        private final Pattern topicsPattern;
+        private final Pattern shortenedTopicsPattern;
+        private final String clientTopicsHash;
+        private List<String> matchingTopics;
+
+        public TopicListWatcher(TopicListService topicListService, NamespaceName namespaceName, long id,
+                                long requestId, Pattern topicsPattern, String clientTopicsHash) {
+            this.topicListService = topicListService;
+            this.namespaceName = namespaceName;
+            this.id = id;
+            this.requestId = requestId;
+            this.topicsPattern = topicsPattern;
+            this.shortenedTopicsPattern = TopicList.getShortenedPattern(topicsPattern);
+            this.clientTopicsHash = clientTopicsHash;
+        }
+
+        // The success response and the updates are sent under the same lock, so they reach the client in order
+        @Override
+        public synchronized void onTopicListChanged(List<String> topics) {
+            // The partitions are reported by the name of their partitioned topic, like in the topics lookups
+            List<String> partitionedTopics = topics.stream()
+                    .map(topic -> TopicName.get(topic).getPartitionedTopicName())
+                    .distinct()
+                    .collect(Collectors.toList());
+            List<String> newMatchingTopics;
+            try {
+                newMatchingTopics = TopicList.filterTopics(partitionedTopics, this::matches);
+            } catch (PatternMatchTimeoutException e) {
+                log.warn("[{}] Pattern {} of topic list watcher {} took too long to match topic {}",
+                        topicListService.connection.clientAddress(), topicsPattern, id, e.getMessage());
+                if (matchingTopics == null) {
+                    // Fails the registration of the watcher
+                    throw e;
+                }
+                // The client still falls back to fetching the list of topics periodically
+                topicListService.removeWatcher(id);
+                return;
+            }
+            if (matchingTopics == null) {
+                matchingTopics = newMatchingTopics;
+                String hash = TopicList.calculateHash(matchingTopics);
+                topicListService.sendTopicListSuccess(requestId, id, hash,
+                        hash.equals(clientTopicsHash) ? Collections.emptyList() : matchingTopics);
+                return;
+            }
+
+            List<String> newTopics = TopicList.minus(newMatchingTopics, matchingTopics);
+            List<String> deletedTopics = TopicList.minus(matchingTopics, newMatchingTopics);
+            if (!newTopics.isEmpty() || !deletedTopics.isEmpty()) {
+                matchingTopics = newMatchingTopics;
+                topicListService.sendTopicListUpdate(id, newTopics, deletedTopics,
+                        TopicList.calculateHash(matchingTopics));
+            }
+        }
+
+        public synchronized List<String> getMatchingTopics() {
+            return matchingTopics;
+        }
+
+        private boolean matches(String topic) {
+            return shortenedTopicsPattern.matcher(new TimeBoundedCharSequence(topic, MAX_PATTERN_MATCH_NANOS))
+                    .matches();
+        }
+    }
+
+    /**
+     * Input of a pattern match, that aborts the match once it took longer than the given time.
+     *
+     * <p>The time is only checked every {@link #CHECK_INTERVAL} accesses, so that it is not read at all by the matches
+     * of the patterns that don't backtrack much.
+     */
+    private static class TimeBoundedCharSequence implements CharSequence {
+        private static final int CHECK_INTERVAL = 1024;
+
+        private final String value;
+        private final long maxNanos;
+        private int accesses = 0;
+        private long startNanos = -1L;
+
+        TimeBoundedCharSequence(String value, long maxNanos) {
+            this.value = value;
+            this.maxNanos = maxNanos;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (++accesses % CHECK_INTERVAL == 0) {
+                long now = System.nanoTime();
+                if (startNanos < 0) {
+                    startNanos = now;
+                } else if (now - startNanos > maxNanos) {
+                    throw new PatternMatchTimeoutException(value);
+                }
+            }
+            return value.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return value.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return value.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+
+    static class PatternMatchTimeoutException extends RuntimeException {
+        PatternMatchTimeoutException(String topic) {
+            super(topic, null, false, false);
+        }
+    }
+
+    private final NamespaceService namespaceService;
+    private final ServerCnx connection;
+    private final boolean enableTopicListWatcher;
+    private final ConcurrentLongHashMap<CompletableFuture<TopicListWatcher>> watchers;
+
+    public TopicListService(PulsarService pulsar, ServerCnx connection) {
+        this.namespaceService = pulsar.getNamespaceService();
+        this.connection = connection;
+        this.enableTopicListWatcher = pulsar.getConfiguration().isEnableTopicListWatcher();
+        this.watchers = new ConcurrentLongHashMap<>(8, 1);
+    }
+
+    public void handleWatchTopicList(NamespaceName namespaceName, long watcherId, long requestId,
+                                     Pattern topicsPattern, String topicsHash) {
+        if (!enableTopicListWatcher) {
+            connection.getCommandSender().sendErrorResponse(requestId, ServerError.NotAllowedError,
+                    "Topic list watchers are disabled on this broker");
+            return;
+        }
+
+        CompletableFuture<TopicListWatcher> watcherFuture = new CompletableFuture<>();
+        CompletableFuture<TopicListWatcher> existingWatcherFuture = watchers.putIfAbsent(watcherId, watcherFuture);
+        if (existingWatcherFuture != null) {
+            log.warn("[{}] Watcher with id {} is already present on the connection", connection.clientAddress(),
+                    watcherId);
+            connection.getCommandSender().sendErrorResponse(requestId, ServerError.ServiceNotReady,
+                    "Watcher with id " + watcherId + " is already present on the connection");
+            return;
+        }
+
+        TopicListWatcher watcher = new TopicListWatcher(this, namespaceName, watcherId, requestId, topicsPattern,
+                topicsHash);
+        namespaceService.addTopicListListener(namespaceName, watcher).thenRun(() -> {
+            watcherFuture.complete(watcher);
+            if (!connection.isActive()) {
+                // The connection was closed while the watcher was registered
+                namespaceService.removeTopicListListener(namespaceName, watcher);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Registered topic list watcher {} on namespace {} for pattern {}",
+                        connection.clientAddress(), watcherId, namespaceName, topicsPattern);
+            }
+        }).exceptionally(ex -> {
+            log.warn("[{}] Failed to register topic list watcher {} on namespace {}: {}", connection.clientAddress(),
+                    watcherId, namespaceName, ex.getMessage());
+            namespaceService.removeTopicListListener(namespaceName, watcher);
+            watchers.remove(watcherId, watcherFuture);
+            watcherFuture.completeExceptionally(ex);
+            if (FutureUtil.unwrapCompletionException(ex) instanceof PatternMatchTimeoutException) {
+                // The client polls the list of topics instead
+                connection.getCommandSender().sendErrorResponse(requestId, ServerError.NotAllowedError,
+                        "The topics pattern is too expensive to match");
+                return null;
+            }
+            connection.getCommandSender().sendErrorResponse(requestId,
+                    BrokerServiceException.getClientErrorCode(new ServerMetadataException(ex)), ex.getMessage());
+            return null;
+        });
+    }
+
+    public void handleWatchTopicListClose(CommandWatchTopicListClose commandWatchTopicListClose) {
+        removeWatcher(commandWatchTopicListClose.getWatcherId());
+        connection.getCommandSender().sendSuccessResponse(commandWatchTopicListClose.getRequestId());
+    }
+
+    /**
+     * Unregister all the watchers of the connection, once it is closed.
+     */
+    public void inactivate() {
+        watchers.values().forEach(watcherFuture -> watcherFuture.thenAccept(this::removeListener));
+        watchers.clear();
+    }
+
+    private void removeWatcher(long watcherId) {
+        CompletableFuture<TopicListWatcher> watcherFuture = watchers.remove(watcherId);
+        if (watcherFuture != null) {
+            watcherFuture.thenAccept(this::removeListener);
+        }
+    }
+
+    private void removeListener(TopicListWatcher watcher) {
+        namespaceService.removeTopicListListener(watcher.namespaceName, watcher);
+    }
+
+    void sendTopicListSuccess(long requestId, long watcherId, String topicsHash, List<String> topics) {
+        connection.getCommandSender().sendWatchTopicListSuccess(requestId, watcherId, topicsHash, topics);
+    }
+
+    void sendTopicListUpdate(long watcherId, List<String> newTopics, List<String> deletedTopics,
+                             String topicsHash) {
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Sending topic list update to watcher {}: {} new topics, {} deleted topics",
+                    connection.clientAddress(), watcherId, newTopics.size(), deletedTopics.size());
+        }
+        connection.getCommandSender().sendWatchTopicListUpdate(watcherId, newTopics, deletedTopics, topicsHash);
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(TopicListService.class);
+}
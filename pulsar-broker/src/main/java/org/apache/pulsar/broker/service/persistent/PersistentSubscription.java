@@ -56,6 +56,7 @@ import org.apache.pulsar.broker.service.Dispatcher;
 import org.apache.pulsar.broker.service.Subscription;
 import org.apache.pulsar.broker.service.Topic;
 import org.apache.pulsar.broker.transaction.pendingack.PendingAckHandle;
+import org.apache.pulsar.broker.transaction.pendingack.impl.MLPendingAckStore;
 import org.apache.pulsar.broker.transaction.pendingack.impl.PendingAckHandleDisabled;
 import org.apache.pulsar.broker.transaction.pendingack.impl.PendingAckHandleImpl;
 import org.apache.pulsar.client.api.transaction.TxnID;
@@ -70,6 +71,7 @@ import org.apache.pulsar.common.policies.data.ConsumerStats;
 import org.apache.pulsar.common.policies.data.SubscriptionStats;
 import org.apache.pulsar.common.protocol.Commands;
 import org.apache.pulsar.common.protocol.Markers;
+import org.apache.pulsar.common.util.Codec;
 import org.apache.pulsar.common.util.FutureUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -131,7 +133,16 @@ public class PersistentSubscription implements Subscription {
         this.expiryMonitor = new PersistentMessageExpiryMonitor(topicName, subscriptionName, cursor, this);
         this.setReplicated(replicated);
         if (topic.getBrokerService().getPulsar().getConfig().isTransactionCoordinatorEnabled()) {
-            this.pendingAckHandle = new PendingAckHandleImpl(this);
+            if (topic.getBrokerService().getPulsar().getConfig().isTransactionPendingAckLogEnabled()) {
+                TopicName pendingAckTopicName = TopicName.get(topicName);
+                this.pendingAckHandle = new PendingAckHandleImpl(this, new MLPendingAckStore(
+                        topic.getBrokerService().getManagedLedgerFactory(),
+                        topic.getBrokerService().getManagedLedgerConfig(pendingAckTopicName),
+                        pendingAckTopicName.getPersistenceNamingEncoding() + "-" + Codec.encode(subscriptionName)
+                                + MLPendingAckStore.PENDING_ACK_LOG_SUFFIX));
+            } else {
+                this.pendingAckHandle = new PendingAckHandleImpl(this);
+            }
         } else {
             this.pendingAckHandle = new PendingAckHandleDisabled();
         }
@@ -744,7 +755,7 @@ public class PersistentSubscription implements Subscription {
             log.info("[{}][{}] Successfully closed subscription [{}]", topicName, subName, cursor);
         }
 
-        return CompletableFuture.completedFuture(null);
+        return pendingAckHandle.closeAsync();
     }
 
     /**
@@ -831,7 +842,8 @@ public class PersistentSubscription implements Subscription {
         }
 
         // cursor close handles pending delete (ack) operations
-        closeSubscriptionFuture.thenCompose(v -> topic.unsubscribe(subName)).thenAccept(v -> {
+        closeSubscriptionFuture.thenCompose(v -> topic.unsubscribe(subName))
+                .thenCompose(v -> pendingAckHandle.deleteAsync()).thenAccept(v -> {
             synchronized (this) {
                 (dispatcher != null ? dispatcher.close() : CompletableFuture.completedFuture(null)).thenRun(() -> {
                     log.info("[{}][{}] Successfully deleted subscription", topicName, subName);
@@ -856,6 +868,13 @@ public class PersistentSubscription implements Subscription {
         return deleteFuture;
     }
 
+    /**
+     * Delete the pending ack log of the subscription, when its whole topic is deleted.
+     */
+    CompletableFuture<Void> deletePendingAckLog() {
+        return pendingAckHandle.deleteAsync();
+    }
+
     /**
      * Handle unsubscribe command from the client API Check with the dispatcher is this consumer can proceed with
      * unsubscribe.
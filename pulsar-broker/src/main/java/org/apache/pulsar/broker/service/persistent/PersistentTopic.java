@@ -993,7 +993,10 @@ public class PersistentTopic extends AbstractTopic
                     CompletableFuture<SchemaVersion> deleteSchemaFuture =
                             deleteSchema ? deleteSchema() : CompletableFuture.completedFuture(null);
 
-                    deleteSchemaFuture.whenComplete((v, ex) -> {
+                    // The pending ack logs of the subscriptions and the transaction buffer snapshots are managed
+                    // ledgers of their own
+                    deleteSchemaFuture.thenCompose(__ -> deletePendingAckLogs())
+                            .thenCompose(__ -> transactionBuffer.deleteAsync()).whenComplete((v, ex) -> {
                         if (ex != null) {
                             log.error("[{}] Error deleting topic", topic, ex);
                             unfenceTopicToResume();
@@ -1046,6 +1049,12 @@ public class PersistentTopic extends AbstractTopic
         return deleteFuture;
     }
 
+    private CompletableFuture<Void> deletePendingAckLogs() {
+        List<CompletableFuture<Void>> futures = Lists.newArrayList();
+        subscriptions.forEach((name, subscription) -> futures.add(subscription.deletePendingAckLog()));
+        return FutureUtil.waitForAll(futures);
+    }
+
     public CompletableFuture<Void> close() {
         return close(false);
     }
@@ -1085,7 +1094,10 @@ public class PersistentTopic extends AbstractTopic
                 ? CompletableFuture.completedFuture(null)
                 : FutureUtil.waitForAll(futures);
 
-        clientCloseFuture.thenRun(() -> {
+        clientCloseFuture.thenCompose(ignore -> transactionBuffer.closeAsync().exceptionally(e -> {
+            log.warn("[{}] Failed to close transaction buffer, proceeding anyway.", topic, e);
+            return null;
+        })).thenRun(() -> {
             // After having disconnected all producers/consumers, close the managed ledger
             ledger.asyncClose(new CloseCallback() {
                 @Override
@@ -1145,6 +1157,10 @@ public class PersistentTopic extends AbstractTopic
         return messageDeduplication.checkStatus();
     }
 
+    public CompletableFuture<Void> checkTransactionBufferRecovered() {
+        return transactionBuffer.checkIfRecovered();
+    }
+
     private CompletableFuture<Void> checkPersistencePolicies() {
         TopicName topicName = TopicName.get(topic);
         CompletableFuture<Void> future = new CompletableFuture<>();
@@ -129,6 +129,21 @@ public interface TransactionBuffer {
      */
     CompletableFuture<Void> closeAsync();
 
+    /**
+     * Check whether the buffer has recovered its state after the topic was loaded.
+     *
+     * @return a future that completes once the buffer is recovered, or completes exceptionally if the recovery
+     *         failed, in which case the topic must not be served.
+     */
+    CompletableFuture<Void> checkIfRecovered();
+
+    /**
+     * Delete the state that the buffer persisted outside of the topic, when the topic is deleted.
+     *
+     * @return a future that completes once the state is deleted.
+     */
+    CompletableFuture<Void> deleteAsync();
+
     /**
      * Close the buffer asynchronously.
      * @param txnID {@link TxnID} txnId.
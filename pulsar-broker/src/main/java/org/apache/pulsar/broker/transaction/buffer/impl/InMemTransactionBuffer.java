@@ -347,6 +347,16 @@ class InMemTransactionBuffer implements TransactionBuffer {
         return CompletableFuture.completedFuture(null);
     }
 
+    @Override
+    public CompletableFuture<Void> checkIfRecovered() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync() {
+        return CompletableFuture.completedFuture(null);
+    }
+
     @Override
     public boolean isTxnAborted(TxnID txnID) {
         return false;
@@ -0,0 +1,283 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.transaction.buffer.impl;
+
+import io.netty.buffer.ByteBuf;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.mledger.AsyncCallbacks;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.ManagedCursor;
+import org.apache.bookkeeper.mledger.ManagedLedger;
+import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.ManagedLedgerFactory;
+import org.apache.bookkeeper.mledger.ManagedLedgerInfo;
+import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.impl.ManagedLedgerImpl;
+import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.pulsar.common.api.proto.CommandSubscribe.InitialPosition;
+import org.apache.pulsar.common.events.EventsTopicNames;
+
+/**
+ * Stores the snapshots of a {@link TopicTransactionBuffer} in a managed ledger of their own.
+ *
+ * <p>Only the latest snapshot is of interest: after each write, everything before it is mark-deleted, so the
+ * ledgers holding older snapshots are trimmed and the storage used by a topic stays bounded. The log is only created
+ * when the first snapshot is written, topics that never abort a transaction don't have one.
+ */
+@Slf4j
+public class MLTransactionBufferSnapshotStore {
+
+    /**
+     * Suffix appended to the topic name to build the name of its snapshot log.
+     */
+    public static final String SNAPSHOT_LOG_SUFFIX = EventsTopicNames.TRANSACTION_BUFFER_SNAPSHOT_SUFFIX;
+
+    private static final String CURSOR_NAME = "__transaction_buffer_snapshot_state";
+
+    private static final int READ_BATCH_SIZE = 100;
+
+    private final String name;
+
+    private final ManagedLedgerFactory factory;
+
+    private final Supplier<CompletableFuture<ManagedLedgerConfig>> configSupplier;
+
+    private CompletableFuture<ManagedCursor> openFuture;
+
+    private volatile ManagedLedger ledger;
+
+    public MLTransactionBufferSnapshotStore(ManagedLedgerFactory factory,
+                                            Supplier<CompletableFuture<ManagedLedgerConfig>> configSupplier,
+                                            String name) {
+        this.factory = factory;
+        this.configSupplier = configSupplier;
+        this.name = name;
+    }
+
+    private synchronized CompletableFuture<ManagedCursor> getOrOpen() {
+        if (openFuture == null) {
+            // the older snapshots are never read again
+            openFuture = configSupplier.get().thenCompose(config -> open(config
+                    .setRetentionTime(0, TimeUnit.MILLISECONDS)
+                    .setRetentionSizeInMB(0)));
+        }
+        return openFuture;
+    }
+
+    private synchronized CompletableFuture<ManagedCursor> getOpenFuture() {
+        return openFuture;
+    }
+
+    private CompletableFuture<Boolean> existsAsync() {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        factory.asyncGetManagedLedgerInfo(name, new AsyncCallbacks.ManagedLedgerInfoCallback() {
+            @Override
+            public void getInfoComplete(ManagedLedgerInfo info, Object ctx) {
+                future.complete(true);
+            }
+
+            @Override
+            public void getInfoFailed(ManagedLedgerException exception, Object ctx) {
+                if (exception instanceof ManagedLedgerException.MetadataNotFoundException) {
+                    future.complete(false);
+                } else {
+                    future.completeExceptionally(exception);
+                }
+            }
+        }, null);
+        return future;
+    }
+
+    private CompletableFuture<ManagedCursor> open(ManagedLedgerConfig config) {
+        CompletableFuture<ManagedCursor> future = new CompletableFuture<>();
+        factory.asyncOpen(name, config, new AsyncCallbacks.OpenLedgerCallback() {
+            @Override
+            public void openLedgerComplete(ManagedLedger ledger, Object ctx) {
+                MLTransactionBufferSnapshotStore.this.ledger = ledger;
+                ledger.asyncOpenCursor(CURSOR_NAME, InitialPosition.Earliest, new AsyncCallbacks.OpenCursorCallback() {
+                    @Override
+                    public void openCursorComplete(ManagedCursor cursor, Object ctx) {
+                        future.complete(cursor);
+                    }
+
+                    @Override
+                    public void openCursorFailed(ManagedLedgerException exception, Object ctx) {
+                        log.error("[{}] Failed to open transaction buffer snapshot log cursor", name, exception);
+                        future.completeExceptionally(exception);
+                    }
+                }, null);
+            }
+
+            @Override
+            public void openLedgerFailed(ManagedLedgerException exception, Object ctx) {
+                log.error("[{}] Failed to open transaction buffer snapshot log", name, exception);
+                future.completeExceptionally(exception);
+            }
+        }, null, null);
+        return future;
+    }
+
+    /**
+     * Read the latest snapshot.
+     *
+     * @return a future completed with the serialized snapshot, or with null if no snapshot was ever written
+     */
+    public CompletableFuture<byte[]> readLatestAsync() {
+        return existsAsync().thenCompose(exists -> {
+            if (!exists) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return getOrOpen().thenCompose(cursor -> {
+                CompletableFuture<byte[]> future = new CompletableFuture<>();
+                // the log stays open if loading the topic failed, and is read again by the next attempt
+                cursor.rewind();
+                readEntries(cursor, null, future);
+                return future;
+            });
+        });
+    }
+
+    private void readEntries(ManagedCursor cursor, byte[] latest, CompletableFuture<byte[]> future) {
+        if (!cursor.hasMoreEntries()) {
+            future.complete(latest);
+            return;
+        }
+        cursor.asyncReadEntries(READ_BATCH_SIZE, new AsyncCallbacks.ReadEntriesCallback() {
+            @Override
+            public void readEntriesComplete(List<Entry> entries, Object ctx) {
+                byte[] last = entries.isEmpty() ? latest : entries.get(entries.size() - 1).getData();
+                entries.forEach(Entry::release);
+                readEntries(cursor, last, future);
+            }
+
+            @Override
+            public void readEntriesFailed(ManagedLedgerException exception, Object ctx) {
+                log.error("[{}] Failed to read transaction buffer snapshot log", name, exception);
+                future.completeExceptionally(exception);
+            }
+        }, null, PositionImpl.latest);
+    }
+
+    /**
+     * Write a snapshot, which replaces all the previous ones.
+     */
+    public CompletableFuture<Void> writeAsync(byte[] snapshot) {
+        return getOrOpen().thenCompose(cursor -> {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            ledger.asyncAddEntry(snapshot, new AsyncCallbacks.AddEntryCallback() {
+                @Override
+                public void addComplete(Position position, ByteBuf entryData, Object ctx) {
+                    trimLog(cursor, (PositionImpl) position);
+                    future.complete(null);
+                }
+
+                @Override
+                public void addFailed(ManagedLedgerException exception, Object ctx) {
+                    log.error("[{}] Failed to write transaction buffer snapshot", name, exception);
+                    future.completeExceptionally(exception);
+                }
+            }, null);
+            return future;
+        });
+    }
+
+    private void trimLog(ManagedCursor cursor, PositionImpl latestPosition) {
+        PositionImpl deletePosition = ((ManagedLedgerImpl) ledger).getPreviousPosition(latestPosition);
+        if (deletePosition.compareTo((PositionImpl) cursor.getMarkDeletedPosition()) <= 0) {
+            return;
+        }
+        cursor.asyncMarkDelete(deletePosition, new AsyncCallbacks.MarkDeleteCallback() {
+            @Override
+            public void markDeleteComplete(Object ctx) {
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}] Trimmed transaction buffer snapshot log up to {}", name, deletePosition);
+                }
+            }
+
+            @Override
+            public void markDeleteFailed(ManagedLedgerException exception, Object ctx) {
+                log.warn("[{}] Failed to trim transaction buffer snapshot log up to {}", name, deletePosition,
+                        exception);
+            }
+        }, null);
+    }
+
+    public CompletableFuture<Void> closeAsync() {
+        CompletableFuture<ManagedCursor> openFuture = getOpenFuture();
+        if (openFuture == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return openFuture.handle((cursor, e) -> null).thenCompose(ignore -> {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            if (ledger == null) {
+                future.complete(null);
+                return future;
+            }
+            ledger.asyncClose(new AsyncCallbacks.CloseCallback() {
+                @Override
+                public void closeComplete(Object ctx) {
+                    future.complete(null);
+                }
+
+                @Override
+                public void closeFailed(ManagedLedgerException exception, Object ctx) {
+                    log.warn("[{}] Failed to close transaction buffer snapshot log", name, exception);
+                    future.complete(null);
+                }
+            }, null);
+            return future;
+        });
+    }
+
+    public CompletableFuture<Void> deleteAsync() {
+        CompletableFuture<ManagedCursor> openFuture = getOpenFuture();
+        CompletableFuture<Boolean> existsFuture = openFuture == null
+                ? existsAsync()
+                : openFuture.handle((cursor, e) -> true);
+        return existsFuture.thenCompose(exists -> {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            if (!exists) {
+                future.complete(null);
+                return future;
+            }
+            factory.asyncDelete(name, new AsyncCallbacks.DeleteLedgerCallback() {
+                @Override
+                public void deleteLedgerComplete(Object ctx) {
+                    future.complete(null);
+                }
+
+                @Override
+                public void deleteLedgerFailed(ManagedLedgerException exception, Object ctx) {
+                    if (exception instanceof ManagedLedgerException.MetadataNotFoundException) {
+                        future.complete(null);
+                        return;
+                    }
+                    log.warn("[{}] Failed to delete transaction buffer snapshot log", name, exception);
+                    future.completeExceptionally(exception);
+                }
+            }, null);
+            return future;
+        });
+    }
+}
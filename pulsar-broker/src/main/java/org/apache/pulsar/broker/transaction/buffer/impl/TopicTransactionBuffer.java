@@ -19,29 +19,75 @@
 package org.apache.pulsar.broker.transaction.buffer.impl;
 
 import io.netty.buffer.ByteBuf;
+import io.prometheus.client.Summary;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.mledger.AsyncCallbacks;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.ManagedCursor;
+import org.apache.bookkeeper.mledger.ManagedLedger;
 import org.apache.bookkeeper.mledger.ManagedLedgerException;
 import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.impl.ManagedLedgerImpl;
 import org.apache.bookkeeper.mledger.impl.PositionImpl;
 import org.apache.commons.collections4.map.LinkedMap;
+import org.apache.pulsar.broker.ServiceConfiguration;
 import org.apache.pulsar.broker.service.persistent.PersistentTopic;
 import org.apache.pulsar.broker.transaction.buffer.TransactionBuffer;
 import org.apache.pulsar.broker.transaction.buffer.TransactionBufferReader;
 import org.apache.pulsar.broker.transaction.buffer.TransactionMeta;
 import org.apache.pulsar.client.api.transaction.TxnID;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.naming.TopicName;
+import org.apache.pulsar.common.protocol.Commands;
 import org.apache.pulsar.common.protocol.Markers;
+import org.apache.pulsar.common.util.FutureUtil;
+import org.apache.pulsar.common.util.ObjectMapperFactory;
 
 /**
  * Transaction buffer based on normal persistent topic.
+ *
+ * <p>When the set of aborted transactions changes, the aborted transactions and the max read position are
+ * periodically persisted as a {@link TransactionBufferSnapshot} in a {@link MLTransactionBufferSnapshotStore}. When
+ * the topic is loaded, the buffer is restored from the latest snapshot and only the entries written after it are
+ * replayed.
  */
 @Slf4j
 public class TopicTransactionBuffer implements TransactionBuffer {
 
+    private static final int RECOVER_READ_BATCH_SIZE = 100;
+
+    private static final Summary snapshotSizeMetric = Summary.build("pulsar_txn_tb_snapshot_size_bytes",
+            "Size of the transaction buffer snapshots persisted in the snapshot logs").register();
+
+    private static final Summary recoverTimeMetric = Summary.build("pulsar_txn_tb_recover_time_ms",
+            "Time taken to recover a transaction buffer from its snapshot").register();
+
     private final PersistentTopic topic;
 
+    private final MLTransactionBufferSnapshotStore snapshotStore;
+
+    private final int snapshotMaxTransactionCount;
+
+    private final long snapshotMinTimeInMillis;
+
+    private final CompletableFuture<Void> recoverFuture;
+
+    private volatile boolean recovering = true;
+
+    /**
+     * Number of changes to the aborted transactions that are not reflected in the persisted snapshot.
+     */
+    private int changesSinceSnapshot = 0;
+
+    private long lastSnapshotTimestamp;
+
+    private boolean snapshotInProgress = false;
+
     private volatile PositionImpl maxReadPosition = PositionImpl.latest;
 
     private final LinkedMap<TxnID, PositionImpl> ongoingTxns = new LinkedMap<>();
@@ -50,6 +96,215 @@ public class TopicTransactionBuffer implements TransactionBuffer {
 
     public TopicTransactionBuffer(PersistentTopic topic) {
         this.topic = topic;
+        ServiceConfiguration conf = topic.getBrokerService().getPulsar().getConfiguration();
+        this.snapshotMaxTransactionCount = conf.getTransactionBufferSnapshotMaxTransactionCount();
+        this.snapshotMinTimeInMillis = conf.getTransactionBufferSnapshotMinTimeInMillis();
+        this.lastSnapshotTimestamp = System.currentTimeMillis();
+        TopicName topicName = TopicName.get(topic.getName());
+        this.snapshotStore = new MLTransactionBufferSnapshotStore(topic.getBrokerService().getManagedLedgerFactory(),
+                () -> topic.getBrokerService().getManagedLedgerConfig(topicName),
+                topicName.getPersistenceNamingEncoding() + MLTransactionBufferSnapshotStore.SNAPSHOT_LOG_SUFFIX);
+        this.recoverFuture = snapshotStore.readLatestAsync()
+                .thenCompose(this::recover)
+                .whenComplete((ignore, e) -> {
+                    synchronized (TopicTransactionBuffer.this) {
+                        recovering = false;
+                        updateMaxReadPosition();
+                    }
+                    if (e != null) {
+                        log.error("[{}] Failed to recover transaction buffer", topic.getName(), e);
+                    }
+                });
+    }
+
+    private CompletableFuture<Void> recover(byte[] snapshotData) {
+        if (snapshotData == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        long startTime = System.nanoTime();
+        ManagedLedger ledger = topic.getManagedLedger();
+        TransactionBufferSnapshot snapshot;
+        ManagedCursor cursor;
+        try {
+            snapshot = ObjectMapperFactory.getThreadLocal().readValue(snapshotData, TransactionBufferSnapshot.class);
+            cursor = ledger.newNonDurableCursor(PositionImpl.get(snapshot.getMaxReadPositionLedgerId(),
+                    snapshot.getMaxReadPositionEntryId()));
+        } catch (Exception e) {
+            // starting from an empty buffer would dispatch the messages of the aborted transactions
+            log.error("[{}] Failed to load transaction buffer snapshot", topic.getName(), e);
+            return FutureUtil.failedFuture(e);
+        }
+
+        synchronized (this) {
+            for (TransactionBufferSnapshot.AbortTxnMetadata abort : snapshot.getAborts()) {
+                aborts.put(new TxnID(abort.getTxnIdMostBits(), abort.getTxnIdLeastBits()),
+                        PositionImpl.get(abort.getLedgerId(), abort.getEntryId()));
+            }
+            maxReadPosition = PositionImpl.get(snapshot.getMaxReadPositionLedgerId(),
+                    snapshot.getMaxReadPositionEntryId());
+        }
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        replayEntries(cursor, (PositionImpl) ledger.getLastConfirmedEntry(), future);
+        return future.whenComplete((ignore, e) -> {
+            ledger.asyncDeleteCursor(cursor.getName(), new AsyncCallbacks.DeleteCursorCallback() {
+                @Override
+                public void deleteCursorComplete(Object ctx) {
+                }
+
+                @Override
+                public void deleteCursorFailed(ManagedLedgerException exception, Object ctx) {
+                    log.warn("[{}] Failed to delete transaction buffer recover cursor", topic.getName(), exception);
+                }
+            }, null);
+            if (e == null) {
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                recoverTimeMetric.observe(elapsedMillis);
+                log.info("[{}] Recovered transaction buffer in {} ms: {} aborted and {} ongoing transactions",
+                        topic.getName(), elapsedMillis, aborts.size(), ongoingTxns.size());
+            }
+        });
+    }
+
+    private void replayEntries(ManagedCursor cursor, PositionImpl lastPosition, CompletableFuture<Void> future) {
+        if (!cursor.hasMoreEntries() || ((PositionImpl) cursor.getReadPosition()).compareTo(lastPosition) > 0) {
+            future.complete(null);
+            return;
+        }
+        cursor.asyncReadEntries(RECOVER_READ_BATCH_SIZE, new AsyncCallbacks.ReadEntriesCallback() {
+            @Override
+            public void readEntriesComplete(List<Entry> entries, Object ctx) {
+                try {
+                    synchronized (TopicTransactionBuffer.this) {
+                        for (Entry entry : entries) {
+                            replayEntry(entry);
+                        }
+                    }
+                } catch (Exception e) {
+                    log.error("[{}] Failed to replay transaction buffer entries", topic.getName(), e);
+                    future.completeExceptionally(e);
+                    return;
+                } finally {
+                    entries.forEach(Entry::release);
+                }
+                replayEntries(cursor, lastPosition, future);
+            }
+
+            @Override
+            public void readEntriesFailed(ManagedLedgerException exception, Object ctx) {
+                future.completeExceptionally(exception);
+            }
+        }, null, lastPosition);
+    }
+
+    private void replayEntry(Entry entry) {
+        ByteBuf headersAndPayload = entry.getDataBuffer();
+        Commands.skipBrokerEntryMetadataIfExist(headersAndPayload);
+        MessageMetadata metadata = Commands.parseMessageMetadata(headersAndPayload);
+        if (!metadata.hasTxnidMostBits() || !metadata.hasTxnidLeastBits()) {
+            return;
+        }
+        TxnID txnID = new TxnID(metadata.getTxnidMostBits(), metadata.getTxnidLeastBits());
+        PositionImpl position = PositionImpl.get(entry.getLedgerId(), entry.getEntryId());
+        if (Markers.isTxnAbortMarker(metadata)) {
+            aborts.put(txnID, position);
+            ongoingTxns.remove(txnID);
+        } else if (Markers.isTxnCommitMarker(metadata)) {
+            ongoingTxns.remove(txnID);
+        } else if (!ongoingTxns.containsKey(txnID) && !aborts.containsKey(txnID)) {
+            ongoingTxns.put(txnID, position);
+        }
+    }
+
+    /**
+     * Record that a transaction was aborted, and persist a snapshot once enough transactions were aborted since the
+     * last one, or once the last one is old enough. Commits don't need a snapshot: recovery rebuilds the same state
+     * from the markers after the snapshot position. Must be called while holding the buffer lock.
+     */
+    private void abortedTxnAdded(TxnID txnID, PositionImpl position) {
+        aborts.put(txnID, position);
+        changesSinceSnapshot++;
+        if (snapshotInProgress || recovering) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (changesSinceSnapshot < snapshotMaxTransactionCount && now - lastSnapshotTimestamp < snapshotMinTimeInMillis) {
+            return;
+        }
+        int changes = changesSinceSnapshot;
+        snapshotInProgress = true;
+        changesSinceSnapshot = 0;
+        lastSnapshotTimestamp = now;
+        takeSnapshot().whenComplete((ignore, e) -> {
+            synchronized (TopicTransactionBuffer.this) {
+                snapshotInProgress = false;
+                if (e != null) {
+                    // retry with the next aborted transaction, or when the topic is closed
+                    changesSinceSnapshot += changes;
+                }
+            }
+        });
+    }
+
+    private CompletableFuture<Void> takeSnapshot() {
+        TransactionBufferSnapshot snapshot = new TransactionBufferSnapshot();
+        synchronized (this) {
+            trimAborts();
+            snapshot.setMaxReadPositionLedgerId(maxReadPosition.getLedgerId());
+            snapshot.setMaxReadPositionEntryId(maxReadPosition.getEntryId());
+            aborts.forEach((txnID, position) -> snapshot.getAborts().add(
+                    new TransactionBufferSnapshot.AbortTxnMetadata(txnID.getMostSigBits(), txnID.getLeastSigBits(),
+                            position.getLedgerId(), position.getEntryId())));
+        }
+
+        byte[] snapshotData;
+        try {
+            snapshotData = ObjectMapperFactory.getThreadLocal().writeValueAsBytes(snapshot);
+        } catch (Exception e) {
+            log.error("[{}] Failed to serialize transaction buffer snapshot", topic.getName(), e);
+            return FutureUtil.failedFuture(e);
+        }
+        return snapshotStore.writeAsync(snapshotData).thenRun(() -> {
+            snapshotSizeMetric.observe(snapshotData.length);
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Took transaction buffer snapshot at {}:{} with {} aborted transactions",
+                        topic.getName(), snapshot.getMaxReadPositionLedgerId(), snapshot.getMaxReadPositionEntryId(),
+                        snapshot.getAborts().size());
+            }
+        });
+    }
+
+    /**
+     * Drop the aborted transactions whose abort marker is in a ledger that was already trimmed from the topic. The
+     * messages of these transactions are before their marker, so they can't be dispatched anymore and keeping them
+     * would make the snapshots grow without bound. Must be called while holding the buffer lock.
+     */
+    private void trimAborts() {
+        ManagedLedger ledger = topic.getManagedLedger();
+        if (!(ledger instanceof ManagedLedgerImpl)) {
+            return;
+        }
+        Map.Entry<Long, ?> firstLedger = ((ManagedLedgerImpl) ledger).getLedgersInfo().firstEntry();
+        if (firstLedger == null) {
+            return;
+        }
+        // aborts are kept in the order of their markers
+        while (!aborts.isEmpty() && aborts.get(aborts.firstKey()).getLedgerId() < firstLedger.getKey()) {
+            aborts.remove(aborts.firstKey());
+        }
+    }
+
+    private <T> CompletableFuture<T> afterRecover(Supplier<CompletableFuture<T>> operation) {
+        if (recoverFuture.isDone() && !recoverFuture.isCompletedExceptionally()) {
+            return operation.get();
+        }
+        return recoverFuture.thenCompose(ignore -> operation.get());
+    }
+
+    @Override
+    public CompletableFuture<Void> checkIfRecovered() {
+        return recoverFuture;
     }
 
     @Override
@@ -59,6 +314,10 @@ public class TopicTransactionBuffer implements TransactionBuffer {
 
     @Override
     public CompletableFuture<Position> appendBufferToTxn(TxnID txnId, long sequenceId, ByteBuf buffer) {
+        return afterRecover(() -> doAppendBufferToTxn(txnId, buffer));
+    }
+
+    private CompletableFuture<Position> doAppendBufferToTxn(TxnID txnId, ByteBuf buffer) {
         CompletableFuture<Position> completableFuture = new CompletableFuture<>();
         topic.getManagedLedger().asyncAddEntry(buffer, new AsyncCallbacks.AddEntryCallback() {
             @Override
@@ -66,9 +325,7 @@ public class TopicTransactionBuffer implements TransactionBuffer {
                 synchronized (TopicTransactionBuffer.this) {
                     if (!ongoingTxns.containsKey(txnId)) {
                         ongoingTxns.put(txnId, (PositionImpl) position);
-                        PositionImpl firstPosition = ongoingTxns.get(ongoingTxns.firstKey());
-                        //max read position is less than first ongoing transaction message position, so entryId -1
-                        maxReadPosition = PositionImpl.get(firstPosition.getLedgerId(), firstPosition.getEntryId() - 1);
+                        updateMaxReadPosition();
                     }
                 }
                 completableFuture.complete(position);
@@ -89,6 +346,10 @@ public class TopicTransactionBuffer implements TransactionBuffer {
     }
     @Override
     public CompletableFuture<Void> commitTxn(TxnID txnID, long lowWaterMark) {
+        return afterRecover(() -> doCommitTxn(txnID, lowWaterMark));
+    }
+
+    private CompletableFuture<Void> doCommitTxn(TxnID txnID, long lowWaterMark) {
         if (log.isDebugEnabled()) {
             log.debug("Transaction {} commit on topic {}.", txnID.toString(), topic.getName());
         }
@@ -118,6 +379,10 @@ public class TopicTransactionBuffer implements TransactionBuffer {
 
     @Override
     public CompletableFuture<Void> abortTxn(TxnID txnID, long lowWaterMark) {
+        return afterRecover(() -> doAbortTxn(txnID, lowWaterMark));
+    }
+
+    private CompletableFuture<Void> doAbortTxn(TxnID txnID, long lowWaterMark) {
         if (log.isDebugEnabled()) {
             log.debug("Transaction {} abort on topic {}.", txnID.toString(), topic.getName());
         }
@@ -128,8 +393,8 @@ public class TopicTransactionBuffer implements TransactionBuffer {
             @Override
             public void addComplete(Position position, ByteBuf entryData, Object ctx) {
                 synchronized (TopicTransactionBuffer.this) {
-                    aborts.put(txnID, (PositionImpl) position);
                     updateMaxReadPosition(txnID);
+                    abortedTxnAdded(txnID, (PositionImpl) position);
                     handleLowWaterMark(txnID, lowWaterMark);
                 }
                 completableFuture.complete(null);
@@ -154,8 +419,8 @@ public class TopicTransactionBuffer implements TransactionBuffer {
                     @Override
                     public void addComplete(Position position, ByteBuf entryData, Object ctx) {
                         synchronized (TopicTransactionBuffer.this) {
-                            aborts.put(firstTxn, (PositionImpl) position);
                             updateMaxReadPosition(firstTxn);
+                            abortedTxnAdded(firstTxn, (PositionImpl) position);
                         }
                     }
 
@@ -170,6 +435,14 @@ public class TopicTransactionBuffer implements TransactionBuffer {
 
     void updateMaxReadPosition(TxnID txnID) {
         ongoingTxns.remove(txnID);
+        updateMaxReadPosition();
+    }
+
+    private void updateMaxReadPosition() {
+        if (recovering) {
+            // entries after the snapshot position may belong to transactions that are not known yet
+            return;
+        }
         if (!ongoingTxns.isEmpty()) {
             PositionImpl position = ongoingTxns.get(ongoingTxns.firstKey());
             //max read position is less than first ongoing transaction message position, so entryId -1
@@ -186,7 +459,22 @@ public class TopicTransactionBuffer implements TransactionBuffer {
 
     @Override
     public CompletableFuture<Void> closeAsync() {
-        return null;
+        CompletableFuture<Void> snapshotFuture;
+        synchronized (this) {
+            if (!recoverFuture.isDone() || recoverFuture.isCompletedExceptionally() || changesSinceSnapshot == 0) {
+                // either the buffer state is incomplete, or the last persisted snapshot is still accurate
+                snapshotFuture = CompletableFuture.completedFuture(null);
+            } else {
+                changesSinceSnapshot = 0;
+                snapshotFuture = takeSnapshot();
+            }
+        }
+        return snapshotFuture.handle((ignore, e) -> null).thenCompose(ignore -> snapshotStore.closeAsync());
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync() {
+        return snapshotStore.deleteAsync();
     }
 
     @Override
@@ -199,7 +487,7 @@ public class TopicTransactionBuffer implements TransactionBuffer {
         // when ongoing transaction is empty, proved that lastAddConfirm is can read max position, because callback
         // thread is the same tread, in this time the lastAddConfirm don't content transaction message.
         synchronized (TopicTransactionBuffer.this) {
-            if (ongoingTxns.isEmpty()) {
+            if (ongoingTxns.isEmpty() && !recovering) {
                 maxReadPosition = position;
             }
         }
@@ -0,0 +1,54 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.transaction.buffer.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Persistent state of a {@link TopicTransactionBuffer}.
+ *
+ * <p>All transaction markers up to the max read position are reflected in the snapshot, so recovering a
+ * transaction buffer only needs to replay the entries after it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionBufferSnapshot {
+
+    private long maxReadPositionLedgerId;
+    private long maxReadPositionEntryId;
+    private List<AbortTxnMetadata> aborts = new ArrayList<>();
+
+    /**
+     * An aborted transaction and the position of its abort marker.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AbortTxnMetadata {
+        private long txnIdMostBits;
+        private long txnIdLeastBits;
+        private long ledgerId;
+        private long entryId;
+    }
+}
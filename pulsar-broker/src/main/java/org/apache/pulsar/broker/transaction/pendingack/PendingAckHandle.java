@@ -119,4 +119,18 @@ public interface PendingAckHandle {
      * @param position {@link Position} which position need to clear
      */
     void clearIndividualPosition(Position position);
+
+    /**
+     * Close the pending ack handle, when the subscription is closed.
+     *
+     * @return the future of this operation.
+     */
+    CompletableFuture<Void> closeAsync();
+
+    /**
+     * Delete the persistent state of the pending ack handle, when the subscription is deleted.
+     *
+     * @return the future of this operation.
+     */
+    CompletableFuture<Void> deleteAsync();
 }
@@ -0,0 +1,38 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.transaction.pendingack;
+
+import java.util.List;
+import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.commons.lang3.tuple.MutablePair;
+import org.apache.pulsar.client.api.transaction.TxnID;
+
+/**
+ * Receives the records replayed from a {@link PendingAckStore}.
+ */
+public interface PendingAckReplayCallback {
+
+    void replayIndividualAck(TxnID txnID, List<MutablePair<PositionImpl, Integer>> positions);
+
+    void replayCumulativeAck(TxnID txnID, PositionImpl position);
+
+    void replayCommit(TxnID txnID);
+
+    void replayAbort(TxnID txnID);
+}
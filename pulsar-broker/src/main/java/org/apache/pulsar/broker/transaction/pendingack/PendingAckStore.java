@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.transaction.pendingack;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.commons.lang3.tuple.MutablePair;
+import org.apache.pulsar.client.api.transaction.TxnID;
+
+/**
+ * Write-ahead log of the pending acks of a subscription.
+ *
+ * <p>Every transactional ack is appended before it is confirmed to the client, followed by a commit or abort mark
+ * when the transaction ends, so that the pending ack state survives a broker restart.
+ */
+public interface PendingAckStore {
+
+    /**
+     * Replay the records of the transactions that were still pending when the log was last written.
+     *
+     * @param callback the callback receiving the replayed records, in log order
+     * @return a future that completes once the whole log has been replayed
+     */
+    CompletableFuture<Void> replayAsync(PendingAckReplayCallback callback);
+
+    /**
+     * Append the individual acks of a transaction.
+     *
+     * @param txnID the transaction id
+     * @param positions the acked positions and their batch size
+     * @return a future that completes once the record is durable
+     */
+    CompletableFuture<Void> appendIndividualAck(TxnID txnID, List<MutablePair<PositionImpl, Integer>> positions);
+
+    /**
+     * Append the cumulative ack of a transaction.
+     *
+     * @param txnID the transaction id
+     * @param position the acked position
+     * @return a future that completes once the record is durable
+     */
+    CompletableFuture<Void> appendCumulativeAck(TxnID txnID, PositionImpl position);
+
+    /**
+     * Append the commit mark of a transaction.
+     *
+     * @param txnID the transaction id
+     * @return a future that completes once the record is durable
+     */
+    CompletableFuture<Void> appendCommitMark(TxnID txnID);
+
+    /**
+     * Append the abort mark of a transaction.
+     *
+     * @param txnID the transaction id
+     * @return a future that completes once the record is durable
+     */
+    CompletableFuture<Void> appendAbortMark(TxnID txnID);
+
+    /**
+     * Close the log.
+     *
+     * @return a future represents the result of the operation
+     */
+    CompletableFuture<Void> closeAsync();
+
+    /**
+     * Delete the log, when the subscription is deleted.
+     *
+     * @return a future represents the result of the operation
+     */
+    CompletableFuture<Void> deleteAsync();
+}
@@ -0,0 +1,369 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.transaction.pendingack.impl;
+
+import io.netty.buffer.ByteBuf;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.mledger.AsyncCallbacks;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.ManagedCursor;
+import org.apache.bookkeeper.mledger.ManagedLedger;
+import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.ManagedLedgerFactory;
+import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.impl.ManagedLedgerImpl;
+import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.commons.collections4.map.LinkedMap;
+import org.apache.commons.lang3.tuple.MutablePair;
+import org.apache.pulsar.broker.transaction.pendingack.PendingAckReplayCallback;
+import org.apache.pulsar.broker.transaction.pendingack.PendingAckStore;
+import org.apache.pulsar.client.api.transaction.TxnID;
+import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
+import org.apache.pulsar.common.api.proto.CommandSubscribe.InitialPosition;
+import org.apache.pulsar.common.events.EventsTopicNames;
+
+/**
+ * {@link PendingAckStore} backed by a managed ledger per subscription.
+ *
+ * <p>The log is kept short by mark-deleting, after each commit or abort mark, everything before the first record
+ * of the oldest transaction that is still pending. Recovery therefore only replays the records of the transactions
+ * that were in flight, however long the subscription has been used with transactions.
+ */
+@Slf4j
+public class MLPendingAckStore implements PendingAckStore {
+
+    /**
+     * Suffix appended to the subscription name to build the name of its pending ack log.
+     */
+    public static final String PENDING_ACK_LOG_SUFFIX = EventsTopicNames.PENDING_ACK_STORE_SUFFIX;
+
+    private static final String CURSOR_NAME = "__pending_ack_state";
+
+    private static final int REPLAY_READ_BATCH_SIZE = 100;
+
+    private static final byte INDIVIDUAL_ACK = 0;
+    private static final byte CUMULATIVE_ACK = 1;
+    private static final byte COMMIT_MARK = 2;
+    private static final byte ABORT_MARK = 3;
+
+    private final String name;
+
+    private final ManagedLedgerFactory factory;
+
+    private final CompletableFuture<ManagedCursor> openFuture;
+
+    private volatile ManagedLedger ledger;
+
+    /**
+     * Position of the first record of every pending transaction, in log order.
+     */
+    private final LinkedMap<TxnID, PositionImpl> firstPositionOfPendingTxns = new LinkedMap<>();
+
+    public MLPendingAckStore(ManagedLedgerFactory factory, CompletableFuture<ManagedLedgerConfig> configFuture,
+                             String name) {
+        this.factory = factory;
+        this.name = name;
+        this.openFuture = configFuture.thenCompose(this::open);
+    }
+
+    private CompletableFuture<ManagedCursor> open(ManagedLedgerConfig config) {
+        CompletableFuture<ManagedCursor> future = new CompletableFuture<>();
+        factory.asyncOpen(name, config, new AsyncCallbacks.OpenLedgerCallback() {
+            @Override
+            public void openLedgerComplete(ManagedLedger ledger, Object ctx) {
+                MLPendingAckStore.this.ledger = ledger;
+                ledger.asyncOpenCursor(CURSOR_NAME, InitialPosition.Earliest, new AsyncCallbacks.OpenCursorCallback() {
+                    @Override
+                    public void openCursorComplete(ManagedCursor cursor, Object ctx) {
+                        future.complete(cursor);
+                    }
+
+                    @Override
+                    public void openCursorFailed(ManagedLedgerException exception, Object ctx) {
+                        log.error("[{}] Failed to open pending ack log cursor", name, exception);
+                        future.completeExceptionally(exception);
+                    }
+                }, null);
+            }
+
+            @Override
+            public void openLedgerFailed(ManagedLedgerException exception, Object ctx) {
+                log.error("[{}] Failed to open pending ack log", name, exception);
+                future.completeExceptionally(exception);
+            }
+        }, null, null);
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Void> replayAsync(PendingAckReplayCallback callback) {
+        return openFuture.thenCompose(cursor -> {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            replayEntries(cursor, callback, future);
+            return future;
+        });
+    }
+
+    private void replayEntries(ManagedCursor cursor, PendingAckReplayCallback callback,
+                               CompletableFuture<Void> future) {
+        if (!cursor.hasMoreEntries()) {
+            future.complete(null);
+            return;
+        }
+        cursor.asyncReadEntries(REPLAY_READ_BATCH_SIZE, new AsyncCallbacks.ReadEntriesCallback() {
+            @Override
+            public void readEntriesComplete(List<Entry> entries, Object ctx) {
+                try {
+                    for (Entry entry : entries) {
+                        try {
+                            replayEntry(entry, callback);
+                        } finally {
+                            entry.release();
+                        }
+                    }
+                } catch (Exception e) {
+                    log.error("[{}] Failed to replay pending ack log", name, e);
+                    future.completeExceptionally(e);
+                    return;
+                }
+                replayEntries(cursor, callback, future);
+            }
+
+            @Override
+            public void readEntriesFailed(ManagedLedgerException exception, Object ctx) {
+                log.error("[{}] Failed to read pending ack log", name, exception);
+                future.completeExceptionally(exception);
+            }
+        }, null, PositionImpl.latest);
+    }
+
+    private void replayEntry(Entry entry, PendingAckReplayCallback callback) {
+        ByteBuf buf = entry.getDataBuffer();
+        byte type = buf.readByte();
+        TxnID txnID = new TxnID(buf.readLong(), buf.readLong());
+        PositionImpl position = PositionImpl.get(entry.getLedgerId(), entry.getEntryId());
+        switch (type) {
+            case INDIVIDUAL_ACK:
+                int size = buf.readInt();
+                List<MutablePair<PositionImpl, Integer>> positions = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    PositionImpl ackPosition = readPosition(buf);
+                    positions.add(MutablePair.of(ackPosition, buf.readInt()));
+                }
+                pendingTxnRecordAdded(txnID, position);
+                callback.replayIndividualAck(txnID, positions);
+                break;
+            case CUMULATIVE_ACK:
+                pendingTxnRecordAdded(txnID, position);
+                callback.replayCumulativeAck(txnID, readPosition(buf));
+                break;
+            case COMMIT_MARK:
+                pendingTxnEnded(txnID);
+                callback.replayCommit(txnID);
+                break;
+            case ABORT_MARK:
+                pendingTxnEnded(txnID);
+                callback.replayAbort(txnID);
+                break;
+            default:
+                throw new IllegalStateException("Unknown pending ack record type " + type + " at " + position);
+        }
+    }
+
+    private static void writePosition(ByteBuf buf, PositionImpl position) {
+        buf.writeLong(position.getLedgerId());
+        buf.writeLong(position.getEntryId());
+        long[] ackSet = position.hasAckSet() ? position.getAckSet() : null;
+        buf.writeInt(ackSet == null ? 0 : ackSet.length);
+        if (ackSet != null) {
+            for (long word : ackSet) {
+                buf.writeLong(word);
+            }
+        }
+    }
+
+    private static PositionImpl readPosition(ByteBuf buf) {
+        long ledgerId = buf.readLong();
+        long entryId = buf.readLong();
+        int ackSetLength = buf.readInt();
+        if (ackSetLength == 0) {
+            return PositionImpl.get(ledgerId, entryId);
+        }
+        long[] ackSet = new long[ackSetLength];
+        for (int i = 0; i < ackSetLength; i++) {
+            ackSet[i] = buf.readLong();
+        }
+        return PositionImpl.get(ledgerId, entryId, ackSet);
+    }
+
+    private static ByteBuf newRecord(byte type, TxnID txnID) {
+        ByteBuf buf = PulsarByteBufAllocator.DEFAULT.buffer(1 + 8 + 8);
+        buf.writeByte(type);
+        buf.writeLong(txnID.getMostSigBits());
+        buf.writeLong(txnID.getLeastSigBits());
+        return buf;
+    }
+
+    @Override
+    public CompletableFuture<Void> appendIndividualAck(TxnID txnID,
+                                                       List<MutablePair<PositionImpl, Integer>> positions) {
+        ByteBuf record = newRecord(INDIVIDUAL_ACK, txnID);
+        record.writeInt(positions.size());
+        for (MutablePair<PositionImpl, Integer> pair : positions) {
+            writePosition(record, pair.getLeft());
+            record.writeInt(pair.getRight() == null ? 0 : pair.getRight());
+        }
+        return append(txnID, record, false);
+    }
+
+    @Override
+    public CompletableFuture<Void> appendCumulativeAck(TxnID txnID, PositionImpl position) {
+        ByteBuf record = newRecord(CUMULATIVE_ACK, txnID);
+        writePosition(record, position);
+        return append(txnID, record, false);
+    }
+
+    @Override
+    public CompletableFuture<Void> appendCommitMark(TxnID txnID) {
+        return append(txnID, newRecord(COMMIT_MARK, txnID), true);
+    }
+
+    @Override
+    public CompletableFuture<Void> appendAbortMark(TxnID txnID) {
+        return append(txnID, newRecord(ABORT_MARK, txnID), true);
+    }
+
+    private CompletableFuture<Void> append(TxnID txnID, ByteBuf record, boolean endOfTxn) {
+        return openFuture.thenCompose(cursor -> {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            ledger.asyncAddEntry(record, new AsyncCallbacks.AddEntryCallback() {
+                @Override
+                public void addComplete(Position position, ByteBuf entryData, Object ctx) {
+                    if (endOfTxn) {
+                        pendingTxnEnded(txnID);
+                        trimLog(cursor, (PositionImpl) position);
+                    } else {
+                        pendingTxnRecordAdded(txnID, (PositionImpl) position);
+                    }
+                    future.complete(null);
+                }
+
+                @Override
+                public void addFailed(ManagedLedgerException exception, Object ctx) {
+                    log.error("[{}] Failed to append pending ack record of transaction {}", name, txnID, exception);
+                    future.completeExceptionally(exception);
+                }
+            }, null);
+            return future;
+        }).whenComplete((ignore, e) -> record.release());
+    }
+
+    private synchronized void pendingTxnRecordAdded(TxnID txnID, PositionImpl position) {
+        if (!firstPositionOfPendingTxns.containsKey(txnID)) {
+            firstPositionOfPendingTxns.put(txnID, position);
+        }
+    }
+
+    private synchronized void pendingTxnEnded(TxnID txnID) {
+        firstPositionOfPendingTxns.remove(txnID);
+    }
+
+    private void trimLog(ManagedCursor cursor, PositionImpl markPosition) {
+        PositionImpl deletePosition;
+        synchronized (this) {
+            if (firstPositionOfPendingTxns.isEmpty()) {
+                deletePosition = markPosition;
+            } else {
+                PositionImpl firstPending = firstPositionOfPendingTxns.get(firstPositionOfPendingTxns.firstKey());
+                deletePosition = ((ManagedLedgerImpl) ledger).getPreviousPosition(firstPending);
+            }
+        }
+        if (deletePosition.compareTo((PositionImpl) cursor.getMarkDeletedPosition()) <= 0) {
+            return;
+        }
+        cursor.asyncMarkDelete(deletePosition, new AsyncCallbacks.MarkDeleteCallback() {
+            @Override
+            public void markDeleteComplete(Object ctx) {
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}] Trimmed pending ack log up to {}", name, deletePosition);
+                }
+            }
+
+            @Override
+            public void markDeleteFailed(ManagedLedgerException exception, Object ctx) {
+                log.warn("[{}] Failed to trim pending ack log up to {}", name, deletePosition, exception);
+            }
+        }, null);
+    }
+
+    @Override
+    public CompletableFuture<Void> closeAsync() {
+        return openFuture.handle((cursor, e) -> null).thenCompose(ignore -> {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            if (ledger == null) {
+                future.complete(null);
+                return future;
+            }
+            ledger.asyncClose(new AsyncCallbacks.CloseCallback() {
+                @Override
+                public void closeComplete(Object ctx) {
+                    future.complete(null);
+                }
+
+                @Override
+                public void closeFailed(ManagedLedgerException exception, Object ctx) {
+                    log.warn("[{}] Failed to close pending ack log", name, exception);
+                    future.complete(null);
+                }
+            }, null);
+            return future;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync() {
+        return openFuture.handle((cursor, e) -> null).thenCompose(ignore -> {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            AsyncCallbacks.DeleteLedgerCallback callback = new AsyncCallbacks.DeleteLedgerCallback() {
+                @Override
+                public void deleteLedgerComplete(Object ctx) {
+                    future.complete(null);
+                }
+
+                @Override
+                public void deleteLedgerFailed(ManagedLedgerException exception, Object ctx) {
+                    if (exception instanceof ManagedLedgerException.MetadataNotFoundException) {
+                        future.complete(null);
+                        return;
+                    }
+                    log.warn("[{}] Failed to delete pending ack log", name, exception);
+                    future.completeExceptionally(exception);
+                }
+            };
+            // the log is usually closed together with the subscription before it is deleted, so it is deleted
+            // through the factory, which reopens it or deletes it from its metadata
+            factory.asyncDelete(name, callback, null);
+            return future;
+        });
+    }
+}
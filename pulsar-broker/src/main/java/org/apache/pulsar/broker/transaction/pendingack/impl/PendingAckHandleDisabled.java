@@ -70,4 +70,14 @@ public class PendingAckHandleDisabled implements PendingAckHandle {
     public void clearIndividualPosition(Position position) {
         //no operation
     }
+
+    @Override
+    public CompletableFuture<Void> closeAsync() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync() {
+        return CompletableFuture.completedFuture(null);
+    }
 }
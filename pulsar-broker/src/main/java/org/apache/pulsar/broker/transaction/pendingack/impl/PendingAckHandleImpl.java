@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.mledger.Position;
 import org.apache.bookkeeper.mledger.impl.ManagedCursorImpl;
@@ -35,9 +36,12 @@ import org.apache.bookkeeper.mledger.impl.PositionImpl;
 import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.broker.service.BrokerServiceException.NotAllowedException;
+import org.apache.pulsar.broker.service.BrokerServiceException.ServiceUnitNotReadyException;
 import org.apache.pulsar.broker.service.Consumer;
 import org.apache.pulsar.broker.service.persistent.PersistentSubscription;
 import org.apache.pulsar.broker.transaction.pendingack.PendingAckHandle;
+import org.apache.pulsar.broker.transaction.pendingack.PendingAckReplayCallback;
+import org.apache.pulsar.broker.transaction.pendingack.PendingAckStore;
 import org.apache.pulsar.client.api.transaction.TxnID;
 import org.apache.pulsar.common.api.proto.CommandAck.AckType;
 import org.apache.pulsar.common.util.FutureUtil;
@@ -46,9 +50,13 @@ import org.apache.pulsar.transaction.common.exception.TransactionConflictExcepti
 
 /**
  * The default implementation of {@link PendingAckHandle}.
+ *
+ * <p>When a {@link PendingAckStore} is provided, every change of the pending ack state is appended to it before the
+ * operation completes, and the state is rebuilt from it before any new operation is accepted. A change whose append
+ * fails is rolled back, and no operation is accepted if the state could not be rebuilt.
  */
 @Slf4j
-public class PendingAckHandleImpl implements PendingAckHandle {
+public class PendingAckHandleImpl implements PendingAckHandle, PendingAckReplayCallback {
 
     /**
      * The map is for transaction with position witch was individual acked by this transaction.
@@ -93,15 +101,51 @@ public class PendingAckHandleImpl implements PendingAckHandle {
 
     private final PersistentSubscription persistentSubscription;
 
+    private final PendingAckStore pendingAckStore;
+
+    private final CompletableFuture<Void> replayFuture;
+
     public PendingAckHandleImpl(PersistentSubscription persistentSubscription) {
+        this(persistentSubscription, null);
+    }
+
+    public PendingAckHandleImpl(PersistentSubscription persistentSubscription, PendingAckStore pendingAckStore) {
         this.topicName = persistentSubscription.getTopicName();
         this.subName = persistentSubscription.getName();
         this.persistentSubscription = persistentSubscription;
+        this.pendingAckStore = pendingAckStore;
+        if (pendingAckStore == null) {
+            this.replayFuture = CompletableFuture.completedFuture(null);
+        } else {
+            this.replayFuture = pendingAckStore.replayAsync(this).whenComplete((ignore, e) -> {
+                if (e != null) {
+                    log.error("[{}][{}] Failed to replay the pending ack log", topicName, subName, e);
+                } else {
+                    log.info("[{}][{}] Replayed the pending ack log", topicName, subName);
+                }
+            });
+        }
+    }
+
+    private CompletableFuture<Void> afterReplay(Supplier<CompletableFuture<Void>> operation) {
+        if (replayFuture.isDone() && !replayFuture.isCompletedExceptionally()) {
+            return operation.get();
+        }
+        // the state is incomplete if the replay failed, so no operation is accepted until the topic is reloaded
+        return replayFuture.handle((ignore, e) -> e).thenCompose(e -> e == null ? operation.get()
+                : FutureUtil.failedFuture(new ServiceUnitNotReadyException("[" + topicName + "][" + subName
+                        + "] The pending ack log failed to replay")));
     }
 
     @Override
-    public synchronized CompletableFuture<Void> individualAcknowledgeMessage(TxnID txnID,
+    public CompletableFuture<Void> individualAcknowledgeMessage(TxnID txnID,
                                                                 List<MutablePair<PositionImpl, Integer>> positions) {
+        return afterReplay(() -> internalIndividualAcknowledgeMessage(txnID, positions, true));
+    }
+
+    private synchronized CompletableFuture<Void> internalIndividualAcknowledgeMessage(TxnID txnID,
+                                                                List<MutablePair<PositionImpl, Integer>> positions,
+                                                                boolean persist) {
         if (txnID == null) {
             return FutureUtil.failedFuture(new NotAllowedException("TransactionID can not be null."));
         }
@@ -109,6 +153,9 @@ public class PendingAckHandleImpl implements PendingAckHandle {
             return FutureUtil.failedFuture(new NotAllowedException("Positions can not be null."));
         }
         CompletableFuture<Void> completableFuture = new CompletableFuture<>();
+        // the acks are applied before they are appended, so that the conflicts are checked against the same state
+        // the log is written in, and they are undone if the append fails
+        List<Runnable> rollbacks = persist && pendingAckStore != null ? new ArrayList<>() : null;
         for (MutablePair<PositionImpl, Integer> positionIntegerMutablePair : positions) {
             PositionImpl position = positionIntegerMutablePair.left;
 
@@ -170,6 +217,7 @@ public class PendingAckHandleImpl implements PendingAckHandle {
             PositionImpl position = positions.get(i).left;
 
             if (position.hasAckSet()) {
+                long[] ackedBits = rollbacks == null ? null : getAckedBits(position, positions.get(i).right);
 
                 HashMap<PositionImpl, PositionImpl> pendingAckMessageForCurrentTxn =
                         individualAckOfTransaction.computeIfAbsent(txnID, txn -> new HashMap<>());
@@ -188,20 +236,55 @@ public class PendingAckHandleImpl implements PendingAckHandle {
                     andAckSet(positionPair.getLeft(), position);
                 }
 
+                if (rollbacks != null) {
+                    PositionImpl txnPosition = pendingAckMessageForCurrentTxn.get(position);
+                    PositionImpl pendingAckPosition = individualAckPositions.get(position).getLeft();
+                    rollbacks.add(() -> {
+                        restoreAckedBits(txnPosition, ackedBits);
+                        restoreAckedBits(pendingAckPosition, ackedBits);
+                    });
+                }
             } else {
                 HashMap<PositionImpl, PositionImpl> pendingAckMessageForCurrentTxn =
                         individualAckOfTransaction.computeIfAbsent(txnID, txn -> new HashMap<>());
                 pendingAckMessageForCurrentTxn.put(position, position);
                 this.individualAckPositions.putIfAbsent(position, positions.get(i));
+
+                if (rollbacks != null) {
+                    rollbacks.add(() -> {
+                        HashMap<PositionImpl, PositionImpl> acksOfTxn = individualAckOfTransaction.get(txnID);
+                        if (acksOfTxn != null) {
+                            acksOfTxn.remove(position);
+                            if (acksOfTxn.isEmpty()) {
+                                individualAckOfTransaction.remove(txnID);
+                            }
+                        }
+                        individualAckPositions.remove(position);
+                    });
+                }
             }
         }
+        if (rollbacks != null) {
+            return pendingAckStore.appendIndividualAck(txnID, positions).whenComplete((ignore, e) -> {
+                if (e != null) {
+                    log.warn("[{}][{}] TxnID:[{}] Failed to persist individual acks on {}, rolling them back",
+                            topicName, subName, txnID, positions, e);
+                    rollback(rollbacks);
+                }
+            });
+        }
         completableFuture.complete(null);
         return completableFuture;
     }
 
     @Override
-    public synchronized CompletableFuture<Void> cumulativeAcknowledgeMessage(TxnID txnID,
-                                                                             List<PositionImpl> positions) {
+    public CompletableFuture<Void> cumulativeAcknowledgeMessage(TxnID txnID, List<PositionImpl> positions) {
+        return afterReplay(() -> internalCumulativeAcknowledgeMessage(txnID, positions, true));
+    }
+
+    private synchronized CompletableFuture<Void> internalCumulativeAcknowledgeMessage(TxnID txnID,
+                                                                                      List<PositionImpl> positions,
+                                                                                      boolean persist) {
 
         if (txnID == null) {
             return FutureUtil.failedFuture(new NotAllowedException("TransactionID can not be null."));
@@ -231,10 +314,13 @@ public class PendingAckHandleImpl implements PendingAckHandle {
             log.debug("[{}][{}] TxnID:[{}] Cumulative ack on {}.", topicName, subName, txnID.toString(), position);
         }
 
+        PositionImpl previousPosition;
         if (this.cumulativeAckOfTransaction == null) {
+            previousPosition = null;
             this.cumulativeAckOfTransaction = MutablePair.of(txnID, position);
         } else if (this.cumulativeAckOfTransaction.getKey().equals(txnID)
                 && compareToWithAckSet(position, this.cumulativeAckOfTransaction.getValue()) > 0) {
+            previousPosition = this.cumulativeAckOfTransaction.getValue();
             this.cumulativeAckOfTransaction.setValue(position);
 
         } else {
@@ -244,19 +330,48 @@ public class PendingAckHandleImpl implements PendingAckHandle {
             log.error(errorMsg);
             return FutureUtil.failedFuture(new TransactionConflictException(errorMsg));
         }
+        if (persist && pendingAckStore != null) {
+            return pendingAckStore.appendCumulativeAck(txnID, position).whenComplete((ignore, e) -> {
+                if (e != null) {
+                    log.warn("[{}][{}] TxnID:[{}] Failed to persist cumulative ack on {}, rolling it back",
+                            topicName, subName, txnID, position, e);
+                    rollbackCumulativeAck(txnID, position, previousPosition);
+                }
+            });
+        }
         return CompletableFuture.completedFuture(null);
     }
 
+    private synchronized void rollbackCumulativeAck(TxnID txnID, PositionImpl position,
+                                                    PositionImpl previousPosition) {
+        if (cumulativeAckOfTransaction == null || !cumulativeAckOfTransaction.getKey().equals(txnID)
+                || cumulativeAckOfTransaction.getValue() != position) {
+            return;
+        }
+        if (previousPosition == null) {
+            cumulativeAckOfTransaction = null;
+        } else {
+            cumulativeAckOfTransaction.setValue(previousPosition);
+        }
+    }
+
     @Override
-    public synchronized CompletableFuture<Void> commitTxn(TxnID txnID, Map<String, Long> properties) {
+    public CompletableFuture<Void> commitTxn(TxnID txnID, Map<String, Long> properties) {
+        return afterReplay(() -> internalCommitTxn(txnID, properties));
+    }
+
+    private synchronized CompletableFuture<Void> internalCommitTxn(TxnID txnID, Map<String, Long> properties) {
 
         CompletableFuture<Void> commitFuture = new CompletableFuture<>();
+        Pair<TxnID, PositionImpl> committedCumulativeAck = null;
+        HashMap<PositionImpl, PositionImpl> committedIndividualAcks = null;
         // It's valid to create transaction then commit without doing any operation, which will cause
         // pendingAckMessagesMap to be null.
         if (this.cumulativeAckOfTransaction != null) {
             if (cumulativeAckOfTransaction.getKey().equals(txnID)) {
                 persistentSubscription.acknowledgeMessage(Collections
                         .singletonList(this.cumulativeAckOfTransaction.getValue()), AckType.Cumulative, properties);
+                committedCumulativeAck = this.cumulativeAckOfTransaction;
                 this.cumulativeAckOfTransaction = null;
             }
         } else {
@@ -266,16 +381,49 @@ public class PendingAckHandleImpl implements PendingAckHandle {
                 if (pendingAckMessageForCurrentTxn != null) {
                     persistentSubscription.acknowledgeMessage(new ArrayList<>(pendingAckMessageForCurrentTxn.values()),
                             AckType.Individual, properties);
+                    committedIndividualAcks = pendingAckMessageForCurrentTxn;
                 }
             }
         }
+        if (pendingAckStore != null) {
+            // the cursor has to be acked before the commit mark is written, if the mark can't be written the
+            // pending acks are kept so that the commit can be retried and replayed
+            Pair<TxnID, PositionImpl> cumulativeAck = committedCumulativeAck;
+            HashMap<PositionImpl, PositionImpl> individualAcks = committedIndividualAcks;
+            return pendingAckStore.appendCommitMark(txnID).whenComplete((ignore, e) -> {
+                if (e != null) {
+                    log.warn("[{}][{}] TxnID:[{}] Failed to persist the commit mark", topicName, subName, txnID, e);
+                    restoreCommittedAcks(txnID, cumulativeAck, individualAcks);
+                }
+            });
+        }
         commitFuture.complete(null);
         return commitFuture;
     }
 
+    private synchronized void restoreCommittedAcks(TxnID txnID, Pair<TxnID, PositionImpl> cumulativeAck,
+                                                   HashMap<PositionImpl, PositionImpl> individualAcks) {
+        if (cumulativeAck != null && this.cumulativeAckOfTransaction == null) {
+            this.cumulativeAckOfTransaction = cumulativeAck;
+        }
+        if (individualAcks != null) {
+            individualAckOfTransaction.putIfAbsent(txnID, individualAcks);
+        }
+    }
+
     @Override
-    public synchronized CompletableFuture<Void> abortTxn(TxnID txnId, Consumer consumer) {
-        CompletableFuture<Void> abortFuture = new CompletableFuture<>();
+    public CompletableFuture<Void> abortTxn(TxnID txnId, Consumer consumer) {
+        return afterReplay(() -> {
+            if (pendingAckStore == null) {
+                internalAbortTxn(txnId, consumer);
+                return CompletableFuture.completedFuture(null);
+            }
+            // the messages can't be taken back once they are redelivered, so the abort mark is written first
+            return pendingAckStore.appendAbortMark(txnId).thenRun(() -> internalAbortTxn(txnId, consumer));
+        });
+    }
+
+    private synchronized void internalAbortTxn(TxnID txnId, Consumer consumer) {
         if (this.cumulativeAckOfTransaction != null) {
             if (this.cumulativeAckOfTransaction.getKey().equals(txnId)) {
                 this.cumulativeAckOfTransaction = null;
@@ -283,28 +431,92 @@ public class PendingAckHandleImpl implements PendingAckHandle {
             this.persistentSubscription.redeliverUnacknowledgedMessages(consumer);
         } else if (this.individualAckOfTransaction != null){
             HashMap<PositionImpl, PositionImpl> pendingAckMessageForCurrentTxn =
-                    individualAckOfTransaction.remove(txnId);
+                    removeIndividualAcksOfAbortedTxn(txnId);
             if (pendingAckMessageForCurrentTxn != null) {
-                for (Entry<PositionImpl, PositionImpl> entry : pendingAckMessageForCurrentTxn.entrySet()) {
-                    if (entry.getValue().hasAckSet() && individualAckPositions.containsKey(entry.getValue())) {
-                        BitSetRecyclable thisBitSet = BitSetRecyclable.valueOf(entry.getValue().getAckSet());
-                        thisBitSet.flip(0, individualAckPositions.get(entry.getValue()).right);
-                        BitSetRecyclable otherBitSet =
-                                BitSetRecyclable.valueOf(individualAckPositions.get(entry.getValue()).left.getAckSet());
-                        otherBitSet.or(thisBitSet);
-                        individualAckPositions.get(entry.getKey()).left.setAckSet(otherBitSet.toLongArray());
-                        otherBitSet.recycle();
-                        thisBitSet.recycle();
-                    } else {
-                        individualAckPositions.remove(entry.getValue());
-                    }
-                }
                 this.persistentSubscription.redeliverUnacknowledgedMessages(consumer,
                         new ArrayList<>(pendingAckMessageForCurrentTxn.values()));
             }
         }
-        abortFuture.complete(null);
-        return abortFuture;
+    }
+
+    private synchronized void rollback(List<Runnable> rollbacks) {
+        for (int i = rollbacks.size() - 1; i >= 0; i--) {
+            rollbacks.get(i).run();
+        }
+    }
+
+    private static long[] getAckedBits(PositionImpl position, int batchSize) {
+        BitSetRecyclable bitSet = BitSetRecyclable.valueOf(position.getAckSet());
+        bitSet.flip(0, batchSize);
+        long[] ackedBits = bitSet.toLongArray();
+        bitSet.recycle();
+        return ackedBits;
+    }
+
+    private static void restoreAckedBits(PositionImpl position, long[] ackedBits) {
+        BitSetRecyclable bitSet = BitSetRecyclable.valueOf(position.getAckSet());
+        BitSetRecyclable ackedBitSet = BitSetRecyclable.valueOf(ackedBits);
+        bitSet.or(ackedBitSet);
+        position.setAckSet(bitSet.toLongArray());
+        ackedBitSet.recycle();
+        bitSet.recycle();
+    }
+
+    private HashMap<PositionImpl, PositionImpl> removeIndividualAcksOfAbortedTxn(TxnID txnId) {
+        HashMap<PositionImpl, PositionImpl> pendingAckMessageForCurrentTxn = individualAckOfTransaction.remove(txnId);
+        if (pendingAckMessageForCurrentTxn != null) {
+            for (Entry<PositionImpl, PositionImpl> entry : pendingAckMessageForCurrentTxn.entrySet()) {
+                if (entry.getValue().hasAckSet() && individualAckPositions.containsKey(entry.getValue())) {
+                    BitSetRecyclable thisBitSet = BitSetRecyclable.valueOf(entry.getValue().getAckSet());
+                    thisBitSet.flip(0, individualAckPositions.get(entry.getValue()).right);
+                    BitSetRecyclable otherBitSet =
+                            BitSetRecyclable.valueOf(individualAckPositions.get(entry.getValue()).left.getAckSet());
+                    otherBitSet.or(thisBitSet);
+                    individualAckPositions.get(entry.getKey()).left.setAckSet(otherBitSet.toLongArray());
+                    otherBitSet.recycle();
+                    thisBitSet.recycle();
+                } else {
+                    individualAckPositions.remove(entry.getValue());
+                }
+            }
+        }
+        return pendingAckMessageForCurrentTxn;
+    }
+
+    @Override
+    public synchronized void replayIndividualAck(TxnID txnID, List<MutablePair<PositionImpl, Integer>> positions) {
+        // conflicts are expected for the acks of transactions committed right before the broker stopped
+        internalIndividualAcknowledgeMessage(txnID, positions, false);
+    }
+
+    @Override
+    public synchronized void replayCumulativeAck(TxnID txnID, PositionImpl position) {
+        internalCumulativeAcknowledgeMessage(txnID, Collections.singletonList(position), false);
+    }
+
+    @Override
+    public synchronized void replayCommit(TxnID txnID) {
+        // the acks were applied to the cursor before the commit mark was written
+        if (this.cumulativeAckOfTransaction != null && this.cumulativeAckOfTransaction.getKey().equals(txnID)) {
+            this.cumulativeAckOfTransaction = null;
+        }
+        if (individualAckOfTransaction != null) {
+            HashMap<PositionImpl, PositionImpl> pendingAckMessageForCurrentTxn =
+                    individualAckOfTransaction.remove(txnID);
+            if (pendingAckMessageForCurrentTxn != null) {
+                pendingAckMessageForCurrentTxn.keySet().forEach(individualAckPositions::remove);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void replayAbort(TxnID txnID) {
+        if (this.cumulativeAckOfTransaction != null && this.cumulativeAckOfTransaction.getKey().equals(txnID)) {
+            this.cumulativeAckOfTransaction = null;
+        }
+        if (individualAckOfTransaction != null) {
+            removeIndividualAcksOfAbortedTxn(txnID);
+        }
     }
 
     @Override
@@ -342,6 +554,16 @@ public class PendingAckHandleImpl implements PendingAckHandle {
         }
     }
 
+    @Override
+    public CompletableFuture<Void> closeAsync() {
+        return pendingAckStore == null ? CompletableFuture.completedFuture(null) : pendingAckStore.closeAsync();
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync() {
+        return pendingAckStore == null ? CompletableFuture.completedFuture(null) : pendingAckStore.deleteAsync();
+    }
+
     @Override
     public void clearIndividualPosition(Position position) {
         if (individualAckPositions == null) {
@@ -30,7 +30,6 @@ import org.apache.commons.lang3.tuple.ImmutableTriple;
 import org.apache.pulsar.client.api.MessageId;
 import org.apache.pulsar.client.api.RawMessage;
 import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
-import org.apache.pulsar.common.api.proto.CompressionType;
 import org.apache.pulsar.common.api.proto.MessageMetadata;
 import org.apache.pulsar.common.api.proto.SingleMessageMetadata;
 import org.apache.pulsar.common.compression.CompressionCodec;
@@ -53,8 +52,10 @@ public class RawBatchConverter {
         MessageMetadata metadata = Commands.parseMessageMetadata(payload);
         int batchSize = metadata.getNumMessagesInBatch();
 
-        CompressionType compressionType = metadata.getCompression();
-        CompressionCodec codec = CompressionCodecProvider.getCompressionCodec(compressionType);
+        CompressionCodec codec = CompressionCodecProvider.getCompressionCodec(metadata);
+        if (codec == null) {
+            throw new IOException("Unknown compression dictionary " + metadata.getCompressionDictionaryId());
+        }
         int uncompressedSize = metadata.getUncompressedSize();
         ByteBuf uncompressedPayload = codec.decode(payload, uncompressedSize);
 
@@ -95,8 +96,10 @@ public class RawBatchConverter {
         MessageMetadata metadata = Commands.parseMessageMetadata(payload);
         ByteBuf batchBuffer = PulsarByteBufAllocator.DEFAULT.buffer(payload.capacity());
 
-        CompressionType compressionType = metadata.getCompression();
-        CompressionCodec codec = CompressionCodecProvider.getCompressionCodec(compressionType);
+        CompressionCodec codec = CompressionCodecProvider.getCompressionCodec(metadata);
+        if (codec == null) {
+            throw new IOException("Unknown compression dictionary " + metadata.getCompressionDictionaryId());
+        }
 
         int uncompressedSize = metadata.getUncompressedSize();
         ByteBuf uncompressedPayload = codec.decode(payload, uncompressedSize);
@@ -502,6 +502,23 @@ public class NamespaceServiceTest extends BrokerTestBase {
         }
     }
 
+    @Test
+    public void testRemoveTopicListListeners() throws Exception {
+        NamespaceService namespaceService = pulsar.getNamespaceService();
+        NamespaceName namespaceName = NamespaceName.get("prop/ns-abc");
+        TopicListListener listener1 = topics -> {};
+        TopicListListener listener2 = topics -> {};
+
+        namespaceService.addTopicListListener(namespaceName, listener1).get();
+        namespaceService.addTopicListListener(namespaceName, listener2).get();
+        namespaceService.removeTopicListListener(namespaceName, listener1);
+        assertTrue(namespaceService.hasTopicListListeners(namespaceName));
+
+        // The namespace is not refreshed anymore once its last listener is gone
+        namespaceService.removeTopicListListener(namespaceName, listener2);
+        assertFalse(namespaceService.hasTopicListListeners(namespaceName));
+    }
+
     @SuppressWarnings("unchecked")
     private Pair<NamespaceBundles, List<NamespaceBundle>> splitBundles(NamespaceBundleFactory utilityFactory,
             NamespaceName nsname, NamespaceBundles bundles, NamespaceBundle targetBundle) throws Exception {
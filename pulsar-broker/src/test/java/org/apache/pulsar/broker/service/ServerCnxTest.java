@@ -34,6 +34,7 @@ import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 import io.netty.buffer.ByteBuf;
@@ -66,6 +67,7 @@ import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
 import org.apache.bookkeeper.mledger.ManagedLedgerException;
 import org.apache.bookkeeper.mledger.ManagedLedgerFactory;
 import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.broker.PulsarService;
 import org.apache.pulsar.broker.ServiceConfiguration;
 import org.apache.pulsar.broker.admin.AdminResource;
@@ -91,7 +93,9 @@ import org.apache.pulsar.common.protocol.Commands.ChecksumType;
 import org.apache.pulsar.common.protocol.PulsarHandler;
 import org.apache.pulsar.common.api.proto.AuthMethod;
 import org.apache.pulsar.common.api.proto.BaseCommand;
+import org.apache.pulsar.common.api.proto.CommandAck;
 import org.apache.pulsar.common.api.proto.CommandAck.AckType;
+import org.apache.pulsar.common.api.proto.CommandAckResponse;
 import org.apache.pulsar.common.api.proto.CommandConnect;
 import org.apache.pulsar.common.api.proto.CommandConnected;
 import org.apache.pulsar.common.api.proto.CommandError;
@@ -103,6 +107,7 @@ import org.apache.pulsar.common.api.proto.CommandSubscribe.InitialPosition;
 import org.apache.pulsar.common.api.proto.CommandSubscribe.SubType;
 import org.apache.pulsar.common.api.proto.CommandSuccess;
 import org.apache.pulsar.common.api.proto.EncryptionKeys;
+import org.apache.pulsar.common.api.proto.FeatureFlags;
 import org.apache.pulsar.common.api.proto.MessageMetadata;
 import org.apache.pulsar.common.api.proto.ProtocolVersion;
 import org.apache.pulsar.common.api.proto.ServerError;
@@ -225,7 +230,13 @@ public class ServerCnxTest {
         channel.writeInbound(clientCommand);
 
         assertEquals(serverCnx.getState(), State.Connected);
-        assertTrue(getResponse() instanceof CommandConnected);
+        Object response = getResponse();
+        assertTrue(response instanceof CommandConnected);
+        FeatureFlags featureFlags = ((CommandConnected) response).getFeatureFlags();
+        assertTrue(featureFlags.isSupportsLookupTopics());
+        assertTrue(featureFlags.isSupportsRangeAcks());
+        assertTrue(featureFlags.isSupportsTopicListWatchers());
+        assertTrue(featureFlags.isSupportsZstdDictionaryCompression());
         channel.finish();
     }
 
@@ -1264,6 +1275,36 @@ public class ServerCnxTest {
         channel.finish();
     }
 
+    @Test(timeOut = 30000)
+    public void testAckCommandWithOversizedRange() throws Exception {
+        resetChannel();
+        setChannelConnected();
+
+        ByteBuf clientCommand = Commands.newSubscribe(successTopicName, successSubName, 1 /* consumer id */,
+                1 /* request id */, SubType.Shared, 0, "test" /* consumer name */, 0 /*avoid reseting cursor*/);
+        channel.writeInbound(clientCommand);
+        assertTrue(getResponse() instanceof CommandSuccess);
+
+        BaseCommand cmd = new BaseCommand().setType(Type.ACK);
+        CommandAck ack = cmd.setAck()
+                .setConsumerId(1)
+                .setAckType(AckType.Individual)
+                .setRequestId(2);
+        ack.addMessageIdRange()
+                .setLedgerId(0)
+                .setFirstEntryId(0)
+                .setLastEntryId(Commands.MAX_ACK_RANGE_SIZE);
+        channel.writeInbound(Commands.serializeWithSize(cmd));
+
+        // the range is rejected instead of being silently dropped
+        Object response = getResponse();
+        assertTrue(response instanceof CommandAckResponse);
+        CommandAckResponse ackResponse = (CommandAckResponse) response;
+        assertEquals(ackResponse.getRequestId(), 2);
+        assertEquals(ackResponse.getError(), ServerError.NotAllowedError);
+        channel.finish();
+    }
+
     @Test(timeOut = 30000)
     public void testFlowCommand() throws Exception {
         resetChannel();
@@ -1627,6 +1668,25 @@ public class ServerCnxTest {
         channel.finish();
     }
 
+    @Test(timeOut = 30000)
+    public void testLookupTopics() throws Exception {
+        resetChannel();
+        setChannelConnected();
+
+        // Each lookup is answered on its own
+        channel.writeInbound(Commands.newLookupTopics(
+                Lists.newArrayList(Pair.of("xx/ass/aa/aaa", 1L), Pair.of("xx/ass/aa/bbb", 2L)), null, false));
+        for (long requestId = 1; requestId <= 2; requestId++) {
+            Object obj = getResponse();
+            assertEquals(obj.getClass(), CommandLookupTopicResponse.class);
+            CommandLookupTopicResponse res = (CommandLookupTopicResponse) obj;
+            assertEquals(res.getRequestId(), requestId);
+            assertEquals(res.getError(), ServerError.InvalidTopicName);
+        }
+
+        channel.finish();
+    }
+
     @Test(timeOut = 30000)
     public void testInvalidTopicOnProducer() throws Exception {
         resetChannel();
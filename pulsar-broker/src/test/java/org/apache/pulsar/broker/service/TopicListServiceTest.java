@@ -0,0 +1,217 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.expectThrows;
+
+import com.google.common.collect.Lists;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.pulsar.broker.PulsarService;
+import org.apache.pulsar.broker.ServiceConfiguration;
+import org.apache.pulsar.broker.namespace.NamespaceService;
+import org.apache.pulsar.broker.namespace.TopicListListener;
+import org.apache.pulsar.common.api.proto.CommandWatchTopicListClose;
+import org.apache.pulsar.common.api.proto.ServerError;
+import org.apache.pulsar.common.naming.NamespaceName;
+import org.apache.pulsar.common.topics.TopicList;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test
+public class TopicListServiceTest {
+
+    private static final NamespaceName NAMESPACE = NamespaceName.get("my-property/my-ns");
+    private static final Pattern PATTERN = Pattern.compile("persistent://my-property/my-ns/pattern-topic.*");
+    private static final String TOPIC_1 = "persistent://my-property/my-ns/pattern-topic-1";
+    private static final String TOPIC_2 = "persistent://my-property/my-ns/pattern-topic-2";
+    private static final String OTHER_TOPIC = "persistent://my-property/my-ns/other-topic";
+
+    private ServiceConfiguration config;
+    private PulsarService pulsar;
+    private NamespaceService namespaceService;
+    private ServerCnx connection;
+    private PulsarCommandSender commandSender;
+
+    @BeforeMethod
+    public void setup() {
+        config = new ServiceConfiguration();
+        pulsar = mock(PulsarService.class);
+        namespaceService = mock(NamespaceService.class);
+        connection = mock(ServerCnx.class);
+        commandSender = mock(PulsarCommandSender.class);
+        doReturn(config).when(pulsar).getConfiguration();
+        doReturn(namespaceService).when(pulsar).getNamespaceService();
+        doReturn(commandSender).when(connection).getCommandSender();
+        doReturn(true).when(connection).isActive();
+        doReturn(CompletableFuture.completedFuture(null)).when(namespaceService)
+                .addTopicListListener(eq(NAMESPACE), any());
+    }
+
+    private TopicListListener registerWatcher(TopicListService topicListService, String topicsHash) {
+        topicListService.handleWatchTopicList(NAMESPACE, 3, 7, PATTERN, topicsHash);
+        ArgumentCaptor<TopicListListener> listener = ArgumentCaptor.forClass(TopicListListener.class);
+        verify(namespaceService).addTopicListListener(eq(NAMESPACE), listener.capture());
+        return listener.getValue();
+    }
+
+    @Test
+    public void testWatchTopicList() {
+        TopicListService topicListService = new TopicListService(pulsar, connection);
+        TopicListListener listener = registerWatcher(topicListService, null);
+
+        listener.onTopicListChanged(Lists.newArrayList(TOPIC_1, OTHER_TOPIC));
+        verify(commandSender).sendWatchTopicListSuccess(7, 3,
+                TopicList.calculateHash(Collections.singletonList(TOPIC_1)), Collections.singletonList(TOPIC_1));
+
+        listener.onTopicListChanged(Lists.newArrayList(TOPIC_2, OTHER_TOPIC));
+        verify(commandSender).sendWatchTopicListUpdate(3, Collections.singletonList(TOPIC_2),
+                Collections.singletonList(TOPIC_1), TopicList.calculateHash(Collections.singletonList(TOPIC_2)));
+
+        // Changes of topics that don't match the pattern are not sent
+        listener.onTopicListChanged(Lists.newArrayList(TOPIC_2));
+        verify(commandSender).sendWatchTopicListUpdate(anyLong(), any(), any(), anyString());
+    }
+
+    @Test
+    public void testWatchPartitionedTopics() {
+        TopicListService topicListService = new TopicListService(pulsar, connection);
+        TopicListListener listener = registerWatcher(topicListService, null);
+
+        listener.onTopicListChanged(Lists.newArrayList(TOPIC_1 + "-partition-0", TOPIC_1 + "-partition-1"));
+        verify(commandSender).sendWatchTopicListSuccess(7, 3,
+                TopicList.calculateHash(Collections.singletonList(TOPIC_1)), Collections.singletonList(TOPIC_1));
+
+        // The partitioned topic is only deleted once all its partitions are gone
+        listener.onTopicListChanged(Lists.newArrayList(TOPIC_1 + "-partition-1"));
+        verify(commandSender, never()).sendWatchTopicListUpdate(anyLong(), any(), any(), anyString());
+        listener.onTopicListChanged(Collections.emptyList());
+        verify(commandSender).sendWatchTopicListUpdate(3, Collections.emptyList(),
+                Collections.singletonList(TOPIC_1), TopicList.calculateHash(Collections.emptyList()));
+    }
+
+    @Test
+    public void testWatchTopicListWithSameHash() {
+        TopicListService topicListService = new TopicListService(pulsar, connection);
+        List<String> topics = Lists.newArrayList(TOPIC_1, TOPIC_2);
+        String hash = TopicList.calculateHash(topics);
+        TopicListListener listener = registerWatcher(topicListService, hash);
+
+        // The client already knows the topics, so only the hash is sent back
+        listener.onTopicListChanged(topics);
+        verify(commandSender).sendWatchTopicListSuccess(7, 3, hash, Collections.emptyList());
+        assertEquals(((TopicListService.TopicListWatcher) listener).getMatchingTopics(), topics);
+    }
+
+    @Test
+    public void testWatchTopicListDisabled() {
+        config.setEnableTopicListWatcher(false);
+        TopicListService topicListService = new TopicListService(pulsar, connection);
+
+        topicListService.handleWatchTopicList(NAMESPACE, 3, 7, PATTERN, null);
+        verify(commandSender).sendErrorResponse(eq(7L), eq(ServerError.NotAllowedError), anyString());
+        verify(namespaceService, never()).addTopicListListener(any(), any());
+    }
+
+    @Test
+    public void testWatchTopicListWithPathologicalPattern() {
+        Pattern pattern = Pattern.compile("persistent://my-property/my-ns/(a|aa)+b");
+        String topic = "persistent://my-property/my-ns/" + StringUtils.repeat('a', 64);
+        TopicListService topicListService = new TopicListService(pulsar, connection);
+        topicListService.handleWatchTopicList(NAMESPACE, 3, 7, pattern, null);
+        ArgumentCaptor<TopicListListener> listener = ArgumentCaptor.forClass(TopicListListener.class);
+        verify(namespaceService).addTopicListListener(eq(NAMESPACE), listener.capture());
+
+        // The match is aborted, which fails the registration of the watcher
+        expectThrows(TopicListService.PatternMatchTimeoutException.class,
+                () -> listener.getValue().onTopicListChanged(Lists.newArrayList(topic)));
+    }
+
+    @Test
+    public void testWatcherRemovedOnPathologicalTopic() {
+        Pattern pattern = Pattern.compile("persistent://my-property/my-ns/(a|aa)+b");
+        TopicListService topicListService = new TopicListService(pulsar, connection);
+        topicListService.handleWatchTopicList(NAMESPACE, 3, 7, pattern, null);
+        ArgumentCaptor<TopicListListener> listener = ArgumentCaptor.forClass(TopicListListener.class);
+        verify(namespaceService).addTopicListListener(eq(NAMESPACE), listener.capture());
+        listener.getValue().onTopicListChanged(Lists.newArrayList("persistent://my-property/my-ns/aab"));
+
+        listener.getValue().onTopicListChanged(Lists.newArrayList("persistent://my-property/my-ns/aab",
+                "persistent://my-property/my-ns/" + StringUtils.repeat('a', 64)));
+        verify(namespaceService).removeTopicListListener(NAMESPACE, listener.getValue());
+        verify(commandSender, never()).sendWatchTopicListUpdate(anyLong(), any(), any(), anyString());
+    }
+
+    @Test
+    public void testWatchTopicListFailure() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        future.completeExceptionally(new RuntimeException("failed"));
+        doReturn(future).when(namespaceService).addTopicListListener(eq(NAMESPACE), any());
+        TopicListService topicListService = new TopicListService(pulsar, connection);
+
+        TopicListListener listener = registerWatcher(topicListService, null);
+        verify(commandSender).sendErrorResponse(eq(7L), any(ServerError.class), anyString());
+        verify(namespaceService).removeTopicListListener(NAMESPACE, listener);
+
+        // The watcher id can be reused after a failure
+        topicListService.handleWatchTopicList(NAMESPACE, 3, 8, PATTERN, null);
+        verify(commandSender, never()).sendErrorResponse(eq(8L), eq(ServerError.ServiceNotReady), anyString());
+    }
+
+    @Test
+    public void testDuplicateWatcherId() {
+        TopicListService topicListService = new TopicListService(pulsar, connection);
+        registerWatcher(topicListService, null);
+
+        topicListService.handleWatchTopicList(NAMESPACE, 3, 8, PATTERN, null);
+        verify(commandSender).sendErrorResponse(eq(8L), eq(ServerError.ServiceNotReady), anyString());
+    }
+
+    @Test
+    public void testCloseWatcher() {
+        TopicListService topicListService = new TopicListService(pulsar, connection);
+        TopicListListener listener = registerWatcher(topicListService, null);
+
+        topicListService.handleWatchTopicListClose(new CommandWatchTopicListClose().setRequestId(9).setWatcherId(3));
+        verify(namespaceService).removeTopicListListener(NAMESPACE, listener);
+        verify(commandSender).sendSuccessResponse(9);
+    }
+
+    @Test
+    public void testInactivate() {
+        TopicListService topicListService = new TopicListService(pulsar, connection);
+        TopicListListener listener = registerWatcher(topicListService, null);
+
+        topicListService.inactivate();
+        verify(namespaceService).removeTopicListListener(NAMESPACE, listener);
+    }
+}
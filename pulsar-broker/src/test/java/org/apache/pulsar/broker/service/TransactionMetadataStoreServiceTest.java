@@ -18,8 +18,6 @@
  */
 package org.apache.pulsar.broker.service;
 
-import org.apache.bookkeeper.mledger.Position;
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.broker.ServiceConfiguration;
 import org.apache.pulsar.broker.TransactionMetadataStoreService;
 import org.apache.pulsar.client.api.transaction.TxnID;
@@ -35,11 +33,9 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
-import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
@@ -144,24 +140,21 @@ public class TransactionMetadataStoreServiceTest extends BrokerTestBase {
         method.setAccessible(true);
         Awaitility.await().atMost(1000, TimeUnit.MILLISECONDS)
                 .until(() -> (Boolean) method.invoke(transactionMetadataStore));
-        Field field = MLTransactionMetadataStore.class.getDeclaredField("txnMetaMap");
-        field.setAccessible(true);
-        ConcurrentMap<TxnID, Pair<TxnMeta, List<Position>>> txnMap =
-                (ConcurrentMap<TxnID, Pair<TxnMeta, List<Position>>>) field.get(transactionMetadataStore);
+        List<TxnID> txnIDs = new ArrayList<>();
         int i = -1;
         while (++i < 1000) {
             try {
-                transactionMetadataStore.newTransaction(5000).get();
+                txnIDs.add(transactionMetadataStore.newTransaction(5000).get());
             } catch (Exception e) {
                 //no operation
             }
         }
 
-        txnMap.forEach((txnID, txnMetaListPair) -> {
-            Assert.assertEquals(txnMetaListPair.getLeft().status(), TxnStatus.OPEN);
-        });
+        for (TxnID txnID : txnIDs) {
+            Assert.assertEquals(transactionMetadataStore.getTxnStatus(txnID).get(), TxnStatus.OPEN);
+        }
         Awaitility.await().atLeast(5000, TimeUnit.MICROSECONDS).atMost(10000, TimeUnit.MILLISECONDS)
-                .until(() -> txnMap.size() == 0);
+                .until(() -> transactionMetadataStore.getOpenTransactionCount() == 0);
     }
 
     @Test
@@ -177,10 +170,6 @@ public class TransactionMetadataStoreServiceTest extends BrokerTestBase {
         method.setAccessible(true);
         Awaitility.await().atMost(1000, TimeUnit.MILLISECONDS)
                 .until(() -> (Boolean) method.invoke(transactionMetadataStore));
-        Field field = MLTransactionMetadataStore.class.getDeclaredField("txnMetaMap");
-        field.setAccessible(true);
-        ConcurrentMap<TxnID, Pair<TxnMeta, List<Position>>> txnMap =
-                (ConcurrentMap<TxnID, Pair<TxnMeta, List<Position>>>) field.get(transactionMetadataStore);
         new Thread(() -> {
             int i = -1;
             while (++i < 100) {
@@ -225,6 +214,6 @@ public class TransactionMetadataStoreServiceTest extends BrokerTestBase {
             }
         }).start();
         Awaitility.await().atLeast(3000, TimeUnit.MICROSECONDS).atMost(10000, TimeUnit.MILLISECONDS)
-                .until(() -> txnMap.size() == 100);
+                .until(() -> transactionMetadataStore.getOpenTransactionCount() == 100);
     }
 }
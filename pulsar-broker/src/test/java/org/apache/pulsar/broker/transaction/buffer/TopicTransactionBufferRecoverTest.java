@@ -0,0 +1,242 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.transaction.buffer;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import com.google.common.collect.Sets;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.bookkeeper.mledger.ManagedLedger;
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.pulsar.broker.PulsarService;
+import org.apache.pulsar.broker.service.persistent.PersistentTopic;
+import org.apache.pulsar.broker.transaction.TransactionTestBase;
+import org.apache.pulsar.broker.transaction.buffer.impl.MLTransactionBufferSnapshotStore;
+import org.apache.pulsar.broker.transaction.buffer.impl.TransactionBufferSnapshot;
+import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.Producer;
+import org.apache.pulsar.client.api.PulsarClient;
+import org.apache.pulsar.client.api.SubscriptionInitialPosition;
+import org.apache.pulsar.client.api.SubscriptionType;
+import org.apache.pulsar.client.api.transaction.Transaction;
+import org.apache.pulsar.client.api.transaction.TransactionCoordinatorClient;
+import org.apache.pulsar.client.impl.PulsarClientImpl;
+import org.apache.pulsar.common.naming.NamespaceName;
+import org.apache.pulsar.common.naming.TopicName;
+import org.apache.pulsar.common.policies.data.ClusterData;
+import org.apache.pulsar.common.policies.data.TenantInfo;
+import org.apache.pulsar.common.util.ObjectMapperFactory;
+import org.awaitility.Awaitility;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Recovery of the topic transaction buffer from its snapshot.
+ */
+@Slf4j
+public class TopicTransactionBufferRecoverTest extends TransactionTestBase {
+
+    private final static String TENANT = "tnx";
+    private final static String NAMESPACE1 = TENANT + "/ns1";
+    private final static String TOPIC = "persistent://" + NAMESPACE1 + "/test-recover-topic";
+
+    @BeforeMethod
+    protected void setup() throws Exception {
+        internalSetup();
+
+        String[] brokerServiceUrlArr = getPulsarServiceList().get(0).getBrokerServiceUrl().split(":");
+        String webServicePort = brokerServiceUrlArr[brokerServiceUrlArr.length -1];
+        admin.clusters().createCluster(CLUSTER_NAME, new ClusterData("http://localhost:" + webServicePort));
+        admin.tenants().createTenant(TENANT,
+                new TenantInfo(Sets.newHashSet("appid1"), Sets.newHashSet(CLUSTER_NAME)));
+        admin.namespaces().createNamespace(NAMESPACE1);
+        admin.tenants().createTenant(NamespaceName.SYSTEM_NAMESPACE.getTenant(),
+                new TenantInfo(Sets.newHashSet("appid1"), Sets.newHashSet(CLUSTER_NAME)));
+        admin.namespaces().createNamespace(NamespaceName.SYSTEM_NAMESPACE.toString());
+        admin.topics().createPartitionedTopic(TopicName.TRANSACTION_COORDINATOR_ASSIGN.toString(), 16);
+
+        // snapshot after every aborted transaction, whichever broker owns the topic
+        getPulsarServiceList().forEach(pulsar ->
+                pulsar.getConfiguration().setTransactionBufferSnapshotMaxTransactionCount(1));
+        admin.topics().createNonPartitionedTopic(TOPIC);
+
+        pulsarClient = PulsarClient.builder()
+                .serviceUrl(getPulsarServiceList().get(0).getBrokerServiceUrl())
+                .statsInterval(0, TimeUnit.SECONDS)
+                .enableTransaction(true)
+                .build();
+
+        Awaitility.await().atMost(3, TimeUnit.SECONDS).until(() -> ((PulsarClientImpl) pulsarClient)
+                .getTcClient().getState() == TransactionCoordinatorClient.State.READY);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    protected void cleanup() throws Exception {
+        super.internalCleanup();
+    }
+
+    private PulsarService getOwnerBroker() throws Exception {
+        String brokerUrl = admin.lookups().lookupTopic(TOPIC);
+        return getPulsarServiceList().stream()
+                .filter(pulsar -> brokerUrl.equals(pulsar.getBrokerServiceUrl()))
+                .findFirst().get();
+    }
+
+    private ManagedLedger getManagedLedger() throws Exception {
+        PersistentTopic topic = (PersistentTopic) getOwnerBroker().getBrokerService()
+                .getTopic(TOPIC, false).get().get();
+        return topic.getManagedLedger();
+    }
+
+    private static String getSnapshotLogName() {
+        return TopicName.get(TOPIC).getPersistenceNamingEncoding() + MLTransactionBufferSnapshotStore.SNAPSHOT_LOG_SUFFIX;
+    }
+
+    private long getSnapshotCount() throws Exception {
+        // the snapshot log is already opened by the transaction buffer of the topic
+        return getOwnerBroker().getManagedLedgerFactory().open(getSnapshotLogName()).getNumberOfEntries();
+    }
+
+    @Test
+    public void recoverFromSnapshotTest() throws Exception {
+        Producer<byte[]> producer = pulsarClient
+                .newProducer()
+                .topic(TOPIC)
+                .sendTimeout(0, TimeUnit.SECONDS)
+                .enableBatching(false)
+                .create();
+
+        Transaction abortedTxn = pulsarClient.newTransaction()
+                .withTransactionTimeout(5, TimeUnit.MINUTES)
+                .build().get();
+        producer.newMessage().value("test1".getBytes()).send();
+        producer.newMessage(abortedTxn).value("aborted".getBytes()).send();
+        abortedTxn.abort().get();
+
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> getSnapshotCount() > 0);
+
+        // written after the snapshot, so it has to be recovered by replaying the topic
+        Transaction ongoingTxn = pulsarClient.newTransaction()
+                .withTransactionTimeout(5, TimeUnit.MINUTES)
+                .build().get();
+        producer.newMessage(ongoingTxn).value("ongoing".getBytes()).send();
+        producer.newMessage().value("test2".getBytes()).send();
+        producer.close();
+
+        admin.topics().unload(TOPIC);
+
+        Consumer<byte[]> consumer = pulsarClient.newConsumer()
+                .topic(TOPIC)
+                .subscriptionName("test")
+                .subscriptionInitialPosition(SubscriptionInitialPosition.Earliest)
+                .subscriptionType(SubscriptionType.Failover)
+                .subscribe();
+
+        Message<byte[]> message = consumer.receive(5, TimeUnit.SECONDS);
+        assertEquals(new String(message.getData()), "test1");
+        message = consumer.receive(2, TimeUnit.SECONDS);
+        assertNull(message);
+
+        ongoingTxn.commit().get();
+
+        message = consumer.receive(5, TimeUnit.SECONDS);
+        assertEquals(new String(message.getData()), "ongoing");
+        message = consumer.receive(5, TimeUnit.SECONDS);
+        assertEquals(new String(message.getData()), "test2");
+        message = consumer.receive(2, TimeUnit.SECONDS);
+        assertNull(message);
+    }
+
+    @Test
+    public void snapshotOnlyOnAbortTest() throws Exception {
+        Producer<byte[]> producer = pulsarClient
+                .newProducer()
+                .topic(TOPIC)
+                .sendTimeout(0, TimeUnit.SECONDS)
+                .enableBatching(false)
+                .create();
+
+        for (int i = 0; i < 3; i++) {
+            Transaction committedTxn = pulsarClient.newTransaction()
+                    .withTransactionTimeout(5, TimeUnit.MINUTES)
+                    .build().get();
+            producer.newMessage(committedTxn).value("committed".getBytes()).send();
+            committedTxn.commit().get();
+        }
+        getManagedLedger();
+        assertEquals(getSnapshotCount(), 0);
+
+        Transaction abortedTxn = pulsarClient.newTransaction()
+                .withTransactionTimeout(5, TimeUnit.MINUTES)
+                .build().get();
+        producer.newMessage(abortedTxn).value("aborted".getBytes()).send();
+        abortedTxn.abort().get();
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> getSnapshotCount() == 1);
+        producer.close();
+
+        // the aborted transactions didn't change since the last snapshot
+        admin.topics().unload(TOPIC);
+        getManagedLedger();
+        assertEquals(getSnapshotCount(), 1);
+
+        PulsarService pulsar = getOwnerBroker();
+        admin.topics().delete(TOPIC);
+        try {
+            pulsar.getManagedLedgerFactory().getManagedLedgerInfo(getSnapshotLogName());
+            fail("The snapshot log should have been deleted with the topic");
+        } catch (ManagedLedgerException.MetadataNotFoundException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void recoverFailureTest() throws Exception {
+        PulsarService pulsar = getOwnerBroker();
+        admin.topics().unload(TOPIC);
+
+        ManagedLedger snapshotLog = pulsar.getManagedLedgerFactory().open(getSnapshotLogName());
+        snapshotLog.addEntry("not-a-snapshot".getBytes());
+
+        try {
+            pulsar.getBrokerService().getTopic(TOPIC, false).get();
+            fail("should have failed to load the topic");
+        } catch (ExecutionException e) {
+            // expected
+        }
+
+        // only the latest snapshot is used
+        PositionImpl lastPosition = (PositionImpl) pulsar.getManagedLedgerFactory()
+                .open(TopicName.get(TOPIC).getPersistenceNamingEncoding()).getLastConfirmedEntry();
+        snapshotLog.addEntry(ObjectMapperFactory.getThreadLocal().writeValueAsBytes(new TransactionBufferSnapshot(
+                lastPosition.getLedgerId(), lastPosition.getEntryId(), new ArrayList<>())));
+        assertTrue(pulsar.getBrokerService().getTopic(TOPIC, false).get().isPresent());
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.transaction.pendingack;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.impl.ManagedCursorImpl;
+import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.commons.lang3.tuple.MutablePair;
+import org.apache.pulsar.broker.service.BrokerServiceException.ServiceUnitNotReadyException;
+import org.apache.pulsar.broker.service.Consumer;
+import org.apache.pulsar.broker.service.persistent.PersistentSubscription;
+import org.apache.pulsar.broker.transaction.pendingack.impl.PendingAckHandleImpl;
+import org.apache.pulsar.client.api.transaction.TxnID;
+import org.apache.pulsar.common.api.proto.CommandAck.AckType;
+import org.apache.pulsar.common.util.FutureUtil;
+import org.apache.pulsar.common.util.collections.BitSetRecyclable;
+import org.apache.pulsar.transaction.common.exception.TransactionConflictException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * The in-memory pending ack state follows the pending ack log when appending to it fails.
+ */
+public class PendingAckHandleImplTest {
+
+    private PersistentSubscription subscription;
+    private PendingAckStore pendingAckStore;
+
+    @BeforeMethod
+    public void setup() {
+        ManagedCursorImpl cursor = mock(ManagedCursorImpl.class);
+        when(cursor.getMarkDeletedPosition()).thenReturn(PositionImpl.get(1, 0));
+        subscription = mock(PersistentSubscription.class);
+        when(subscription.getTopicName()).thenReturn("persistent://public/default/pending-ack");
+        when(subscription.getName()).thenReturn("sub");
+        when(subscription.getCursor()).thenReturn(cursor);
+        pendingAckStore = mock(PendingAckStore.class);
+        when(pendingAckStore.replayAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    private static CompletableFuture<Void> appendFailure() {
+        return FutureUtil.failedFuture(new ManagedLedgerException("append failed"));
+    }
+
+    private static List<MutablePair<PositionImpl, Integer>> batchAck(int batchIndex, int batchSize) {
+        BitSetRecyclable bitSet = BitSetRecyclable.create();
+        bitSet.set(0, batchSize);
+        bitSet.clear(batchIndex);
+        PositionImpl position = PositionImpl.get(1, 1);
+        position.setAckSet(bitSet.toLongArray());
+        bitSet.recycle();
+        return Collections.singletonList(MutablePair.of(position, batchSize));
+    }
+
+    private static void assertFailsWith(CompletableFuture<Void> future, Class<? extends Throwable> cause)
+            throws InterruptedException {
+        try {
+            future.get();
+            fail("The operation should have failed");
+        } catch (ExecutionException e) {
+            assertTrue(cause.isInstance(e.getCause()), e.getCause().toString());
+        }
+    }
+
+    @Test
+    public void testIndividualAckIsRolledBackWhenAppendFails() throws Exception {
+        when(pendingAckStore.appendIndividualAck(any(), anyList()))
+                .thenReturn(appendFailure(), CompletableFuture.completedFuture(null));
+        PendingAckHandleImpl handle = new PendingAckHandleImpl(subscription, pendingAckStore);
+
+        assertFailsWith(handle.individualAcknowledgeMessage(new TxnID(1, 1),
+                Collections.singletonList(MutablePair.of(PositionImpl.get(1, 1), 0))), ManagedLedgerException.class);
+        handle.individualAcknowledgeMessage(new TxnID(1, 2),
+                Collections.singletonList(MutablePair.of(PositionImpl.get(1, 1), 0))).get();
+        assertFailsWith(handle.individualAcknowledgeMessage(new TxnID(1, 3),
+                Collections.singletonList(MutablePair.of(PositionImpl.get(1, 1), 0))),
+                TransactionConflictException.class);
+    }
+
+    @Test
+    public void testBatchIndividualAckIsRolledBackWhenAppendFails() throws Exception {
+        when(pendingAckStore.appendIndividualAck(any(), anyList()))
+                .thenReturn(appendFailure(), CompletableFuture.completedFuture(null));
+        PendingAckHandleImpl handle = new PendingAckHandleImpl(subscription, pendingAckStore);
+
+        assertFailsWith(handle.individualAcknowledgeMessage(new TxnID(1, 1), batchAck(0, 4)),
+                ManagedLedgerException.class);
+        handle.individualAcknowledgeMessage(new TxnID(1, 2), batchAck(0, 4)).get();
+        assertFailsWith(handle.individualAcknowledgeMessage(new TxnID(1, 3), batchAck(0, 4)),
+                TransactionConflictException.class);
+        handle.individualAcknowledgeMessage(new TxnID(1, 3), batchAck(1, 4)).get();
+    }
+
+    @Test
+    public void testCumulativeAckIsRolledBackWhenAppendFails() throws Exception {
+        when(pendingAckStore.appendCumulativeAck(any(), any()))
+                .thenReturn(appendFailure(), CompletableFuture.completedFuture(null));
+        PendingAckHandleImpl handle = new PendingAckHandleImpl(subscription, pendingAckStore);
+
+        assertFailsWith(handle.cumulativeAcknowledgeMessage(new TxnID(1, 1),
+                Collections.singletonList(PositionImpl.get(1, 5))), ManagedLedgerException.class);
+        handle.cumulativeAcknowledgeMessage(new TxnID(1, 2), Collections.singletonList(PositionImpl.get(1, 5))).get();
+    }
+
+    @Test
+    public void testCommitCanBeRetriedWhenCommitMarkFails() throws Exception {
+        when(pendingAckStore.appendIndividualAck(any(), anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        when(pendingAckStore.appendCommitMark(any()))
+                .thenReturn(appendFailure(), CompletableFuture.completedFuture(null));
+        PendingAckHandleImpl handle = new PendingAckHandleImpl(subscription, pendingAckStore);
+        TxnID txnID = new TxnID(1, 1);
+
+        handle.individualAcknowledgeMessage(txnID,
+                Collections.singletonList(MutablePair.of(PositionImpl.get(1, 1), 0))).get();
+        assertFailsWith(handle.commitTxn(txnID, Collections.emptyMap()), ManagedLedgerException.class);
+        handle.commitTxn(txnID, Collections.emptyMap()).get();
+
+        verify(subscription, times(2)).acknowledgeMessage(eq(Collections.singletonList(PositionImpl.get(1, 1))),
+                eq(AckType.Individual), any());
+    }
+
+    @Test
+    public void testAbortIsNotAppliedWhenAbortMarkFails() throws Exception {
+        when(pendingAckStore.appendIndividualAck(any(), anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        when(pendingAckStore.appendAbortMark(any())).thenReturn(appendFailure());
+        PendingAckHandleImpl handle = new PendingAckHandleImpl(subscription, pendingAckStore);
+        TxnID txnID = new TxnID(1, 1);
+
+        handle.individualAcknowledgeMessage(txnID,
+                Collections.singletonList(MutablePair.of(PositionImpl.get(1, 1), 0))).get();
+        assertFailsWith(handle.abortTxn(txnID, mock(Consumer.class)), ManagedLedgerException.class);
+
+        verify(subscription, never()).redeliverUnacknowledgedMessages(any(), anyList());
+        assertFailsWith(handle.individualAcknowledgeMessage(new TxnID(1, 2),
+                Collections.singletonList(MutablePair.of(PositionImpl.get(1, 1), 0))),
+                TransactionConflictException.class);
+    }
+
+    @Test
+    public void testOperationsFailWhenReplayFails() throws Exception {
+        when(pendingAckStore.replayAsync(any())).thenReturn(appendFailure());
+        PendingAckHandleImpl handle = new PendingAckHandleImpl(subscription, pendingAckStore);
+
+        assertFailsWith(handle.individualAcknowledgeMessage(new TxnID(1, 1),
+                Collections.singletonList(MutablePair.of(PositionImpl.get(1, 1), 0))),
+                ServiceUnitNotReadyException.class);
+        assertFailsWith(handle.commitTxn(new TxnID(1, 1), Collections.emptyMap()),
+                ServiceUnitNotReadyException.class);
+        verify(pendingAckStore, never()).appendIndividualAck(any(), anyList());
+        verify(pendingAckStore, never()).appendCommitMark(any());
+    }
+}
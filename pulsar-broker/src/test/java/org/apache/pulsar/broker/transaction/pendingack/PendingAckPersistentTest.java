@@ -0,0 +1,274 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.transaction.pendingack;
+
+import com.google.common.collect.Sets;
+
+import lombok.Cleanup;
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.pulsar.broker.PulsarService;
+import org.apache.pulsar.broker.service.Topic;
+import org.apache.pulsar.broker.service.persistent.PersistentSubscription;
+import org.apache.pulsar.broker.transaction.TransactionTestBase;
+import org.apache.pulsar.broker.transaction.pendingack.impl.MLPendingAckStore;
+import org.apache.pulsar.broker.transaction.pendingack.impl.PendingAckHandleImpl;
+import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.Producer;
+import org.apache.pulsar.client.api.PulsarClient;
+import org.apache.pulsar.client.api.SubscriptionType;
+import org.apache.pulsar.client.api.transaction.Transaction;
+import org.apache.pulsar.client.api.transaction.TxnID;
+import org.apache.pulsar.common.naming.NamespaceName;
+import org.apache.pulsar.common.naming.TopicName;
+import org.apache.pulsar.common.policies.data.ClusterData;
+import org.apache.pulsar.common.policies.data.TenantInfo;
+import org.apache.pulsar.common.topics.TopicList;
+import org.apache.pulsar.common.util.Codec;
+import org.awaitility.Awaitility;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Pending acks that are persisted in the pending ack log survive a topic reload.
+ */
+@Slf4j
+public class PendingAckPersistentTest extends TransactionTestBase {
+
+    private final static String TENANT = "tnx";
+    private final static String NAMESPACE1 = TENANT + "/ns1";
+
+    @BeforeMethod
+    protected void setup() throws Exception {
+        internalSetup();
+
+        String[] brokerServiceUrlArr = getPulsarServiceList().get(0).getBrokerServiceUrl().split(":");
+        String webServicePort = brokerServiceUrlArr[brokerServiceUrlArr.length -1];
+        admin.clusters().createCluster(CLUSTER_NAME, new ClusterData("http://localhost:" + webServicePort));
+        admin.tenants().createTenant(TENANT,
+                new TenantInfo(Sets.newHashSet("appid1"), Sets.newHashSet(CLUSTER_NAME)));
+
+        admin.tenants().createTenant(NamespaceName.SYSTEM_NAMESPACE.getTenant(),
+                new TenantInfo(Sets.newHashSet("appid1"), Sets.newHashSet(CLUSTER_NAME)));
+        admin.namespaces().createNamespace(NAMESPACE1);
+        admin.namespaces().createNamespace(NamespaceName.SYSTEM_NAMESPACE.toString());
+        admin.topics().createPartitionedTopic(TopicName.TRANSACTION_COORDINATOR_ASSIGN.toString(), 16);
+
+        for (PulsarService pulsarService : getPulsarServiceList()) {
+            pulsarService.getConfiguration().setTransactionPendingAckLogEnabled(true);
+        }
+
+        pulsarClient = PulsarClient.builder()
+                .serviceUrl(getPulsarServiceList().get(0).getBrokerServiceUrl())
+                .statsInterval(0, TimeUnit.SECONDS)
+                .enableTransaction(true)
+                .build();
+
+        Thread.sleep(1000 * 3);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    protected void cleanup() {
+        super.internalCleanup();
+    }
+
+    @SuppressWarnings("unchecked")
+    private HashMap<TxnID, HashMap<PositionImpl, PositionImpl>> getIndividualAckOfTransaction(
+            PersistentSubscription subscription) throws Exception {
+        Field field = PersistentSubscription.class.getDeclaredField("pendingAckHandle");
+        field.setAccessible(true);
+        PendingAckHandleImpl pendingAckHandle = (PendingAckHandleImpl) field.get(subscription);
+        field = PendingAckHandleImpl.class.getDeclaredField("individualAckOfTransaction");
+        field.setAccessible(true);
+        return (HashMap<TxnID, HashMap<PositionImpl, PositionImpl>>) field.get(pendingAckHandle);
+    }
+
+    private PersistentSubscription getSubscription(String topic, String subscriptionName) throws Exception {
+        for (PulsarService pulsarService : getPulsarServiceList()) {
+            Optional<Topic> loaded = pulsarService.getBrokerService().getTopicReference(topic);
+            if (loaded.isPresent()) {
+                return (PersistentSubscription) loaded.get().getSubscription(subscriptionName);
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void individualPendingAckRecoverTest() throws Exception {
+        String topic = "persistent://" + NAMESPACE1 + "/pending-ack-recover";
+        String subscriptionName = "test";
+        int messageCnt = 10;
+
+        @Cleanup
+        Consumer<byte[]> consumer = pulsarClient.newConsumer()
+                .topic(topic)
+                .subscriptionName(subscriptionName)
+                .subscriptionType(SubscriptionType.Shared)
+                .acknowledgmentGroupTime(0, TimeUnit.MICROSECONDS)
+                .subscribe();
+
+        @Cleanup
+        Producer<byte[]> producer = pulsarClient.newProducer()
+                .topic(topic)
+                .enableBatching(false)
+                .create();
+
+        for (int i = 0; i < messageCnt; i++) {
+            producer.newMessage().value(("hello" + i).getBytes()).send();
+        }
+
+        Transaction txn = pulsarClient.newTransaction()
+                .withTransactionTimeout(5, TimeUnit.MINUTES)
+                .build()
+                .get();
+        for (int i = 0; i < messageCnt; i++) {
+            Message<byte[]> message = consumer.receive(5, TimeUnit.SECONDS);
+            assertNotNull(message);
+            if (i % 2 == 0) {
+                consumer.acknowledgeAsync(message.getMessageId(), txn).get();
+            }
+        }
+
+        admin.topics().unload(topic);
+
+        Awaitility.await().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> {
+            PersistentSubscription subscription = getSubscription(topic, subscriptionName);
+            assertNotNull(subscription);
+            HashMap<TxnID, HashMap<PositionImpl, PositionImpl>> individualAckOfTransaction =
+                    getIndividualAckOfTransaction(subscription);
+            assertNotNull(individualAckOfTransaction);
+            assertEquals(individualAckOfTransaction.size(), 1);
+            assertEquals(individualAckOfTransaction.values().iterator().next().size(), messageCnt / 2);
+        });
+
+        txn.commit().get();
+
+        Awaitility.await().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> {
+            PersistentSubscription subscription = getSubscription(topic, subscriptionName);
+            assertEquals(getIndividualAckOfTransaction(subscription).size(), 0);
+            assertEquals(subscription.getCursor().getNumberOfEntriesInBacklog(false), messageCnt / 2);
+        });
+    }
+
+    // Leave a committed transactional ack on the subscription, so that it has a pending ack log, and return the
+    // broker owning the topic
+    private PulsarService ackWithTransactionAndClose(String topic, String subscriptionName) throws Exception {
+        Consumer<byte[]> consumer = pulsarClient.newConsumer()
+                .topic(topic)
+                .subscriptionName(subscriptionName)
+                .subscriptionType(SubscriptionType.Shared)
+                .acknowledgmentGroupTime(0, TimeUnit.MICROSECONDS)
+                .subscribe();
+
+        @Cleanup
+        Producer<byte[]> producer = pulsarClient.newProducer()
+                .topic(topic)
+                .enableBatching(false)
+                .create();
+        producer.newMessage().value("hello".getBytes()).send();
+
+        Transaction txn = pulsarClient.newTransaction()
+                .withTransactionTimeout(5, TimeUnit.MINUTES)
+                .build()
+                .get();
+        Message<byte[]> message = consumer.receive(5, TimeUnit.SECONDS);
+        assertNotNull(message);
+        consumer.acknowledgeAsync(message.getMessageId(), txn).get();
+        txn.commit().get();
+        consumer.close();
+
+        PulsarService owner = null;
+        for (PulsarService pulsarService : getPulsarServiceList()) {
+            if (pulsarService.getBrokerService().getTopicReference(topic).isPresent()) {
+                owner = pulsarService;
+            }
+        }
+        assertNotNull(owner);
+        assertNotNull(owner.getManagedLedgerFactory().getManagedLedgerInfo(getPendingAckLogName(topic,
+                subscriptionName)));
+        return owner;
+    }
+
+    private static String getPendingAckLogName(String topic, String subscriptionName) {
+        return TopicName.get(topic).getPersistenceNamingEncoding() + "-" + Codec.encode(subscriptionName)
+                + MLPendingAckStore.PENDING_ACK_LOG_SUFFIX;
+    }
+
+    private static void assertDeleted(PulsarService owner, String managedLedgerName) throws Exception {
+        try {
+            owner.getManagedLedgerFactory().getManagedLedgerInfo(managedLedgerName);
+            fail("The pending ack log should have been deleted");
+        } catch (ManagedLedgerException e) {
+            assertTrue(e instanceof ManagedLedgerException.MetadataNotFoundException, e.toString());
+        }
+    }
+
+    @Test
+    public void deleteSubscriptionDeletesPendingAckLogTest() throws Exception {
+        String topic = "persistent://" + NAMESPACE1 + "/pending-ack-delete";
+        String subscriptionName = "test";
+        PulsarService owner = ackWithTransactionAndClose(topic, subscriptionName);
+
+        admin.topics().deleteSubscription(topic, subscriptionName);
+
+        assertDeleted(owner, getPendingAckLogName(topic, subscriptionName));
+    }
+
+    @Test
+    public void pendingAckLogIsNotListedAndDeletedWithTopicTest() throws Exception {
+        String topic = "persistent://" + NAMESPACE1 + "/pending-ack-delete-topic";
+        String subscriptionName = "test";
+        PulsarService owner = ackWithTransactionAndClose(topic, subscriptionName);
+
+        // The pending ack log is a managed ledger of the namespace, but not a topic
+        String pendingAckLogTopic = "persistent://" + NAMESPACE1 + "/" + TopicName.get(topic).getLocalName() + "-"
+                + subscriptionName + MLPendingAckStore.PENDING_ACK_LOG_SUFFIX;
+        List<String> topics = admin.topics().getList(NAMESPACE1);
+        assertTrue(topics.contains(topic));
+        assertFalse(topics.contains(pendingAckLogTopic));
+        topics = owner.getNamespaceService().getListOfPersistentTopics(NamespaceName.get(NAMESPACE1)).get();
+        assertTrue(topics.contains(topic));
+        assertFalse(topics.contains(pendingAckLogTopic));
+        assertEquals(TopicList.filterTopics(Arrays.asList(topic, pendingAckLogTopic),
+                Pattern.compile(NAMESPACE1 + "/.*")), Collections.singletonList(topic));
+
+        admin.topics().delete(topic, true);
+
+        assertDeleted(owner, getPendingAckLogName(topic, subscriptionName));
+    }
+}
@@ -19,14 +19,17 @@
 package org.apache.pulsar.client.api;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.fail;
 
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import lombok.Cleanup;
 
 import org.apache.pulsar.client.api.PulsarClientException.MemoryBufferIsFullError;
 import org.apache.pulsar.client.impl.PulsarClientImpl;
+import org.awaitility.Awaitility;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
@@ -163,4 +166,127 @@ public class MemoryLimitTest extends ProducerConsumerBase {
         p1.send(new byte[1024]);
         p2.send(new byte[1024]);
     }
+
+    @DataProvider(name = "partitioned")
+    public Object[][] partitionedProvider() {
+        return new Object[][] {
+                { false },
+                { true },
+        };
+    }
+
+    @Test(dataProvider = "partitioned")
+    public void testConsumersAreThrottled(boolean partitioned) throws Exception {
+        String topic = newTopicName();
+        if (partitioned) {
+            admin.topics().createPartitionedTopic(topic, 3);
+        }
+
+        @Cleanup
+        PulsarClientImpl client = (PulsarClientImpl) PulsarClient.builder()
+                .serviceUrl(pulsar.getBrokerServiceUrl())
+                .memoryLimit(100, SizeUnit.KILO_BYTES)
+                .build();
+
+        @Cleanup
+        Consumer<byte[]> consumer = client.newConsumer()
+                .topic(topic)
+                .subscriptionName("sub")
+                .receiverQueueSize(10)
+                .subscribe();
+
+        // Produce from a different client, so that only the consumer is accounted for
+        @Cleanup
+        Producer<byte[]> producer = pulsarClient.newProducer()
+                .topic(topic)
+                .enableBatching(false)
+                .create();
+
+        // The receiver queues can hold way more than the memory limit, the consumer has to hold back the permits
+        // and still get all the messages once the application releases memory by receiving them
+        final int n = 100;
+        for (int i = 0; i < n; i++) {
+            producer.sendAsync(new byte[20 * 1024]);
+        }
+        producer.flush();
+
+        for (int i = 0; i < n; i++) {
+            Message<byte[]> msg = consumer.receive(5, TimeUnit.SECONDS);
+            assertNotNull(msg);
+            consumer.acknowledge(msg);
+        }
+
+        assertEquals(client.getMemoryLimitController().currentUsage(), 0);
+        assertEquals(consumer.getStats().getMsgSizeInReceiverQueue(), Long.valueOf(0));
+    }
+
+    @Test
+    public void testConsumerWithEmptyQueueIsNotStarvedByAnother() throws Exception {
+        String idleTopic = newTopicName();
+        String activeTopic = newTopicName();
+
+        @Cleanup
+        PulsarClientImpl client = (PulsarClientImpl) PulsarClient.builder()
+                .serviceUrl(pulsar.getBrokerServiceUrl())
+                .memoryLimit(100, SizeUnit.KILO_BYTES)
+                .build();
+
+        @Cleanup
+        Consumer<byte[]> idleConsumer = client.newConsumer()
+                .topic(idleTopic)
+                .subscriptionName("sub")
+                .receiverQueueSize(20)
+                .subscribe();
+
+        @Cleanup
+        Producer<byte[]> idleProducer = pulsarClient.newProducer()
+                .topic(idleTopic)
+                .enableBatching(false)
+                .create();
+
+        // The application doesn't receive from this consumer, its queue alone takes the client over the limit
+        final int n = 20;
+        for (int i = 0; i < n; i++) {
+            idleProducer.sendAsync(new byte[20 * 1024]);
+        }
+        idleProducer.flush();
+        Awaitility.await().untilAsserted(() -> assertEquals(
+                client.getMemoryLimitController().currentUsage(), n * 20 * 1024));
+
+        @Cleanup
+        Consumer<byte[]> activeConsumer = client.newConsumer()
+                .topic(activeTopic)
+                .subscriptionName("sub")
+                .receiverQueueSize(4)
+                .subscribe();
+
+        @Cleanup
+        Producer<byte[]> activeProducer = pulsarClient.newProducer()
+                .topic(activeTopic)
+                .enableBatching(false)
+                .create();
+
+        // A consumer that emptied its queue still gets permits, one queue at a time
+        for (int i = 0; i < n; i++) {
+            activeProducer.sendAsync(new byte[20 * 1024]);
+        }
+        activeProducer.flush();
+        for (int i = 0; i < n; i++) {
+            Message<byte[]> msg = activeConsumer.receive(5, TimeUnit.SECONDS);
+            assertNotNull(msg);
+            activeConsumer.acknowledge(msg);
+        }
+
+        // Clearing the queue releases each message once, and the redelivered messages are accounted again
+        idleConsumer.redeliverUnacknowledgedMessages();
+        for (int i = 0; i < n; i++) {
+            Message<byte[]> msg = idleConsumer.receive(5, TimeUnit.SECONDS);
+            assertNotNull(msg);
+            idleConsumer.acknowledge(msg);
+        }
+
+        assertEquals(client.getMemoryLimitController().currentUsage(), 0);
+        assertEquals(idleConsumer.getStats().getMsgSizeInReceiverQueue(), Long.valueOf(0));
+        assertEquals(activeConsumer.getStats().getMsgSizeInReceiverQueue(), Long.valueOf(0));
+    }
 }
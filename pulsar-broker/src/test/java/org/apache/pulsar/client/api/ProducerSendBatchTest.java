@@ -0,0 +1,184 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.api;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Cleanup;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class ProducerSendBatchTest extends ProducerConsumerBase {
+
+    @BeforeMethod
+    @Override
+    protected void setup() throws Exception {
+        super.internalSetup();
+        super.producerBaseSetup();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    @Override
+    protected void cleanup() throws Exception {
+        super.internalCleanup();
+    }
+
+    @DataProvider(name = "batching")
+    public Object[][] batching() {
+        return new Object[][] { { true }, { false } };
+    }
+
+    private static List<byte[]> createMessages(int numMessages) {
+        List<byte[]> messages = new ArrayList<>(numMessages);
+        for (int i = 0; i < numMessages; i++) {
+            messages.add(("my-message-" + i).getBytes());
+        }
+        return messages;
+    }
+
+    @Test(dataProvider = "batching")
+    public void testSendBatch(boolean batchingEnabled) throws Exception {
+        final String topic = "persistent://my-property/my-ns/send-batch-" + batchingEnabled;
+        final int numMessages = 100;
+
+        @Cleanup
+        Consumer<byte[]> consumer = pulsarClient.newConsumer()
+                .topic(topic)
+                .subscriptionName("my-sub")
+                .subscribe();
+
+        @Cleanup
+        Producer<byte[]> producer = pulsarClient.newProducer()
+                .topic(topic)
+                .enableBatching(batchingEnabled)
+                .batchingMaxMessages(10)
+                .batchingMaxPublishDelay(1, TimeUnit.HOURS)
+                .create();
+
+        List<MessageId> messageIds = producer.sendBatch(createMessages(numMessages));
+        assertEquals(messageIds.size(), numMessages);
+
+        for (int i = 0; i < numMessages; i++) {
+            Message<byte[]> message = consumer.receive(5, TimeUnit.SECONDS);
+            assertNotNull(message);
+            assertEquals(new String(message.getValue()), "my-message-" + i);
+            assertEquals(message.getMessageId(), messageIds.get(i));
+            consumer.acknowledge(message);
+        }
+    }
+
+    @Test
+    public void testSendBatchAsyncWithFlush() throws Exception {
+        final String topic = "persistent://my-property/my-ns/send-batch-async";
+        final int numMessages = 25;
+
+        @Cleanup
+        Producer<byte[]> producer = pulsarClient.newProducer()
+                .topic(topic)
+                .enableBatching(true)
+                .batchingMaxMessages(10)
+                .batchingMaxPublishDelay(1, TimeUnit.HOURS)
+                .create();
+
+        CompletableFuture<List<MessageId>> future = producer.sendBatchAsync(createMessages(numMessages));
+        producer.flush();
+
+        List<MessageId> messageIds = future.get(5, TimeUnit.SECONDS);
+        assertEquals(messageIds.size(), numMessages);
+        assertEquals(new HashSet<>(messageIds).size(), numMessages);
+    }
+
+    @Test(dataProvider = "batching")
+    public void testSendBatchWithOverSizeMessage(boolean batchingEnabled) throws Exception {
+        final String topic = "persistent://my-property/my-ns/send-batch-over-size-" + batchingEnabled;
+
+        @Cleanup
+        Producer<byte[]> producer = pulsarClient.newProducer()
+                .topic(topic)
+                .enableBatching(batchingEnabled)
+                .create();
+
+        List<byte[]> messages = createMessages(10);
+        messages.set(5, new byte[1024 * 1024 * 10]);
+        try {
+            producer.sendBatch(messages);
+            fail("should have failed to publish the over size message");
+        } catch (PulsarClientException e) {
+            assertTrue(e instanceof PulsarClientException.InvalidMessageException);
+        }
+
+        // the producer is still usable after the failure
+        assertEquals(producer.sendBatch(createMessages(10)).size(), 10);
+    }
+
+    @Test
+    public void testSendEmptyBatch() throws Exception {
+        @Cleanup
+        Producer<byte[]> producer = pulsarClient.newProducer()
+                .topic("persistent://my-property/my-ns/send-empty-batch")
+                .create();
+
+        assertTrue(producer.sendBatch(Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    public void testSendBatchToPartitionedTopic() throws Exception {
+        final String topic = "persistent://my-property/my-ns/send-batch-partitioned";
+        final int numMessages = 30;
+        admin.topics().createPartitionedTopic(topic, 3);
+
+        @Cleanup
+        Consumer<byte[]> consumer = pulsarClient.newConsumer()
+                .topic(topic)
+                .subscriptionName("my-sub")
+                .subscribe();
+
+        @Cleanup
+        Producer<byte[]> producer = pulsarClient.newProducer()
+                .topic(topic)
+                .messageRoutingMode(MessageRoutingMode.RoundRobinPartition)
+                .create();
+
+        List<MessageId> messageIds = producer.sendBatch(createMessages(numMessages));
+        assertEquals(messageIds.size(), numMessages);
+
+        Set<String> received = new HashSet<>();
+        for (int i = 0; i < numMessages; i++) {
+            Message<byte[]> message = consumer.receive(5, TimeUnit.SECONDS);
+            assertNotNull(message);
+            received.add(new String(message.getValue()));
+            consumer.acknowledge(message);
+        }
+        assertEquals(received.size(), numMessages);
+    }
+}
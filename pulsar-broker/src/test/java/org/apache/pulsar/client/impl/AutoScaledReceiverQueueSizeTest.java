@@ -0,0 +1,192 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Cleanup;
+import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.Producer;
+import org.apache.pulsar.client.api.ProducerConsumerBase;
+import org.apache.pulsar.client.api.SubscriptionInitialPosition;
+import org.apache.pulsar.client.api.SubscriptionType;
+import org.awaitility.Awaitility;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class AutoScaledReceiverQueueSizeTest extends ProducerConsumerBase {
+
+    @Override
+    @BeforeMethod
+    public void setup() throws Exception {
+        super.internalSetup();
+        super.producerBaseSetup();
+    }
+
+    @Override
+    @AfterMethod(alwaysRun = true)
+    public void cleanup() throws Exception {
+        super.internalCleanup();
+    }
+
+    @Test(timeOut = 60000)
+    public void testQueueGrowsForFastConsumer() throws Exception {
+        final String topic = "persistent://my-property/my-ns/auto-scaled-queue-fast";
+        final int numMessages = 2000;
+
+        @Cleanup
+        Producer<byte[]> producer = pulsarClient.newProducer()
+                .topic(topic)
+                .enableBatching(false)
+                .blockIfQueueFull(true)
+                .create();
+        for (int i = 0; i < numMessages; i++) {
+            producer.sendAsync(("msg-" + i).getBytes());
+        }
+        producer.flush();
+
+        @Cleanup
+        ConsumerImpl<byte[]> consumer = (ConsumerImpl<byte[]>) pulsarClient.newConsumer()
+                .topic(topic)
+                .subscriptionName("sub")
+                .subscriptionInitialPosition(SubscriptionInitialPosition.Earliest)
+                .receiverQueueSize(100)
+                .autoScaledReceiverQueueSizeEnabled(true)
+                .subscribe();
+        assertEquals(consumer.getCurrentReceiverQueueSize(), 1);
+
+        int maxQueueSize = 0;
+        for (int i = 0; i < numMessages; i++) {
+            Message<byte[]> msg = consumer.receive(5, TimeUnit.SECONDS);
+            assertNotNull(msg);
+            assertEquals(new String(msg.getData()), "msg-" + i);
+            consumer.acknowledge(msg);
+            maxQueueSize = Math.max(maxQueueSize, consumer.getCurrentReceiverQueueSize());
+            assertTrue(consumer.numMessagesInQueue() <= 100);
+        }
+
+        // The application consumes faster than a single message per round-trip
+        assertTrue(maxQueueSize > 1, "Receiver queue didn't grow: " + maxQueueSize);
+        assertTrue(maxQueueSize <= 100);
+    }
+
+    @Test(timeOut = 60000)
+    public void testSlowConsumerDoesNotHoardMessages() throws Exception {
+        final String topic = "persistent://my-property/my-ns/auto-scaled-queue-shared";
+        final int numMessages = 200;
+
+        @Cleanup
+        ConsumerImpl<byte[]> slowConsumer = (ConsumerImpl<byte[]>) pulsarClient.newConsumer()
+                .topic(topic)
+                .subscriptionName("sub")
+                .subscriptionType(SubscriptionType.Shared)
+                .autoScaledReceiverQueueSizeEnabled(true)
+                .subscribe();
+
+        @Cleanup
+        Consumer<byte[]> fastConsumer = pulsarClient.newConsumer()
+                .topic(topic)
+                .subscriptionName("sub")
+                .subscriptionType(SubscriptionType.Shared)
+                .autoScaledReceiverQueueSizeEnabled(true)
+                .subscribe();
+
+        AtomicInteger slowReceived = new AtomicInteger();
+        AtomicInteger fastReceived = new AtomicInteger();
+        Thread slowThread = new Thread(() -> receive(slowConsumer, slowReceived, 20));
+        Thread fastThread = new Thread(() -> receive(fastConsumer, fastReceived, 0));
+        slowThread.start();
+        fastThread.start();
+
+        @Cleanup
+        Producer<byte[]> producer = pulsarClient.newProducer().topic(topic).enableBatching(false).create();
+        for (int i = 0; i < numMessages; i++) {
+            producer.send(("msg-" + i).getBytes());
+        }
+
+        Awaitility.await().untilAsserted(
+                () -> assertEquals(slowReceived.get() + fastReceived.get(), numMessages));
+        slowThread.interrupt();
+        fastThread.interrupt();
+
+        // With a fixed queue of 1000 messages, the broker would have dispatched half of the messages to each consumer
+        assertTrue(slowReceived.get() < numMessages / 4, "Slow consumer received " + slowReceived.get());
+        assertTrue(slowConsumer.getCurrentReceiverQueueSize() < 10);
+    }
+
+    @Test(timeOut = 60000)
+    public void testSubConsumerQueuesFollowTheApplication() throws Exception {
+        final String topic1 = "persistent://my-property/my-ns/auto-scaled-queue-multi-1";
+        final String topic2 = "persistent://my-property/my-ns/auto-scaled-queue-multi-2";
+        final int numMessages = 100;
+
+        @Cleanup
+        MultiTopicsConsumerImpl<byte[]> consumer = (MultiTopicsConsumerImpl<byte[]>) pulsarClient.newConsumer()
+                .topics(Arrays.asList(topic1, topic2))
+                .subscriptionName("sub")
+                .subscriptionInitialPosition(SubscriptionInitialPosition.Earliest)
+                .receiverQueueSize(100)
+                .autoScaledReceiverQueueSizeEnabled(true)
+                .subscribe();
+
+        for (String topic : Arrays.asList(topic1, topic2)) {
+            @Cleanup
+            Producer<byte[]> producer = pulsarClient.newProducer().topic(topic).enableBatching(false).create();
+            for (int i = 0; i < numMessages; i++) {
+                producer.send(("msg-" + i).getBytes());
+            }
+        }
+
+        // The sub consumers hand their messages to the shared queue as fast as they arrive, but the application is
+        // slow, their queues are sized from the latter
+        for (int i = 0; i < numMessages / 2; i++) {
+            Message<byte[]> msg = consumer.receive(5, TimeUnit.SECONDS);
+            assertNotNull(msg);
+            Thread.sleep(20);
+            consumer.acknowledge(msg);
+        }
+        for (ConsumerImpl<byte[]> subConsumer : consumer.getConsumers()) {
+            assertTrue(subConsumer.getCurrentReceiverQueueSize() < 10,
+                    "Sub consumer queue grew to " + subConsumer.getCurrentReceiverQueueSize());
+        }
+    }
+
+    private static void receive(Consumer<byte[]> consumer, AtomicInteger received, long processingTimeMillis) {
+        try {
+            while (true) {
+                Message<byte[]> msg = consumer.receive();
+                if (processingTimeMillis > 0) {
+                    Thread.sleep(processingTimeMillis);
+                }
+                consumer.acknowledge(msg);
+                received.incrementAndGet();
+            }
+        } catch (Exception e) {
+            // interrupted at the end of the test
+        }
+    }
+}
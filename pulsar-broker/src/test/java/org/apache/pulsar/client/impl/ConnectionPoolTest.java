@@ -24,6 +24,7 @@ import io.netty.util.concurrent.DefaultThreadFactory;
 import org.apache.pulsar.broker.auth.MockedPulsarServiceBaseTest;
 import org.apache.pulsar.client.impl.conf.ClientConfigurationData;
 import org.apache.pulsar.common.util.netty.EventLoopUtil;
+import org.awaitility.Awaitility;
 import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
@@ -138,4 +139,73 @@ public class ConnectionPoolTest extends MockedPulsarServiceBaseTest {
         pool.closeAllConnections();
         pool.close();
     }
+
+    @Test
+    public void testLeastLoadedConnection() throws Exception {
+        ClientConfigurationData conf = new ClientConfigurationData();
+        conf.setConnectionsPerBroker(3);
+        EventLoopGroup eventLoop = EventLoopUtil.newEventLoopGroup(8, new DefaultThreadFactory("test"));
+        ConnectionPool pool = new ConnectionPool(conf, eventLoop);
+
+        InetSocketAddress brokerAddress =
+            InetSocketAddress.createUnresolved("127.0.0.1", pulsar.getBrokerListenPort().get());
+
+        // An idle connection is shared
+        ClientCnx cnx1 = pool.getConnection(brokerAddress).get();
+        Assert.assertSame(pool.getConnection(brokerAddress).get(), cnx1);
+        Assert.assertEquals(pool.getPoolSize(), 1);
+
+        // A new connection is opened while the existing ones are in use
+        cnx1.registerProducer(1, Mockito.mock(ProducerImpl.class));
+        ClientCnx cnx2 = pool.getConnection(brokerAddress).get();
+        Assert.assertNotSame(cnx2, cnx1);
+        cnx2.registerProducer(1, Mockito.mock(ProducerImpl.class));
+        cnx2.registerProducer(2, Mockito.mock(ProducerImpl.class));
+        ClientCnx cnx3 = pool.getConnection(brokerAddress).get();
+        Assert.assertNotSame(cnx3, cnx1);
+        Assert.assertNotSame(cnx3, cnx2);
+        cnx3.registerProducer(1, Mockito.mock(ProducerImpl.class));
+        cnx3.registerProducer(2, Mockito.mock(ProducerImpl.class));
+        cnx3.registerProducer(3, Mockito.mock(ProducerImpl.class));
+        Assert.assertEquals(pool.getPoolSize(), 3);
+
+        // Once all the connections are open, the least loaded one is picked
+        Assert.assertSame(pool.getConnection(brokerAddress).get(), cnx1);
+        cnx1.registerProducer(2, Mockito.mock(ProducerImpl.class));
+        cnx1.registerProducer(3, Mockito.mock(ProducerImpl.class));
+        cnx1.registerProducer(4, Mockito.mock(ProducerImpl.class));
+        Assert.assertSame(pool.getConnection(brokerAddress).get(), cnx2);
+        Assert.assertEquals(pool.getPoolSize(), 3);
+
+        pool.closeAllConnections();
+        pool.close();
+    }
+
+    @Test
+    public void testReleaseIdleConnections() throws Exception {
+        ClientConfigurationData conf = new ClientConfigurationData();
+        conf.setConnectionsPerBroker(2);
+        conf.setConnectionMaxIdleSeconds(1);
+        EventLoopGroup eventLoop = EventLoopUtil.newEventLoopGroup(8, new DefaultThreadFactory("test"));
+        ConnectionPool pool = new ConnectionPool(conf, eventLoop);
+
+        InetSocketAddress brokerAddress =
+            InetSocketAddress.createUnresolved("127.0.0.1", pulsar.getBrokerListenPort().get());
+        ClientCnx usedCnx = pool.getConnection(brokerAddress).get();
+        usedCnx.registerProducer(1, Mockito.mock(ProducerImpl.class));
+        ClientCnx idleCnx = pool.getConnection(brokerAddress).get();
+        Assert.assertNotSame(idleCnx, usedCnx);
+        Assert.assertEquals(pool.getPoolSize(), 2);
+
+        // Only the idle connection is released
+        Awaitility.await().untilAsserted(() -> Assert.assertFalse(idleCnx.channel().isActive()));
+        Assert.assertEquals(pool.getPoolSize(), 1);
+        Assert.assertTrue(usedCnx.channel().isActive());
+
+        usedCnx.removeProducer(1);
+        Awaitility.await().untilAsserted(() -> Assert.assertFalse(usedCnx.channel().isActive()));
+        Assert.assertEquals(pool.getPoolSize(), 0);
+
+        pool.close();
+    }
 }
@@ -0,0 +1,174 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Cleanup;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.Producer;
+import org.apache.pulsar.client.api.ProducerConsumerBase;
+import org.apache.pulsar.client.api.SubscriptionInitialPosition;
+import org.awaitility.Awaitility;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ConsumerPublisherTest extends ProducerConsumerBase {
+
+    @Override
+    @BeforeMethod
+    public void setup() throws Exception {
+        super.internalSetup();
+        super.producerBaseSetup();
+    }
+
+    @Override
+    @AfterMethod(alwaysRun = true)
+    public void cleanup() throws Exception {
+        super.internalCleanup();
+    }
+
+    @Test(timeOut = 30000)
+    public void testDeliverOnlyRequestedMessages() throws Exception {
+        final String topic = "persistent://my-property/my-ns/consumer-publisher-demand";
+        final int numMessages = 20;
+
+        @Cleanup
+        Producer<byte[]> producer = pulsarClient.newProducer().topic(topic).create();
+        for (int i = 0; i < numMessages; i++) {
+            producer.send(("msg-" + i).getBytes());
+        }
+
+        ConsumerPublisher<byte[]> publisher = new ConsumerPublisher<>(pulsarClient.newConsumer()
+                .topic(topic)
+                .subscriptionName("sub")
+                .subscriptionInitialPosition(SubscriptionInitialPosition.Earliest)
+                .receiverQueueSize(5));
+        TestSubscriber<Message<byte[]>> subscriber = new TestSubscriber<>();
+        publisher.subscribe(subscriber);
+
+        // the consumer doesn't receive anything before there is some demand
+        Awaitility.await().until(() -> publisher.getConsumer() != null);
+        Thread.sleep(500);
+        assertTrue(subscriber.received.isEmpty());
+        assertEquals(((ConsumerImpl<byte[]>) publisher.getConsumer()).numMessagesInQueue(), 0);
+
+        subscriber.subscription.request(3);
+        for (int i = 0; i < 3; i++) {
+            Message<byte[]> msg = subscriber.received.poll(5, TimeUnit.SECONDS);
+            assertEquals(new String(msg.getData()), "msg-" + i);
+            publisher.getConsumer().acknowledge(msg);
+        }
+        Thread.sleep(500);
+        assertTrue(subscriber.received.isEmpty());
+
+        subscriber.subscription.request(numMessages);
+        for (int i = 3; i < numMessages; i++) {
+            Message<byte[]> msg = subscriber.received.poll(5, TimeUnit.SECONDS);
+            assertEquals(new String(msg.getData()), "msg-" + i);
+            publisher.getConsumer().acknowledge(msg);
+        }
+
+        subscriber.subscription.cancel();
+        Awaitility.await().until(() -> !publisher.getConsumer().isConnected());
+        assertTrue(!subscriber.terminated.isDone());
+    }
+
+    @Test(timeOut = 30000)
+    public void testCompleteOnEndOfTopic() throws Exception {
+        final String topic = "persistent://my-property/my-ns/consumer-publisher-end-of-topic";
+        final int numMessages = 5;
+
+        @Cleanup
+        Producer<byte[]> producer = pulsarClient.newProducer().topic(topic).create();
+        for (int i = 0; i < numMessages; i++) {
+            producer.send(("msg-" + i).getBytes());
+        }
+        admin.topics().terminateTopic(topic);
+
+        ConsumerPublisher<byte[]> publisher = new ConsumerPublisher<>(pulsarClient.newConsumer()
+                .topic(topic)
+                .subscriptionName("sub")
+                .subscriptionInitialPosition(SubscriptionInitialPosition.Earliest));
+        TestSubscriber<Message<byte[]>> subscriber = new TestSubscriber<>();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        // the end of the topic is only notified once all the messages are acknowledged
+        for (int i = 0; i < numMessages; i++) {
+            Message<byte[]> msg = subscriber.received.poll(5, TimeUnit.SECONDS);
+            assertEquals(new String(msg.getData()), "msg-" + i);
+            publisher.getConsumer().acknowledge(msg);
+        }
+        assertNull(subscriber.terminated.get(10, TimeUnit.SECONDS));
+        Awaitility.await().until(() -> !publisher.getConsumer().isConnected());
+    }
+
+    @Test(timeOut = 30000)
+    public void testSingleSubscriber() throws Exception {
+        ConsumerPublisher<byte[]> publisher = new ConsumerPublisher<>(pulsarClient.newConsumer()
+                .topic("persistent://my-property/my-ns/consumer-publisher-single-subscriber")
+                .subscriptionName("sub"));
+        TestSubscriber<Message<byte[]>> first = new TestSubscriber<>();
+        TestSubscriber<Message<byte[]>> second = new TestSubscriber<>();
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+
+        assertTrue(second.terminated.get(5, TimeUnit.SECONDS) instanceof IllegalStateException);
+        first.subscription.cancel();
+        assertTrue(!first.terminated.isDone());
+    }
+
+    private static class TestSubscriber<T> implements Subscriber<T> {
+        volatile Subscription subscription;
+        final BlockingQueue<T> received = new LinkedBlockingQueue<>();
+        // completed with null on completion, or with the error the publisher failed with
+        final CompletableFuture<Throwable> terminated = new CompletableFuture<>();
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+        }
+
+        @Override
+        public void onNext(T t) {
+            received.add(t);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            terminated.complete(t);
+        }
+
+        @Override
+        public void onComplete() {
+            terminated.complete(null);
+        }
+    }
+}
@@ -25,6 +25,7 @@ import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 import java.util.List;
 import java.util.Optional;
@@ -46,6 +47,9 @@ import org.apache.pulsar.client.api.Schema;
 import org.apache.pulsar.client.api.SubscriptionType;
 import org.apache.pulsar.common.naming.NamespaceName;
 import org.apache.pulsar.common.policies.data.TenantInfo;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.MockZooKeeper;
+import org.awaitility.Awaitility;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.annotations.AfterMethod;
@@ -70,6 +74,7 @@ public class PatternTopicsConsumerImplTest extends ProducerConsumerBase {
     @AfterMethod(alwaysRun = true)
     public void cleanup() throws Exception {
         super.internalCleanup();
+        resetConfig();
     }
     @Test(timeOut = testTimeout)
     public void testPatternTopicsSubscribeWithBuilderFail() throws Exception {
@@ -678,6 +683,12 @@ public class PatternTopicsConsumerImplTest extends ProducerConsumerBase {
 
     @Test(timeOut = testTimeout)
     public void testAutoUnbubscribePatternConsumer() throws Exception {
+        // The topics are removed by mocking the list of the namespace, which only the polling sees
+        internalCleanup();
+        conf.setEnableTopicListWatcher(false);
+        super.internalSetup();
+        super.producerBaseSetup();
+
         String key = "AutoUnsubscribePatternConsumer";
         String subscriptionName = "my-ex-subscription-" + key;
         String topicName1 = "persistent://my-property/my-ns/pattern-topic-1-" + key;
@@ -828,4 +839,83 @@ public class PatternTopicsConsumerImplTest extends ProducerConsumerBase {
         assertEquals(pulsar.getBrokerService().getTopicIfExists(baseTopicName + "-1").join(), Optional.empty());
         assertTrue(pulsar.getBrokerService().getTopicIfExists(baseTopicName + "-2").join().isPresent());
     }
+
+    @Test(timeOut = testTimeout)
+    public void testTopicListWatcher() throws Exception {
+        String key = "TopicListWatcher";
+        String subscriptionName = "my-ex-subscription-" + key;
+        String topicName1 = "persistent://my-property/my-ns/pattern-topic-1-" + key;
+        String topicName2 = "persistent://my-property/my-ns/pattern-topic-2-" + key;
+        String otherTopicName = "persistent://my-property/my-ns/other-topic-" + key;
+        Pattern pattern = Pattern.compile("persistent://my-property/my-ns/pattern-topic.*-" + key);
+
+        admin.topics().createNonPartitionedTopic(topicName1);
+
+        // The discovery period is long enough for the changes to only be seen through the topic list watcher
+        Consumer<byte[]> consumer = pulsarClient.newConsumer()
+            .topicsPattern(pattern)
+            .patternAutoDiscoveryPeriod(60)
+            .subscriptionName(subscriptionName)
+            .subscriptionType(SubscriptionType.Shared)
+            .subscribe();
+
+        assertTrue(consumer instanceof PatternMultiTopicsConsumerImpl);
+        PatternMultiTopicsConsumerImpl<byte[]> consumerImpl = (PatternMultiTopicsConsumerImpl<byte[]>) consumer;
+        assertEquals(consumerImpl.getTopics(), Lists.newArrayList(topicName1));
+        Awaitility.await().untilAsserted(() -> assertTrue(consumerImpl.getTopicListWatcher().isInSync()));
+
+        admin.topics().createNonPartitionedTopic(topicName2);
+        admin.topics().createNonPartitionedTopic(otherTopicName);
+        Awaitility.await().untilAsserted(() ->
+                assertEquals(Sets.newHashSet(consumerImpl.getTopics()), Sets.newHashSet(topicName1, topicName2)));
+
+        Producer<byte[]> producer = pulsarClient.newProducer().topic(topicName2).create();
+        producer.send("msg-1".getBytes());
+        Message<byte[]> message = consumer.receive();
+        assertEquals(new String(message.getData()), "msg-1");
+        consumer.acknowledge(message);
+        producer.close();
+
+        admin.topics().delete(topicName1, true);
+        Awaitility.await().untilAsserted(() ->
+                assertEquals(consumerImpl.getTopics(), Lists.newArrayList(topicName2)));
+        assertTrue(consumerImpl.getTopicListWatcher().isInSync());
+
+        consumer.close();
+    }
+
+    @Test(timeOut = testTimeout)
+    public void testTopicListWatcherRetriesFailedRefresh() throws Exception {
+        String key = "TopicListWatcherRetry";
+        String subscriptionName = "my-ex-subscription-" + key;
+        String topicName1 = "persistent://my-property/my-ns/pattern-topic-1-" + key;
+        String topicName2 = "persistent://my-property/my-ns/pattern-topic-2-" + key;
+        String topicName3 = "persistent://my-property/my-ns/pattern-topic-3-" + key;
+        Pattern pattern = Pattern.compile("persistent://my-property/my-ns/pattern-topic.*-" + key);
+
+        admin.topics().createNonPartitionedTopic(topicName1);
+
+        Consumer<byte[]> consumer = pulsarClient.newConsumer()
+            .topicsPattern(pattern)
+            .patternAutoDiscoveryPeriod(60)
+            .subscriptionName(subscriptionName)
+            .subscriptionType(SubscriptionType.Shared)
+            .subscribe();
+
+        PatternMultiTopicsConsumerImpl<byte[]> consumerImpl = (PatternMultiTopicsConsumerImpl<byte[]>) consumer;
+        Awaitility.await().untilAsserted(() -> assertTrue(consumerImpl.getTopicListWatcher().isInSync()));
+
+        // The refresh following the creation of the topic fails, so the watch is only re-armed by the retry
+        mockZooKeeper.failConditional(KeeperException.Code.CONNECTIONLOSS, (op, path) ->
+                op == MockZooKeeper.Op.GET_CHILDREN && path.equals("/managed-ledgers/my-property/my-ns/persistent"));
+        admin.topics().createNonPartitionedTopic(topicName2);
+        Awaitility.await().untilAsserted(() ->
+                assertEquals(Sets.newHashSet(consumerImpl.getTopics()), Sets.newHashSet(topicName1, topicName2)));
+
+        admin.topics().createNonPartitionedTopic(topicName3);
+        Awaitility.await().untilAsserted(() -> assertEquals(Sets.newHashSet(consumerImpl.getTopics()),
+                Sets.newHashSet(topicName1, topicName2, topicName3)));
+
+        consumer.close();
+    }
 }
@@ -0,0 +1,164 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Cleanup;
+import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.ProducerConsumerBase;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ProducerSubscriberTest extends ProducerConsumerBase {
+
+    @Override
+    @BeforeMethod
+    public void setup() throws Exception {
+        super.internalSetup();
+        super.producerBaseSetup();
+    }
+
+    @Override
+    @AfterMethod(alwaysRun = true)
+    public void cleanup() throws Exception {
+        super.internalCleanup();
+    }
+
+    @Test(timeOut = 30000)
+    public void testDemandFollowsPendingQueue() throws Exception {
+        final String topic = "persistent://my-property/my-ns/producer-subscriber-demand";
+        final int numMessages = 1000;
+        final int maxPendingMessages = 10;
+
+        @Cleanup
+        Consumer<byte[]> consumer = pulsarClient.newConsumer()
+                .topic(topic)
+                .subscriptionName("sub")
+                .subscribe();
+
+        ProducerSubscriber<byte[]> subscriber = new ProducerSubscriber<>(pulsarClient.newProducer()
+                .topic(topic)
+                .maxPendingMessages(maxPendingMessages)
+                .blockIfQueueFull(false));
+        RangePublisher publisher = new RangePublisher(numMessages);
+        publisher.subscribe(subscriber);
+
+        subscriber.getCompletionFuture().get(20, TimeUnit.SECONDS);
+        assertTrue(publisher.maxOutstanding.get() <= maxPendingMessages);
+
+        for (int i = 0; i < numMessages; i++) {
+            Message<byte[]> msg = consumer.receive(5, TimeUnit.SECONDS);
+            assertEquals(new String(msg.getData()), "msg-" + i);
+            consumer.acknowledge(msg);
+        }
+    }
+
+    @Test(timeOut = 30000)
+    public void testFailedSendCancelsSubscription() throws Exception {
+        ProducerSubscriber<byte[]> subscriber = new ProducerSubscriber<>(pulsarClient.newProducer()
+                .topic("persistent://my-property/my-ns/producer-subscriber-failure")
+                .enableBatching(false)
+                .maxPendingMessages(10));
+        // a message bigger than the max message size can't be sent
+        byte[] value = new byte[pulsar.getConfiguration().getMaxMessageSize() + 1];
+        RangePublisher publisher = new RangePublisher(100, value);
+        publisher.subscribe(subscriber);
+
+        try {
+            subscriber.getCompletionFuture().get(20, TimeUnit.SECONDS);
+            fail("should have failed");
+        } catch (ExecutionException e) {
+            // expected
+        }
+        assertTrue(publisher.cancelled.get());
+    }
+
+    /**
+     * Emits "msg-0" ... "msg-N" from its own thread, honoring the demand.
+     */
+    private static class RangePublisher implements Publisher<byte[]> {
+        private final int count;
+        private final byte[] value;
+        private final Semaphore demand = new Semaphore(0);
+        private final AtomicLong outstanding = new AtomicLong();
+        final AtomicLong maxOutstanding = new AtomicLong();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+
+        RangePublisher(int count) {
+            this(count, null);
+        }
+
+        RangePublisher(int count, byte[] value) {
+            this.count = count;
+            this.value = value;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super byte[]> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                    long current = outstanding.addAndGet(n);
+                    maxOutstanding.accumulateAndGet(current, Math::max);
+                    demand.release((int) n);
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled.set(true);
+                    demand.release(count);
+                }
+            });
+
+            Thread emitter = new Thread(() -> {
+                try {
+                    for (int i = 0; i < count && !cancelled.get(); i++) {
+                        demand.acquire();
+                        if (cancelled.get()) {
+                            return;
+                        }
+                        outstanding.decrementAndGet();
+                        subscriber.onNext(value != null ? value : ("msg-" + i).getBytes());
+                    }
+                    if (!cancelled.get()) {
+                        subscriber.onComplete();
+                    }
+                } catch (InterruptedException e) {
+                    subscriber.onError(e);
+                }
+            });
+            emitter.setDaemon(true);
+            emitter.start();
+        }
+    }
+}
@@ -52,6 +52,16 @@ public interface BatcherBuilder extends Serializable {
      */
     BatcherBuilder KEY_BASED = DefaultImplementation.newKeyBasedBatcherBuilder();
 
+    /**
+     * Adaptive batch message container.
+     *
+     * <p>Messages are batched like {@link #DEFAULT}, but the batch is closed based on the observed traffic: it is
+     * flushed immediately when the producer has no message in flight, and grows with the send rate and the broker
+     * receipt latency while sends are in flight. The configured batching max messages, max bytes and max publish
+     * delay still act as upper bounds.
+     */
+    BatcherBuilder ADAPTIVE = DefaultImplementation.newAdaptiveBatcherBuilder();
+
     /**
      * Build a new batch message container.
      * @return new batch message container
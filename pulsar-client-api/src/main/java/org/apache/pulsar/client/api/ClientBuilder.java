@@ -19,6 +19,7 @@
 package org.apache.pulsar.client.api;
 
 import java.time.Clock;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -236,6 +237,33 @@ public interface ClientBuilder extends Cloneable {
      */
     ClientBuilder listenerThreads(int numListenerThreads);
 
+    /**
+     * Set the number of threads to be used to decrypt, decompress and unpack the messages received by consumers
+     * <i>(default: 0, messages are decoded on the IO thread of their connection)</i>.
+     *
+     * <p>Offloading this work keeps a single connection shared by many consumers from being bottlenecked on its IO
+     * thread when payloads are compressed or encrypted. The decode thread pool is shared across all the consumers and
+     * readers; for a given consumer, messages are always decoded by the same thread, to ensure ordering.
+     *
+     * @param numDecodeThreads the number of decode threads
+     * @return the client builder instance
+     */
+    ClientBuilder decodeThreads(int numDecodeThreads);
+
+    /**
+     * Set the Zstandard dictionaries that consumers and readers can decompress messages with.
+     *
+     * <p>Messages compressed with a dictionary, see {@link ProducerBuilder#compressionDictionary(byte[])}, reference
+     * it by the id stored in the dictionary itself. They can only be consumed once the matching dictionary is known to
+     * the client; until then they are negatively acknowledged, and redelivered. Dictionaries must have distinct ids,
+     * a dictionary is rejected if a different one with the same id was already registered in the JVM. The application
+     * must provide the optional <code>com.github.luben:zstd-jni</code> dependency.
+     *
+     * @param dictionaries the dictionaries
+     * @return the client builder instance
+     */
+    ClientBuilder compressionDictionaries(List<byte[]> dictionaries);
+
     /**
      * Sets the max number of connection that the client library will open to a single broker.
      *
@@ -248,6 +276,19 @@ public interface ClientBuilder extends Cloneable {
      */
     ClientBuilder connectionsPerBroker(int connectionsPerBroker);
 
+    /**
+     * Release the connections to a broker that have not carried any producer, consumer or request for the given time.
+     *
+     * <p>With more than one connection per broker, see {@link #connectionsPerBroker(int)}, the client only opens
+     * additional connections when the existing ones are in use. This setting allows closing them again once the load
+     * goes away. By default, the connections are never released.
+     *
+     * @param connectionMaxIdleSeconds
+     *            the idle time after which a connection is closed, or 0 to keep the connections open
+     * @return the client builder instance
+     */
+    ClientBuilder connectionMaxIdleSeconds(int connectionMaxIdleSeconds);
+
     /**
      * Configure whether to use TCP no-delay flag on the connection, to disable Nagle algorithm.
      *
@@ -368,7 +409,10 @@ public interface ClientBuilder extends Cloneable {
     /**
      * Configure a limit on the amount of direct memory that will be allocated by this client instance.
      * <p>
-     * <b>Note: at this moment this is only limiting the memory for producers.</b>
+     * The limit covers the messages pending in the producers and the messages prefetched in the consumer receiver
+     * queues. Once the usage goes over half of the limit, the consumers holding more than their share of it stop
+     * asking the brokers for messages, and once it goes over the limit all of them do, until the application
+     * consumes the prefetched messages.
      * <p>
      * Setting this to 0 will disable the limit.
      *
@@ -349,6 +349,23 @@ public interface ConsumerBuilder<T> extends Cloneable {
      */
     ConsumerBuilder<T> receiverQueueSize(int receiverQueueSize);
 
+    /**
+     * Let the consumer size its receiver queue from the observed traffic <i>(default: false)</i>.
+     *
+     * <p>The consumer then prefetches about as many messages as the application consumes within a round-trip to the
+     * broker, so that it never waits for the next messages, without hoarding messages that other consumers of a
+     * {@link SubscriptionType#Shared} subscription could process. The queue starts small and grows as long as the
+     * application consumes faster than it can be fed, and it shrinks back when the application slows down.
+     *
+     * <p>The size set with {@link #receiverQueueSize(int)} is used as the upper bound of the queue. This setting has no
+     * effect when the receiver queue size is 0 or 1.
+     *
+     * @param autoScaledReceiverQueueSizeEnabled
+     *            whether to enable the auto scaling of the receiver queue size
+     * @return the consumer builder instance
+     */
+    ConsumerBuilder<T> autoScaledReceiverQueueSizeEnabled(boolean autoScaledReceiverQueueSizeEnabled);
+
     /**
      * Group the consumer acknowledgments for the specified time.
      *
@@ -114,4 +114,18 @@ public interface ConsumerStats extends Serializable {
      * @return
      */
     Map<Long, Integer> getMsgNumInSubReceiverQueue();
+
+    /**
+     * Get the size in bytes of the messages in the receiver queue, including the ones of the sub-consumers, which
+     * is the memory this consumer holds against the client memory limit.
+     * @return
+     */
+    Long getMsgSizeInReceiverQueue();
+
+    /**
+     * Get the number of messages received from the broker that are waiting to be decoded, when decoding is offloaded
+     * with {@link ClientBuilder#decodeThreads(int)}.
+     * @return
+     */
+    Integer getMsgNumInDecodeQueue();
 }
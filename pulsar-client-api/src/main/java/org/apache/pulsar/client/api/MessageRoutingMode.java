@@ -52,5 +52,16 @@ public enum MessageRoutingMode {
      * Use custom message router implementation that will be called to determine the partition
      * for a particular message.
      */
-    CustomPartition
+    CustomPartition,
+
+    /**
+     * If no key is provided, the producer will publish messages to the partitions that are expected to persist them
+     * the fastest, judging from the latency of the recent messages and the number of pending messages of each
+     * partition. This keeps the latency stable when some brokers are slower than others. As with
+     * {@link #RoundRobinPartition}, the partition is only switched at the batching boundary when batching is enabled.
+     *
+     * <p>While if a key is specified on the message, the partitioned producer will hash the key
+     * and assign message to a particular partition.
+     */
+    LoadAwarePartition
 }
@@ -19,6 +19,8 @@
 package org.apache.pulsar.client.api;
 
 import java.io.Closeable;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import org.apache.pulsar.client.api.transaction.Transaction;
 import org.apache.pulsar.common.classification.InterfaceAudience;
@@ -77,6 +79,38 @@ public interface Producer<T> extends Closeable {
      */
     CompletableFuture<MessageId> sendAsync(T message);
 
+    /**
+     * Sends a collection of messages.
+     *
+     * <p>This call will be blocking until all the messages are successfully acknowledged by the Pulsar broker.
+     *
+     * @param messages
+     *            the values of the messages to publish, in publishing order
+     * @return the message ids assigned to the published messages, in the same order as the values
+     * @throws PulsarClientException
+     *             the first failure that occurred while publishing the messages
+     * @see #sendBatchAsync(Collection)
+     */
+    List<MessageId> sendBatch(Collection<T> messages) throws PulsarClientException;
+
+    /**
+     * Send a collection of messages asynchronously, with a single future for the whole collection.
+     *
+     * <p>The messages are published in the iteration order of the collection, exactly as if each of them was sent
+     * with {@link #sendAsync(Object)}: they're grouped in batches and chunked according to the producer configuration,
+     * and they are subject to the same queue limits. Compared to sending each message individually, no future is
+     * created per message.
+     *
+     * <p>If any of the messages can't be published, the future is completed exceptionally with the first failure once
+     * all the messages have been completed. In that case the other messages may or may not have been persisted.
+     *
+     * @param messages
+     *            the values of the messages to publish, in publishing order
+     * @return a future that completes with the message ids assigned to the published messages, in the same order as
+     *         the values, when all the messages have been safely persisted
+     */
+    CompletableFuture<List<MessageId>> sendBatchAsync(Collection<T> messages);
+
     /**
      * Flush all the messages buffered in the client and wait until all messages have been successfully persisted.
      *
@@ -18,6 +18,7 @@
  */
 package org.apache.pulsar.client.api;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
@@ -289,6 +290,24 @@ public interface ProducerBuilder<T> extends Cloneable {
      */
     ProducerBuilder<T> compressionType(CompressionType compressionType);
 
+    /**
+     * Compress the messages with a trained Zstandard dictionary.
+     *
+     * <p>A dictionary greatly improves the compression ratio of small messages, which on their own are too short for
+     * the compressor to find repetitions. It requires the {@link CompressionType#ZSTD} compression type, and the
+     * consumers need to be given the same dictionary with {@link ClientBuilder#compressionDictionaries(List)}.
+     *
+     * <p>Messages are only compressed with the dictionary when the broker supports it, and with plain
+     * {@link CompressionType#ZSTD} otherwise. Consumers of older versions cannot decompress them, so they need to be
+     * upgraded first. The application must also provide the optional <code>com.github.luben:zstd-jni</code>
+     * dependency.
+     *
+     * @param dictionary
+     *            a dictionary trained on samples of the messages, for instance with <code>zstd --train</code>
+     * @return the producer builder instance
+     */
+    ProducerBuilder<T> compressionDictionary(byte[] dictionary);
+
     /**
      * Set a custom message routing policy by passing an implementation of MessageRouter.
      *
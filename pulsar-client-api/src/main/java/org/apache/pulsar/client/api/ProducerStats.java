@@ -91,6 +91,26 @@ public interface ProducerStats extends Serializable {
      */
     double getSendLatencyMillisMax();
 
+    /**
+     * @return the 50th percentile of the number of messages per sent batch for the last interval
+     */
+    double getBatchSizeMessages50pct();
+
+    /**
+     * @return the 95th percentile of the number of messages per sent batch for the last interval
+     */
+    double getBatchSizeMessages95pct();
+
+    /**
+     * @return the 99th percentile of the number of messages per sent batch for the last interval
+     */
+    double getBatchSizeMessages99pct();
+
+    /**
+     * @return the max number of messages per sent batch for the last interval
+     */
+    double getBatchSizeMessagesMax();
+
     /**
      * @return the total number of messages published by this producer
      */
@@ -494,4 +494,10 @@ public class DefaultImplementation {
                 () -> (BatcherBuilder) getConstructor("org.apache.pulsar.client.impl.KeyBasedBatcherBuilder")
                         .newInstance());
     }
+
+    public static BatcherBuilder newAdaptiveBatcherBuilder() {
+        return catchExceptions(
+                () -> (BatcherBuilder) getConstructor("org.apache.pulsar.client.impl.AdaptiveBatcherBuilder")
+                        .newInstance());
+    }
 }
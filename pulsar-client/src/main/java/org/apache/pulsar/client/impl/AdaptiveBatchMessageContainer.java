@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch message container that decides when to close a batch from the observed traffic instead of only relying on
+ * the static batchingMaxPublishDelay, batchingMaxMessages and batchingMaxBytes limits.
+ *
+ * <p>When the producer has no message in flight, the batch is flushed as soon as a message is added, so a low-rate
+ * producer doesn't pay the publish delay. While sends are in flight, the batch grows up to the number of messages
+ * expected to arrive within one broker receipt round-trip (send rate x receipt latency), which is similar to Nagle's
+ * algorithm with backpressure. The static limits are still upper bounds and the batching timer is still the fallback
+ * flush.
+ *
+ * <p>All the methods are invoked while holding the producer lock.
+ */
+class AdaptiveBatchMessageContainer extends BatchMessageContainerImpl {
+
+    // Weight of the latest sample in the moving averages
+    private static final double EWMA_ALPHA = 0.2;
+    // Ignore the inter-arrival gaps longer than this, they are idle periods rather than the send rate
+    private static final long MAX_INTER_ARRIVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private long lastAddNanos = -1L;
+    private double avgInterArrivalNanos = -1;
+    private double avgReceiptLatencyNanos = -1;
+
+    @Override
+    public boolean add(MessageImpl<?> msg, SendCallback callback) {
+        long now = System.nanoTime();
+        if (lastAddNanos > 0) {
+            long interArrival = now - lastAddNanos;
+            if (interArrival <= MAX_INTER_ARRIVAL_NANOS) {
+                avgInterArrivalNanos = ewma(avgInterArrivalNanos, interArrival);
+            }
+        }
+        lastAddNanos = now;
+
+        boolean isBatchFull = super.add(msg, callback);
+        return isBatchFull || numMessagesInBatch >= getTargetNumMessagesInBatch();
+    }
+
+    @Override
+    public void onSendReceipt(long latencyNanos) {
+        avgReceiptLatencyNanos = ewma(avgReceiptLatencyNanos, latencyNanos);
+    }
+
+    int getTargetNumMessagesInBatch() {
+        int maxNumMessages = maxNumMessagesInBatch > 0 ? maxNumMessagesInBatch : Integer.MAX_VALUE;
+        if (producer.getPendingQueueSize() == 0) {
+            // Nothing in flight, don't hold the message back
+            return 1;
+        }
+        if (avgInterArrivalNanos <= 0 || avgReceiptLatencyNanos <= 0) {
+            // No samples yet, fallback to the static limits
+            return maxNumMessages;
+        }
+        double target = avgReceiptLatencyNanos / Math.max(1, avgInterArrivalNanos);
+        return (int) Math.max(1, Math.min(maxNumMessages, target));
+    }
+
+    private static double ewma(double avg, long sample) {
+        return avg < 0 ? sample : avg + EWMA_ALPHA * (sample - avg);
+    }
+}
@@ -83,4 +83,13 @@ public interface BatchMessageContainerBase extends BatchMessageContainer {
      * @return belong to the same txn or not
      */
     boolean hasSameTxn(MessageImpl<?> msg);
+
+    /**
+     * Notify the container that the broker acknowledged a send, used by containers that adapt the batch size to the
+     * broker receipt latency.
+     *
+     * @param latencyNanos time elapsed between the creation of the send operation and its receipt
+     */
+    default void onSendReceipt(long latencyNanos) {
+    }
 }
@@ -31,6 +31,7 @@ import org.apache.pulsar.client.impl.ProducerImpl.OpSendMsg;
 import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
 import org.apache.pulsar.common.api.proto.CompressionType;
 import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.compression.CompressionCodecZstdDictionary;
 import org.apache.pulsar.common.protocol.ByteBufPair;
 import org.apache.pulsar.common.protocol.Commands;
 import org.slf4j.Logger;
@@ -122,11 +123,17 @@ class BatchMessageContainerImpl extends AbstractBatchMessageContainer {
         }
 
         int uncompressedSize = batchedMessageMetadataAndPayload.readableBytes();
-        ByteBuf compressedPayload = compressor.encode(batchedMessageMetadataAndPayload);
+        CompressionCodecZstdDictionary dictionaryCompressor = producer.getDictionaryCompressor();
+        ByteBuf compressedPayload = (dictionaryCompressor != null ? dictionaryCompressor : compressor)
+                .encode(batchedMessageMetadataAndPayload);
         batchedMessageMetadataAndPayload.release();
         if (compressionType != CompressionType.NONE) {
             messageMetadata.setCompression(compressionType);
             messageMetadata.setUncompressedSize(uncompressedSize);
+            if (dictionaryCompressor != null) {
+                messageMetadata.setCompression(CompressionType.ZSTD_DICTIONARY)
+                        .setCompressionDictionaryId(dictionaryCompressor.getDictionaryId());
+            }
         }
 
         // Update the current max batch size using the uncompressed size, which is what we need in any case to
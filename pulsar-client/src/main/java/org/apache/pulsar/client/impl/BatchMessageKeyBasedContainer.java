@@ -37,6 +37,7 @@ import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
 import org.apache.pulsar.common.api.proto.CompressionType;
 import org.apache.pulsar.common.api.proto.MessageMetadata;
 import org.apache.pulsar.common.compression.CompressionCodec;
+import org.apache.pulsar.common.compression.CompressionCodecZstdDictionary;
 import org.apache.pulsar.common.protocol.ByteBufPair;
 import org.apache.pulsar.common.protocol.Commands;
 import org.slf4j.Logger;
@@ -70,6 +71,7 @@ class BatchMessageKeyBasedContainer extends AbstractBatchMessageContainer {
             part.addMsg(msg, callback);
             part.compressionType = compressionType;
             part.compressor = compressor;
+            part.producer = producer;
             part.maxBatchSize = maxBatchSize;
             part.topicName = topicName;
             part.producerName = producerName;
@@ -195,6 +197,7 @@ class BatchMessageKeyBasedContainer extends AbstractBatchMessageContainer {
         private SendCallback previousCallback = null;
         private CompressionType compressionType;
         private CompressionCodec compressor;
+        private ProducerImpl<?> producer;
         private int maxBatchSize;
         private String topicName;
         private String producerName;
@@ -208,11 +211,17 @@ class BatchMessageKeyBasedContainer extends AbstractBatchMessageContainer {
                         msg.getDataBuffer(), batchedMessageMetadataAndPayload);
             }
             int uncompressedSize = batchedMessageMetadataAndPayload.readableBytes();
-            ByteBuf compressedPayload = compressor.encode(batchedMessageMetadataAndPayload);
+            CompressionCodecZstdDictionary dictionaryCompressor = producer.getDictionaryCompressor();
+            ByteBuf compressedPayload = (dictionaryCompressor != null ? dictionaryCompressor : compressor)
+                    .encode(batchedMessageMetadataAndPayload);
             batchedMessageMetadataAndPayload.release();
             if (compressionType != CompressionType.NONE) {
                 messageMetadata.setCompression(compressionType);
                 messageMetadata.setUncompressedSize(uncompressedSize);
+                if (dictionaryCompressor != null) {
+                    messageMetadata.setCompression(CompressionType.ZSTD_DICTIONARY)
+                            .setCompressionDictionaryId(dictionaryCompressor.getDictionaryId());
+                }
             }
 
             // Update the current max batch size using the uncompressed size, which is what we need in any case to
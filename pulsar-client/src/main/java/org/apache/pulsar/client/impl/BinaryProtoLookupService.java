@@ -20,6 +20,10 @@ package org.apache.pulsar.client.impl;
 
 import static java.lang.String.format;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 
 import io.netty.buffer.ByteBuf;
@@ -29,6 +33,7 @@ import java.net.URI;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -50,12 +55,18 @@ import org.slf4j.LoggerFactory;
 
 public class BinaryProtoLookupService implements LookupService {
 
+    private static final int MAX_CACHED_LOOKUPS = 100000;
+    private static final long CACHED_LOOKUP_TTL_MINUTES = 30;
+
     private final PulsarClientImpl client;
     private final ServiceNameResolver serviceNameResolver;
     private final boolean useTls;
     private final ExecutorService executor;
     private final String listenerName;
     private final int maxLookupRedirects;
+    // The brokers found by the lookups of the topics, until they are invalidated or expire
+    private final ConcurrentMap<TopicName, CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>>>
+            brokerLookupCache = newBrokerLookupCache(Ticker.systemTicker()).asMap();
 
     public BinaryProtoLookupService(PulsarClientImpl client, String serviceUrl, boolean useTls, ExecutorService executor)
             throws PulsarClientException {
@@ -73,20 +84,74 @@ public class BinaryProtoLookupService implements LookupService {
         updateServiceUrl(serviceUrl);
     }
 
+    /**
+     * The cache is bounded, so that a client touching many topics over its lifetime doesn't keep all their lookups,
+     * and its entries expire, so that a topic which moved without the client noticing is eventually looked up again.
+     */
+    @VisibleForTesting
+    static Cache<TopicName, CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>>> newBrokerLookupCache(
+            Ticker ticker) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHED_LOOKUPS)
+                .expireAfterWrite(CACHED_LOOKUP_TTL_MINUTES, TimeUnit.MINUTES)
+                .ticker(ticker)
+                .build();
+    }
+
     @Override
     public void updateServiceUrl(String serviceUrl) throws PulsarClientException {
         serviceNameResolver.updateServiceUrl(serviceUrl);
+        brokerLookupCache.clear();
     }
 
     /**
      * Calls broker binaryProto-lookup api to find broker-service address which can serve a given topic.
      *
+     * <p>The result is shared with the other lookups of the topic, until the topic is found to have moved, see
+     * {@link #invalidateBroker(TopicName)}.
+     *
      * @param topicName
      *            topic-name
      * @return broker-socket-address that serves given topic
      */
     public CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> getBroker(TopicName topicName) {
-        return findBroker(serviceNameResolver.resolveHost(), false, topicName, 0);
+        CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> cachedFuture = brokerLookupCache.get(topicName);
+        if (cachedFuture != null) {
+            return cachedFuture;
+        }
+
+        CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> addressFuture = new CompletableFuture<>();
+        cachedFuture = brokerLookupCache.putIfAbsent(topicName, addressFuture);
+        if (cachedFuture != null) {
+            return cachedFuture;
+        }
+
+        findBroker(serviceNameResolver.resolveHost(), false, topicName, 0).whenComplete((addresses, ex) -> {
+            if (ex != null) {
+                brokerLookupCache.remove(topicName, addressFuture);
+                addressFuture.completeExceptionally(ex);
+            } else {
+                addressFuture.complete(addresses);
+            }
+        });
+        return addressFuture;
+    }
+
+    @Override
+    public void invalidateBroker(TopicName topicName) {
+        CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> addressFuture =
+                brokerLookupCache.remove(topicName);
+        if (addressFuture == null || !addressFuture.isDone() || addressFuture.isCompletedExceptionally()) {
+            return;
+        }
+
+        // Topics move between brokers along with their whole bundle, and a broker that goes away releases all its
+        // bundles. The bundles are not known here, so drop the other topics of the namespace on the same broker too.
+        InetSocketAddress broker = addressFuture.join().getLeft();
+        NamespaceName namespace = topicName.getNamespaceObject();
+        brokerLookupCache.entrySet().removeIf(entry -> entry.getKey().getNamespaceObject().equals(namespace)
+                && entry.getValue().isDone() && !entry.getValue().isCompletedExceptionally()
+                && entry.getValue().join().getLeft().equals(broker));
     }
 
     /**
@@ -109,8 +174,15 @@ public class BinaryProtoLookupService implements LookupService {
 
         client.getCnxPool().getConnection(socketAddress).thenAccept(clientCnx -> {
             long requestId = client.newRequestId();
-            ByteBuf request = Commands.newLookup(topicName.toString(), listenerName, authoritative, requestId);
-            clientCnx.newLookup(request, requestId).whenComplete((r, t) -> {
+            CompletableFuture<LookupDataResult> lookupFuture;
+            if (!authoritative && clientCnx.isSupportsLookupTopics()) {
+                // Sent along with the other lookups issued at the same time, e.g. for all the partitions of a topic
+                lookupFuture = clientCnx.newBatchedLookup(topicName.toString(), listenerName, requestId);
+            } else {
+                ByteBuf request = Commands.newLookup(topicName.toString(), listenerName, authoritative, requestId);
+                lookupFuture = clientCnx.newLookup(request, requestId);
+            }
+            lookupFuture.whenComplete((r, t) -> {
                 if (t != null) {
                     // lookup failed
                     log.warn("[{}] failed to send lookup request : {}", topicName.toString(), t.getMessage());
@@ -315,7 +387,7 @@ public class BinaryProtoLookupService implements LookupService {
 
     @Override
     public void close() throws Exception {
-        // no-op
+        brokerLookupCache.clear();
     }
 
     public static class LookupDataResult {
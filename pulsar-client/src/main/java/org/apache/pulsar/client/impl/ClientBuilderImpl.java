@@ -19,6 +19,8 @@
 package org.apache.pulsar.client.impl;
 
 import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -35,6 +37,7 @@ import org.apache.pulsar.client.api.ServiceUrlProvider;
 import org.apache.pulsar.client.api.SizeUnit;
 import org.apache.pulsar.client.impl.conf.ClientConfigurationData;
 import org.apache.pulsar.client.impl.conf.ConfigurationDataUtils;
+import org.apache.pulsar.common.compression.CompressionCodecProvider;
 
 public class ClientBuilderImpl implements ClientBuilder {
     ClientConfigurationData conf;
@@ -62,6 +65,11 @@ public class ClientBuilderImpl implements ClientBuilder {
                 conf.setServiceUrl(conf.getServiceUrlProvider().getServiceUrl());
             }
         }
+        if (!conf.getCompressionDictionaries().isEmpty()
+                && !CompressionCodecProvider.isZstdDictionaryCompressionAvailable()) {
+            throw new PulsarClientException.InvalidConfigurationException(
+                    "Compression dictionaries require com.github.luben:zstd-jni in the classpath");
+        }
         PulsarClient client = new PulsarClientImpl(conf);
         if (conf.getServiceUrlProvider() != null) {
             conf.getServiceUrlProvider().initialize(client);
@@ -155,12 +163,33 @@ public class ClientBuilderImpl implements ClientBuilder {
         return this;
     }
 
+    @Override
+    public ClientBuilder decodeThreads(int numDecodeThreads) {
+        conf.setNumDecodeThreads(numDecodeThreads);
+        return this;
+    }
+
+    @Override
+    public ClientBuilder compressionDictionaries(List<byte[]> dictionaries) {
+        conf.setCompressionDictionaries(new ArrayList<>(dictionaries));
+        return this;
+    }
+
     @Override
     public ClientBuilder connectionsPerBroker(int connectionsPerBroker) {
         conf.setConnectionsPerBroker(connectionsPerBroker);
         return this;
     }
 
+    @Override
+    public ClientBuilder connectionMaxIdleSeconds(int connectionMaxIdleSeconds) {
+        if (connectionMaxIdleSeconds < 0) {
+            throw new IllegalArgumentException("Param connectionMaxIdleSeconds must not be negative.");
+        }
+        conf.setConnectionMaxIdleSeconds(connectionMaxIdleSeconds);
+        return this;
+    }
+
     @Override
     public ClientBuilder enableTcpNoDelay(boolean useTcpNoDelay) {
         conf.setUseTcpNoDelay(useTcpNoDelay);
@@ -41,6 +41,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
@@ -91,6 +92,9 @@ import org.apache.pulsar.common.api.proto.CommandReachedEndOfTopic;
 import org.apache.pulsar.common.api.proto.CommandSendError;
 import org.apache.pulsar.common.api.proto.CommandSendReceipt;
 import org.apache.pulsar.common.api.proto.CommandSuccess;
+import org.apache.pulsar.common.api.proto.CommandWatchTopicListSuccess;
+import org.apache.pulsar.common.api.proto.CommandWatchTopicUpdate;
+import org.apache.pulsar.common.api.proto.FeatureFlags;
 import org.apache.pulsar.common.api.proto.MessageIdData;
 import org.apache.pulsar.common.api.proto.ServerError;
 import org.apache.pulsar.common.protocol.schema.SchemaVersion;
@@ -117,18 +121,38 @@ public class ClientCnx extends PulsarHandler {
     private final ConcurrentLongHashMap<ProducerImpl<?>> producers = new ConcurrentLongHashMap<>(16, 1);
     private final ConcurrentLongHashMap<ConsumerImpl<?>> consumers = new ConcurrentLongHashMap<>(16, 1);
     private final ConcurrentLongHashMap<TransactionMetaStoreHandler> transactionMetaStoreHandlers = new ConcurrentLongHashMap<>(16, 1);
+    private final ConcurrentLongHashMap<TopicListWatcher> topicListWatchers = new ConcurrentLongHashMap<>(16, 1);
 
     private final CompletableFuture<Void> connectionFuture = new CompletableFuture<Void>();
     private final ConcurrentLinkedQueue<RequestTime> requestTimeoutQueue = new ConcurrentLinkedQueue<>();
     private final Semaphore pendingLookupRequestSemaphore;
     private final Semaphore maxLookupRequestSemaphore;
     private final EventLoopGroup eventLoopGroup;
+    // Only accessed by the connection pool idle check
+    private long idleSinceNanos = 0;
+
+    // Whether the broker accepts several lookups in a single CommandLookupTopics
+    private volatile boolean supportsLookupTopics = false;
+    // Features that the broker advertises through feature flags since they are not tied to a protocol version
+    private volatile boolean supportsRangeAcks = false;
+    private volatile boolean supportsTopicListWatchers = false;
+    private volatile boolean supportsZstdDictionaryCompression = false;
+    // Lookups waiting to be sent together by the connection event loop
+    private final List<BatchedLookup> batchedLookups = new ArrayList<>();
+    private static final int MAX_BATCHED_LOOKUPS = 1000;
 
     private static final AtomicIntegerFieldUpdater<ClientCnx> NUMBER_OF_REJECTED_REQUESTS_UPDATER = AtomicIntegerFieldUpdater
             .newUpdater(ClientCnx.class, "numberOfRejectRequests");
     @SuppressWarnings("unused")
     private volatile int numberOfRejectRequests = 0;
 
+    // Only accessed from the connection event loop
+    private boolean flushScheduled = false;
+    private final Runnable flushTask = () -> {
+        flushScheduled = false;
+        ctx.flush();
+    };
+
     @Getter
     private static int maxMessageSize = Commands.DEFAULT_MAX_MESSAGE_SIZE;
 
@@ -167,13 +191,29 @@ public class ClientCnx extends PulsarHandler {
         }
     }
 
+    private static class BatchedLookup {
+        final String topic;
+        final String listenerName;
+        final long requestId;
+        final TimedCompletableFuture<LookupDataResult> future;
+
+        BatchedLookup(String topic, String listenerName, long requestId,
+                      TimedCompletableFuture<LookupDataResult> future) {
+            this.topic = topic;
+            this.listenerName = listenerName;
+            this.requestId = requestId;
+            this.future = future;
+        }
+    }
+
     private enum RequestType {
         Command,
         GetLastMessageId,
         GetTopics,
         GetSchema,
         GetOrCreateSchema,
-        AckResponse;
+        AckResponse,
+        WatchTopicList;
 
         String getDescription() {
             if (this == Command) {
@@ -261,12 +301,14 @@ public class ClientCnx extends PulsarHandler {
         producers.forEach((id, producer) -> producer.connectionClosed(this));
         consumers.forEach((id, consumer) -> consumer.connectionClosed(this));
         transactionMetaStoreHandlers.forEach((id, handler) -> handler.connectionClosed(this));
+        topicListWatchers.forEach((id, watcher) -> watcher.connectionClosed(this));
 
         pendingRequests.clear();
         waitingLookupRequests.clear();
 
         producers.clear();
         consumers.clear();
+        topicListWatchers.clear();
 
         timeoutTask.cancel(true);
     }
@@ -320,6 +362,13 @@ public class ClientCnx extends PulsarHandler {
         }
         // set remote protocol version to the correct version before we complete the connection future
         setRemoteEndpointProtocolVersion(connected.getProtocolVersion());
+        if (connected.hasFeatureFlags()) {
+            FeatureFlags featureFlags = connected.getFeatureFlags();
+            supportsLookupTopics = featureFlags.isSupportsLookupTopics();
+            supportsRangeAcks = featureFlags.isSupportsRangeAcks();
+            supportsTopicListWatchers = featureFlags.isSupportsTopicListWatchers();
+            supportsZstdDictionaryCompression = featureFlags.isSupportsZstdDictionaryCompression();
+        }
         connectionFuture.complete(null);
         state = State.Ready;
     }
@@ -727,7 +776,11 @@ public class ClientCnx extends PulsarHandler {
 
     public CompletableFuture<LookupDataResult> newLookup(ByteBuf request, long requestId) {
         TimedCompletableFuture<LookupDataResult> future = new TimedCompletableFuture<>();
+        newLookup(request, requestId, future);
+        return future;
+    }
 
+    private void newLookup(ByteBuf request, long requestId, TimedCompletableFuture<LookupDataResult> future) {
         if (pendingLookupRequestSemaphore.tryAcquire()) {
             addPendingLookupRequests(requestId, future);
             ctx.writeAndFlush(request).addListener(writeFuture -> {
@@ -755,13 +808,127 @@ public class ClientCnx extends PulsarHandler {
                     waitingLookupRequests.size())));
             }
         }
+    }
+
+    public boolean isSupportsLookupTopics() {
+        return supportsLookupTopics;
+    }
+
+    public boolean isSupportsRangeAcks() {
+        return supportsRangeAcks;
+    }
+
+    public boolean isSupportsTopicListWatchers() {
+        return supportsTopicListWatchers;
+    }
+
+    public boolean isSupportsZstdDictionaryCompression() {
+        return supportsZstdDictionaryCompression;
+    }
+
+    /**
+     * Lookup a topic along with the other lookups issued until the connection event loop gets to send them, using a
+     * single command. The broker answers each lookup on its own, as for {@link #newLookup(ByteBuf, long)}.
+     *
+     * <p>Must only be used if the broker supports it, see {@link #isSupportsLookupTopics()}.
+     */
+    public CompletableFuture<LookupDataResult> newBatchedLookup(String topic, String listenerName, long requestId) {
+        TimedCompletableFuture<LookupDataResult> future = new TimedCompletableFuture<>();
+        boolean firstInBatch;
+        synchronized (batchedLookups) {
+            firstInBatch = batchedLookups.isEmpty();
+            batchedLookups.add(new BatchedLookup(topic, listenerName, requestId, future));
+        }
+        if (firstInBatch) {
+            ctx.executor().execute(this::sendBatchedLookups);
+        }
         return future;
     }
 
+    private void sendBatchedLookups() {
+        List<BatchedLookup> lookups;
+        synchronized (batchedLookups) {
+            lookups = new ArrayList<>(batchedLookups);
+            batchedLookups.clear();
+        }
+        for (int start = 0; start < lookups.size(); start += MAX_BATCHED_LOOKUPS) {
+            sendBatchedLookups(lookups.subList(start, Math.min(lookups.size(), start + MAX_BATCHED_LOOKUPS)));
+        }
+    }
+
+    private void sendBatchedLookups(List<BatchedLookup> lookups) {
+        String listenerName = lookups.get(0).listenerName;
+        boolean sameListenerName = lookups.stream()
+                .allMatch(lookup -> Objects.equals(lookup.listenerName, listenerName));
+        if (lookups.size() == 1 || !sameListenerName || !pendingLookupRequestSemaphore.tryAcquire(lookups.size())) {
+            // Send the lookups one by one, which queues them when there are too many pending lookups
+            for (BatchedLookup lookup : lookups) {
+                newLookup(Commands.newLookup(lookup.topic, lookup.listenerName, false, lookup.requestId),
+                        lookup.requestId, lookup.future);
+            }
+            return;
+        }
+
+        List<Pair<String, Long>> topicsAndRequestIds = new ArrayList<>(lookups.size());
+        for (BatchedLookup lookup : lookups) {
+            addPendingLookupRequests(lookup.requestId, lookup.future);
+            topicsAndRequestIds.add(Pair.of(lookup.topic, lookup.requestId));
+        }
+        ByteBuf request = Commands.newLookupTopics(topicsAndRequestIds, listenerName, false);
+        ctx.writeAndFlush(request).addListener(writeFuture -> {
+            if (!writeFuture.isSuccess()) {
+                log.warn("{} Failed to send {} lookups to broker: {}", ctx.channel(), lookups.size(),
+                        writeFuture.cause().getMessage());
+                for (BatchedLookup lookup : lookups) {
+                    getAndRemovePendingLookupRequest(lookup.requestId);
+                    lookup.future.completeExceptionally(writeFuture.cause());
+                }
+            }
+        });
+    }
+
     public CompletableFuture<List<String>> newGetTopicsOfNamespace(ByteBuf request, long requestId) {
         return sendRequestAndHandleTimeout(request, requestId, RequestType.GetTopics, true);
     }
 
+    public CompletableFuture<CommandWatchTopicListSuccess> newWatchTopicList(ByteBuf request, long requestId) {
+        return sendRequestAndHandleTimeout(request, requestId, RequestType.WatchTopicList, true);
+    }
+
+    @Override
+    protected void handleWatchTopicListSuccess(CommandWatchTopicListSuccess success) {
+        checkArgument(state == State.Ready);
+
+        if (log.isDebugEnabled()) {
+            log.debug("{} Received watch topic list success response from server: {} - watcher: {}, topics.size: {}",
+                    ctx.channel(), success.getRequestId(), success.getWatcherId(), success.getTopicsCount());
+        }
+
+        CompletableFuture<CommandWatchTopicListSuccess> requestFuture =
+                (CompletableFuture<CommandWatchTopicListSuccess>) pendingRequests.remove(success.getRequestId());
+        if (requestFuture != null) {
+            // The command instance is reused by the decoder
+            requestFuture.complete(new CommandWatchTopicListSuccess().copyFrom(success));
+        } else {
+            log.warn("{} Received unknown request id from server: {}", ctx.channel(), success.getRequestId());
+        }
+    }
+
+    @Override
+    protected void handleWatchTopicUpdate(CommandWatchTopicUpdate update) {
+        checkArgument(state == State.Ready);
+
+        if (log.isDebugEnabled()) {
+            log.debug("{} Received topic list update for watcher {}: {} new topics, {} deleted topics",
+                    ctx.channel(), update.getWatcherId(), update.getNewTopicsCount(), update.getDeletedTopicsCount());
+        }
+
+        TopicListWatcher watcher = topicListWatchers.get(update.getWatcherId());
+        if (watcher != null) {
+            watcher.handleCommandWatchTopicUpdate(update);
+        }
+    }
+
     public CompletableFuture<Void> newAckForReceipt(ByteBuf request, long requestId) {
         return sendRequestAndHandleTimeout(request, requestId, RequestType.AckResponse,true);
     }
@@ -834,6 +1001,20 @@ public class ClientCnx extends PulsarHandler {
         return ctx.channel();
     }
 
+    /**
+     * Write a command and coalesce the flush with the other writes already queued on the event loop, so that a burst
+     * of sends results in a single flush (and syscall) instead of one per message.
+     *
+     * <p>Must be called from the connection event loop.
+     */
+    void writeAndCoalesceFlush(Object msg) {
+        ctx.write(msg, ctx.voidPromise());
+        if (!flushScheduled) {
+            flushScheduled = true;
+            ctx.channel().eventLoop().execute(flushTask);
+        }
+    }
+
     SocketAddress serverAddrees() {
         return remoteAddress;
     }
@@ -1071,6 +1252,46 @@ public class ClientCnx extends PulsarHandler {
         consumers.remove(consumerId);
     }
 
+    void registerTopicListWatcher(final long watcherId, final TopicListWatcher watcher) {
+        topicListWatchers.put(watcherId, watcher);
+    }
+
+    void removeTopicListWatcher(final long watcherId) {
+        topicListWatchers.remove(watcherId);
+    }
+
+    /**
+     * The number of producers, consumers and other handlers attached to this connection, plus the number of requests
+     * still waiting for a response.
+     */
+    int getLoad() {
+        return (int) (producers.size() + consumers.size() + transactionMetaStoreHandlers.size()
+                + topicListWatchers.size() + pendingRequests.size()) + waitingLookupRequests.size();
+    }
+
+    boolean isWritable() {
+        return ctx == null || ctx.channel().isWritable();
+    }
+
+    long getBytesBeforeUnwritable() {
+        return ctx == null ? Long.MAX_VALUE : ctx.channel().bytesBeforeUnwritable();
+    }
+
+    /**
+     * Check whether the connection has not been used for at least <code>maxIdleNanos</code>. The idle period starts
+     * at the first check that finds the connection unused and ends as soon as a check finds it in use.
+     */
+    boolean checkIdle(long nowNanos, long maxIdleNanos) {
+        if (getLoad() > 0) {
+            idleSinceNanos = 0;
+            return false;
+        }
+        if (idleSinceNanos == 0) {
+            idleSinceNanos = nowNanos;
+        }
+        return nowNanos - idleSinceNanos >= maxIdleNanos;
+    }
+
     void setTargetBroker(InetSocketAddress targetBrokerAddress) {
         this.proxyToTargetBrokerAddress = String.format("%s:%d", targetBrokerAddress.getHostString(),
                 targetBrokerAddress.getPort());
@@ -94,6 +94,7 @@ public class ConnectionHandler {
 
     protected void reconnectLater(Throwable exception) {
         CLIENT_CNX_UPDATER.set(this, null);
+        state.client.invalidateBroker(state.topic);
         if (!isValidStateForReconnection()) {
             log.info("[{}] [{}] Ignoring reconnection request (state: {})", state.topic, state.getHandlerName(), state.getState());
             return;
@@ -114,6 +115,8 @@ public class ConnectionHandler {
         lastConnectionClosedTimestamp = System.currentTimeMillis();
         state.client.getCnxPool().releaseConnection(cnx);
         if (CLIENT_CNX_UPDATER.compareAndSet(this, cnx, null)) {
+            // The topic may have been moved to another broker, or the broker went away
+            state.client.invalidateBroker(state.topic);
             if (!isValidStateForReconnection()) {
                 log.info("[{}] [{}] Ignoring reconnection request (state: {})", state.topic, state.getHandlerName(), state.getState());
                 return;
@@ -37,6 +37,7 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -44,6 +45,7 @@ import java.util.Random;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
@@ -66,6 +68,8 @@ public class ConnectionPool implements Closeable {
     private final EventLoopGroup eventLoopGroup;
     private final int maxConnectionsPerHosts;
     private final boolean isSniProxy;
+    private final long connectionMaxIdleNanos;
+    private final ScheduledFuture<?> idleConnectionsCheckTask;
 
     protected final DnsNameResolver dnsResolver;
 
@@ -100,6 +104,15 @@ public class ConnectionPool implements Closeable {
 
         this.dnsResolver = new DnsNameResolverBuilder(eventLoopGroup.next()).traceEnabled(true)
                 .channelType(EventLoopUtil.getDatagramChannelClass(eventLoopGroup)).build();
+
+        this.connectionMaxIdleNanos = TimeUnit.SECONDS.toNanos(conf.getConnectionMaxIdleSeconds());
+        if (maxConnectionsPerHosts > 0 && conf.getConnectionMaxIdleSeconds() > 0) {
+            long checkIntervalSeconds = Math.max(1, conf.getConnectionMaxIdleSeconds() / 2);
+            this.idleConnectionsCheckTask = eventLoopGroup.scheduleAtFixedRate(this::releaseIdleConnections,
+                    checkIntervalSeconds, checkIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            this.idleConnectionsCheckTask = null;
+        }
     }
 
     private static final Random random = new Random();
@@ -137,6 +150,9 @@ public class ConnectionPool implements Closeable {
      * <p>
      * These two addresses can be different when the client is forced to connect through a proxy layer. Essentially, the
      * pool is using the logical address as a way to decide whether to reuse a particular connection.
+     * <p>
+     * Among the connections of the broker, the least loaded one is returned. A new connection is opened when all the
+     * existing ones are in use, as long as there are less than <code>connectionsPerBroker</code> of them.
      *
      * @param logicalAddress
      *            the address to use as the broker tag
@@ -151,10 +167,81 @@ public class ConnectionPool implements Closeable {
             return createConnection(logicalAddress, physicalAddress, -1);
         }
 
-        final int randomKey = signSafeMod(random.nextInt(), maxConnectionsPerHosts);
+        ConcurrentMap<Integer, CompletableFuture<ClientCnx>> connections =
+                pool.computeIfAbsent(logicalAddress, a -> new ConcurrentHashMap<>());
+        final int connectionKey = selectConnectionKey(connections);
 
-        return pool.computeIfAbsent(logicalAddress, a -> new ConcurrentHashMap<>()) //
-                .computeIfAbsent(randomKey, k -> createConnection(logicalAddress, physicalAddress, randomKey));
+        return connections.computeIfAbsent(connectionKey,
+                k -> createConnection(logicalAddress, physicalAddress, connectionKey));
+    }
+
+    /**
+     * Pick the least loaded of the established connections, or a free slot for a new connection when all of them are
+     * in use. While the connections are still being established, one of them is picked at random.
+     */
+    private int selectConnectionKey(ConcurrentMap<Integer, CompletableFuture<ClientCnx>> connections) {
+        int freeKey = -1;
+        int leastLoadedKey = -1;
+        ClientCnx leastLoadedCnx = null;
+        for (int key = 0; key < maxConnectionsPerHosts; key++) {
+            CompletableFuture<ClientCnx> future = connections.get(key);
+            if (future == null) {
+                if (freeKey == -1) {
+                    freeKey = key;
+                }
+                continue;
+            }
+            if (!future.isDone() || future.isCompletedExceptionally()) {
+                continue;
+            }
+            ClientCnx cnx = future.join();
+            if (leastLoadedCnx == null || CONNECTION_LOAD_COMPARATOR.compare(cnx, leastLoadedCnx) < 0) {
+                leastLoadedKey = key;
+                leastLoadedCnx = cnx;
+            }
+        }
+
+        boolean leastLoadedIsIdle = leastLoadedCnx != null && leastLoadedCnx.getLoad() == 0
+                && leastLoadedCnx.isWritable();
+        if (leastLoadedCnx != null && (freeKey == -1 || leastLoadedIsIdle)) {
+            return leastLoadedKey;
+        } else if (freeKey != -1) {
+            return freeKey;
+        } else {
+            return signSafeMod(random.nextInt(), maxConnectionsPerHosts);
+        }
+    }
+
+    // The connections with a full write buffer come last, then the ones with the most handlers and requests, then
+    // the ones with the most pending writes
+    private static final Comparator<ClientCnx> CONNECTION_LOAD_COMPARATOR = Comparator
+            .comparing((ClientCnx cnx) -> !cnx.isWritable())
+            .thenComparingInt(ClientCnx::getLoad)
+            .thenComparing(Comparator.comparingLong(ClientCnx::getBytesBeforeUnwritable).reversed());
+
+    /**
+     * Close the connections that have not carried any producer, consumer or request for longer than
+     * <code>connectionMaxIdleSeconds</code>.
+     */
+    @VisibleForTesting
+    void releaseIdleConnections() {
+        long now = System.nanoTime();
+        pool.forEach((address, connections) -> connections.forEach((key, future) -> {
+            if (!future.isDone() || future.isCompletedExceptionally()) {
+                return;
+            }
+            ClientCnx cnx = future.join();
+            if (!cnx.checkIdle(now, connectionMaxIdleNanos) || !connections.remove(key, future)) {
+                return;
+            }
+            // The connection may have been handed out since the check, keep it in that case if its slot is still free
+            if (cnx.getLoad() != 0 && connections.putIfAbsent(key, future) == null) {
+                return;
+            }
+            log.info("[{}] Closing connection idle for more than {} seconds", cnx.channel(),
+                    clientConfig.getConnectionMaxIdleSeconds());
+            cnx.close();
+        }));
     }
 
     private CompletableFuture<ClientCnx> createConnection(InetSocketAddress logicalAddress,
@@ -319,6 +406,9 @@ public class ConnectionPool implements Closeable {
 
     @Override
     public void close() throws IOException {
+        if (idleConnectionsCheckTask != null) {
+            idleConnectionsCheckTask.cancel(false);
+        }
         try {
             eventLoopGroup.shutdownGracefully(0, 10, TimeUnit.SECONDS).await();
         } catch (InterruptedException e) {
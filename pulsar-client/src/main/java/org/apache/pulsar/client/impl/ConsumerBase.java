@@ -848,23 +848,63 @@ public abstract class ConsumerBase<T> extends HandlerState implements Consumer<T
     }
 
     protected void increaseIncomingMessageSize(final Message<?> message) {
-        INCOMING_MESSAGES_SIZE_UPDATER.addAndGet(
-                this, message.getData() == null ? 0 : message.getData().length);
+        long size = MessageImpl.getPayloadSize(message);
+        long newSize = INCOMING_MESSAGES_SIZE_UPDATER.addAndGet(this, size);
+        // The messages in the receiver queue count against the client memory limit
+        MemoryLimitController memoryLimitController = client.getMemoryLimitController();
+        memoryLimitController.forceReserveMemory(size);
+        // The size can briefly go negative when a message is taken before it is accounted, only the crossings count
+        if (newSize > 0 && newSize - size <= 0) {
+            memoryLimitController.consumerStartedHoldingMemory();
+        }
     }
 
-    protected void resetIncomingMessageSize() {
-        INCOMING_MESSAGES_SIZE_UPDATER.set(this, 0);
+    /**
+     * Clear the receiver queue and release the memory of the messages in it.
+     *
+     * <p>The messages are released one by one as they are removed, a message taken concurrently by the application
+     * is released by whoever removed it from the queue, and never twice.
+     *
+     * @return the number of messages that were removed
+     */
+    protected int clearIncomingMessages() {
+        int removed = 0;
+        Message<T> message;
+        while ((message = incomingMessages.poll()) != null) {
+            decreaseIncomingMessageSize(message);
+            removed++;
+        }
+        return removed;
     }
 
     protected void decreaseIncomingMessageSize(final Message<?> message) {
-        INCOMING_MESSAGES_SIZE_UPDATER.addAndGet(this,
-                (message.getData() != null) ? -message.getData().length : 0);
+        long size = MessageImpl.getPayloadSize(message);
+        long newSize = INCOMING_MESSAGES_SIZE_UPDATER.addAndGet(this, -size);
+        MemoryLimitController memoryLimitController = client.getMemoryLimitController();
+        if (newSize <= 0 && newSize + size > 0) {
+            memoryLimitController.consumerStoppedHoldingMemory();
+        }
+        memoryLimitController.releaseMemory(size);
     }
 
     public long getIncomingMessageSize() {
         return INCOMING_MESSAGES_SIZE_UPDATER.get(this);
     }
 
+    /**
+     * @return whether the consumer should stop asking the broker for messages, to keep the client under its memory
+     *         limit
+     */
+    protected boolean isMemoryLimited() {
+        return client.getMemoryLimitController().isConsumerMemoryLimited(getIncomingMessageSize());
+    }
+
+    /**
+     * Called when the client memory usage went back under the limit, for the consumers to ask the broker for the
+     * messages they held back.
+     */
+    protected abstract void onMemoryAvailable();
+
     protected abstract void completeOpBatchReceive(OpBatchReceive<T> op);
 
     private static final Logger log = LoggerFactory.getLogger(ConsumerBase.class);
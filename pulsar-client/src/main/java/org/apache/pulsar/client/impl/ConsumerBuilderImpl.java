@@ -287,6 +287,12 @@ public class ConsumerBuilderImpl<T> implements ConsumerBuilder<T> {
         return this;
     }
 
+    @Override
+    public ConsumerBuilder<T> autoScaledReceiverQueueSizeEnabled(boolean autoScaledReceiverQueueSizeEnabled) {
+        conf.setAutoScaledReceiverQueueSizeEnabled(autoScaledReceiverQueueSizeEnabled);
+        return this;
+    }
+
     @Override
     public ConsumerBuilder<T> acknowledgmentGroupTime(long delay, TimeUnit unit) {
         checkArgument(delay >= 0, "acknowledgmentGroupTime needs to be >= 0");
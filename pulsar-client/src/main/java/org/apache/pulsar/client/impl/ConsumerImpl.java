@@ -48,6 +48,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -56,6 +57,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.pulsar.client.api.Consumer;
@@ -77,6 +79,7 @@ import org.apache.pulsar.client.api.transaction.TxnID;
 import org.apache.pulsar.client.impl.conf.ConsumerConfigurationData;
 import org.apache.pulsar.client.impl.crypto.MessageCryptoBc;
 import org.apache.pulsar.client.impl.transaction.TransactionImpl;
+import org.apache.pulsar.client.util.ExecutorProvider;
 import org.apache.pulsar.client.util.RetryMessageUtil;
 import org.apache.pulsar.common.api.EncryptionContext;
 import org.apache.pulsar.common.api.EncryptionContext.EncryptionKey;
@@ -117,14 +120,34 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
     @SuppressWarnings("unused")
     private volatile int availablePermits = 0;
 
+    // Number of messages received from the broker and still waiting on the decode executor
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<ConsumerImpl> PENDING_DECODE_MESSAGES_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(ConsumerImpl.class, "pendingDecodeMessages");
+    private volatile int pendingDecodeMessages = 0;
+    // Bumped under the write lock whenever incomingMessages is cleared for a redelivery or a seek, the messages
+    // queued on the decode executor before that are dropped since the broker dispatches them again
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<ConsumerImpl> DECODE_EPOCH_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(ConsumerImpl.class, "decodeEpoch");
+    private volatile int decodeEpoch = 0;
+
+    // Null when the messages are decoded on the IO thread of the connection
+    private final ExecutorService decodeExecutor;
+
     protected volatile MessageId lastDequeuedMessageId = MessageId.earliest;
     private volatile MessageId lastMessageIdInBroker = MessageId.earliest;
 
     private final long subscribeTimeout;
     private final int partitionIndex;
     private final boolean hasParentConsumer;
+    // Set by the parent consumer to take the messages directly, instead of having them queued here first
+    private volatile Predicate<Message<T>> parentMessageHandler = null;
 
-    private final int receiverQueueRefillThreshold;
+    private volatile int receiverQueueRefillThreshold;
+    // Set when the receiver queue size is auto scaled, in which case it can change over time
+    private final ReceiverQueueSizeTuner receiverQueueSizeTuner;
+    private volatile int currentReceiverQueueSize;
 
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
@@ -233,6 +256,8 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
             boolean createTopicIfDoesNotExist) throws PulsarClientException.InvalidConfigurationException {
         super(client, topic, conf, conf.getReceiverQueueSize(), listenerExecutor, subscribeFuture, schema, interceptors);
         this.consumerId = client.newConsumerId();
+        ExecutorProvider decodeExecutorProvider = client.decodeExecutorProvider();
+        this.decodeExecutor = decodeExecutorProvider != null ? decodeExecutorProvider.getExecutor() : null;
         this.subscriptionMode = conf.getSubscriptionMode();
         this.startMessageId = startMessageId != null ? new BatchMessageIdImpl((MessageIdImpl) startMessageId) : null;
         this.initialStartMessageId = this.startMessageId;
@@ -241,7 +266,16 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
         this.subscribeTimeout = System.currentTimeMillis() + client.getConfiguration().getOperationTimeoutMs();
         this.partitionIndex = partitionIndex;
         this.hasParentConsumer = hasParentConsumer;
-        this.receiverQueueRefillThreshold = conf.getReceiverQueueSize() / 2;
+        if (conf.isAutoScaledReceiverQueueSizeEnabled() && conf.getReceiverQueueSize() > 1) {
+            this.receiverQueueSizeTuner = new ReceiverQueueSizeTuner(1, conf.getReceiverQueueSize());
+            this.currentReceiverQueueSize = receiverQueueSizeTuner.getInitialSize();
+            this.receiverQueueRefillThreshold = Math.max(1, currentReceiverQueueSize / 2);
+        } else {
+            this.receiverQueueSizeTuner = null;
+            this.currentReceiverQueueSize = conf.getReceiverQueueSize();
+            this.receiverQueueRefillThreshold = conf.getReceiverQueueSize() / 2;
+        }
+        this.paused = conf.isStartPaused();
         this.priorityLevel = conf.getPriorityLevel();
         this.readCompacted = conf.isReadCompacted();
         this.subscriptionInitialPosition = conf.getSubscriptionInitialPosition();
@@ -263,10 +297,10 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
 
         if (conf.getAckTimeoutMillis() != 0) {
             if (conf.getTickDurationMillis() > 0) {
-                this.unAckedMessageTracker = new UnAckedMessageTracker(client, this, conf.getAckTimeoutMillis(),
+                this.unAckedMessageTracker = new UnAckedEntryMessageTracker(client, this, conf.getAckTimeoutMillis(),
                         Math.min(conf.getTickDurationMillis(), conf.getAckTimeoutMillis()));
             } else {
-                this.unAckedMessageTracker = new UnAckedMessageTracker(client, this, conf.getAckTimeoutMillis());
+                this.unAckedMessageTracker = new UnAckedEntryMessageTracker(client, this, conf.getAckTimeoutMillis());
             }
         } else {
             this.unAckedMessageTracker = UnAckedMessageTracker.UNACKED_MESSAGE_TRACKER_DISABLED;
@@ -746,7 +780,7 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
             // For readers too (isDurable==false), the partition idx will be set though we have to
             // send available permits immediately after establishing the reader session
             if (!(firstTimeConnect && hasParentConsumer && isDurable) && conf.getReceiverQueueSize() != 0) {
-                increaseAvailablePermits(cnx, conf.getReceiverQueueSize());
+                increaseAvailablePermits(cnx, currentReceiverQueueSize);
             }
         }).exceptionally((e) -> {
             deregisterFromClientCnx();
@@ -803,7 +837,7 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
     private BatchMessageIdImpl clearReceiverQueue() {
         List<Message<?>> currentMessageQueue = new ArrayList<>(incomingMessages.size());
         incomingMessages.drainTo(currentMessageQueue);
-        resetIncomingMessageSize();
+        currentMessageQueue.forEach(this::decreaseIncomingMessageSize);
 
         if (duringSeek.compareAndSet(true, false)) {
             return seekMessageId;
@@ -926,6 +960,8 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
 
     private void closeConsumerTasks() {
         unAckedMessageTracker.close();
+        // the queued messages won't be delivered anymore, give their memory back to the client
+        clearIncomingMessages();
         if (possibleSendToDeadLetterTopicMessages != null) {
             possibleSendToDeadLetterTopicMessages.clear();
         }
@@ -963,6 +999,62 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
     }
 
     void messageReceived(MessageIdData messageId, int redeliveryCount, List<Long> ackSet, ByteBuf headersAndPayload, ClientCnx cnx) {
+        if (receiverQueueSizeTuner != null) {
+            receiverQueueSizeTuner.onMessageReceived(System.nanoTime());
+        }
+
+        // The epoch is checked again when the decoded messages are enqueued, the queue may be cleared meanwhile
+        int epoch = decodeEpoch;
+        if (decodeExecutor == null) {
+            decodeMessage(messageId, redeliveryCount, ackSet, headersAndPayload, cnx, epoch);
+            return;
+        }
+
+        // The command is reused by the connection once we return, so copy the message id and retain the payload. A
+        // consumer always uses the same single thread executor, which keeps the messages in the order they were
+        // received.
+        MessageIdData messageIdCopy = new MessageIdData().copyFrom(messageId);
+        headersAndPayload.retain();
+        PENDING_DECODE_MESSAGES_UPDATER.incrementAndGet(this);
+        try {
+            decodeExecutor.execute(() -> {
+                // The message is decoded without holding the lock, so that receive calls are not blocked meanwhile
+                try {
+                    // Messages from a connection that was closed meanwhile will be redelivered on the new one
+                    if (cnx != cnx()) {
+                        return;
+                    }
+                    if (epoch != decodeEpoch) {
+                        // The queue was cleared after this message arrived, skip decoding it and give back the
+                        // permits it used
+                        MessageMetadata msgMetadata =
+                                Commands.peekMessageMetadata(headersAndPayload, subscription, consumerId);
+                        increaseAvailablePermits(cnx, msgMetadata != null ? msgMetadata.getNumMessagesInBatch() : 1);
+                        return;
+                    }
+                    decodeMessage(messageIdCopy, redeliveryCount, ackSet, headersAndPayload, cnx, epoch);
+                } catch (Throwable t) {
+                    log.error("[{}][{}] Failed to decode message {}:{}", topic, subscription,
+                            messageIdCopy.getLedgerId(), messageIdCopy.getEntryId(), t);
+                } finally {
+                    PENDING_DECODE_MESSAGES_UPDATER.decrementAndGet(this);
+                    headersAndPayload.release();
+                    if (!isDecodeBacklogged()) {
+                        // Send the permits withheld while the decode backlog was too large
+                        increaseAvailablePermits(cnx(), 0);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("[{}][{}] Dropping message {}:{}, decode executor is shut down", topic, subscription,
+                    messageId.getLedgerId(), messageId.getEntryId());
+            PENDING_DECODE_MESSAGES_UPDATER.decrementAndGet(this);
+            headersAndPayload.release();
+        }
+    }
+
+    private void decodeMessage(MessageIdData messageId, int redeliveryCount, List<Long> ackSet,
+            ByteBuf headersAndPayload, ClientCnx cnx, int epoch) {
         if (log.isDebugEnabled()) {
             log.debug("[{}][{}] Received message: {}/{}", topic, subscription, messageId.getLedgerId(),
                     messageId.getEntryId());
@@ -1042,28 +1134,18 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
                     uncompressedPayload, createEncryptionContext(msgMetadata), cnx, schema, redeliveryCount);
             uncompressedPayload.release();
 
-            lock.readLock().lock();
-            try {
-                // Enqueue the message so that it can be retrieved when application calls receive()
-                // if the conf.getReceiverQueueSize() is 0 then discard message if no one is waiting for it.
-                // if asyncReceive is waiting then notify callback without adding to incomingMessages queue
-                if (deadLetterPolicy != null && possibleSendToDeadLetterTopicMessages != null && redeliveryCount >= deadLetterPolicy.getMaxRedeliverCount()
-                && StringUtils.isNotBlank(deadLetterPolicy.getDeadLetterTopic())) {
-                    possibleSendToDeadLetterTopicMessages.put((MessageIdImpl)message.getMessageId(), Collections.singletonList(message));
-                }
-                if (peekPendingReceive() != null) {
-                    notifyPendingReceivedCallback(message, null);
-                } else if (enqueueMessageAndCheckBatchReceive(message)) {
-                    if (hasPendingBatchReceive()) {
-                        notifyPendingBatchReceivedCallBack();
-                    }
-                }
-            } finally {
-                lock.readLock().unlock();
+            if (deadLetterPolicy != null && possibleSendToDeadLetterTopicMessages != null && redeliveryCount >= deadLetterPolicy.getMaxRedeliverCount()
+            && StringUtils.isNotBlank(deadLetterPolicy.getDeadLetterTopic())) {
+                possibleSendToDeadLetterTopicMessages.put((MessageIdImpl)message.getMessageId(), Collections.singletonList(message));
+            }
+            if (!enqueueDecodedMessage(message, epoch)) {
+                increaseAvailablePermits(cnx);
+                return;
             }
         } else {
             // handle batch message enqueuing; uncompressed payload has all messages in batch
-            receiveIndividualMessagesFromBatch(msgMetadata, redeliveryCount, ackSet, uncompressedPayload, messageId, cnx);
+            receiveIndividualMessagesFromBatch(msgMetadata, redeliveryCount, ackSet, uncompressedPayload, messageId, cnx,
+                    epoch);
 
             uncompressedPayload.release();
         }
@@ -1073,6 +1155,34 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
         }
     }
 
+    /**
+     * Enqueue a decoded message so that it can be retrieved when the application calls receive(), or hand it to a
+     * waiting receive or to the parent consumer.
+     *
+     * @return false if the queue was cleared after the message was received, it is then dropped
+     */
+    private boolean enqueueDecodedMessage(MessageImpl<T> message, int epoch) {
+        lock.readLock().lock();
+        try {
+            // The queue is cleared, and the epoch bumped, under the write lock
+            if (epoch != decodeEpoch) {
+                return false;
+            }
+            // if the conf.getReceiverQueueSize() is 0 then discard message if no one is waiting for it.
+            // if asyncReceive is waiting then notify callback without adding to incomingMessages queue
+            if (peekPendingReceive() != null) {
+                notifyPendingReceivedCallback(message, null);
+            } else if (!handMessageToParent(message) && enqueueMessageAndCheckBatchReceive(message)) {
+                if (hasPendingBatchReceive()) {
+                    notifyPendingBatchReceivedCallBack();
+                }
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     private boolean isTxnMessage(MessageMetadata messageMetadata) {
         return messageMetadata.hasTxnidMostBits() && messageMetadata.hasTxnidLeastBits();
     }
@@ -1226,6 +1336,9 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
             return;
         }
 
+        // the message didn't go through the queue, account for it like a queued one since it is released when
+        // processed
+        increaseIncomingMessageSize(message);
         // increase permits for available message-queue
         messageProcessed(message);
         // call interceptor and complete received callback
@@ -1240,7 +1353,7 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
     }
 
     void receiveIndividualMessagesFromBatch(MessageMetadata msgMetadata, int redeliveryCount, List<Long> ackSet, ByteBuf uncompressedPayload,
-            MessageIdData messageId, ClientCnx cnx) {
+            MessageIdData messageId, ClientCnx cnx, int epoch) {
         int batchSize = msgMetadata.getNumMessagesInBatch();
 
         // create ack tracker for entry aka batch
@@ -1258,7 +1371,12 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
             ackBitSet = BitSetRecyclable.valueOf(SafeCollectionUtils.longListToArray(ackSet));
         }
 
-        SingleMessageMetadata singleMessageMetadata = new SingleMessageMetadata();
+        // The messages of the batch are handed to the application, so copy the batch out of the ref-counted network
+        // buffer once and let every message reference its own slice of that copy. The batch metadata is shared too,
+        // and each message keeps its own single message metadata, which is only decoded on first access.
+        ByteBuf batchPayload = Unpooled.copiedBuffer(uncompressedPayload);
+        MessageMetadata batchMetadata = new MessageMetadata().copyFrom(msgMetadata);
+        Optional<EncryptionContext> encryptionCtx = createEncryptionContext(msgMetadata);
         int skippedMessages = 0;
         try {
             for (int i = 0; i < batchSize; ++i) {
@@ -1266,7 +1384,8 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
                     log.debug("[{}] [{}] processing message num - {} in batch", subscription, consumerName, i);
                 }
 
-                ByteBuf singleMessagePayload = Commands.deSerializeSingleMessageInBatch(uncompressedPayload,
+                SingleMessageMetadata singleMessageMetadata = new SingleMessageMetadata();
+                ByteBuf singleMessagePayload = Commands.deSerializeSingleMessageInBatch(batchPayload,
                         singleMessageMetadata, i, batchSize);
 
                 if (isSameEntry(messageId) && isPriorBatchIndex(i)) {
@@ -1299,22 +1418,13 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
                 BatchMessageIdImpl batchMessageIdImpl = new BatchMessageIdImpl(messageId.getLedgerId(),
                         messageId.getEntryId(), getPartitionIndex(), i, batchSize, acker);
                 final MessageImpl<T> message = new MessageImpl<>(topicName.toString(), batchMessageIdImpl,
-                        msgMetadata, singleMessageMetadata, singleMessagePayload,
-                        createEncryptionContext(msgMetadata), cnx, schema, redeliveryCount);
+                        batchMetadata, singleMessageMetadata, singleMessagePayload, encryptionCtx, cnx, schema,
+                        redeliveryCount);
                 if (possibleToDeadLetter != null) {
                     possibleToDeadLetter.add(message);
                 }
-                lock.readLock().lock();
-                try {
-                    if (peekPendingReceive() != null) {
-                        notifyPendingReceivedCallback(message, null);
-                    } else if (enqueueMessageAndCheckBatchReceive(message)) {
-                        if (hasPendingBatchReceive()) {
-                            notifyPendingBatchReceivedCallBack();
-                        }
-                    }
-                } finally {
-                    lock.readLock().unlock();
+                if (!enqueueDecodedMessage(message, epoch)) {
+                    ++skippedMessages;
                 }
                 singleMessagePayload.release();
             }
@@ -1361,20 +1471,93 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
      */
     @Override
     protected synchronized void messageProcessed(Message<?> msg) {
+        // Released even for a message of the old queue, since it was taken from the queue before it got cleared.
+        // Released first, so that a consumer that emptied its queue is not held back by the memory limit
+        decreaseIncomingMessageSize(msg);
+        messageDequeued(msg);
+    }
+
+    /**
+     * Give back the permit of a message handed to the application, or to the parent consumer.
+     */
+    private synchronized void messageDequeued(Message<?> msg) {
         ClientCnx currentCnx = cnx();
         ClientCnx msgCnx = ((MessageImpl<?>) msg).getCnx();
         lastDequeuedMessageId = msg.getMessageId();
 
         if (msgCnx != currentCnx) {
-            // The processed message did belong to the old queue that was cleared after reconnection.
+            // The message did belong to the old queue that was cleared after reconnection
             return;
         }
 
         increaseAvailablePermits(currentCnx);
         stats.updateNumMsgsReceived(msg);
+        // A message handed to the parent consumer only reached its shared queue, the parent tells when the
+        // application takes it
+        if (!hasParentConsumer) {
+            tuneReceiverQueueSize();
+        }
 
         trackMessage(msg);
-        decreaseIncomingMessageSize(msg);
+    }
+
+    /**
+     * Invoked by the parent consumer when the application takes a message of this consumer from the shared queue, so
+     * that the receiver queue of this consumer is sized from the rate at which the application consumes its messages.
+     */
+    void messageConsumedThroughParent() {
+        tuneReceiverQueueSize();
+    }
+
+    private synchronized void tuneReceiverQueueSize() {
+        if (receiverQueueSizeTuner != null) {
+            int newSize = receiverQueueSizeTuner.onMessageDequeued(System.nanoTime(), currentReceiverQueueSize);
+            if (newSize != currentReceiverQueueSize) {
+                setCurrentReceiverQueueSize(newSize);
+            }
+        }
+    }
+
+    /**
+     * Let the parent consumer take the messages of this consumer directly, without queueing them here first.
+     *
+     * <p>The handler returns false, without taking the message, when the parent can't accept more messages. The
+     * messages are then queued here, until the parent takes them with {@link #handQueuedMessagesToParent()}.
+     */
+    void setParentMessageHandler(Predicate<Message<T>> parentMessageHandler) {
+        this.parentMessageHandler = parentMessageHandler;
+    }
+
+    // Must be called with the read lock held, so that the message can't overtake the queued ones being handed
+    private boolean handMessageToParent(Message<T> message) {
+        Predicate<Message<T>> handler = parentMessageHandler;
+        if (handler == null || !incomingMessages.isEmpty() || !handler.test(message)) {
+            return false;
+        }
+        messageDequeued(message);
+        return true;
+    }
+
+    /**
+     * Hand the queued messages to the parent consumer, in order, until it refuses one or the queue is empty, after
+     * which the new messages are handed directly.
+     */
+    void handQueuedMessagesToParent() {
+        Predicate<Message<T>> handler = parentMessageHandler;
+        if (handler == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Message<T> message = incomingMessages.peek();
+            while (message != null && handler.test(message)) {
+                incomingMessages.poll();
+                messageProcessed(message);
+                message = incomingMessages.peek();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     protected void trackMessage(Message<?> msg) {
@@ -1407,8 +1590,14 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
     protected void increaseAvailablePermits(ClientCnx currentCnx, int delta) {
         int available = AVAILABLE_PERMITS_UPDATER.addAndGet(this, delta);
 
-        while (available >= receiverQueueRefillThreshold && !paused) {
+        // While the client is over its memory limit, or the consumer has too many messages waiting on the decode
+        // executor, the permits are kept, and sent once some memory is released or the messages are decoded
+        while (available >= receiverQueueRefillThreshold && !paused && !isMemoryLimited() && !isDecodeBacklogged()) {
             if (AVAILABLE_PERMITS_UPDATER.compareAndSet(this, available, 0)) {
+                if (receiverQueueSizeTuner != null && incomingMessages.size() + available >= currentReceiverQueueSize) {
+                    // The broker has no permit left, the next message measures the round-trip of this flow
+                    receiverQueueSizeTuner.onFlowSent(System.nanoTime());
+                }
                 sendFlowPermitsToBroker(currentCnx, available);
                 break;
             } else {
@@ -1417,10 +1606,45 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
         }
     }
 
+    /**
+     * The decode executor is shared by the consumers of the client, so the number of messages a consumer has waiting
+     * on it is bounded like its receiver queue: the broker is not asked for more while half of it is waiting there.
+     */
+    private boolean isDecodeBacklogged() {
+        int pending = pendingDecodeMessages;
+        return pending > 0 && pending >= receiverQueueRefillThreshold;
+    }
+
     public void increaseAvailablePermits(int delta) {
         increaseAvailablePermits(cnx(), delta);
     }
 
+    /**
+     * @return the number of messages the consumer prefetches, which changes over time when the receiver queue size is
+     *         auto scaled
+     */
+    public int getCurrentReceiverQueueSize() {
+        return currentReceiverQueueSize;
+    }
+
+    private synchronized void setCurrentReceiverQueueSize(int newSize) {
+        int delta = newSize - currentReceiverQueueSize;
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] [{}] Resizing receiver queue from {} to {}", topic, subscription,
+                    currentReceiverQueueSize, newSize);
+        }
+        currentReceiverQueueSize = newSize;
+        receiverQueueRefillThreshold = Math.max(1, newSize / 2);
+        // Growing hands the extra permits to the broker right away, shrinking withholds the permits of the next
+        // messages handed to the application
+        increaseAvailablePermits(cnx(), delta);
+    }
+
+    @Override
+    protected void onMemoryAvailable() {
+        increaseAvailablePermits(cnx(), 0);
+    }
+
     @Override
     public void pause() {
         paused = true;
@@ -1499,7 +1723,18 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
     private ByteBuf uncompressPayloadIfNeeded(MessageIdData messageId, MessageMetadata msgMetadata, ByteBuf payload,
             ClientCnx currentCnx, boolean checkMaxMessageSize) {
         CompressionType compressionType = msgMetadata.getCompression();
-        CompressionCodec codec = CompressionCodecProvider.getCompressionCodec(compressionType);
+        CompressionCodec codec = CompressionCodecProvider.getCompressionCodec(msgMetadata);
+        if (codec == null) {
+            // The message is not corrupted, have it redelivered until the client knows the dictionary. The ack
+            // timeout may be disabled, so negatively ack it, and give back its permits meanwhile
+            MessageId m = new MessageIdImpl(messageId.getLedgerId(), messageId.getEntryId(), partitionIndex);
+            log.error("[{}][{}][{}][{}] Message delivery failed since compression dictionary {} is unknown",
+                    topic, subscription, consumerName, m, msgMetadata.getCompressionDictionaryId());
+            negativeAcksTracker.add(m);
+            increaseAvailablePermits(currentCnx, msgMetadata.getNumMessagesInBatch());
+            stats.incrementNumReceiveFailed();
+            return null;
+        }
         int uncompressedSize = msgMetadata.getUncompressedSize();
         int payloadSize = payload.readableBytes();
         if (checkMaxMessageSize && payloadSize > ClientCnx.getMaxMessageSize()) {
@@ -1581,11 +1816,15 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
         ClientCnx cnx = cnx();
         if (isConnected() && cnx.getRemoteEndpointProtocolVersion() >= ProtocolVersion.v2.getValue()) {
             int currentSize = 0;
-            synchronized (this) {
-                currentSize = incomingMessages.size();
-                incomingMessages.clear();
-                resetIncomingMessageSize();
-                unAckedMessageTracker.clear();
+            lock.writeLock().lock();
+            try {
+                synchronized (this) {
+                    DECODE_EPOCH_UPDATER.incrementAndGet(this);
+                    currentSize = clearIncomingMessages();
+                    unAckedMessageTracker.clear();
+                }
+            } finally {
+                lock.writeLock().unlock();
             }
             cnx.ctx().writeAndFlush(Commands.newRedeliverUnacknowledgedMessages(consumerId), cnx.ctx().voidPromise());
             if (currentSize > 0) {
@@ -1606,11 +1845,25 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
     }
 
     public int clearIncomingMessagesAndGetMessageNumber() {
-        int messagesNumber = incomingMessages.size();
-        incomingMessages.clear();
-        resetIncomingMessageSize();
-        unAckedMessageTracker.clear();
-        return messagesNumber;
+        lock.writeLock().lock();
+        try {
+            DECODE_EPOCH_UPDATER.incrementAndGet(this);
+            int messagesNumber = clearIncomingMessages();
+            unAckedMessageTracker.clear();
+            return messagesNumber;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void clearIncomingMessagesForSeek() {
+        lock.writeLock().lock();
+        try {
+            DECODE_EPOCH_UPDATER.incrementAndGet(this);
+            clearIncomingMessages();
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
@@ -1763,8 +2016,7 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
             duringSeek.set(true);
             lastDequeuedMessageId = MessageId.earliest;
 
-            incomingMessages.clear();
-            resetIncomingMessageSize();
+            clearIncomingMessagesForSeek();
             seekFuture.complete(null);
         }).exceptionally(e -> {
             log.error("[{}][{}] Failed to reset subscription: {}", topic, subscription, e.getCause().getMessage());
@@ -1824,8 +2076,7 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
             duringSeek.set(true);
             lastDequeuedMessageId = MessageId.earliest;
 
-            incomingMessages.clear();
-            resetIncomingMessageSize();
+            clearIncomingMessagesForSeek();
             seekFuture.complete(null);
         }).exceptionally(e -> {
             log.error("[{}][{}] Failed to reset subscription: {}", topic, subscription, e.getCause().getMessage());
@@ -2119,6 +2370,14 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
         return this.connectionHandler.cnx();
     }
 
+    int getPendingDecodeMessages() {
+        return pendingDecodeMessages;
+    }
+
+    int getDecodeEpoch() {
+        return decodeEpoch;
+    }
+
     void resetBackoff() {
         this.connectionHandler.resetBackoff();
     }
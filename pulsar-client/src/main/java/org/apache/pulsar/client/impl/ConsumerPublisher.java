@@ -0,0 +1,262 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.ConsumerBuilder;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.MessageListener;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A Reactive Streams {@link Publisher} of the messages received by a consumer.
+ *
+ * <p>The consumer is created from the given builder when a subscriber subscribes, and it is closed when the
+ * subscription is cancelled or terminated. The consumer starts paused and flow permits are only handed to the broker
+ * while the subscriber has outstanding demand, so the receiver queue size of the builder only bounds how many
+ * messages can be prefetched ahead of that demand.
+ *
+ * <p>The publisher completes when the end of the topic is reached. Messages are not acknowledged by the publisher,
+ * the subscriber is expected to do it through {@link #getConsumer()}.
+ *
+ * <p>Only a single subscriber is allowed, since every subscriber would need its own consumer.
+ */
+public class ConsumerPublisher<T> implements Publisher<Message<T>> {
+
+    private final ConsumerBuilderImpl<T> consumerBuilder;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private volatile Consumer<T> consumer;
+
+    public ConsumerPublisher(ConsumerBuilder<T> consumerBuilder) {
+        checkArgument(consumerBuilder instanceof ConsumerBuilderImpl, "Unsupported consumer builder");
+        checkArgument(((ConsumerBuilderImpl<T>) consumerBuilder).getConf().getMessageListener() == null,
+                "Messages are dispatched by the publisher, the consumer builder can't have a message listener");
+        this.consumerBuilder = (ConsumerBuilderImpl<T>) consumerBuilder.clone();
+    }
+
+    /**
+     * @return the consumer the messages are received from, or null if it has not been created yet
+     */
+    public Consumer<T> getConsumer() {
+        return consumer;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Message<T>> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(EmptySubscription.INSTANCE);
+            subscriber.onError(new IllegalStateException("ConsumerPublisher allows only a single subscriber"));
+            return;
+        }
+
+        ConsumerSubscription subscription = new ConsumerSubscription(subscriber);
+        consumerBuilder.getConf().setStartPaused(true);
+        consumerBuilder.messageListener(subscription);
+        subscriber.onSubscribe(subscription);
+
+        consumerBuilder.subscribeAsync().whenComplete((consumer, ex) -> {
+            if (ex != null) {
+                subscription.onError(ex);
+            } else {
+                subscription.onConsumerReady(consumer);
+            }
+        });
+    }
+
+    private class ConsumerSubscription implements Subscription, MessageListener<T> {
+
+        private final Subscriber<? super Message<T>> subscriber;
+        // Messages dispatched by the consumer that have not been requested yet. Since permits are not handed out
+        // without demand, this can't grow over the receiver queue size.
+        private final Queue<Message<T>> pendingMessages = new ConcurrentLinkedQueue<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile Consumer<T> consumer;
+        private volatile boolean cancelled = false;
+        private volatile boolean done = false;
+        private volatile Throwable error;
+        // only accessed from within drain()
+        private boolean flowing = false;
+
+        ConsumerSubscription(Subscriber<? super Message<T>> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void onConsumerReady(Consumer<T> consumer) {
+            this.consumer = consumer;
+            ConsumerPublisher.this.consumer = consumer;
+            if (cancelled) {
+                closeConsumer();
+            } else {
+                drain();
+            }
+        }
+
+        void onError(Throwable ex) {
+            error = ex;
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void received(Consumer<T> consumer, Message<T> msg) {
+            if (!cancelled) {
+                pendingMessages.offer(msg);
+                drain();
+            }
+        }
+
+        @Override
+        public void reachedEndOfTopic(Consumer<T> consumer) {
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                onError(new IllegalArgumentException("Requested number of messages must be positive, got " + n));
+                return;
+            }
+            long current;
+            long next;
+            do {
+                current = requested.get();
+                if (current == Long.MAX_VALUE) {
+                    return;
+                }
+                next = current + n;
+                if (next < 0) {
+                    next = Long.MAX_VALUE;
+                }
+            } while (!requested.compareAndSet(current, next));
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                closeConsumer();
+                drain();
+            }
+        }
+
+        private void closeConsumer() {
+            Consumer<T> c = consumer;
+            if (c != null) {
+                c.closeAsync().exceptionally(ex -> {
+                    log.warn("[{}] Failed to close consumer after the subscription ended", c.getTopic(), ex);
+                    return null;
+                });
+            }
+        }
+
+        /**
+         * Deliver the pending messages to the subscriber, up to the requested amount, and pause or resume the
+         * consumer depending on whether there is demand left. Only one thread at a time runs the loop, the other
+         * ones just signal that there is more work to do.
+         */
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+
+            int missed = 1;
+            while (true) {
+                long r = requested.get();
+                long emitted = 0;
+                while (emitted != r && !cancelled) {
+                    Message<T> msg = pendingMessages.poll();
+                    if (msg == null) {
+                        break;
+                    }
+                    subscriber.onNext(msg);
+                    emitted++;
+                }
+
+                if (cancelled) {
+                    pendingMessages.clear();
+                    return;
+                }
+
+                if (done && (error != null || pendingMessages.isEmpty())) {
+                    cancelled = true;
+                    pendingMessages.clear();
+                    closeConsumer();
+                    if (error != null) {
+                        subscriber.onError(error);
+                    } else {
+                        subscriber.onComplete();
+                    }
+                    return;
+                }
+
+                if (emitted != 0 && r != Long.MAX_VALUE) {
+                    r = requested.addAndGet(-emitted);
+                }
+
+                Consumer<T> c = consumer;
+                if (c != null && flowing != (r > 0)) {
+                    flowing = r > 0;
+                    if (flowing) {
+                        c.resume();
+                    } else {
+                        c.pause();
+                    }
+                }
+
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private enum EmptySubscription implements Subscription {
+        INSTANCE;
+
+        @Override
+        public void request(long n) {
+            // no-op
+        }
+
+        @Override
+        public void cancel() {
+            // no-op
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(ConsumerPublisher.class);
+}
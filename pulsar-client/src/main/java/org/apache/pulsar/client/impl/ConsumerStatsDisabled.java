@@ -126,6 +126,16 @@ public class ConsumerStatsDisabled implements ConsumerStatsRecorder {
         return null;
     }
 
+    @Override
+    public Long getMsgSizeInReceiverQueue() {
+        return null;
+    }
+
+    @Override
+    public Integer getMsgNumInDecodeQueue() {
+        return null;
+    }
+
     @Override
     public double getRateMsgsReceived() {
         return 0;
@@ -148,12 +148,13 @@ public class ConsumerStatsRecorderImpl implements ConsumerStatsRecorder {
                 if ((currentNumMsgsReceived | currentNumBytesReceived | currentNumReceiveFailed | currentNumAcksSent
                         | currentNumAcksFailed) != 0) {
                     log.info(
-                            "[{}] [{}] [{}] Prefetched messages: {} --- "
+                            "[{}] [{}] [{}] Prefetched messages: {} --- {} bytes --- "
                                     + "Consume throughput received: {} msgs/s --- {} Mbit/s --- "
                                     + "Ack sent rate: {} ack/s --- " + "Failed messages: {} --- batch messages: {} ---"
                                     + "Failed acks: {}",
                             consumerImpl.getTopic(), consumerImpl.getSubscription(), consumerImpl.consumerName,
-                            consumerImpl.incomingMessages.size(), THROUGHPUT_FORMAT.format(receivedMsgsRate),
+                            consumerImpl.incomingMessages.size(), consumerImpl.getIncomingMessageSize(),
+                            THROUGHPUT_FORMAT.format(receivedMsgsRate),
                             THROUGHPUT_FORMAT.format(receivedBytesRate * 8 / 1024 / 1024),
                             THROUGHPUT_FORMAT.format(currentNumAcksSent / elapsed), currentNumReceiveFailed,
                             currentNumBatchReceiveFailed, currentNumAcksFailed);
@@ -175,7 +176,7 @@ public class ConsumerStatsRecorderImpl implements ConsumerStatsRecorder {
     public void updateNumMsgsReceived(Message<?> message) {
         if (message != null) {
             numMsgsReceived.increment();
-            numBytesReceived.add(message.getData() == null ? 0 : message.getData().length);
+            numBytesReceived.add(MessageImpl.getPayloadSize(message));
         }
     }
 
@@ -259,6 +260,29 @@ public class ConsumerStatsRecorderImpl implements ConsumerStatsRecorder {
         return null;
     }
 
+    @Override
+    public Long getMsgSizeInReceiverQueue() {
+        if (consumer instanceof MultiTopicsConsumerImpl) {
+            MultiTopicsConsumerImpl<?> multiTopicsConsumer = (MultiTopicsConsumerImpl<?>) consumer;
+            return multiTopicsConsumer.getIncomingMessageSize() + multiTopicsConsumer.getConsumers().stream()
+                    .mapToLong(ConsumerBase::getIncomingMessageSize).sum();
+        } else if (consumer instanceof ConsumerBase) {
+            return ((ConsumerBase<?>) consumer).getIncomingMessageSize();
+        }
+        return null;
+    }
+
+    @Override
+    public Integer getMsgNumInDecodeQueue() {
+        if (consumer instanceof ConsumerImpl) {
+            return ((ConsumerImpl<?>) consumer).getPendingDecodeMessages();
+        } else if (consumer instanceof MultiTopicsConsumerImpl) {
+            return ((MultiTopicsConsumerImpl<?>) consumer).getConsumers().stream()
+                    .mapToInt(ConsumerImpl::getPendingDecodeMessages).sum();
+        }
+        return null;
+    }
+
     @Override
     public long getNumMsgsReceived() {
         return numMsgsReceived.longValue();
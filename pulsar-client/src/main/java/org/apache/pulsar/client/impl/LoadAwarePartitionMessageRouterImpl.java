@@ -0,0 +1,117 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import static org.apache.pulsar.client.util.MathUtils.signSafeMod;
+
+import java.time.Clock;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntToLongFunction;
+
+import org.apache.pulsar.client.api.HashingScheme;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.TopicMetadata;
+
+/**
+ * The routing strategy here:
+ * <ul>
+ * <li>If a key is present, choose a partition based on a hash of the key.
+ * <li>If no key is present, pick two partitions at random and choose the less loaded one, the load of a partition
+ * being the expected latency of a message sent to it. Comparing two random partitions rather than looking for the
+ * least loaded one keeps the producers from all piling on the same partition between two latency updates. If
+ * batching is enabled, the chosen partition is kept until the batching partition switch interval elapses, to fill
+ * the batches, unless it can no longer take messages.
+ * </ul>
+ */
+public class LoadAwarePartitionMessageRouterImpl extends MessageRouterBase {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient IntToLongFunction partitionLoad;
+    private final boolean isBatchingEnabled;
+    private final long partitionSwitchMs;
+
+    private volatile int stickyPartition = -1;
+    private volatile long stickyPartitionEndMs = 0;
+
+    private final Clock clock;
+
+    private static final Clock SYSTEM_CLOCK = Clock.systemUTC();
+
+    /**
+     * @param partitionLoad the expected latency of a message sent to the given partition, or {@link Long#MAX_VALUE}
+     *                      if the partition cannot take more messages
+     */
+    public LoadAwarePartitionMessageRouterImpl(HashingScheme hashingScheme,
+                                               IntToLongFunction partitionLoad,
+                                               boolean isBatchingEnabled,
+                                               long partitionSwitchMs) {
+        this(hashingScheme, partitionLoad, isBatchingEnabled, partitionSwitchMs, SYSTEM_CLOCK);
+    }
+
+    public LoadAwarePartitionMessageRouterImpl(HashingScheme hashingScheme,
+                                               IntToLongFunction partitionLoad,
+                                               boolean isBatchingEnabled,
+                                               long partitionSwitchMs,
+                                               Clock clock) {
+        super(hashingScheme);
+        this.partitionLoad = partitionLoad;
+        this.isBatchingEnabled = isBatchingEnabled;
+        this.partitionSwitchMs = Math.max(1, partitionSwitchMs);
+        this.clock = clock;
+    }
+
+    @Override
+    public int choosePartition(Message<?> msg, TopicMetadata topicMetadata) {
+        // If the message has a key, it supersedes the load aware routing policy
+        if (msg.hasKey()) {
+            return signSafeMod(hash.makeHash(msg.getKey()), topicMetadata.numPartitions());
+        }
+
+        if (!isBatchingEnabled) {
+            return chooseLessLoadedPartition(topicMetadata.numPartitions());
+        }
+
+        long currentMs = clock.millis();
+        int partition = stickyPartition;
+        if (partition >= 0 && partition < topicMetadata.numPartitions() && currentMs < stickyPartitionEndMs
+                && partitionLoad.applyAsLong(partition) != Long.MAX_VALUE) {
+            return partition;
+        }
+
+        partition = chooseLessLoadedPartition(topicMetadata.numPartitions());
+        stickyPartition = partition;
+        stickyPartitionEndMs = currentMs + partitionSwitchMs;
+        return partition;
+    }
+
+    private int chooseLessLoadedPartition(int numPartitions) {
+        if (numPartitions == 1) {
+            return 0;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(numPartitions);
+        int second = random.nextInt(numPartitions - 1);
+        if (second >= first) {
+            second++;
+        }
+        return partitionLoad.applyAsLong(second) < partitionLoad.applyAsLong(first) ? second : first;
+    }
+}
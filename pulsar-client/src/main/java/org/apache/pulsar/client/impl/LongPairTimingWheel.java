@@ -0,0 +1,147 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.apache.pulsar.common.util.collections.ConcurrentLongPairLongHashMap.ValueNotFound;
+
+import org.apache.pulsar.common.util.collections.ConcurrentLongPairLongHashMap;
+import org.apache.pulsar.common.util.collections.ConcurrentLongPairSet;
+import org.apache.pulsar.common.util.collections.ConcurrentLongPairSet.LongPairConsumer;
+import org.apache.pulsar.common.util.collections.LongPairSet.LongPairPredicate;
+
+/**
+ * Timing wheel keyed by pairs of longs, used to time out (ledgerId, entryId) pairs without allocating a message id
+ * object per tracked message.
+ *
+ * <p>Pairs are always added to the current slot. Each call to {@link #advance(LongPairConsumer)} expires the oldest
+ * slot and makes it the current one, so a pair expires after {@code numberOfSlots - 1} to {@code numberOfSlots}
+ * ticks. An index keeps the slot of every pair, so adding or removing a pair does not depend on the number of tracked
+ * pairs, and a tick only visits the pairs that are expiring.
+ *
+ * <p>Additions and removals can happen concurrently from any thread, while {@link #advance(LongPairConsumer)} is
+ * expected to be called by a single thread.
+ */
+class LongPairTimingWheel {
+
+    private final ConcurrentLongPairSet[] slots;
+    // (item1, item2) -> slot index
+    private final ConcurrentLongPairLongHashMap index;
+
+    private volatile int currentSlot = 0;
+
+    LongPairTimingWheel(int numberOfSlots) {
+        checkArgument(numberOfSlots > 1);
+        this.slots = new ConcurrentLongPairSet[numberOfSlots];
+        for (int i = 0; i < numberOfSlots; i++) {
+            slots[i] = new ConcurrentLongPairSet(16, 1);
+        }
+        this.index = new ConcurrentLongPairLongHashMap();
+    }
+
+    /**
+     * Add a pair to the current slot, unless it's already tracked.
+     *
+     * @return true if the pair was added, false if it was already tracked
+     */
+    boolean add(long item1, long item2) {
+        int slot = currentSlot;
+        if (index.putIfAbsent(item1, item2, slot) != ValueNotFound) {
+            return false;
+        }
+        slots[slot].add(item1, item2);
+        return true;
+    }
+
+    /**
+     * Add a pair to the current slot, moving it there if it was already tracked in an older slot.
+     *
+     * @return true if the pair was not tracked before
+     */
+    boolean addOrReset(long item1, long item2) {
+        int slot = currentSlot;
+        long previousSlot = index.put(item1, item2, slot);
+        if (previousSlot != ValueNotFound && previousSlot != slot) {
+            slots[(int) previousSlot].remove(item1, item2);
+        }
+        slots[slot].add(item1, item2);
+        return previousSlot == ValueNotFound;
+    }
+
+    boolean contains(long item1, long item2) {
+        return index.containsKey(item1, item2);
+    }
+
+    boolean remove(long item1, long item2) {
+        long slot = index.remove(item1, item2);
+        if (slot == ValueNotFound) {
+            return false;
+        }
+        slots[(int) slot].remove(item1, item2);
+        return true;
+    }
+
+    /**
+     * Remove all the pairs that satisfy the given predicate.
+     *
+     * <p>The pairs are only dropped from the index, their slots are cleaned up lazily when they expire.
+     *
+     * @return number of removed pairs
+     */
+    int removeIf(LongPairPredicate filter) {
+        return index.removeIf((item1, item2, slot) -> filter.test(item1, item2));
+    }
+
+    long size() {
+        return index.size();
+    }
+
+    boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    void clear() {
+        index.clear();
+        for (ConcurrentLongPairSet slot : slots) {
+            slot.clear();
+        }
+    }
+
+    /**
+     * Expire the oldest slot and make it the current one.
+     *
+     * @param expiredPairConsumer
+     *            invoked for every pair that expired
+     * @return number of expired pairs
+     */
+    int advance(LongPairConsumer expiredPairConsumer) {
+        int expiringSlot = (currentSlot + 1) % slots.length;
+        int[] expired = new int[1];
+        slots[expiringSlot].removeIf((item1, item2) -> {
+            // Pairs that were removed, or moved to a newer slot, are no longer owned by the expiring slot
+            if (index.remove(item1, item2, expiringSlot)) {
+                expiredPairConsumer.accept(item1, item2);
+                expired[0]++;
+            }
+            return true;
+        });
+        currentSlot = expiringSlot;
+        return expired[0];
+    }
+}
@@ -59,6 +59,15 @@ public interface LookupService extends AutoCloseable {
      */
     CompletableFuture<Pair<InetSocketAddress, InetSocketAddress>> getBroker(TopicName topicName);
 
+    /**
+     * Forget the broker found by a previous lookup of the topic, because the topic may no longer be served there.
+     *
+     * @param topicName
+     *            topic-name
+     */
+    default void invalidateBroker(TopicName topicName) {
+    }
+
 	/**
 	 * Returns {@link PartitionedTopicMetadata} for a given topic.
 	 *
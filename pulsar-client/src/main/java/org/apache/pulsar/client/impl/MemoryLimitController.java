@@ -18,6 +18,7 @@
  */
 package org.apache.pulsar.client.impl;
 
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
@@ -28,9 +29,22 @@ public class MemoryLimitController {
     private final AtomicLong currentUsage = new AtomicLong();
     private final ReentrantLock mutex = new ReentrantLock(false);
     private final Condition condition = mutex.newCondition();
+    // number of consumers that currently have messages in their receiver queues
+    private final AtomicInteger consumersHoldingMemory = new AtomicInteger();
+    private final Runnable memoryAvailableListener;
 
     public MemoryLimitController(long memoryLimitBytes) {
+        this(memoryLimitBytes, null);
+    }
+
+    /**
+     * @param memoryAvailableListener
+     *            called when the usage goes back under the limit, to wake up the consumers that stopped asking for
+     *            messages
+     */
+    public MemoryLimitController(long memoryLimitBytes, Runnable memoryAvailableListener) {
         this.memoryLimit = memoryLimitBytes;
+        this.memoryAvailableListener = memoryAvailableListener;
     }
 
     public boolean tryReserveMemory(long size) {
@@ -61,6 +75,14 @@ public class MemoryLimitController {
         }
     }
 
+    /**
+     * Reserve memory for messages that have already been received by a consumer. They can't be refused, so this can
+     * take the usage over the limit, and the consumers stop asking for more messages until it goes back under it.
+     */
+    public void forceReserveMemory(long size) {
+        currentUsage.addAndGet(size);
+    }
+
     public void releaseMemory(long size) {
         long newUsage = currentUsage.addAndGet(-size);
         if (newUsage + size > memoryLimit &&
@@ -72,9 +94,45 @@ public class MemoryLimitController {
             } finally {
                 mutex.unlock();
             }
+            if (memoryAvailableListener != null && memoryLimit > 0) {
+                memoryAvailableListener.run();
+            }
         }
     }
 
+    void consumerStartedHoldingMemory() {
+        consumersHoldingMemory.incrementAndGet();
+    }
+
+    void consumerStoppedHoldingMemory() {
+        consumersHoldingMemory.decrementAndGet();
+    }
+
+    /**
+     * Whether a consumer that holds the given amount of memory in its receiver queue should stop asking the broker
+     * for more messages.
+     *
+     * <p>Past half of the limit, the consumers holding more than their share of the memory, split evenly among the
+     * consumers that hold some, are throttled first. Past the limit, all of them are. A consumer with an empty
+     * receiver queue is never throttled, otherwise it would wait forever on the memory held by the others.
+     */
+    public boolean isConsumerMemoryLimited(long consumerUsage) {
+        if (memoryLimit <= 0 || consumerUsage <= 0) {
+            return false;
+        }
+        long usage = currentUsage.get();
+        if (usage > memoryLimit) {
+            return true;
+        } else if (usage < memoryLimit / 2) {
+            return false;
+        }
+        return consumerUsage > memoryLimit / Math.max(1, consumersHoldingMemory.get());
+    }
+
+    public boolean isMemoryLimitEnabled() {
+        return memoryLimit > 0;
+    }
+
     public long currentUsage() {
         return currentUsage.get();
     }
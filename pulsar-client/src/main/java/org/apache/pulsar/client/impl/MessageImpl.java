@@ -54,7 +54,13 @@ import org.apache.pulsar.common.schema.SchemaType;
 public class MessageImpl<T> implements Message<T> {
 
     protected MessageId messageId;
-    private final MessageMetadata msgMetadata;
+    // Volatile since getMessageBuilder() may swap it for the merged copy while other threads read the message.
+    // The copy is published before singleMessageMetadata is cleared, so readers that see no single message
+    // metadata always see the merged fields.
+    private volatile MessageMetadata msgMetadata;
+    // Only set for messages that are part of a batch: msgMetadata is then shared by the whole batch and the
+    // per-message fields are read from here until getMessageBuilder() merges them into a private copy
+    private volatile SingleMessageMetadata singleMessageMetadata;
     private ClientCnx cnx;
     private ByteBuf payload;
     private Schema<T> schema;
@@ -125,27 +131,37 @@ public class MessageImpl<T> implements Message<T> {
         this(topic, batchMessageIdImpl, msgMetadata, singleMessageMetadata, payload, encryptionCtx, cnx, schema, 0);
     }
 
+    /**
+     * Constructor for a message that is part of a batch.
+     *
+     * <p>Nothing is copied or decoded here: the batch metadata is shared by all the messages of the batch, while key,
+     * properties and the other per-message fields are decoded from the single message metadata on first access. The
+     * caller must therefore hand over a single message metadata instance per message and must not modify the batch
+     * metadata or release the payload afterwards.
+     */
     MessageImpl(String topic, BatchMessageIdImpl batchMessageIdImpl, MessageMetadata batchMetadata,
                 SingleMessageMetadata singleMessageMetadata, ByteBuf payload,
                 Optional<EncryptionContext> encryptionCtx, ClientCnx cnx, Schema<T> schema, int redeliveryCount) {
-        this.msgMetadata = new MessageMetadata().copyFrom(batchMetadata);
+        this.msgMetadata = batchMetadata;
+        this.singleMessageMetadata = singleMessageMetadata;
         this.messageId = batchMessageIdImpl;
         this.topic = topic;
         this.cnx = cnx;
         this.redeliveryCount = redeliveryCount;
-
-        this.payload = Unpooled.copiedBuffer(payload);
+        this.payload = payload;
         this.encryptionCtx = encryptionCtx;
+        this.schema = schema;
+    }
 
-        if (singleMessageMetadata.getPropertiesCount() > 0) {
-            Map<String, String> properties = Maps.newTreeMap();
-            for (KeyValue entry : singleMessageMetadata.getPropertiesList()) {
-                properties.put(entry.getKey(), entry.getValue());
-            }
-            this.properties = Collections.unmodifiableMap(properties);
-        } else {
-            properties = Collections.emptyMap();
+    private synchronized void mergeSingleMessageMetadata() {
+        SingleMessageMetadata singleMessageMetadata = this.singleMessageMetadata;
+        if (singleMessageMetadata == null) {
+            return;
         }
+        // Properties are kept apart from the merged metadata
+        getProperties();
+
+        MessageMetadata msgMetadata = new MessageMetadata().copyFrom(this.msgMetadata);
         if (singleMessageMetadata.hasPartitionKey()) {
             msgMetadata.setPartitionKeyB64Encoded(singleMessageMetadata.isPartitionKeyB64Encoded())
                     .setPartitionKey(singleMessageMetadata.getPartitionKey());
@@ -176,7 +192,8 @@ public class MessageImpl<T> implements Message<T> {
             msgMetadata.setNullPartitionKey(singleMessageMetadata.isNullPartitionKey());
         }
 
-        this.schema = schema;
+        this.msgMetadata = msgMetadata;
+        this.singleMessageMetadata = null;
     }
 
     public MessageImpl(String topic, String msgId, Map<String, String> properties,
@@ -261,7 +278,7 @@ public class MessageImpl<T> implements Message<T> {
     }
 
     public void setReplicatedFrom(String cluster) {
-        msgMetadata.setReplicatedFrom(cluster);
+        getMessageBuilder().setReplicatedFrom(cluster);
     }
 
     @Override
@@ -285,6 +302,10 @@ public class MessageImpl<T> implements Message<T> {
 
     @Override
     public long getEventTime() {
+        SingleMessageMetadata singleMessageMetadata = this.singleMessageMetadata;
+        if (singleMessageMetadata != null && singleMessageMetadata.hasEventTime()) {
+            return singleMessageMetadata.getEventTime();
+        }
         if (msgMetadata.hasEventTime()) {
             return msgMetadata.getEventTime();
         }
@@ -306,19 +327,28 @@ public class MessageImpl<T> implements Message<T> {
 
     @Override
     public byte[] getData() {
-        if (msgMetadata.isNullValue()) {
+        if (isNullValue()) {
             return null;
         }
         if (payload.arrayOffset() == 0 && payload.capacity() == payload.array().length) {
             return payload.array();
         } else {
-            // Need to copy into a smaller byte array
+            // Need to copy into a smaller byte array. Don't move the reader index, the data of a batched message
+            // is a slice of the batch buffer and can be read more than once
             byte[] data = new byte[payload.readableBytes()];
-            payload.readBytes(data);
+            payload.getBytes(payload.readerIndex(), data);
             return data;
         }
     }
 
+    private boolean isNullValue() {
+        SingleMessageMetadata singleMessageMetadata = this.singleMessageMetadata;
+        if (singleMessageMetadata != null && singleMessageMetadata.hasNullValue()) {
+            return singleMessageMetadata.isNullValue();
+        }
+        return msgMetadata.isNullValue();
+    }
+
     public Schema<T> getSchema() {
         return this.schema;
     }
@@ -341,7 +371,7 @@ public class MessageImpl<T> implements Message<T> {
                 return getKeyValue();
             }
         } else {
-            if (msgMetadata.isNullValue()) {
+            if (isNullValue()) {
                 return null;
             }
             // check if the schema passed in from client supports schema versioning or not
@@ -380,6 +410,10 @@ public class MessageImpl<T> implements Message<T> {
 
     @Override
     public long getSequenceId() {
+        SingleMessageMetadata singleMessageMetadata = this.singleMessageMetadata;
+        if (singleMessageMetadata != null && singleMessageMetadata.hasSequenceId()) {
+            return singleMessageMetadata.getSequenceId();
+        }
         if (msgMetadata.hasSequenceId()) {
             return msgMetadata.getSequenceId();
         }
@@ -398,6 +432,21 @@ public class MessageImpl<T> implements Message<T> {
         return payload;
     }
 
+    /**
+     * Get the size of the payload of a message, without copying it like {@code getData().length} does.
+     */
+    static int getPayloadSize(Message<?> message) {
+        if (message instanceof TopicMessageImpl) {
+            message = ((TopicMessageImpl<?>) message).getMessage();
+        }
+        if (message instanceof MessageImpl) {
+            ByteBuf payload = ((MessageImpl<?>) message).getDataBuffer();
+            return payload == null ? 0 : payload.readableBytes();
+        }
+        byte[] data = message.getData();
+        return data == null ? 0 : data.length;
+    }
+
     @Override
     public MessageId getMessageId() {
         checkNotNull(messageId, "Cannot get the message id of a message that was not received");
@@ -407,7 +456,18 @@ public class MessageImpl<T> implements Message<T> {
     @Override
     public synchronized Map<String, String> getProperties() {
         if (this.properties == null) {
-            if (msgMetadata.getPropertiesCount() > 0) {
+            SingleMessageMetadata singleMessageMetadata = this.singleMessageMetadata;
+            if (singleMessageMetadata != null) {
+                if (singleMessageMetadata.getPropertiesCount() > 0) {
+                    Map<String, String> properties = Maps.newTreeMap();
+                    for (KeyValue entry : singleMessageMetadata.getPropertiesList()) {
+                        properties.put(entry.getKey(), entry.getValue());
+                    }
+                    this.properties = Collections.unmodifiableMap(properties);
+                } else {
+                    this.properties = Collections.emptyMap();
+                }
+            } else if (msgMetadata.getPropertiesCount() > 0) {
                   this.properties = Collections.unmodifiableMap(msgMetadata.getPropertiesList().stream()
                            .collect(Collectors.toMap(KeyValue::getKey, KeyValue::getValue,
                                    (oldValue,newValue) -> newValue)));
@@ -430,11 +490,18 @@ public class MessageImpl<T> implements Message<T> {
     }
 
     public MessageMetadata getMessageBuilder() {
+        if (singleMessageMetadata != null) {
+            mergeSingleMessageMetadata();
+        }
         return msgMetadata;
     }
 
     @Override
     public boolean hasKey() {
+        SingleMessageMetadata singleMessageMetadata = this.singleMessageMetadata;
+        if (singleMessageMetadata != null) {
+            return singleMessageMetadata.hasPartitionKey();
+        }
         return msgMetadata.hasPartitionKey();
     }
 
@@ -445,6 +512,10 @@ public class MessageImpl<T> implements Message<T> {
 
     @Override
     public String getKey() {
+        SingleMessageMetadata singleMessageMetadata = this.singleMessageMetadata;
+        if (singleMessageMetadata != null) {
+            return singleMessageMetadata.hasPartitionKey() ? singleMessageMetadata.getPartitionKey() : null;
+        }
         if (msgMetadata.hasPartitionKey()) {
             return msgMetadata.getPartitionKey();
         } else {
@@ -454,12 +525,24 @@ public class MessageImpl<T> implements Message<T> {
 
     @Override
     public boolean hasBase64EncodedKey() {
+        SingleMessageMetadata singleMessageMetadata = this.singleMessageMetadata;
+        if (singleMessageMetadata != null) {
+            return singleMessageMetadata.hasPartitionKey() && singleMessageMetadata.isPartitionKeyB64Encoded();
+        }
         return msgMetadata.isPartitionKeyB64Encoded();
     }
 
+    private boolean isNullPartitionKey() {
+        SingleMessageMetadata singleMessageMetadata = this.singleMessageMetadata;
+        if (singleMessageMetadata != null && singleMessageMetadata.hasNullPartitionKey()) {
+            return singleMessageMetadata.isNullPartitionKey();
+        }
+        return msgMetadata.isNullPartitionKey();
+    }
+
     @Override
     public byte[] getKeyBytes() {
-        if (!msgMetadata.hasPartitionKey() || msgMetadata.isNullPartitionKey()) {
+        if (!hasKey() || isNullPartitionKey()) {
             return null;
         } else if (hasBase64EncodedKey()) {
             return Base64.getDecoder().decode(getKey());
@@ -470,11 +553,19 @@ public class MessageImpl<T> implements Message<T> {
 
     @Override
     public boolean hasOrderingKey() {
+        SingleMessageMetadata singleMessageMetadata = this.singleMessageMetadata;
+        if (singleMessageMetadata != null) {
+            return singleMessageMetadata.hasOrderingKey();
+        }
         return msgMetadata.hasOrderingKey();
     }
 
     @Override
     public byte[] getOrderingKey() {
+        SingleMessageMetadata singleMessageMetadata = this.singleMessageMetadata;
+        if (singleMessageMetadata != null) {
+            return singleMessageMetadata.hasOrderingKey() ? singleMessageMetadata.getOrderingKey() : null;
+        }
         if (msgMetadata.hasOrderingKey()) {
             return msgMetadata.getOrderingKey();
         } else {
@@ -496,6 +587,7 @@ public class MessageImpl<T> implements Message<T> {
 
     public void recycle() {
         msgMetadata.clear();
+        singleMessageMetadata = null;
         messageId = null;
         topic = null;
         payload = null;
@@ -82,8 +82,8 @@ public class MultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
     // Map <topic, numPartitions>, store partition number for each topic
     protected final ConcurrentHashMap<String, Integer> topics;
 
-    // Queue of partition consumers on which we have stopped calling receiveAsync() because the
-    // shared incoming queue was full
+    // Queue of partition consumers which queue their messages instead of handing them to the
+    // shared incoming queue, because it was full
     private final ConcurrentLinkedQueue<ConsumerImpl<T>> pausedConsumers;
 
     // Threshold for the shared queue. When the size of the shared queue goes below the threshold, we are going to
@@ -144,6 +144,7 @@ public class MultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
         this.pausedConsumers = new ConcurrentLinkedQueue<>();
         this.sharedQueueResumeThreshold = maxReceiverQueueSize / 2;
         this.allTopicPartitionsNumber = new AtomicInteger(0);
+        this.paused = conf.isStartPaused();
         this.startMessageId = startMessageId != null ? new BatchMessageIdImpl(MessageIdImpl.convertToMessageIdImpl(startMessageId)) : null;
         this.startMessageRollbackDurationInSec = startMessageRollbackDurationInSec;
 
@@ -229,33 +230,37 @@ public class MultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
         }
         if (getState() == State.Ready) {
             newConsumers.forEach(consumer -> {
-                consumer.increaseAvailablePermits(consumer.getConnectionHandler().cnx(), conf.getReceiverQueueSize());
-                receiveMessageFromConsumer(consumer);
+                // The sub consumers hand their messages straight to the shared queue, they only queue them while
+                // they are paused
+                consumer.setParentMessageHandler(message -> receiveMessageFromConsumer(consumer, message));
+                consumer.increaseAvailablePermits(consumer.getConnectionHandler().cnx(),
+                        consumer.getCurrentReceiverQueueSize());
+                consumer.handQueuedMessagesToParent();
             });
         }
     }
 
-    private void receiveMessageFromConsumer(ConsumerImpl<T> consumer) {
-        consumer.receiveAsync().thenAccept(message -> {
-            if (log.isDebugEnabled()) {
-                log.debug("[{}] [{}] Receive message from sub consumer:{}",
-                    topic, subscription, consumer.getTopic());
-            }
-            // Process the message, add to the queue and trigger listener or async callback
-            messageReceived(consumer, message);
-
-            int size = incomingMessages.size();
-            if (size >= maxReceiverQueueSize
-                    || (size > sharedQueueResumeThreshold && !pausedConsumers.isEmpty())) {
-                // mark this consumer to be resumed later: if No more space left in shared queue,
-                // or if any consumer is already paused (to create fair chance for already paused consumers)
-                pausedConsumers.add(consumer);
-            } else {
-                // Schedule next receiveAsync() if the incoming queue is not full. Use a different thread to avoid
-                // recursion and stack overflow
-                client.getInternalExecutorService().execute(() -> receiveMessageFromConsumer(consumer));
-            }
-        });
+    private boolean receiveMessageFromConsumer(ConsumerImpl<T> consumer, Message<T> message) {
+        int size = incomingMessages.size();
+        if (size >= maxReceiverQueueSize
+                || (size > sharedQueueResumeThreshold && !pausedConsumers.isEmpty())
+                || isSharedQueueMemoryLimited()) {
+            // mark this consumer to be resumed later: if No more space left in shared queue,
+            // or if any consumer is already paused (to create fair chance for already paused consumers),
+            // or if the shared queue holds too much of the client memory
+            pausedConsumers.add(consumer);
+            // the application may have drained the shared queue meanwhile, and it would then wait forever
+            resumeReceivingFromPausedConsumersIfNeeded();
+            return false;
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] [{}] Receive message from sub consumer:{}",
+                topic, subscription, consumer.getTopic());
+        }
+        // Process the message, add to the queue and trigger listener or async callback
+        messageReceived(consumer, consumer.beforeConsume(message));
+        return true;
     }
 
     private void messageReceived(ConsumerImpl<T> consumer, Message<T> message) {
@@ -272,6 +277,7 @@ public class MultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
         CompletableFuture<Message<T>> receivedFuture = pollPendingReceive();
         if (receivedFuture != null) {
             unAckedMessageTracker.add(topicMessage.getMessageId());
+            messageConsumed(topicMessage);
             completePendingReceive(receivedFuture, topicMessage);
         } else if (enqueueMessageAndCheckBatchReceive(topicMessage) && hasPendingBatchReceive()) {
             notifyPendingBatchReceivedCallBack();
@@ -313,19 +319,39 @@ public class MultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
     protected synchronized void messageProcessed(Message<?> msg) {
         unAckedMessageTracker.add(msg.getMessageId());
         decreaseIncomingMessageSize(msg);
+        messageConsumed(msg);
+    }
+
+    /**
+     * Let the sub consumer of a message taken by the application size its receiver queue from the rate at which the
+     * application consumes its messages, rather than from the rate at which they reach the shared queue.
+     */
+    private void messageConsumed(Message<?> msg) {
+        ConsumerImpl<T> consumer = consumers.get(((TopicMessageImpl<?>) msg).getTopicPartitionName());
+        if (consumer != null) {
+            consumer.messageConsumedThroughParent();
+        }
+    }
+
+    /**
+     * Moving a message from a sub consumer to the shared queue doesn't take more memory, but the sub consumers only
+     * get their permits back once their messages are in the shared queue. An empty shared queue always takes them, so
+     * that the application can make progress and release memory.
+     */
+    private boolean isSharedQueueMemoryLimited() {
+        return getIncomingMessageSize() > 0 && isMemoryLimited();
     }
 
     private void resumeReceivingFromPausedConsumersIfNeeded() {
-        if (incomingMessages.size() <= sharedQueueResumeThreshold && !pausedConsumers.isEmpty()) {
+        if (incomingMessages.size() <= sharedQueueResumeThreshold && !pausedConsumers.isEmpty()
+                && !isSharedQueueMemoryLimited()) {
             while (true) {
                 ConsumerImpl<T> consumer = pausedConsumers.poll();
                 if (consumer == null) {
                     break;
                 }
 
-                client.getInternalExecutorService().execute(() -> {
-                    receiveMessageFromConsumer(consumer);
-                });
+                client.getInternalExecutorService().execute(consumer::handQueuedMessagesToParent);
             }
         }
     }
@@ -338,6 +364,7 @@ public class MultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
             decreaseIncomingMessageSize(message);
             checkState(message instanceof TopicMessageImpl);
             unAckedMessageTracker.add(message.getMessageId());
+            messageConsumed(message);
             resumeReceivingFromPausedConsumersIfNeeded();
             return message;
         } catch (Exception e) {
@@ -354,6 +381,7 @@ public class MultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
                 decreaseIncomingMessageSize(message);
                 checkArgument(message instanceof TopicMessageImpl);
                 unAckedMessageTracker.add(message.getMessageId());
+                messageConsumed(message);
             }
             resumeReceivingFromPausedConsumersIfNeeded();
             return message;
@@ -393,6 +421,7 @@ public class MultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
                     Message<T> msg = incomingMessages.poll();
                     if (msg != null) {
                         decreaseIncomingMessageSize(msg);
+                        messageConsumed(msg);
                         Message<T> interceptMsg = beforeConsume(msg);
                         messages.add(interceptMsg);
                     }
@@ -423,6 +452,7 @@ public class MultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
             decreaseIncomingMessageSize(message);
             checkState(message instanceof TopicMessageImpl);
             unAckedMessageTracker.add(message.getMessageId());
+            messageConsumed(message);
             resumeReceivingFromPausedConsumersIfNeeded();
             result.complete(message);
         }
@@ -576,6 +606,7 @@ public class MultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
                 if (ex == null) {
                     setState(State.Closed);
                     unAckedMessageTracker.close();
+                    clearIncomingMessages();
                     closeFuture.complete(null);
                     log.info("[{}] [{}] Closed Topics Consumer", topic, subscription);
                     client.cleanupConsumer(this);
@@ -625,8 +656,7 @@ public class MultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
                 consumer.redeliverUnacknowledgedMessages();
                 consumer.unAckedChunkedMessageIdSequenceMap.clear();
             });
-            incomingMessages.clear();
-            resetIncomingMessageSize();
+            clearIncomingMessages();
             unAckedMessageTracker.clear();
         } finally {
             lock.writeLock().unlock();
@@ -694,8 +724,7 @@ public class MultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
         consumers.values().forEach(consumerImpl -> futures.add(consumerImpl.seekAsync(targetMessageId)));
 
         unAckedMessageTracker.clear();
-        incomingMessages.clear();
-        resetIncomingMessageSize();
+        clearIncomingMessages();
 
         FutureUtil.waitForAll(futures).whenComplete((result, exception) -> {
             if (exception != null) {
@@ -1172,6 +1201,12 @@ public class MultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
         return consumers.values().stream().collect(Collectors.toList());
     }
 
+    @Override
+    protected void onMemoryAvailable() {
+        consumers.values().forEach(ConsumerImpl::onMemoryAvailable);
+        resumeReceivingFromPausedConsumersIfNeeded();
+    }
+
     @Override
     public void pause() {
         synchronized (pauseMutex) {
@@ -21,7 +21,6 @@ package org.apache.pulsar.client.impl;
 import io.netty.util.Timeout;
 import io.netty.util.Timer;
 
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -32,11 +31,11 @@ import static org.apache.pulsar.client.impl.UnAckedMessageTracker.addChunkedMess
 
 class NegativeAcksTracker {
 
-    private HashMap<MessageId, Long> nackedMessages = null;
+    // Nacked (ledgerId, entryId) pairs, bucketed by the timer tick in which they were nacked
+    private LongPairTimingWheel nackedMessages = null;
 
-    private final ConsumerBase<?> consumer;
+    private final ConsumerImpl<?> consumer;
     private final Timer timer;
-    private final long nackDelayNanos;
     private final long timerIntervalNanos;
 
     private Timeout timeout;
@@ -44,12 +43,15 @@ class NegativeAcksTracker {
     // Set a min delay to allow for grouping nacks within a single batch
     private static final long MIN_NACK_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
 
-    public NegativeAcksTracker(ConsumerBase<?> consumer, ConsumerConfigurationData<?> conf) {
+    // A nacked message is redelivered on the first tick after the nack delay has elapsed
+    private static final int TICKS_PER_NACK_DELAY = 3;
+
+    public NegativeAcksTracker(ConsumerImpl<?> consumer, ConsumerConfigurationData<?> conf) {
         this.consumer = consumer;
         this.timer = consumer.getClient().timer();
-        this.nackDelayNanos = Math.max(TimeUnit.MICROSECONDS.toNanos(conf.getNegativeAckRedeliveryDelayMicros()),
+        long nackDelayNanos = Math.max(TimeUnit.MICROSECONDS.toNanos(conf.getNegativeAckRedeliveryDelayMicros()),
                 MIN_NACK_DELAY_NANOS);
-        this.timerIntervalNanos = nackDelayNanos / 3;
+        this.timerIntervalNanos = nackDelayNanos / TICKS_PER_NACK_DELAY;
     }
 
     private synchronized void triggerRedelivery(Timeout t) {
@@ -60,32 +62,31 @@ class NegativeAcksTracker {
 
         // Group all the nacked messages into one single re-delivery request
         Set<MessageId> messagesToRedeliver = new HashSet<>();
-        long now = System.nanoTime();
-        nackedMessages.forEach((msgId, timestamp) -> {
-            if (timestamp < now) {
-                addChunkedMessageIdsAndRemoveFromSequnceMap(msgId, messagesToRedeliver, this.consumer);
-                messagesToRedeliver.add(msgId);
-            }
+        nackedMessages.advance((ledgerId, entryId) -> {
+            MessageIdImpl msgId = new MessageIdImpl(ledgerId, entryId, consumer.getPartitionIndex());
+            addChunkedMessageIdsAndRemoveFromSequnceMap(msgId, messagesToRedeliver, this.consumer);
+            messagesToRedeliver.add(msgId);
         });
 
-        messagesToRedeliver.forEach(nackedMessages::remove);
-        consumer.onNegativeAcksSend(messagesToRedeliver);
-        consumer.redeliverUnacknowledgedMessages(messagesToRedeliver);
+        if (!messagesToRedeliver.isEmpty()) {
+            consumer.onNegativeAcksSend(messagesToRedeliver);
+            consumer.redeliverUnacknowledgedMessages(messagesToRedeliver);
+        }
 
         this.timeout = timer.newTimeout(this::triggerRedelivery, timerIntervalNanos, TimeUnit.NANOSECONDS);
     }
 
     public synchronized void add(MessageId messageId) {
-        if (messageId instanceof BatchMessageIdImpl) {
-            BatchMessageIdImpl batchMessageId = (BatchMessageIdImpl) messageId;
-            messageId = new MessageIdImpl(batchMessageId.getLedgerId(), batchMessageId.getEntryId(),
-                    batchMessageId.getPartitionIndex());
+        MessageIdImpl msgId = MessageIdImpl.convertToMessageIdImpl(messageId);
+        if (msgId == null) {
+            return;
         }
 
         if (nackedMessages == null) {
-            nackedMessages = new HashMap<>();
+            nackedMessages = new LongPairTimingWheel(TICKS_PER_NACK_DELAY + 1);
         }
-        nackedMessages.put(messageId, System.nanoTime() + nackDelayNanos);
+        // Batches are redelivered as a whole entry, and a repeated nack restarts the delay
+        nackedMessages.addOrReset(msgId.getLedgerId(), msgId.getEntryId());
 
         if (this.timeout == null) {
             // Schedule a task and group all the redeliveries for same period. Leave a small buffer to allow for
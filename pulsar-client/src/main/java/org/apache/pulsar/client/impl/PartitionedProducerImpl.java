@@ -99,6 +99,13 @@ public class PartitionedProducerImpl<T> extends ProducerBase<T> {
                 messageRouter = new SinglePartitionMessageRouterImpl(
                         ThreadLocalRandom.current().nextInt(topicMetadata.numPartitions()), conf.getHashingScheme());
                 break;
+            case LoadAwarePartition:
+                messageRouter = new LoadAwarePartitionMessageRouterImpl(
+                        conf.getHashingScheme(),
+                        partition -> producers.get(partition).getExpectedSendLatencyNanos(),
+                        conf.isBatchingEnabled(),
+                        TimeUnit.MICROSECONDS.toMillis(conf.batchingPartitionSwitchFrequencyIntervalMicros()));
+                break;
             case RoundRobinPartition:
             default:
                 messageRouter = new RoundRobinPartitionMessageRouterImpl(
@@ -25,19 +25,18 @@ import com.google.common.collect.Lists;
 import io.netty.util.Timeout;
 import io.netty.util.TimerTask;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 import org.apache.pulsar.client.api.Consumer;
 import org.apache.pulsar.client.api.Schema;
 import org.apache.pulsar.client.impl.conf.ConsumerConfigurationData;
 import org.apache.pulsar.common.api.proto.CommandGetTopicsOfNamespace.Mode;
 import org.apache.pulsar.common.naming.NamespaceName;
 import org.apache.pulsar.common.naming.TopicName;
+import org.apache.pulsar.common.topics.TopicList;
 import org.apache.pulsar.common.util.FutureUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,6 +47,12 @@ public class PatternMultiTopicsConsumerImpl<T> extends MultiTopicsConsumerImpl<T
     private final Mode subscriptionMode;
     protected NamespaceName namespaceName;
     private volatile Timeout recheckPatternTimeout = null;
+    // Only the persistent topics can be watched, the others are polled
+    private final TopicListWatcher topicListWatcher;
+    private static final int TOPIC_LIST_RESYNC_PERIODS = 10;
+    private int periodsSinceLastPoll = 0;
+    // The changes of the topic list are applied one after the other
+    private CompletableFuture<Void> lastSubscriptionsUpdate = CompletableFuture.completedFuture(null);
 
     public PatternMultiTopicsConsumerImpl(Pattern topicsPattern,
                                           PulsarClientImpl client,
@@ -66,6 +71,18 @@ public class PatternMultiTopicsConsumerImpl<T> extends MultiTopicsConsumerImpl<T
         checkArgument(getNameSpaceFromPattern(topicsPattern).toString().equals(this.namespaceName.toString()));
 
         this.topicsChangeListener = new PatternTopicsChangedListener();
+        if (subscriptionMode == Mode.PERSISTENT) {
+            this.topicListWatcher = new TopicListWatcher(client, namespaceName, topicsPattern, conf.getTopicNames(),
+                    this::updateSubscriptions);
+            // Only apply the pushed changes once the topics known at creation time are subscribed
+            subscribeFuture.thenRun(() -> {
+                if (getState() == State.Ready) {
+                    topicListWatcher.start();
+                }
+            });
+        } else {
+            this.topicListWatcher = null;
+        }
         this.recheckPatternTimeout = client.timer().newTimeout(this, Math.max(1, conf.getPatternAutoDiscoveryPeriod()), TimeUnit.SECONDS);
     }
 
@@ -80,33 +97,47 @@ public class PatternMultiTopicsConsumerImpl<T> extends MultiTopicsConsumerImpl<T
             return;
         }
 
-        CompletableFuture<Void> recheckFuture = new CompletableFuture<>();
-        List<CompletableFuture<Void>> futures = Lists.newArrayListWithExpectedSize(2);
-
-        client.getLookup().getTopicsUnderNamespace(namespaceName, subscriptionMode).thenAccept(topics -> {
-            if (log.isDebugEnabled()) {
-                log.debug("Get topics under namespace {}, topics.size: {}", namespaceName.toString(), topics.size());
-                topics.forEach(topicName ->
-                    log.debug("Get topics under namespace {}, topic: {}", namespaceName.toString(), topicName));
-            }
+        // The watcher pushes the changes. While it is in sync with the broker, the whole list is only fetched every
+        // TOPIC_LIST_RESYNC_PERIODS periods to catch up with the changes the broker may have missed.
+        boolean watcherInSync = topicListWatcher != null && topicListWatcher.isInSync();
+        if (!watcherInSync || ++periodsSinceLastPoll >= TOPIC_LIST_RESYNC_PERIODS) {
+            periodsSinceLastPoll = 0;
+            client.getLookup().getTopicsUnderNamespace(namespaceName, subscriptionMode).thenAccept(topics -> {
+                if (log.isDebugEnabled()) {
+                    log.debug("Get topics under namespace {}, topics.size: {}", namespaceName.toString(),
+                            topics.size());
+                    topics.forEach(topicName ->
+                        log.debug("Get topics under namespace {}, topic: {}", namespaceName.toString(), topicName));
+                }
+
+                List<String> newTopics = PulsarClientImpl.topicsPatternFilter(topics, topicsPattern);
+                if (topicListWatcher != null && topicListWatcher.resetTopics(newTopics) && watcherInSync) {
+                    log.warn("[{}] The topic list watcher missed changes of the topics matching {}", topic,
+                            topicsPattern);
+                }
+                updateSubscriptions(newTopics);
+            });
+        }
 
-            List<String> newTopics = PulsarClientImpl.topicsPatternFilter(topics, topicsPattern);
-            List<String> oldTopics = PatternMultiTopicsConsumerImpl.this.getTopics();
+        // schedule the next re-check task
+        this.recheckPatternTimeout = client.timer().newTimeout(PatternMultiTopicsConsumerImpl.this,
+                Math.max(1, conf.getPatternAutoDiscoveryPeriod()), TimeUnit.SECONDS);
+    }
 
+    // subscribe to the new matching topics and unsubscribe from the ones that don't exist anymore
+    private synchronized CompletableFuture<Void> updateSubscriptions(List<String> newTopics) {
+        lastSubscriptionsUpdate = lastSubscriptionsUpdate.thenCompose(__ -> {
+            List<String> oldTopics = getTopics();
+            List<CompletableFuture<Void>> futures = Lists.newArrayListWithExpectedSize(2);
             futures.add(topicsChangeListener.onTopicsAdded(topicsListsMinus(newTopics, oldTopics)));
             futures.add(topicsChangeListener.onTopicsRemoved(topicsListsMinus(oldTopics, newTopics)));
-            FutureUtil.waitForAll(futures)
-                .thenAccept(finalFuture -> recheckFuture.complete(null))
+            return FutureUtil.waitForAll(futures)
                 .exceptionally(ex -> {
                     log.warn("[{}] Failed to recheck topics change: {}", topic, ex.getMessage());
-                    recheckFuture.completeExceptionally(ex);
                     return null;
                 });
         });
-
-        // schedule the next re-check task
-        this.recheckPatternTimeout = client.timer().newTimeout(PatternMultiTopicsConsumerImpl.this,
-                Math.max(1, conf.getPatternAutoDiscoveryPeriod()), TimeUnit.SECONDS);
+        return lastSubscriptionsUpdate;
     }
 
     public Pattern getPattern() {
@@ -166,9 +197,7 @@ public class PatternMultiTopicsConsumerImpl<T> extends MultiTopicsConsumerImpl<T
 
     // get topics, which are contained in list1, and not in list2
     public static List<String> topicsListsMinus(List<String> list1, List<String> list2) {
-        HashSet<String> s1 = new HashSet<>(list1);
-        s1.removeAll(list2);
-        return s1.stream().collect(Collectors.toList());
+        return TopicList.minus(list1, list2);
     }
 
     @Override
@@ -178,6 +207,9 @@ public class PatternMultiTopicsConsumerImpl<T> extends MultiTopicsConsumerImpl<T
             timeout.cancel();
             recheckPatternTimeout = null;
         }
+        if (topicListWatcher != null) {
+            topicListWatcher.closeAsync();
+        }
         return super.closeAsync();
     }
 
@@ -186,5 +218,10 @@ public class PatternMultiTopicsConsumerImpl<T> extends MultiTopicsConsumerImpl<T
         return recheckPatternTimeout;
     }
 
+    @VisibleForTesting
+    TopicListWatcher getTopicListWatcher() {
+        return topicListWatcher;
+    }
+
     private static final Logger log = LoggerFactory.getLogger(PatternMultiTopicsConsumerImpl.class);
 }
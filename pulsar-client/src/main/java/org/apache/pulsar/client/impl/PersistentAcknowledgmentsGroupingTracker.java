@@ -29,7 +29,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
@@ -48,6 +47,9 @@ import org.apache.pulsar.common.protocol.Commands;
 import org.apache.pulsar.common.util.FutureUtil;
 import org.apache.pulsar.common.util.collections.BitSetRecyclable;
 import org.apache.pulsar.common.util.collections.ConcurrentBitSetRecyclable;
+import org.apache.pulsar.common.util.collections.ConcurrentOpenLongPairRangeSet;
+import org.apache.pulsar.common.util.collections.LongPairRangeSet;
+import org.apache.pulsar.common.util.collections.LongPairRangeSet.LongPair;
 
 /**
  * Group the acknowledgements for a certain time and then sends them out in a single protobuf command.
@@ -80,9 +82,11 @@ public class PersistentAcknowledgmentsGroupingTracker implements Acknowledgments
 
     /**
      * This is a set of all the individual acks that the application has issued and that were not already sent to
-     * broker.
+     * broker. The acks are grouped by ledger into ranges of contiguous entries, and the set is swapped out when
+     * flushing. Guarded by this tracker's monitor.
      */
-    private final ConcurrentSkipListSet<MessageIdImpl> pendingIndividualAcks;
+    private LongPairRangeSet<LongPair> pendingIndividualAcks;
+    private volatile int pendingIndividualAcksCount = 0;
     private final ConcurrentHashMap<MessageIdImpl, ConcurrentBitSetRecyclable> pendingIndividualBatchIndexAcks;
 
     private final ScheduledFuture<?> scheduledTask;
@@ -92,7 +96,7 @@ public class PersistentAcknowledgmentsGroupingTracker implements Acknowledgments
     public PersistentAcknowledgmentsGroupingTracker(ConsumerImpl<?> consumer, ConsumerConfigurationData<?> conf,
                                                     EventLoopGroup eventLoopGroup) {
         this.consumer = consumer;
-        this.pendingIndividualAcks = new ConcurrentSkipListSet<>();
+        this.pendingIndividualAcks = newPendingIndividualAcks();
         this.pendingIndividualBatchIndexAcks = new ConcurrentHashMap<>();
         this.acknowledgementGroupTimeMicros = conf.getAcknowledgementsGroupTimeMicros();
         this.batchIndexAckEnabled = conf.isBatchIndexAckEnabled();
@@ -117,11 +121,20 @@ public class PersistentAcknowledgmentsGroupingTracker implements Acknowledgments
         if (messageId.compareTo(lastCumulativeAck.messageId) <= 0) {
             // Already included in a cumulative ack
             return true;
+        } else if (messageId instanceof MessageIdImpl) {
+            MessageIdImpl msgId = (MessageIdImpl) messageId;
+            synchronized (this) {
+                return pendingIndividualAcks.contains(msgId.getLedgerId(), msgId.getEntryId());
+            }
         } else {
-            return pendingIndividualAcks.contains(messageId);
+            return false;
         }
     }
 
+    private static LongPairRangeSet<LongPair> newPendingIndividualAcks() {
+        return new ConcurrentOpenLongPairRangeSet<>(64, false, LongPair::new);
+    }
+
     @Override
     public CompletableFuture<Void> addListAcknowledgment(List<MessageId> messageIds,
                                                          AckType ackType, Map<String, Long> properties) {
@@ -146,13 +159,13 @@ public class PersistentAcknowledgmentsGroupingTracker implements Acknowledgments
                     return this.currentIndividualAckFuture;
                 } finally {
                     this.lock.readLock().unlock();
-                    if (acknowledgementGroupTimeMicros == 0 || pendingIndividualAcks.size() >= MAX_ACK_GROUP_SIZE) {
+                    if (acknowledgementGroupTimeMicros == 0 || pendingIndividualAcksCount >= MAX_ACK_GROUP_SIZE) {
                         flush();
                     }
                 }
             } else {
                 addListAcknowledgment(messageIds);
-                if (acknowledgementGroupTimeMicros == 0 || pendingIndividualAcks.size() >= MAX_ACK_GROUP_SIZE) {
+                if (acknowledgementGroupTimeMicros == 0 || pendingIndividualAcksCount >= MAX_ACK_GROUP_SIZE) {
                     flush();
                 }
                 return CompletableFuture.completedFuture(null);
@@ -263,13 +276,13 @@ public class PersistentAcknowledgmentsGroupingTracker implements Acknowledgments
                     return this.currentIndividualAckFuture;
                 } finally {
                     this.lock.readLock().unlock();
-                    if (pendingIndividualAcks.size() >= MAX_ACK_GROUP_SIZE) {
+                    if (pendingIndividualAcksCount >= MAX_ACK_GROUP_SIZE) {
                         flush();
                     }
                 }
             } else {
                 doIndividualAckAsync(messageId);
-                if (pendingIndividualAcks.size() >= MAX_ACK_GROUP_SIZE) {
+                if (pendingIndividualAcksCount >= MAX_ACK_GROUP_SIZE) {
                     flush();
                 }
                 return CompletableFuture.completedFuture(null);
@@ -279,10 +292,32 @@ public class PersistentAcknowledgmentsGroupingTracker implements Acknowledgments
 
 
     private void doIndividualAckAsync(MessageIdImpl messageId) {
-        pendingIndividualAcks.add(messageId);
+        // if messageId is checked then all the chunked related to that msg also processed so, ack all of them
+        MessageIdImpl[] chunkMsgIds = this.consumer.unAckedChunkedMessageIdSequenceMap.get(messageId);
+        synchronized (this) {
+            if (chunkMsgIds != null && chunkMsgIds.length > 1) {
+                for (MessageIdImpl cMsgId : chunkMsgIds) {
+                    if (cMsgId != null) {
+                        addPendingIndividualAck(cMsgId);
+                    }
+                }
+            } else {
+                addPendingIndividualAck(messageId);
+            }
+        }
+        if (chunkMsgIds != null && chunkMsgIds.length > 1) {
+            // messages will be acked so, remove checked message sequence
+            this.consumer.unAckedChunkedMessageIdSequenceMap.remove(messageId);
+        }
         pendingIndividualBatchIndexAcks.remove(messageId);
     }
 
+    private void addPendingIndividualAck(MessageIdImpl messageId) {
+        pendingIndividualAcks.addOpenClosed(messageId.getLedgerId(), messageId.getEntryId() - 1,
+                messageId.getLedgerId(), messageId.getEntryId());
+        pendingIndividualAcksCount++;
+    }
+
     private CompletableFuture<Void> doIndividualBatchAck(BatchMessageIdImpl batchMessageId,
                                                          Map<String, Long> properties) {
         if (acknowledgementGroupTimeMicros == 0 || (properties != null && !properties.isEmpty())) {
@@ -434,7 +469,7 @@ public class PersistentAcknowledgmentsGroupingTracker implements Acknowledgments
         }
 
         CompletableFuture<Void> completableFuture = newMessageAckCommandAndWrite(cnx, consumer.consumerId,
-                msgId.ledgerId, msgId.entryId, bitSet, ackType, null, properties, true, null, null);
+                msgId.ledgerId, msgId.entryId, bitSet, ackType, null, properties, true, null, null, null);
         bitSet.recycle();
         return completableFuture;
     }
@@ -471,49 +506,50 @@ public class PersistentAcknowledgmentsGroupingTracker implements Acknowledgments
             newMessageAckCommandAndWrite(cnx, consumer.consumerId, lastCumulativeAck.messageId.ledgerId,
                     lastCumulativeAck.messageId.getEntryId(), lastCumulativeAck.bitSetRecyclable,
                     AckType.Cumulative, null, Collections.emptyMap(), false,
-                    this.currentCumulativeAckFuture, null);
+                    this.currentCumulativeAckFuture, null, null);
             this.consumer.unAckedChunkedMessageIdSequenceMap.remove(lastCumulativeAck.messageId);
             shouldFlush = true;
             cumulativeAckFlushRequired = false;
         }
 
         // Flush all individual acks
-        List<Triple<Long, Long, ConcurrentBitSetRecyclable>> entriesToAck = new ArrayList<>(pendingIndividualAcks.size() + pendingIndividualBatchIndexAcks.size());
-        if (!pendingIndividualAcks.isEmpty()) {
-            if (Commands.peerSupportsMultiMessageAcknowledgment(cnx.getRemoteEndpointProtocolVersion())) {
+        LongPairRangeSet<LongPair> individualAcks = null;
+        if (pendingIndividualAcksCount > 0) {
+            synchronized (this) {
+                individualAcks = pendingIndividualAcks;
+                pendingIndividualAcks = newPendingIndividualAcks();
+                pendingIndividualAcksCount = 0;
+            }
+        }
+        List<Triple<Long, Long, ConcurrentBitSetRecyclable>> entriesToAck =
+                new ArrayList<>(pendingIndividualBatchIndexAcks.size());
+        LongPairRangeSet<LongPair> entryRangesToAck = null;
+        if (individualAcks != null && !individualAcks.isEmpty()) {
+            if (cnx.isSupportsRangeAcks()) {
+                // We can send the individual acks as ranges of contiguous entries
+                entryRangesToAck = individualAcks;
+            } else if (Commands.peerSupportsMultiMessageAcknowledgment(cnx.getRemoteEndpointProtocolVersion())) {
                 // We can send 1 single protobuf command with all individual acks
-                while (true) {
-                    MessageIdImpl msgId = pendingIndividualAcks.pollFirst();
-                    if (msgId == null) {
-                        break;
-                    }
-
-                    // if messageId is checked then all the chunked related to that msg also processed so, ack all of
-                    // them
-                    MessageIdImpl[] chunkMsgIds = this.consumer.unAckedChunkedMessageIdSequenceMap.get(msgId);
-                    if (chunkMsgIds != null && chunkMsgIds.length > 1) {
-                        for (MessageIdImpl cMsgId : chunkMsgIds) {
-                            if (cMsgId != null) {
-                                entriesToAck.add(Triple.of(cMsgId.getLedgerId(), cMsgId.getEntryId(), null));
-                            }
-                        }
-                        // messages will be acked so, remove checked message sequence
-                        this.consumer.unAckedChunkedMessageIdSequenceMap.remove(msgId);
-                    } else {
-                        entriesToAck.add(Triple.of(msgId.getLedgerId(), msgId.getEntryId(), null));
+                individualAcks.forEach(range -> {
+                    long ledgerId = range.upperEndpoint().getKey();
+                    for (long entryId = range.lowerEndpoint().getValue() + 1;
+                         entryId <= range.upperEndpoint().getValue(); entryId++) {
+                        entriesToAck.add(Triple.of(ledgerId, entryId, null));
                     }
-                }
+                    return true;
+                });
             } else {
                 // When talking to older brokers, send the acknowledgements individually
-                while (true) {
-                    MessageIdImpl msgId = pendingIndividualAcks.pollFirst();
-                    if (msgId == null) {
-                        break;
+                individualAcks.forEach(range -> {
+                    long ledgerId = range.upperEndpoint().getKey();
+                    for (long entryId = range.lowerEndpoint().getValue() + 1;
+                         entryId <= range.upperEndpoint().getValue(); entryId++) {
+                        newMessageAckCommandAndWrite(cnx, consumer.consumerId, ledgerId, entryId, null,
+                                AckType.Individual, null, Collections.emptyMap(), false, null, null, null);
                     }
-                    newMessageAckCommandAndWrite(cnx, consumer.consumerId, msgId.getLedgerId(), msgId.getEntryId(), null,
-                            AckType.Individual, null, Collections.emptyMap(), false, null, null);
-                    shouldFlush = true;
-                }
+                    return true;
+                });
+                shouldFlush = true;
             }
         }
 
@@ -527,17 +563,18 @@ public class PersistentAcknowledgmentsGroupingTracker implements Acknowledgments
             }
         }
 
-        if (entriesToAck.size() > 0) {
+        if (entriesToAck.size() > 0 || entryRangesToAck != null) {
 
             newMessageAckCommandAndWrite(cnx, consumer.consumerId, 0L, 0L,
-                    null, AckType.Individual, null, null, true, currentIndividualAckFuture, entriesToAck);
+                    null, AckType.Individual, null, null, true, currentIndividualAckFuture, entriesToAck,
+                    entryRangesToAck);
             shouldFlush = true;
         }
 
         if (shouldFlush) {
             if (log.isDebugEnabled()) {
                 log.debug("[{}] Flushing pending acks to broker: last-cumulative-ack: {} -- individual-acks: {} -- individual-batch-index-acks: {}",
-                        consumer, lastCumulativeAck, pendingIndividualAcks, pendingIndividualBatchIndexAcks);
+                        consumer, lastCumulativeAck, individualAcks, pendingIndividualBatchIndexAcks);
             }
             cnx.ctx().flush();
         }
@@ -548,7 +585,10 @@ public class PersistentAcknowledgmentsGroupingTracker implements Acknowledgments
     public void flushAndClean() {
         flush();
         lastCumulativeAck = LastCumulativeAck.create((MessageIdImpl) MessageIdImpl.earliest, null);
-        pendingIndividualAcks.clear();
+        synchronized (this) {
+            pendingIndividualAcks = newPendingIndividualAcks();
+            pendingIndividualAcksCount = 0;
+        }
     }
 
     @Override
@@ -574,19 +614,19 @@ public class PersistentAcknowledgmentsGroupingTracker implements Acknowledgments
                     }
                 }
                 completableFuture = newMessageAckCommandAndWrite(cnx, consumer.consumerId, 0L, 0L,
-                        null, ackType, null, null, true, null, entriesToAck);
+                        null, ackType, null, null, true, null, entriesToAck, null);
             } else {
                 // if don't support multi message ack, it also support ack receipt, so we should not think about the
                 // ack receipt in this logic
                 for (MessageIdImpl cMsgId : chunkMsgIds) {
                     newMessageAckCommandAndWrite(cnx, consumerId, cMsgId.getLedgerId(), cMsgId.getEntryId(),
-                            bitSet, ackType, null, map, true, null, null);
+                            bitSet, ackType, null, map, true, null, null, null);
                 }
                 completableFuture = CompletableFuture.completedFuture(null);
             }
         } else {
             completableFuture = newMessageAckCommandAndWrite(cnx, consumerId, msgId.ledgerId, msgId.getEntryId(),
-                    bitSet, ackType, null, map, true, null, null);
+                    bitSet, ackType, null, map, true, null, null, null);
         }
         return completableFuture;
     }
@@ -596,11 +636,14 @@ public class PersistentAcknowledgmentsGroupingTracker implements Acknowledgments
                                                                  CommandAck.ValidationError validationError,
                                                                  Map<String, Long> properties, boolean flush,
                                                                  TimedCompletableFuture<Void> timedCompletableFuture,
-                                                                 List<Triple<Long, Long, ConcurrentBitSetRecyclable>> entriesToAck) {
+                                                                 List<Triple<Long, Long, ConcurrentBitSetRecyclable>> entriesToAck,
+                                                                 LongPairRangeSet<LongPair> entryRangesToAck) {
         if (isAckReceiptEnabled(consumer.getClientCnx())) {
             final long requestId = consumer.getClient().newRequestId();
             final ByteBuf cmd;
-            if (entriesToAck == null) {
+            if (entryRangesToAck != null) {
+                cmd = Commands.newMultiMessageAck(consumerId, entriesToAck, entryRangesToAck, requestId);
+            } else if (entriesToAck == null) {
                 cmd = Commands.newAck(consumerId, ledgerId, entryId, ackSet,
                         ackType, null, properties, requestId);
             } else {
@@ -631,7 +674,9 @@ public class PersistentAcknowledgmentsGroupingTracker implements Acknowledgments
                 }
             }
             final ByteBuf cmd;
-            if (entriesToAck == null) {
+            if (entryRangesToAck != null) {
+                cmd = Commands.newMultiMessageAck(consumerId, entriesToAck, entryRangesToAck, -1);
+            } else if (entriesToAck == null) {
                 cmd = Commands.newAck(consumerId, ledgerId, entryId, ackSet,
                         ackType, null, properties, -1);
             } else {
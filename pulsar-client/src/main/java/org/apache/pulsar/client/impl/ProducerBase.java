@@ -20,7 +20,11 @@ package org.apache.pulsar.client.impl;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 import org.apache.pulsar.client.api.Message;
 import org.apache.pulsar.client.api.MessageId;
@@ -76,6 +80,36 @@ public abstract class ProducerBase<T> extends HandlerState implements Producer<T
         return internalSendAsync(message);
     }
 
+    @Override
+    public List<MessageId> sendBatch(Collection<T> messages) throws PulsarClientException {
+        try {
+            // enqueue the messages to the buffer
+            CompletableFuture<List<MessageId>> sendFuture = sendBatchAsync(messages);
+
+            if (!sendFuture.isDone()) {
+                // the send request wasn't completed yet (e.g. not failing at enqueuing), then attempt to triggerFlush it out
+                triggerFlush();
+            }
+
+            return sendFuture.get();
+        } catch (Exception e) {
+            throw PulsarClientException.unwrap(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<MessageId>> sendBatchAsync(Collection<T> messages) {
+        List<Message<?>> batch = new ArrayList<>(messages.size());
+        try {
+            for (T message : messages) {
+                batch.add(((TypedMessageBuilderImpl<T>) newMessage().value(message)).getMessage());
+            }
+        } catch (SchemaSerializationException e) {
+            return FutureUtil.failedFuture(e);
+        }
+        return internalSendBatchAsync(batch);
+    }
+
     @Override
     public TypedMessageBuilder<T> newMessage() {
         return new TypedMessageBuilderImpl<>(this, schema);
@@ -103,6 +137,15 @@ public abstract class ProducerBase<T> extends HandlerState implements Producer<T
 
     abstract CompletableFuture<MessageId> internalSendWithTxnAsync(Message<?> message, Transaction txn);
 
+    CompletableFuture<List<MessageId>> internalSendBatchAsync(List<Message<?>> messages) {
+        List<CompletableFuture<MessageId>> sendFutures = new ArrayList<>(messages.size());
+        for (Message<?> message : messages) {
+            sendFutures.add(internalSendAsync(message));
+        }
+        return FutureUtil.waitForAll(sendFutures)
+                .thenApply(ignore -> sendFutures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+    }
+
     public MessageId send(Message<?> message) throws PulsarClientException {
         try {
             // enqueue the message to the buffer
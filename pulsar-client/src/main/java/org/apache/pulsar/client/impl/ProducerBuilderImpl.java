@@ -48,6 +48,7 @@ import org.apache.pulsar.client.api.interceptor.ProducerInterceptorWrapper;
 import org.apache.pulsar.client.impl.DefaultCryptoKeyReader;
 import org.apache.pulsar.client.impl.conf.ConfigurationDataUtils;
 import org.apache.pulsar.client.impl.conf.ProducerConfigurationData;
+import org.apache.pulsar.common.compression.CompressionCodecProvider;
 import org.apache.pulsar.common.util.FutureUtil;
 
 import lombok.NonNull;
@@ -101,10 +102,22 @@ public class ProducerBuilderImpl<T> implements ProducerBuilder<T> {
         // config validation
         checkArgument(!(conf.isBatchingEnabled() && conf.isChunkingEnabled()),
                 "Batching and chunking of messages can't be enabled together");
+        checkArgument(conf.getCompressionDictionary() == null || conf.getCompressionType() == CompressionType.ZSTD,
+                "A compression dictionary can only be used with ZSTD compression");
+        checkArgument(conf.getCompressionDictionary() == null
+                        || CompressionCodecProvider.isZstdDictionaryCompressionAvailable(),
+                "A compression dictionary requires com.github.luben:zstd-jni in the classpath");
         if (conf.getTopicName() == null) {
             return FutureUtil
                     .failedFuture(new IllegalArgumentException("Topic name must be set on the producer builder"));
         }
+        if (conf.getCompressionDictionary() != null) {
+            try {
+                CompressionCodecProvider.registerZstdDictionary(conf.getCompressionDictionary());
+            } catch (IllegalArgumentException e) {
+                return FutureUtil.failedFuture(new PulsarClientException.InvalidConfigurationException(e));
+            }
+        }
 
         try {
             setMessageRoutingMode();
@@ -179,6 +192,12 @@ public class ProducerBuilderImpl<T> implements ProducerBuilder<T> {
         return this;
     }
 
+    @Override
+    public ProducerBuilder<T> compressionDictionary(@NonNull byte[] dictionary) {
+        conf.setCompressionDictionary(dictionary);
+        return this;
+    }
+
     @Override
     public ProducerBuilder<T> hashingScheme(@NonNull HashingScheme hashingScheme) {
         conf.setHashingScheme(hashingScheme);
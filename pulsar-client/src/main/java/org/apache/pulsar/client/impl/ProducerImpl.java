@@ -41,6 +41,8 @@ import io.netty.util.TimerTask;
 import io.netty.util.concurrent.ScheduledFuture;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -75,6 +77,7 @@ import org.apache.pulsar.common.api.proto.MessageMetadata;
 import org.apache.pulsar.common.api.proto.ProtocolVersion;
 import org.apache.pulsar.common.compression.CompressionCodec;
 import org.apache.pulsar.common.compression.CompressionCodecProvider;
+import org.apache.pulsar.common.compression.CompressionCodecZstdDictionary;
 import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.protocol.ByteBufPair;
 import org.apache.pulsar.common.protocol.Commands;
@@ -98,6 +101,11 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
     private final BlockingQueue<OpSendMsg> pendingMessages;
     private final BlockingQueue<OpSendMsg> pendingCallbacks;
     private final Semaphore semaphore;
+    // Smoothed delay between sending a message and receiving its receipt
+    private volatile long sendLatencyNanos = 0;
+    private volatile long lastSendReceiptNanos = 0;
+    // The latency estimate of an idle producer is halved every half-life
+    private static final long SEND_LATENCY_HALF_LIFE_NANOS = TimeUnit.SECONDS.toNanos(1);
     private volatile Timeout sendTimeout = null;
     private long createProducerTimeout;
     private final BatchMessageContainerBase batchMessageContainer;
@@ -114,6 +122,8 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
     private final ProducerStatsRecorder stats;
 
     private final CompressionCodec compressor;
+    // used instead of the compressor when the broker supports dictionary compression, null if not configured
+    private final CompressionCodecZstdDictionary dictionaryCompressor;
 
     static final AtomicLongFieldUpdater<ProducerImpl> LAST_SEQ_ID_PUBLISHED_UPDATER = AtomicLongFieldUpdater
             .newUpdater(ProducerImpl.class, "lastSequenceIdPublished");
@@ -154,9 +164,12 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
         this.partitionIndex = partitionIndex;
         this.pendingMessages = createPendingMessagesQueue();
         this.pendingCallbacks = createPendingCallbacksQueue();
-        this.semaphore = new Semaphore(conf.getMaxPendingMessages(), true);
+        this.semaphore = new Semaphore(conf.getMaxPendingMessages(), false);
 
         this.compressor = CompressionCodecProvider.getCompressionCodec(conf.getCompressionType());
+        this.dictionaryCompressor = conf.getCompressionDictionary() != null
+                ? CompressionCodecProvider.registerZstdDictionary(conf.getCompressionDictionary())
+                : null;
 
         if (conf.getInitialSequenceId() != null) {
             long initialSequenceId = conf.getInitialSequenceId();
@@ -281,78 +294,212 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
     CompletableFuture<MessageId> internalSendAsync(Message<?> message) {
         CompletableFuture<MessageId> future = new CompletableFuture<>();
 
+        MessageImpl<?> interceptorMessage = beforeSendAndRetain(message);
+        sendAsync(interceptorMessage, new DefaultSendMessageCallback(interceptorMessage, future));
+        return future;
+    }
+
+    @Override
+    CompletableFuture<List<MessageId>> internalSendBatchAsync(List<Message<?>> messages) {
+        if (messages.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+
+        SendBatchResult result = new SendBatchResult(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            MessageImpl<?> interceptorMessage = beforeSendAndRetain(messages.get(i));
+            sendAsync(interceptorMessage, new SendBatchMessageCallback(interceptorMessage, result, i));
+        }
+        return result.getMessageIds();
+    }
+
+    private MessageImpl<?> beforeSendAndRetain(Message<?> message) {
         MessageImpl<?> interceptorMessage = (MessageImpl) beforeSend(message);
         //Retain the buffer used by interceptors callback to get message. Buffer will release after complete interceptors.
         interceptorMessage.getDataBuffer().retain();
         if (interceptors != null) {
             interceptorMessage.getProperties();
         }
-        sendAsync(interceptorMessage, new SendCallback() {
-            SendCallback nextCallback = null;
-            MessageImpl<?> nextMsg = null;
-            long createdAt = System.nanoTime();
+        return interceptorMessage;
+    }
 
-            @Override
-            public CompletableFuture<MessageId> getFuture() {
-                return future;
-            }
+    private void completeMessage(MessageImpl<?> msg, SendCallback callback, Exception e, long createdAt) {
+        MessageId messageId = null;
+        if (e != null) {
+            stats.incrementSendFailed();
+            onSendAcknowledgement(msg, null, e);
+        } else {
+            messageId = msg.getMessageId();
+            onSendAcknowledgement(msg, messageId, null);
+        }
 
-            @Override
-            public SendCallback getNextSendCallback() {
-                return nextCallback;
-            }
+        if (callback instanceof ProducerImpl.SendMessageCallback) {
+            ((ProducerImpl<?>.SendMessageCallback) callback).onComplete(messageId, e);
+        } else if (e != null) {
+            callback.getFuture().completeExceptionally(e);
+        } else {
+            callback.getFuture().complete(messageId);
+        }
 
-            @Override
-            public MessageImpl<?> getNextMessage() {
-                return nextMsg;
+        if (e == null) {
+            stats.incrementNumAcksReceived(System.nanoTime() - createdAt);
+        }
+    }
+
+    /**
+     * Callback of a message sent through this producer. When the message is the first one of a batch, it also
+     * completes the messages that were chained to it.
+     */
+    private abstract class SendMessageCallback implements SendCallback {
+        private final MessageImpl<?> msg;
+        private final long createdAt = System.nanoTime();
+        private SendCallback nextCallback = null;
+        private MessageImpl<?> nextMsg = null;
+
+        SendMessageCallback(MessageImpl<?> msg) {
+            this.msg = msg;
+        }
+
+        /**
+         * Invoked once the message of this callback has been persisted, or has failed.
+         */
+        abstract void onComplete(MessageId messageId, Exception e);
+
+        @Override
+        public SendCallback getNextSendCallback() {
+            return nextCallback;
+        }
+
+        @Override
+        public MessageImpl<?> getNextMessage() {
+            return nextMsg;
+        }
+
+        @Override
+        public void sendComplete(Exception e) {
+            try {
+                completeMessage(msg, this, e, createdAt);
+            } finally {
+                msg.getDataBuffer().release();
             }
 
-            @Override
-            public void sendComplete(Exception e) {
+            while (nextCallback != null) {
+                SendCallback sendCallback = nextCallback;
+                MessageImpl<?> chainedMsg = nextMsg;
+                //Retain the buffer used by interceptors callback to get message. Buffer will release after complete interceptors.
                 try {
-                    if (e != null) {
-                        stats.incrementSendFailed();
-                        onSendAcknowledgement(interceptorMessage, null, e);
-                        future.completeExceptionally(e);
-                    } else {
-                        onSendAcknowledgement(interceptorMessage, interceptorMessage.getMessageId(), null);
-                        future.complete(interceptorMessage.getMessageId());
-                        stats.incrementNumAcksReceived(System.nanoTime() - createdAt);
-                    }
+                    chainedMsg.getDataBuffer().retain();
+                    completeMessage(chainedMsg, sendCallback, e, createdAt);
+                    nextMsg = nextCallback.getNextMessage();
+                    nextCallback = nextCallback.getNextSendCallback();
                 } finally {
-                    interceptorMessage.getDataBuffer().release();
+                    chainedMsg.getDataBuffer().release();
                 }
+            }
+        }
 
-                while (nextCallback != null) {
-                    SendCallback sendCallback = nextCallback;
-                    MessageImpl<?> msg = nextMsg;
-                    //Retain the buffer used by interceptors callback to get message. Buffer will release after complete interceptors.
-                    try {
-                        msg.getDataBuffer().retain();
-                        if (e != null) {
-                            stats.incrementSendFailed();
-                            onSendAcknowledgement(msg, null, e);
-                            sendCallback.getFuture().completeExceptionally(e);
-                        } else {
-                            onSendAcknowledgement(msg, msg.getMessageId(), null);
-                            sendCallback.getFuture().complete(msg.getMessageId());
-                            stats.incrementNumAcksReceived(System.nanoTime() - createdAt);
-                        }
-                        nextMsg = nextCallback.getNextMessage();
-                        nextCallback = nextCallback.getNextSendCallback();
-                    } finally {
-                        msg.getDataBuffer().release();
+        @Override
+        public void addCallback(MessageImpl<?> msg, SendCallback scb) {
+            nextMsg = msg;
+            nextCallback = scb;
+        }
+    }
+
+    private final class DefaultSendMessageCallback extends SendMessageCallback {
+        private final CompletableFuture<MessageId> future;
+
+        DefaultSendMessageCallback(MessageImpl<?> msg, CompletableFuture<MessageId> future) {
+            super(msg);
+            this.future = future;
+        }
+
+        @Override
+        public CompletableFuture<MessageId> getFuture() {
+            return future;
+        }
+
+        @Override
+        void onComplete(MessageId messageId, Exception e) {
+            if (e != null) {
+                future.completeExceptionally(e);
+            } else {
+                future.complete(messageId);
+            }
+        }
+    }
+
+    /**
+     * Callback of one of the messages of a {@link #sendBatchAsync} call, which reports to the result shared by all
+     * the messages of the call instead of having its own future.
+     */
+    private final class SendBatchMessageCallback extends SendMessageCallback {
+        private final SendBatchResult result;
+        private final int index;
+
+        SendBatchMessageCallback(MessageImpl<?> msg, SendBatchResult result, int index) {
+            super(msg);
+            this.result = result;
+            this.index = index;
+        }
+
+        @Override
+        public CompletableFuture<MessageId> getFuture() {
+            return result.future;
+        }
+
+        @Override
+        void onComplete(MessageId messageId, Exception e) {
+            result.messageComplete(index, messageId, e);
+        }
+    }
+
+    /**
+     * Message ids of the messages of a {@link #sendBatchAsync} call, completed once all the messages are completed.
+     */
+    private static final class SendBatchResult {
+        private final MessageId[] messageIds;
+        private final BitSet completedMessages;
+        private int pendingMessages;
+        private Exception failure = null;
+        // Completed with the last message id, so that it can also be tracked as the last send future of the producer
+        private final CompletableFuture<MessageId> future = new CompletableFuture<>();
+
+        SendBatchResult(int numMessages) {
+            this.messageIds = new MessageId[numMessages];
+            this.completedMessages = new BitSet(numMessages);
+            this.pendingMessages = numMessages;
+        }
+
+        void messageComplete(int index, MessageId messageId, Exception e) {
+            Exception firstFailure;
+            synchronized (this) {
+                if (completedMessages.get(index)) {
+                    return;
+                }
+                completedMessages.set(index);
+                if (e != null) {
+                    if (failure == null) {
+                        failure = e;
                     }
+                } else {
+                    messageIds[index] = messageId;
+                }
+                if (--pendingMessages > 0) {
+                    return;
                 }
+                firstFailure = failure;
             }
 
-            @Override
-            public void addCallback(MessageImpl<?> msg, SendCallback scb) {
-                nextMsg = msg;
-                nextCallback = scb;
+            if (firstFailure != null) {
+                future.completeExceptionally(firstFailure);
+            } else {
+                future.complete(messageIds[messageIds.length - 1]);
             }
-        });
-        return future;
+        }
+
+        CompletableFuture<List<MessageId>> getMessageIds() {
+            return future.thenApply(lastMessageId -> Collections.unmodifiableList(Arrays.asList(messageIds)));
+        }
     }
 
     @Override
@@ -383,10 +530,11 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
 
         // If compression is enabled, we are compressing, otherwise it will simply use the same buffer
         ByteBuf compressedPayload = payload;
+        CompressionCodecZstdDictionary dictionaryCompressor = getDictionaryCompressor();
         // Batch will be compressed when closed
         // If a message has a delayed delivery time, we'll always send it individually
         if (!isBatchMessagingEnabled() || msgMetadata.hasDeliverAtTime()) {
-            compressedPayload = compressor.encode(payload);
+            compressedPayload = (dictionaryCompressor != null ? dictionaryCompressor : compressor).encode(payload);
             payload.release();
 
             // validate msg-size (For batching this will be check at the batch completion size)
@@ -443,7 +591,7 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
                 for (int chunkId = 0; chunkId < totalChunks; chunkId++) {
                     serializeAndSendMessage(msg, payload, sequenceId, uuid, chunkId, totalChunks,
                             readStartIndex, ClientCnx.getMaxMessageSize(), compressedPayload,
-                            compressedPayload.readableBytes(), uncompressedSize, callback);
+                            compressedPayload.readableBytes(), uncompressedSize, dictionaryCompressor, callback);
                     readStartIndex = ((chunkId + 1) * ClientCnx.getMaxMessageSize());
                 }
             }
@@ -458,7 +606,8 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
     private void serializeAndSendMessage(MessageImpl<?> msg, ByteBuf payload,
             long sequenceId, String uuid, int chunkId, int totalChunks, int readStartIndex, int chunkMaxSizeInBytes, ByteBuf compressedPayload,
             int compressedPayloadSize,
-            int uncompressedSize, SendCallback callback) throws IOException, InterruptedException {
+            int uncompressedSize, CompressionCodecZstdDictionary dictionaryCompressor, SendCallback callback)
+            throws IOException, InterruptedException {
         ByteBuf chunkPayload = compressedPayload;
         MessageMetadata msgMetadata = msg.getMessageBuilder();
         if (totalChunks > 1 && TopicName.get(topic).isPersistent()) {
@@ -486,6 +635,10 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
             if (conf.getCompressionType() != CompressionType.NONE) {
                 msgMetadata
                         .setCompression(CompressionCodecProvider.convertToWireProtocol(conf.getCompressionType()));
+                if (dictionaryCompressor != null) {
+                    msgMetadata.setCompression(org.apache.pulsar.common.api.proto.CompressionType.ZSTD_DICTIONARY)
+                            .setCompressionDictionaryId(dictionaryCompressor.getDictionaryId());
+                }
             }
             msgMetadata.setUncompressedSize(uncompressedSize);
         }
@@ -776,7 +929,7 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
             }
 
             try {
-                cnx.ctx().writeAndFlush(cmd, cnx.ctx().voidPromise());
+                cnx.writeAndCoalesceFlush(cmd);
                 op.updateSentTimestamp();
             } finally {
                 recycle();
@@ -947,6 +1100,15 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
                     }
                     pendingMessages.remove();
                     releaseSemaphoreForSendOp(op);
+                    long receiptNanos = System.nanoTime();
+                    long latencyNanos = receiptNanos - op.createdAt;
+                    // Moving average weighting the latest receipt by 1/8
+                    long averageLatencyNanos = sendLatencyNanos;
+                    sendLatencyNanos = averageLatencyNanos + (latencyNanos - averageLatencyNanos) / 8;
+                    lastSendReceiptNanos = receiptNanos;
+                    if (batchMessageContainer != null) {
+                        batchMessageContainer.onSendReceipt(latencyNanos);
+                    }
                     callback = true;
                     pendingCallbacks.add(op);
                 } else {
@@ -1532,6 +1694,22 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
         return producerName;
     }
 
+    /**
+     * Get the codec compressing messages with the configured zstd dictionary.
+     *
+     * <p>Messages are only compressed with the dictionary once the broker is known to support the ZSTD_DICTIONARY
+     * compression type, they are compressed with plain zstd otherwise.
+     *
+     * @return the codec, or null if the messages must not be compressed with a dictionary
+     */
+    CompressionCodecZstdDictionary getDictionaryCompressor() {
+        if (dictionaryCompressor == null) {
+            return null;
+        }
+        ClientCnx cnx = cnx();
+        return cnx != null && cnx.isSupportsZstdDictionaryCompression() ? dictionaryCompressor : null;
+    }
+
     /**
      * Process sendTimeout events
      */
@@ -1813,6 +1991,37 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
         return pendingMessages.size();
     }
 
+    /**
+     * Estimate the latency of a message sent now, from the recent receipt latency and the number of messages already
+     * waiting for their receipt.
+     *
+     * @return the expected latency in nanoseconds, or {@link Long#MAX_VALUE} if the producer is not connected or its
+     *         pending queue is full
+     */
+    long getExpectedSendLatencyNanos() {
+        int availablePermits = semaphore.availablePermits();
+        if (availablePermits <= 0 || !isConnected()) {
+            return Long.MAX_VALUE;
+        }
+        long pendingMessages = conf.getMaxPendingMessages() - availablePermits;
+        long latencyNanos = sendLatencyNanos;
+        if (pendingMessages == 0) {
+            latencyNanos = decayLatencyNanos(latencyNanos, System.nanoTime() - lastSendReceiptNanos);
+        }
+        return (pendingMessages + 1) * Math.max(1, latencyNanos);
+    }
+
+    /**
+     * The latency is only measured from the receipts, so a partition that was once slow would keep its estimate, and
+     * never be picked again by the load aware router to find out it recovered. The estimate of an idle producer is
+     * halved for every {@link #SEND_LATENCY_HALF_LIFE_NANOS} since its last receipt, so it is eventually tried again.
+     */
+    @VisibleForTesting
+    static long decayLatencyNanos(long latencyNanos, long idleNanos) {
+        long halvings = Math.max(0, idleNanos) / SEND_LATENCY_HALF_LIFE_NANOS;
+        return halvings >= Long.SIZE ? 0 : latencyNanos >> halvings;
+    }
+
     @Override
     public ProducerStatsRecorder getStats() {
         return stats;
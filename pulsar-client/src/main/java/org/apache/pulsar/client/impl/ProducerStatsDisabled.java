@@ -127,4 +127,24 @@ public class ProducerStatsDisabled implements ProducerStatsRecorder {
     public double getSendLatencyMillisMax() {
         return 0;
     }
+
+    @Override
+    public double getBatchSizeMessages50pct() {
+        return 0;
+    }
+
+    @Override
+    public double getBatchSizeMessages95pct() {
+        return 0;
+    }
+
+    @Override
+    public double getBatchSizeMessages99pct() {
+        return 0;
+    }
+
+    @Override
+    public double getBatchSizeMessagesMax() {
+        return 0;
+    }
 }
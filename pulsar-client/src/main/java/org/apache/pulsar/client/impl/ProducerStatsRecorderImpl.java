@@ -56,10 +56,12 @@ public class ProducerStatsRecorderImpl implements ProducerStatsRecorder {
     private static final DecimalFormat DEC = new DecimalFormat("0.000");
     private static final DecimalFormat THROUGHPUT_FORMAT = new DecimalFormat("0.00");
     private final DoublesSketch ds;
+    private final DoublesSketch batchSizeDs;
 
     private volatile double sendMsgsRate;
     private volatile double sendBytesRate;
     private volatile double[] latencyPctValues = new double[PERCENTILES.length];
+    private volatile double[] batchSizePctValues = new double[PERCENTILES.length];
 
     private static final double[] PERCENTILES = { 0.5, 0.75, 0.95, 0.99, 0.999, 1.0 };
 
@@ -73,6 +75,7 @@ public class ProducerStatsRecorderImpl implements ProducerStatsRecorder {
         totalSendFailed = new LongAdder();
         totalAcksReceived = new LongAdder();
         ds = DoublesSketch.builder().build(256);
+        batchSizeDs = DoublesSketch.builder().build(256);
     }
 
     public ProducerStatsRecorderImpl(PulsarClientImpl pulsarClient, ProducerConfigurationData conf,
@@ -89,6 +92,7 @@ public class ProducerStatsRecorderImpl implements ProducerStatsRecorder {
         totalSendFailed = new LongAdder();
         totalAcksReceived = new LongAdder();
         ds = DoublesSketch.builder().build(256);
+        batchSizeDs = DoublesSketch.builder().build(256);
         init(conf);
     }
 
@@ -129,6 +133,10 @@ public class ProducerStatsRecorderImpl implements ProducerStatsRecorder {
                     latencyPctValues = ds.getQuantiles(PERCENTILES);
                     ds.reset();
                 }
+                synchronized (batchSizeDs) {
+                    batchSizePctValues = batchSizeDs.getQuantiles(PERCENTILES);
+                    batchSizeDs.reset();
+                }
 
                 sendMsgsRate = currentNumMsgsSent / elapsed;
                 sendBytesRate = currentNumBytesSent / elapsed;
@@ -140,10 +148,14 @@ public class ProducerStatsRecorderImpl implements ProducerStatsRecorder {
                         if (Double.isNaN(latencyPctValues[i])) {
                             latencyPctValues[i] = 0;
                         }
+                        if (Double.isNaN(batchSizePctValues[i])) {
+                            batchSizePctValues[i] = 0;
+                        }
                     }
 
                     log.info("[{}] [{}] Pending messages: {} --- Publish throughput: {} msg/s --- {} Mbit/s --- "
                             + "Latency: med: {} ms - 95pct: {} ms - 99pct: {} ms - 99.9pct: {} ms - max: {} ms --- "
+                            + "Batch size: med: {} msgs - 99pct: {} msgs - max: {} msgs --- "
                             + "Ack received rate: {} ack/s --- Failed messages: {}", producer.getTopic(),
                             producer.getProducerName(), producer.getPendingQueueSize(),
                             THROUGHPUT_FORMAT.format(sendMsgsRate),
@@ -151,6 +163,8 @@ public class ProducerStatsRecorderImpl implements ProducerStatsRecorder {
                             DEC.format(latencyPctValues[0]), DEC.format(latencyPctValues[2]),
                             DEC.format(latencyPctValues[3]), DEC.format(latencyPctValues[4]),
                             DEC.format(latencyPctValues[5]),
+                            DEC.format(batchSizePctValues[0]), DEC.format(batchSizePctValues[3]),
+                            DEC.format(batchSizePctValues[5]),
                             THROUGHPUT_FORMAT.format(currentNumAcksReceived / elapsed), currentNumSendFailedMsgs);
                 }
 
@@ -175,6 +189,9 @@ public class ProducerStatsRecorderImpl implements ProducerStatsRecorder {
     public void updateNumMsgsSent(long numMsgs, long totalMsgsSize) {
         numMsgsSent.add(numMsgs);
         numBytesSent.add(totalMsgsSize);
+        synchronized (batchSizeDs) {
+            batchSizeDs.update(numMsgs);
+        }
     }
 
     @Override
@@ -296,6 +313,26 @@ public class ProducerStatsRecorderImpl implements ProducerStatsRecorder {
         return latencyPctValues[5];
     }
 
+    @Override
+    public double getBatchSizeMessages50pct() {
+        return batchSizePctValues[0];
+    }
+
+    @Override
+    public double getBatchSizeMessages95pct() {
+        return batchSizePctValues[2];
+    }
+
+    @Override
+    public double getBatchSizeMessages99pct() {
+        return batchSizePctValues[3];
+    }
+
+    @Override
+    public double getBatchSizeMessagesMax() {
+        return batchSizePctValues[5];
+    }
+
     public void cancelStatsTimeout() {
         if (statTimeout != null) {
             statTimeout.cancel();
@@ -0,0 +1,170 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.pulsar.client.api.Producer;
+import org.apache.pulsar.client.api.ProducerBuilder;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * A Reactive Streams {@link Subscriber} that publishes every received value on a producer.
+ *
+ * <p>The producer is created from the given builder when the subscription starts, and it is closed once the upstream
+ * terminates and all the values have been persisted. The subscriber never requests more values than what fits in the
+ * pending messages queue of the producer: more values are requested as the sends get completed by the broker.
+ *
+ * <p>The first failed send cancels the subscription. The outcome is reported by {@link #getCompletionFuture()}.
+ */
+public class ProducerSubscriber<T> implements Subscriber<T> {
+
+    private final ProducerBuilder<T> producerBuilder;
+    private final CompletableFuture<Void> completionFuture = new CompletableFuture<>();
+    private final AtomicBoolean finished = new AtomicBoolean();
+    // values received from upstream and not persisted yet
+    private final AtomicInteger pendingSends = new AtomicInteger();
+    // values persisted since the last time more values were requested from upstream
+    private final AtomicInteger completedSends = new AtomicInteger();
+    private volatile Subscription subscription;
+    private volatile Producer<T> producer;
+    private volatile boolean upstreamDone = false;
+    private volatile Throwable upstreamError;
+    private int requestThreshold;
+
+    public ProducerSubscriber(ProducerBuilder<T> producerBuilder) {
+        this.producerBuilder = producerBuilder.clone();
+    }
+
+    /**
+     * @return a future that completes when all the values have been persisted and the producer is closed, or
+     *         completes exceptionally if the upstream or a send failed
+     */
+    public CompletableFuture<Void> getCompletionFuture() {
+        return completionFuture;
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        Objects.requireNonNull(s, "subscription");
+        if (subscription != null) {
+            s.cancel();
+            return;
+        }
+        subscription = s;
+
+        producerBuilder.createAsync().whenComplete((producer, ex) -> {
+            if (ex != null) {
+                s.cancel();
+                finish(ex);
+                return;
+            }
+            this.producer = producer;
+            if (finished.get()) {
+                // upstream terminated before the producer was ready
+                producer.closeAsync();
+                return;
+            }
+            int maxPendingMessages = ((ProducerBase<T>) producer).getConfiguration().getMaxPendingMessages();
+            requestThreshold = Math.max(1, maxPendingMessages / 2);
+            s.request(Math.max(1, maxPendingMessages));
+        });
+    }
+
+    @Override
+    public void onNext(T value) {
+        Objects.requireNonNull(value, "value");
+        if (finished.get()) {
+            return;
+        }
+
+        pendingSends.incrementAndGet();
+        producer.sendAsync(value).whenComplete((messageId, ex) -> {
+            if (ex != null) {
+                subscription.cancel();
+                finish(ex);
+                return;
+            }
+            pendingSends.decrementAndGet();
+            if (upstreamDone) {
+                maybeFinish();
+            } else {
+                requestMore();
+            }
+        });
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        Objects.requireNonNull(t, "throwable");
+        upstreamError = t;
+        upstreamDone = true;
+        maybeFinish();
+    }
+
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        maybeFinish();
+    }
+
+    /**
+     * Request from upstream as many values as the sends that got completed, in chunks of half the pending messages
+     * queue, the same way the consumers send flow permits to the broker.
+     */
+    private void requestMore() {
+        int completed = completedSends.incrementAndGet();
+        while (completed >= requestThreshold) {
+            if (completedSends.compareAndSet(completed, 0)) {
+                subscription.request(completed);
+                break;
+            } else {
+                completed = completedSends.get();
+            }
+        }
+    }
+
+    private void maybeFinish() {
+        if (pendingSends.get() == 0) {
+            finish(upstreamError);
+        }
+    }
+
+    private void finish(Throwable ex) {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+
+        Producer<T> p = producer;
+        CompletableFuture<Void> closeFuture = p != null ? p.closeAsync() : CompletableFuture.completedFuture(null);
+        closeFuture.whenComplete((ignore, closeEx) -> {
+            if (ex != null) {
+                completionFuture.completeExceptionally(ex);
+            } else if (closeEx != null) {
+                completionFuture.completeExceptionally(closeEx);
+            } else {
+                completionFuture.complete(null);
+            }
+        });
+    }
+}
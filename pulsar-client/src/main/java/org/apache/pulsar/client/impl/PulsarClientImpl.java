@@ -41,13 +41,13 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import lombok.Getter;
 import org.apache.commons.lang3.StringUtils;
@@ -76,11 +76,13 @@ import org.apache.pulsar.client.impl.transaction.TransactionBuilderImpl;
 import org.apache.pulsar.client.impl.transaction.TransactionCoordinatorClientImpl;
 import org.apache.pulsar.client.util.ExecutorProvider;
 import org.apache.pulsar.common.api.proto.CommandGetTopicsOfNamespace.Mode;
+import org.apache.pulsar.common.compression.CompressionCodecProvider;
 import org.apache.pulsar.common.naming.NamespaceName;
 import org.apache.pulsar.common.naming.TopicDomain;
 import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.partition.PartitionedTopicMetadata;
 import org.apache.pulsar.common.schema.SchemaInfo;
+import org.apache.pulsar.common.topics.TopicList;
 import org.apache.pulsar.common.util.FutureUtil;
 import org.apache.pulsar.common.util.netty.EventLoopUtil;
 import org.slf4j.Logger;
@@ -96,6 +98,8 @@ public class PulsarClientImpl implements PulsarClient {
     private final Timer timer;
     private final ExecutorProvider externalExecutorProvider;
     private final ExecutorProvider internalExecutorService;
+    // Null when the consumers decode messages on the IO threads
+    private final ExecutorProvider decodeExecutorProvider;
 
     public enum State {
         Open, Closing, Closed
@@ -144,9 +148,16 @@ public class PulsarClientImpl implements PulsarClient {
         this.conf = conf;
         this.clientClock = conf.getClock();
         conf.getAuthentication().start();
+        try {
+            conf.getCompressionDictionaries().forEach(CompressionCodecProvider::registerZstdDictionary);
+        } catch (IllegalArgumentException e) {
+            throw new PulsarClientException.InvalidConfigurationException(e);
+        }
         this.cnxPool = cnxPool;
         externalExecutorProvider = new ExecutorProvider(conf.getNumListenerThreads(), getThreadFactory("pulsar-external-listener"));
         internalExecutorService = new ExecutorProvider(conf.getNumIoThreads(), getThreadFactory("pulsar-client-internal"));
+        decodeExecutorProvider = conf.getNumDecodeThreads() > 0
+                ? new ExecutorProvider(conf.getNumDecodeThreads(), getThreadFactory("pulsar-client-decode")) : null;
         if (conf.getServiceUrl().startsWith("http")) {
             lookup = new HttpLookupService(conf, eventLoopGroup);
         } else {
@@ -166,7 +177,7 @@ public class PulsarClientImpl implements PulsarClient {
             }
         }
 
-        memoryLimitController = new MemoryLimitController(conf.getMemoryLimitBytes());
+        memoryLimitController = new MemoryLimitController(conf.getMemoryLimitBytes(), this::onMemoryAvailable);
         state.set(State.Open);
     }
 
@@ -426,6 +437,7 @@ public class PulsarClientImpl implements PulsarClient {
             if (metadata.partitions > 0) {
                 consumer = MultiTopicsConsumerImpl.createPartitionedConsumer(PulsarClientImpl.this, conf,
                     listenerThread, consumerSubscribedFuture, metadata.partitions, schema, interceptors);
+                consumers.add(consumer);
             } else {
                 int partitionIndex = TopicName.getPartitionIndex(topic);
                 try {
@@ -504,14 +516,7 @@ public class PulsarClientImpl implements PulsarClient {
     // get topics that match 'topicsPattern' from original topics list
     // return result should contain only topic names, without partition part
     public static List<String> topicsPatternFilter(List<String> original, Pattern topicsPattern) {
-        final Pattern shortenedTopicsPattern = topicsPattern.toString().contains("://")
-            ? Pattern.compile(topicsPattern.toString().split("\\:\\/\\/")[1]) : topicsPattern;
-
-        return original.stream()
-            .map(TopicName::get)
-            .map(TopicName::toString)
-            .filter(topic -> shortenedTopicsPattern.matcher(topic.split("\\:\\/\\/")[1]).matches())
-            .collect(Collectors.toList());
+        return TopicList.filterTopics(original, topicsPattern);
     }
 
     public CompletableFuture<Reader<byte[]>> createReaderAsync(ReaderConfigurationData<byte[]> conf) {
@@ -670,6 +675,9 @@ public class PulsarClientImpl implements PulsarClient {
             timer.stop();
             externalExecutorProvider.shutdownNow();
             internalExecutorService.shutdownNow();
+            if (decodeExecutorProvider != null) {
+                decodeExecutorProvider.shutdownNow();
+            }
             conf.getAuthentication().close();
         } catch (Throwable t) {
             log.warn("Failed to shutdown Pulsar client", t);
@@ -698,6 +706,14 @@ public class PulsarClientImpl implements PulsarClient {
                 .thenCompose(pair -> cnxPool.getConnection(pair.getLeft(), pair.getRight()));
     }
 
+    /**
+     * Make the next connection for the topic start with a new lookup, once the broker it was connected to is found to
+     * no longer serve it.
+     */
+    protected void invalidateBroker(final String topic) {
+        lookup.invalidateBroker(TopicName.get(topic));
+    }
+
     /** visible for pulsar-functions **/
     public Timer timer() {
         return timer;
@@ -707,6 +723,10 @@ public class PulsarClientImpl implements PulsarClient {
         return externalExecutorProvider;
     }
 
+    ExecutorProvider decodeExecutorProvider() {
+        return decodeExecutorProvider;
+    }
+
     long newProducerId() {
         return producerIdGenerator.getAndIncrement();
     }
@@ -864,6 +884,16 @@ public class PulsarClientImpl implements PulsarClient {
         return memoryLimitController;
     }
 
+    private void onMemoryAvailable() {
+        // Let the consumers that were throttled by the memory limit ask for messages again, without sending the flow
+        // requests from the thread that released the memory
+        try {
+            getInternalExecutorService().execute(() -> consumers.forEach(ConsumerBase::onMemoryAvailable));
+        } catch (RejectedExecutionException e) {
+            log.debug("Client is closing, not resuming the consumers: {}", e.getMessage());
+        }
+    }
+
     @SuppressWarnings("unchecked")
     protected <T> CompletableFuture<Schema<T>> preProcessSchemaBeforeSubscribe(PulsarClientImpl pulsarClientImpl,
                                                                       Schema<T> schema,
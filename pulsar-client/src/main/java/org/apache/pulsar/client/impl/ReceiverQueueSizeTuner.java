@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the receiver queue size of a consumer from the observed traffic, instead of always prefetching the
+ * configured receiverQueueSize.
+ *
+ * <p>The queue is sized to the bandwidth-delay product of the consumer: the number of messages the application
+ * consumes within one flow round-trip to the broker (consumption rate x round-trip time), doubled since permits are
+ * only handed back to the broker once half of the queue has been consumed. A fast application on a high latency
+ * link gets a queue deep enough to never wait for a refill, while a slow one doesn't hoard messages that other
+ * consumers of a shared subscription could process. The size is kept within the given bounds, and it starts at the
+ * lower bound, growing exponentially as long as the application is faster than what the queue can feed.
+ */
+class ReceiverQueueSizeTuner {
+
+    // Weight of the latest sample in the moving averages
+    private static final double EWMA_ALPHA = 0.2;
+    // Ignore the samples longer than this, they are idle periods rather than the consumption rate or round-trip time
+    private static final long MAX_SAMPLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // Don't resize the queue unless the target differs by more than 1/RESIZE_HYSTERESIS of the current size
+    private static final int RESIZE_HYSTERESIS = 4;
+
+    private final int minSize;
+    private final int maxSize;
+
+    // Time at which a flow command was sent with no other permit outstanding, until the first message comes back
+    private volatile long pendingFlowNanos = -1L;
+    private volatile double avgRoundTripNanos = -1;
+
+    // Only accessed while holding the consumer lock
+    private long lastDequeueNanos = -1L;
+    private double avgDequeueIntervalNanos = -1;
+
+    ReceiverQueueSizeTuner(int minSize, int maxSize) {
+        this.minSize = Math.max(1, Math.min(minSize, maxSize));
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    int getInitialSize() {
+        return minSize;
+    }
+
+    /**
+     * Invoked when flow permits are sent to the broker while it had no permit left, so that the next message received
+     * measures a full round-trip.
+     */
+    void onFlowSent(long nowNanos) {
+        if (pendingFlowNanos < 0) {
+            pendingFlowNanos = nowNanos;
+        }
+    }
+
+    void onMessageReceived(long nowNanos) {
+        long flowNanos = pendingFlowNanos;
+        if (flowNanos >= 0) {
+            pendingFlowNanos = -1L;
+            long roundTrip = nowNanos - flowNanos;
+            if (roundTrip <= MAX_SAMPLE_NANOS) {
+                avgRoundTripNanos = ewma(avgRoundTripNanos, roundTrip);
+            }
+        }
+    }
+
+    /**
+     * Invoked when a message is handed to the application.
+     *
+     * @return the receiver queue size the consumer should use from now on
+     */
+    int onMessageDequeued(long nowNanos, int currentSize) {
+        if (lastDequeueNanos >= 0) {
+            long interval = nowNanos - lastDequeueNanos;
+            if (interval <= MAX_SAMPLE_NANOS) {
+                avgDequeueIntervalNanos = ewma(avgDequeueIntervalNanos, interval);
+            }
+        }
+        lastDequeueNanos = nowNanos;
+
+        int target = getTargetSize();
+        if (target < 0 || Math.abs(target - currentSize) <= currentSize / RESIZE_HYSTERESIS) {
+            return currentSize;
+        }
+        return target;
+    }
+
+    /**
+     * @return the receiver queue size matching the observed traffic, or -1 if there are no samples yet
+     */
+    int getTargetSize() {
+        double roundTrip = avgRoundTripNanos;
+        if (roundTrip < 0 || avgDequeueIntervalNanos < 0) {
+            return -1;
+        }
+        double target = Math.ceil(2 * roundTrip / Math.max(1, avgDequeueIntervalNanos));
+        return (int) Math.max(minSize, Math.min(maxSize, target));
+    }
+
+    private static double ewma(double avg, long sample) {
+        return avg < 0 ? sample : avg + EWMA_ALPHA * (sample - avg);
+    }
+}
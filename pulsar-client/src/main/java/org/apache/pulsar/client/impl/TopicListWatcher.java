@@ -0,0 +1,245 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import org.apache.pulsar.client.api.PulsarClientException;
+import org.apache.pulsar.common.api.proto.CommandWatchTopicListSuccess;
+import org.apache.pulsar.common.api.proto.CommandWatchTopicUpdate;
+import org.apache.pulsar.common.naming.NamespaceName;
+import org.apache.pulsar.common.protocol.Commands;
+import org.apache.pulsar.common.topics.TopicList;
+import org.apache.pulsar.common.util.FutureUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Receives from a broker the changes of the list of persistent topics of a namespace that match a pattern.
+ *
+ * <p>The watcher keeps the broker's view of the matching topics and checks it against the hash sent with every
+ * update. When the views diverge, or when the broker doesn't support watchers, {@link #isInSync()} returns false and
+ * the pattern consumer falls back to fetching the whole list of topics on every auto discovery period. While the
+ * watcher is in sync, it still fetches the list every 10 periods, in case the broker missed changes.
+ */
+public class TopicListWatcher extends HandlerState implements ConnectionHandler.Connection {
+
+    private static final String LOOKUP_TOPIC_NAME = "__topic_list_watcher";
+
+    private final NamespaceName namespaceName;
+    private final Pattern topicsPattern;
+    private final long watcherId;
+    private final ConnectionHandler connectionHandler;
+    private final Consumer<List<String>> topicsChangedListener;
+
+    private final Set<String> topics = new HashSet<>();
+    // Hash of the topics, or null if they are not in sync with the broker
+    private String topicsHash;
+    private volatile boolean supported = true;
+
+    /**
+     * @param topicsChangedListener called with all the matching topics whenever they change
+     */
+    public TopicListWatcher(PulsarClientImpl client, NamespaceName namespaceName, Pattern topicsPattern,
+                            Collection<String> initialTopics, Consumer<List<String>> topicsChangedListener) {
+        // Any broker can serve the watcher, the one owning a fixed name of the namespace is looked up
+        super(client, namespaceName.getPersistentTopicName(LOOKUP_TOPIC_NAME));
+        this.namespaceName = namespaceName;
+        this.topicsPattern = topicsPattern;
+        this.watcherId = client.newConsumerId();
+        this.topicsChangedListener = topicsChangedListener;
+        this.topics.addAll(initialTopics);
+        this.topicsHash = TopicList.calculateHash(topics);
+        this.connectionHandler = new ConnectionHandler(this,
+                new BackoffBuilder()
+                        .setInitialTime(client.getConfiguration().getInitialBackoffIntervalNanos(),
+                                TimeUnit.NANOSECONDS)
+                        .setMax(client.getConfiguration().getMaxBackoffIntervalNanos(), TimeUnit.NANOSECONDS)
+                        .setMandatoryStop(0, TimeUnit.MILLISECONDS)
+                        .create(),
+                this);
+    }
+
+    public void start() {
+        connectionHandler.grabCnx();
+    }
+
+    @Override
+    public void connectionFailed(PulsarClientException exception) {
+        log.warn("[{}] Topic list watcher {} failed to connect: {}", topic, watcherId, exception.getMessage());
+    }
+
+    @Override
+    public void connectionOpened(ClientCnx cnx) {
+        if (getState() == State.Closing || getState() == State.Closed) {
+            setState(State.Closed);
+            return;
+        }
+        if (!cnx.isSupportsTopicListWatchers()) {
+            unsupported(cnx, "the broker does not support topic list watchers");
+            return;
+        }
+
+        String knownTopicsHash;
+        synchronized (this) {
+            knownTopicsHash = topicsHash;
+        }
+        long requestId = client.newRequestId();
+        cnx.registerTopicListWatcher(watcherId, this);
+        cnx.newWatchTopicList(Commands.newWatchTopicList(requestId, watcherId, namespaceName.toString(),
+                topicsPattern.pattern(), knownTopicsHash), requestId)
+                .thenAccept(success -> {
+                    if (!changeToReadyState()) {
+                        // The watcher was closed while it was being registered
+                        setState(State.Closed);
+                        cnx.removeTopicListWatcher(watcherId);
+                        closeOnBroker(cnx);
+                        return;
+                    }
+                    connectionHandler.setClientCnx(cnx);
+                    connectionHandler.resetBackoff();
+                    log.info("[{}] Topic list watcher {} registered on {}", topic, watcherId, cnx.channel());
+                    handleWatchTopicListSuccess(success);
+                }).exceptionally(ex -> {
+                    cnx.removeTopicListWatcher(watcherId);
+                    Throwable cause = FutureUtil.unwrapCompletionException(ex);
+                    if (cause instanceof PulsarClientException.NotAllowedException) {
+                        unsupported(cnx, cause.getMessage());
+                    } else if (getState() != State.Closing && getState() != State.Closed) {
+                        log.warn("[{}] Failed to register topic list watcher {}: {}", topic, watcherId,
+                                cause.getMessage());
+                        connectionHandler.reconnectLater(cause);
+                    }
+                    return null;
+                });
+    }
+
+    private void unsupported(ClientCnx cnx, String reason) {
+        log.info("[{}] Topic list watcher is not supported by {}, falling back to polling: {}", topic,
+                cnx.channel(), reason);
+        supported = false;
+        setState(State.Closed);
+        client.getCnxPool().releaseConnection(cnx);
+    }
+
+    private void handleWatchTopicListSuccess(CommandWatchTopicListSuccess success) {
+        List<String> changedTopics = null;
+        synchronized (this) {
+            if (!success.getTopicsHash().equals(topicsHash)) {
+                topics.clear();
+                topics.addAll(success.getTopicsList());
+                topicsHash = success.getTopicsHash();
+                changedTopics = new ArrayList<>(topics);
+            }
+        }
+        if (changedTopics != null) {
+            topicsChangedListener.accept(changedTopics);
+        }
+    }
+
+    void handleCommandWatchTopicUpdate(CommandWatchTopicUpdate update) {
+        List<String> changedTopics;
+        synchronized (this) {
+            topics.removeAll(update.getDeletedTopicsList());
+            topics.addAll(update.getNewTopicsList());
+            if (TopicList.calculateHash(topics).equals(update.getTopicsHash())) {
+                topicsHash = update.getTopicsHash();
+            } else {
+                log.warn("[{}] Topic list watcher {} is out of sync with the broker", topic, watcherId);
+                topicsHash = null;
+            }
+            changedTopics = new ArrayList<>(topics);
+        }
+        topicsChangedListener.accept(changedTopics);
+    }
+
+    /**
+     * Replace the topics with a list fetched from the broker.
+     *
+     * @return whether the fetched topics differ from the ones the watcher knew
+     */
+    public synchronized boolean resetTopics(List<String> matchingTopics) {
+        String matchingTopicsHash = TopicList.calculateHash(matchingTopics);
+        boolean changed = !matchingTopicsHash.equals(topicsHash);
+        topics.clear();
+        topics.addAll(matchingTopics);
+        topicsHash = matchingTopicsHash;
+        return changed;
+    }
+
+    /**
+     * Whether the watcher is connected and its topics match the broker ones.
+     */
+    public boolean isInSync() {
+        if (!supported || getState() != State.Ready) {
+            return false;
+        }
+        synchronized (this) {
+            return topicsHash != null;
+        }
+    }
+
+    void connectionClosed(ClientCnx cnx) {
+        connectionHandler.connectionClosed(cnx);
+    }
+
+    public CompletableFuture<Void> closeAsync() {
+        State previousState = getAndUpdateState(state -> state == State.Closed ? state : State.Closing);
+        if (previousState == State.Closing || previousState == State.Closed) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        ClientCnx cnx = connectionHandler.cnx();
+        if (cnx == null || previousState != State.Ready) {
+            setState(State.Closed);
+            return CompletableFuture.completedFuture(null);
+        }
+        cnx.removeTopicListWatcher(watcherId);
+        return closeOnBroker(cnx).handle((v, ex) -> {
+            setState(State.Closed);
+            return null;
+        });
+    }
+
+    private CompletableFuture<Void> closeOnBroker(ClientCnx cnx) {
+        long requestId = client.newRequestId();
+        return cnx.sendRequestWithId(Commands.newWatchTopicListClose(requestId, watcherId), requestId)
+                .thenApply(response -> null);
+    }
+
+    @Override
+    String getHandlerName() {
+        return "topic-list-watcher-" + watcherId;
+    }
+
+    @VisibleForTesting
+    long getWatcherId() {
+        return watcherId;
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(TopicListWatcher.class);
+}
@@ -207,6 +207,10 @@ public class TransactionMetaStoreHandler extends HandlerState implements Connect
             LOG.debug("Add subscription {} to txn {}.", subscriptionList, txnID);
         }
         CompletableFuture<Void> completableFuture = new CompletableFuture<>();
+
+        if (!canSendRequest(completableFuture)) {
+            return completableFuture;
+        }
         long requestId = client.newRequestId();
         ByteBuf cmd = Commands.newAddSubscriptionToTxn(
                 requestId, txnID.getLeastSigBits(), txnID.getMostSigBits(), subscriptionList);
@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import java.util.function.Consumer;
+
+import org.apache.pulsar.client.api.MessageId;
+
+/**
+ * Un-acked message tracker for consumers on a single topic partition.
+ *
+ * <p>Messages are tracked per entry, as (ledgerId, entryId) pairs on a {@link LongPairTimingWheel} with one slot per
+ * tick, so that no message id object is retained per tracked message and acknowledgments don't contend on a lock.
+ */
+public class UnAckedEntryMessageTracker extends UnAckedMessageTracker {
+
+    private final LongPairTimingWheel timingWheel;
+    private final int partitionIndex;
+
+    public UnAckedEntryMessageTracker(PulsarClientImpl client, ConsumerBase<?> consumerBase, long ackTimeoutMillis) {
+        this(client, consumerBase, ackTimeoutMillis, ackTimeoutMillis);
+    }
+
+    public UnAckedEntryMessageTracker(PulsarClientImpl client, ConsumerBase<?> consumerBase, long ackTimeoutMillis,
+                                      long tickDurationInMs) {
+        super(client, consumerBase, ackTimeoutMillis, tickDurationInMs);
+        // All the messages of a consumer come from the same partition, so only the entry position is tracked
+        this.partitionIndex = consumerBase instanceof ConsumerImpl
+                ? ((ConsumerImpl<?>) consumerBase).getPartitionIndex() : -1;
+        this.timingWheel = new LongPairTimingWheel(numberOfTimePartitions);
+        start();
+    }
+
+    @Override
+    protected int expireOldestPartition(Consumer<MessageId> timedOutMessages) {
+        return timingWheel.advance((ledgerId, entryId) ->
+                timedOutMessages.accept(new MessageIdImpl(ledgerId, entryId, partitionIndex)));
+    }
+
+    @Override
+    public void clear() {
+        timingWheel.clear();
+    }
+
+    @Override
+    public boolean add(MessageId messageId) {
+        MessageIdImpl id = MessageIdImpl.convertToMessageIdImpl(messageId);
+        if (id == null) {
+            return false;
+        }
+        return timingWheel.add(id.getLedgerId(), id.getEntryId());
+    }
+
+    @Override
+    boolean isEmpty() {
+        return timingWheel.isEmpty();
+    }
+
+    @Override
+    public boolean remove(MessageId messageId) {
+        MessageIdImpl id = MessageIdImpl.convertToMessageIdImpl(messageId);
+        if (id == null || isBatchIndex(id)) {
+            // Batches are tracked as a whole entry, which is not released by acknowledging a single batch index
+            return false;
+        }
+        return timingWheel.remove(id.getLedgerId(), id.getEntryId());
+    }
+
+    @Override
+    long size() {
+        return timingWheel.size();
+    }
+
+    @Override
+    public int removeMessagesTill(MessageId msgId) {
+        MessageIdImpl id = MessageIdImpl.convertToMessageIdImpl(msgId);
+        if (id == null) {
+            return 0;
+        }
+        long lastLedgerId = id.getLedgerId();
+        long lastEntryId = id.getEntryId();
+        return timingWheel.removeIf((ledgerId, entryId) -> ledgerId < lastLedgerId
+                || (ledgerId == lastLedgerId && entryId <= lastEntryId));
+    }
+
+    private static boolean isBatchIndex(MessageIdImpl id) {
+        return id instanceof BatchMessageIdImpl && ((BatchMessageIdImpl) id).getBatchIndex() >= 0;
+    }
+}
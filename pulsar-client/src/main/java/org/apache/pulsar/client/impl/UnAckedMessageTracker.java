@@ -24,38 +24,38 @@ import io.netty.util.TimerTask;
 import io.netty.util.concurrent.FastThreadLocal;
 
 import org.apache.pulsar.client.api.MessageId;
-import org.apache.pulsar.common.util.collections.ConcurrentOpenHashSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
-import java.util.ArrayDeque;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
-public class UnAckedMessageTracker implements Closeable {
+/**
+ * Tracks the messages received by a consumer until they are acknowledged, and redelivers the ones that were not
+ * acknowledged within the ack timeout.
+ *
+ * <p>The ack timeout is divided in time partitions of one tick each. Messages are added to the latest partition,
+ * and on every tick the oldest partition times out. Implementations decide how the tracked messages are stored, this
+ * class drives the ticks and the redelivery of the timed out messages.
+ */
+public abstract class UnAckedMessageTracker implements Closeable {
     private static final Logger log = LoggerFactory.getLogger(UnAckedMessageTracker.class);
 
-    protected final ConcurrentHashMap<MessageId, ConcurrentOpenHashSet<MessageId>> messageIdPartitionMap;
-    protected final ArrayDeque<ConcurrentOpenHashSet<MessageId>> timePartitions;
-
-    protected final Lock readLock;
-    protected final Lock writeLock;
-
     public static final UnAckedMessageTrackerDisabled UNACKED_MESSAGE_TRACKER_DISABLED = new UnAckedMessageTrackerDisabled();
-    private final long ackTimeoutMillis;
-    private final long tickDurationInMs;
 
     private static class UnAckedMessageTrackerDisabled extends UnAckedMessageTracker {
         @Override
         public void clear() {
         }
 
+        @Override
+        boolean isEmpty() {
+            return true;
+        }
+
         @Override
         long size() {
             return 0;
@@ -77,23 +77,13 @@ public class UnAckedMessageTracker implements Closeable {
         }
 
         @Override
-        public void close() {
+        protected int expireOldestPartition(Consumer<MessageId> timedOutMessages) {
+            return 0;
         }
-    }
 
-    private Timeout timeout;
-
-    public UnAckedMessageTracker() {
-        readLock = null;
-        writeLock = null;
-        timePartitions = null;
-        messageIdPartitionMap = null;
-        this.ackTimeoutMillis = 0;
-        this.tickDurationInMs = 0;
-    }
-
-    public UnAckedMessageTracker(PulsarClientImpl client, ConsumerBase<?> consumerBase, long ackTimeoutMillis) {
-        this(client, consumerBase, ackTimeoutMillis, ackTimeoutMillis);
+        @Override
+        public void close() {
+        }
     }
 
     private static final FastThreadLocal<HashSet<MessageId>> TL_MESSAGE_IDS_SET = new FastThreadLocal<HashSet<MessageId>>() {
@@ -103,48 +93,56 @@ public class UnAckedMessageTracker implements Closeable {
         }
     };
 
-    public UnAckedMessageTracker(PulsarClientImpl client, ConsumerBase<?> consumerBase, long ackTimeoutMillis, long tickDurationInMs) {
+    private final PulsarClientImpl client;
+    private final ConsumerBase<?> consumerBase;
+    private final long tickDurationInMs;
+    // Number of time partitions covering the ack timeout, plus the one being filled
+    protected final int numberOfTimePartitions;
+
+    private Timeout timeout;
+
+    private UnAckedMessageTracker() {
+        this.client = null;
+        this.consumerBase = null;
+        this.tickDurationInMs = 0;
+        this.numberOfTimePartitions = 0;
+    }
+
+    protected UnAckedMessageTracker(PulsarClientImpl client, ConsumerBase<?> consumerBase, long ackTimeoutMillis,
+                                    long tickDurationInMs) {
         Preconditions.checkArgument(tickDurationInMs > 0 && ackTimeoutMillis >= tickDurationInMs);
-        this.ackTimeoutMillis = ackTimeoutMillis;
+        this.client = client;
+        this.consumerBase = consumerBase;
         this.tickDurationInMs = tickDurationInMs;
-        ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
-        this.readLock = readWriteLock.readLock();
-        this.writeLock = readWriteLock.writeLock();
-        this.messageIdPartitionMap = new ConcurrentHashMap<>();
-        this.timePartitions = new ArrayDeque<>();
-
-        int blankPartitions = (int)Math.ceil((double)this.ackTimeoutMillis / this.tickDurationInMs);
-        for (int i = 0; i < blankPartitions + 1; i++) {
-            timePartitions.add(new ConcurrentOpenHashSet<>(16, 1));
-        }
+        this.numberOfTimePartitions = (int) Math.ceil((double) ackTimeoutMillis / tickDurationInMs) + 1;
+    }
 
+    /**
+     * Start timing out messages, once the implementation is initialized.
+     */
+    protected final void start() {
         timeout = client.timer().newTimeout(new TimerTask() {
             @Override
             public void run(Timeout t) throws Exception {
                 Set<MessageId> messageIds = TL_MESSAGE_IDS_SET.get();
                 messageIds.clear();
 
-                writeLock.lock();
-                try {
-                    ConcurrentOpenHashSet<MessageId> headPartition = timePartitions.removeFirst();
-                    if (!headPartition.isEmpty()) {
-                        log.warn("[{}] {} messages have timed-out", consumerBase, headPartition.size());
-                        headPartition.forEach(messageId -> {
+                synchronized (UnAckedMessageTracker.this) {
+                    try {
+                        int timedOut = expireOldestPartition(messageId -> {
                             addChunkedMessageIdsAndRemoveFromSequnceMap(messageId, messageIds, consumerBase);
                             messageIds.add(messageId);
-                            messageIdPartitionMap.remove(messageId);
                         });
+                        if (timedOut > 0) {
+                            log.warn("[{}] {} messages have timed-out", consumerBase, timedOut);
+                        }
+                    } finally {
+                        if (messageIds.size() > 0) {
+                            consumerBase.onAckTimeoutSend(messageIds);
+                            consumerBase.redeliverUnacknowledgedMessages(messageIds);
+                        }
+                        timeout = client.timer().newTimeout(this, tickDurationInMs, TimeUnit.MILLISECONDS);
                     }
-
-                    headPartition.clear();
-                    timePartitions.addLast(headPartition);
-                } finally {
-                    if (messageIds.size() > 0) {
-                        consumerBase.onAckTimeoutSend(messageIds);
-                        consumerBase.redeliverUnacknowledgedMessages(messageIds);
-                    }
-                    timeout = client.timer().newTimeout(this, tickDurationInMs, TimeUnit.MILLISECONDS);
-                    writeLock.unlock();
                 }
             }
         }, this.tickDurationInMs, TimeUnit.MILLISECONDS);
@@ -163,96 +161,31 @@ public class UnAckedMessageTracker implements Closeable {
         }
     }
 
-    public void clear() {
-        writeLock.lock();
-        try {
-            messageIdPartitionMap.clear();
-            timePartitions.forEach(tp -> tp.clear());
-        } finally {
-            writeLock.unlock();
-        }
-    }
+    public abstract void clear();
 
-    public boolean add(MessageId messageId) {
-        writeLock.lock();
-        try {
-            ConcurrentOpenHashSet<MessageId> partition = timePartitions.peekLast();
-            ConcurrentOpenHashSet<MessageId> previousPartition = messageIdPartitionMap.putIfAbsent(messageId,
-                    partition);
-            if (previousPartition == null) {
-                return partition.add(messageId);
-            } else {
-                return false;
-            }
-        } finally {
-            writeLock.unlock();
-        }
-    }
+    public abstract boolean add(MessageId messageId);
 
-    boolean isEmpty() {
-        readLock.lock();
-        try {
-            return messageIdPartitionMap.isEmpty();
-        } finally {
-            readLock.unlock();
-        }
-    }
+    abstract boolean isEmpty();
 
-    public boolean remove(MessageId messageId) {
-        writeLock.lock();
-        try {
-            boolean removed = false;
-            ConcurrentOpenHashSet<MessageId> exist = messageIdPartitionMap.remove(messageId);
-            if (exist != null) {
-                removed = exist.remove(messageId);
-            }
-            return removed;
-        } finally {
-            writeLock.unlock();
-        }
-    }
+    public abstract boolean remove(MessageId messageId);
 
-    long size() {
-        readLock.lock();
-        try {
-            return messageIdPartitionMap.size();
-        } finally {
-            readLock.unlock();
-        }
-    }
+    abstract long size();
 
-    public int removeMessagesTill(MessageId msgId) {
-        writeLock.lock();
-        try {
-            int removed = 0;
-            Iterator<MessageId> iterator = messageIdPartitionMap.keySet().iterator();
-            while (iterator.hasNext()) {
-                MessageId messageId = iterator.next();
-                if (messageId.compareTo(msgId) <= 0) {
-                    ConcurrentOpenHashSet<MessageId> exist = messageIdPartitionMap.get(messageId);
-                    if (exist != null) {
-                        exist.remove(messageId);
-                    }
-                    iterator.remove();
-                    removed ++;
-                }
-            }
-            return removed;
-        } finally {
-            writeLock.unlock();
-        }
-    }
+    public abstract int removeMessagesTill(MessageId msgId);
 
-    private void stop() {
-        writeLock.lock();
-        try {
-            if (timeout != null && !timeout.isCancelled()) {
-                timeout.cancel();
-            }
-            this.clear();
-        } finally {
-            writeLock.unlock();
+    /**
+     * Time out the oldest time partition and make it the one new messages are added to.
+     *
+     * @param timedOutMessages receives the id of every message that timed out
+     * @return the number of messages that timed out
+     */
+    protected abstract int expireOldestPartition(Consumer<MessageId> timedOutMessages);
+
+    private synchronized void stop() {
+        if (timeout != null && !timeout.isCancelled()) {
+            timeout.cancel();
         }
+        this.clear();
     }
 
     @Override
@@ -21,16 +21,146 @@ package org.apache.pulsar.client.impl;
 import org.apache.pulsar.client.api.MessageId;
 import org.apache.pulsar.common.util.collections.ConcurrentOpenHashSet;
 
+import java.util.ArrayDeque;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
+/**
+ * Un-acked message tracker for consumers on multiple topics.
+ *
+ * <p>The tracked message ids carry the topic name and the batch index of every single message, so unlike the
+ * {@link UnAckedEntryMessageTracker} they can't be reduced to (ledgerId, entryId) pairs and are kept as objects.
+ */
 public class UnAckedTopicMessageTracker extends UnAckedMessageTracker {
 
+    protected final ConcurrentHashMap<MessageId, ConcurrentOpenHashSet<MessageId>> messageIdPartitionMap;
+    protected final ArrayDeque<ConcurrentOpenHashSet<MessageId>> timePartitions;
+
+    protected final Lock readLock;
+    protected final Lock writeLock;
+
     public UnAckedTopicMessageTracker(PulsarClientImpl client, ConsumerBase<?> consumerBase, long ackTimeoutMillis) {
-        super(client, consumerBase, ackTimeoutMillis);
+        this(client, consumerBase, ackTimeoutMillis, ackTimeoutMillis);
     }
 
     public UnAckedTopicMessageTracker(PulsarClientImpl client, ConsumerBase<?> consumerBase, long ackTimeoutMillis, long tickDurationMillis) {
         super(client, consumerBase, ackTimeoutMillis, tickDurationMillis);
+        ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+        this.readLock = readWriteLock.readLock();
+        this.writeLock = readWriteLock.writeLock();
+        this.messageIdPartitionMap = new ConcurrentHashMap<>();
+        this.timePartitions = new ArrayDeque<>();
+        for (int i = 0; i < numberOfTimePartitions; i++) {
+            timePartitions.add(new ConcurrentOpenHashSet<>(16, 1));
+        }
+        start();
+    }
+
+    @Override
+    protected int expireOldestPartition(Consumer<MessageId> timedOutMessages) {
+        writeLock.lock();
+        try {
+            ConcurrentOpenHashSet<MessageId> headPartition = timePartitions.removeFirst();
+            int timedOut = (int) headPartition.size();
+            headPartition.forEach(messageId -> {
+                timedOutMessages.accept(messageId);
+                messageIdPartitionMap.remove(messageId);
+            });
+            headPartition.clear();
+            timePartitions.addLast(headPartition);
+            return timedOut;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        writeLock.lock();
+        try {
+            messageIdPartitionMap.clear();
+            timePartitions.forEach(tp -> tp.clear());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean add(MessageId messageId) {
+        writeLock.lock();
+        try {
+            ConcurrentOpenHashSet<MessageId> partition = timePartitions.peekLast();
+            ConcurrentOpenHashSet<MessageId> previousPartition = messageIdPartitionMap.putIfAbsent(messageId,
+                    partition);
+            if (previousPartition == null) {
+                return partition.add(messageId);
+            } else {
+                return false;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    boolean isEmpty() {
+        readLock.lock();
+        try {
+            return messageIdPartitionMap.isEmpty();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(MessageId messageId) {
+        writeLock.lock();
+        try {
+            boolean removed = false;
+            ConcurrentOpenHashSet<MessageId> exist = messageIdPartitionMap.remove(messageId);
+            if (exist != null) {
+                removed = exist.remove(messageId);
+            }
+            return removed;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    long size() {
+        readLock.lock();
+        try {
+            return messageIdPartitionMap.size();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int removeMessagesTill(MessageId msgId) {
+        writeLock.lock();
+        try {
+            int removed = 0;
+            Iterator<MessageId> iterator = messageIdPartitionMap.keySet().iterator();
+            while (iterator.hasNext()) {
+                MessageId messageId = iterator.next();
+                if (messageId.compareTo(msgId) <= 0) {
+                    ConcurrentOpenHashSet<MessageId> exist = messageIdPartitionMap.get(messageId);
+                    if (exist != null) {
+                        exist.remove(messageId);
+                    }
+                    iterator.remove();
+                    removed ++;
+                }
+            }
+            return removed;
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     public int removeTopicMessages(String topicName) {
@@ -55,5 +185,4 @@ public class UnAckedTopicMessageTracker extends UnAckedMessageTracker {
             writeLock.unlock();
         }
     }
-
 }
@@ -85,7 +85,7 @@ public class ZeroQueueConsumerImpl<T> extends ConsumerImpl<T> {
         // Just being cautious
         if (incomingMessages.size() > 0) {
             log.error("The incoming message queue should never be greater than 0 when Queue size is 0");
-            incomingMessages.clear();
+            clearIncomingMessages();
         }
 
         Message<T> message;
@@ -99,6 +99,7 @@ public class ZeroQueueConsumerImpl<T> extends ConsumerImpl<T> {
             }
             do {
                 message = incomingMessages.take();
+                decreaseIncomingMessageSize(message);
                 lastDequeuedMessageId = message.getMessageId();
                 ClientCnx msgCnx = ((MessageImpl<?>) message).getCnx();
                 // synchronized need to prevent race between connectionOpened and the check "msgCnx == cnx()"
@@ -121,7 +122,7 @@ public class ZeroQueueConsumerImpl<T> extends ConsumerImpl<T> {
             // Finally blocked is invoked in case the block on incomingMessages is interrupted
             waitingOnReceiveForZeroQueueSize = false;
             // Clearing the queue in case there was a race with messageReceived
-            incomingMessages.clear();
+            clearIncomingMessages();
         }
     }
 
@@ -179,7 +180,7 @@ public class ZeroQueueConsumerImpl<T> extends ConsumerImpl<T> {
     @Override
     void receiveIndividualMessagesFromBatch(MessageMetadata msgMetadata, int redeliveryCount,
             List<Long> ackSet,
-            ByteBuf uncompressedPayload, MessageIdData messageId, ClientCnx cnx) {
+            ByteBuf uncompressedPayload, MessageIdData messageId, ClientCnx cnx, int epoch) {
         log.warn(
                 "Closing consumer [{}]-[{}] due to unsupported received batch-message with zero receiver queue size",
                 subscription, consumerName);
@@ -21,6 +21,8 @@ package org.apache.pulsar.client.impl.conf;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.collect.Sets;
 import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -62,7 +64,11 @@ public class ClientConfigurationData implements Serializable, Cloneable {
 
     private int numIoThreads = 1;
     private int numListenerThreads = 1;
+    private int numDecodeThreads = 0;
+    @JsonIgnore
+    private List<byte[]> compressionDictionaries = new ArrayList<>();
     private int connectionsPerBroker = 1;
+    private int connectionMaxIdleSeconds = 0;
 
     private boolean useTcpNoDelay = true;
 
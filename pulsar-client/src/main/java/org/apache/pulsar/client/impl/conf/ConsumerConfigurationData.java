@@ -71,6 +71,8 @@ public class ConsumerConfigurationData<T> implements Serializable, Cloneable {
 
     private int receiverQueueSize = 1000;
 
+    private boolean autoScaledReceiverQueueSizeEnabled = false;
+
     private long acknowledgementsGroupTimeMicros = TimeUnit.MILLISECONDS.toMicros(100);
 
     private long negativeAckRedeliveryDelayMicros = TimeUnit.MINUTES.toMicros(1);
@@ -131,6 +133,9 @@ public class ConsumerConfigurationData<T> implements Serializable, Cloneable {
 
     private boolean ackReceiptEnabled = false;
 
+    // Don't send any permits to the broker until the consumer gets resumed
+    private boolean startPaused = false;
+
     public void setAutoUpdatePartitionsIntervalSeconds(int interval, TimeUnit timeUnit) {
         checkArgument(interval > 0, "interval needs to be > 0");
         this.autoUpdatePartitionsIntervalSeconds = timeUnit.toSeconds(interval);
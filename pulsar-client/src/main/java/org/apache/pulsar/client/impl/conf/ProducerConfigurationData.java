@@ -90,6 +90,7 @@ public class ProducerConfigurationData implements Serializable, Cloneable {
     private Set<String> encryptionKeys = new TreeSet<>();
 
     private CompressionType compressionType = CompressionType.NONE;
+    private byte[] compressionDictionary = null;
 
     // Cannot use Optional<Long> since it's not serializable
     private Long initialSequenceId = null;
@@ -206,15 +206,26 @@ public class TransactionCoordinatorClientImpl implements TransactionCoordinatorC
 
     @Override
     public CompletableFuture<Void> addSubscriptionToTxnAsync(TxnID txnID, String topic, String subscription) {
+        Subscription sub = new Subscription()
+                .setTopic(topic)
+                .setSubscription(subscription);
+        return addSubscriptionsToTxnAsync(txnID, Collections.singletonList(sub));
+    }
+
+    /**
+     * Add several ack subscriptions to txn asynchronously, in a single request.
+     *
+     * @param txnID transaction id
+     * @param subscriptions the subscriptions to add
+     * @return the future of the result
+     */
+    public CompletableFuture<Void> addSubscriptionsToTxnAsync(TxnID txnID, List<Subscription> subscriptions) {
         TransactionMetaStoreHandler handler = handlerMap.get(txnID.getMostSigBits());
         if (handler == null) {
             return FutureUtil.failedFuture(
                     new TransactionCoordinatorClientException.MetaStoreHandlerNotExistsException(txnID.getMostSigBits()));
         }
-        Subscription sub = new Subscription()
-                .setTopic(topic)
-                .setSubscription(subscription);
-        return handler.addSubscriptionToTxn(txnID, Collections.singletonList(sub));
+        return handler.addSubscriptionToTxn(txnID, subscriptions);
     }
 
     @Override
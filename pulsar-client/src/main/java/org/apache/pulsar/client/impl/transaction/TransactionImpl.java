@@ -29,7 +29,6 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicLong;
 
-import com.google.common.collect.Lists;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pulsar.client.api.MessageId;
@@ -37,6 +36,7 @@ import org.apache.pulsar.client.api.transaction.Transaction;
 import org.apache.pulsar.client.api.transaction.TxnID;
 import org.apache.pulsar.client.impl.ConsumerImpl;
 import org.apache.pulsar.client.impl.PulsarClientImpl;
+import org.apache.pulsar.common.api.proto.Subscription;
 
 /**
  * The default implementation of {@link Transaction}.
@@ -59,6 +59,8 @@ public class TransactionImpl implements Transaction {
     private final Map<String, CompletableFuture<Void>> registerPartitionMap;
     private final Map<String, CompletableFuture<Void>> registerSubscriptionMap;
     private final TransactionCoordinatorClientImpl tcClient;
+    private final TransactionRegistrationBatcher<String> partitionRegistrationBatcher;
+    private final TransactionRegistrationBatcher<Subscription> subscriptionRegistrationBatcher;
     private Map<ConsumerImpl<?>, Integer> cumulativeAckConsumers;
 
     private final ArrayList<CompletableFuture<MessageId>> sendFutureList;
@@ -76,6 +78,11 @@ public class TransactionImpl implements Transaction {
         this.registerPartitionMap = new ConcurrentHashMap<>();
         this.registerSubscriptionMap = new ConcurrentHashMap<>();
         this.tcClient = client.getTcClient();
+        TxnID txnID = new TxnID(txnIdMostBits, txnIdLeastBits);
+        this.partitionRegistrationBatcher = new TransactionRegistrationBatcher<>(
+                partitions -> tcClient.addPublishPartitionToTxnAsync(txnID, partitions));
+        this.subscriptionRegistrationBatcher = new TransactionRegistrationBatcher<>(
+                subscriptions -> tcClient.addSubscriptionsToTxnAsync(txnID, subscriptions));
 
         this.sendFutureList = new ArrayList<>();
         this.ackFutureList = new ArrayList<>();
@@ -89,8 +96,7 @@ public class TransactionImpl implements Transaction {
             if (future != null) {
                 return future.thenCompose(ignored -> CompletableFuture.completedFuture(null));
             } else {
-                return tcClient.addPublishPartitionToTxnAsync(
-                            new TxnID(txnIdMostBits, txnIdLeastBits), Lists.newArrayList(topic))
+                return partitionRegistrationBatcher.register(topic)
                         .thenCompose(ignored -> CompletableFuture.completedFuture(null));
             }
         });
@@ -108,8 +114,9 @@ public class TransactionImpl implements Transaction {
             if (future != null) {
                 return future.thenCompose(ignored -> CompletableFuture.completedFuture(null));
             } else {
-                return tcClient.addSubscriptionToTxnAsync(
-                        new TxnID(txnIdMostBits, txnIdLeastBits), topic, subscription)
+                return subscriptionRegistrationBatcher.register(new Subscription()
+                        .setTopic(topic)
+                        .setSubscription(subscription))
                         .thenCompose(ignored -> CompletableFuture.completedFuture(null));
             }
         });
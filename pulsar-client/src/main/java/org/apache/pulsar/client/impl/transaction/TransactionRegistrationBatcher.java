@@ -0,0 +1,92 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl.transaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Coalesces the registrations of the partitions or subscriptions of a transaction with its coordinator.
+ *
+ * <p>The first registration is sent right away. The registrations issued while a request is in flight are
+ * queued and sent together in a single request once it completes, so a transaction touching many partitions
+ * makes a few round trips instead of one per partition, without delaying a lone registration.
+ */
+class TransactionRegistrationBatcher<T> {
+
+    private final Function<List<T>, CompletableFuture<Void>> sender;
+
+    private List<T> pendingItems = new ArrayList<>();
+
+    private CompletableFuture<Void> pendingFuture;
+
+    private boolean requestInFlight;
+
+    TransactionRegistrationBatcher(Function<List<T>, CompletableFuture<Void>> sender) {
+        this.sender = sender;
+    }
+
+    synchronized CompletableFuture<Void> register(T item) {
+        if (!requestInFlight) {
+            requestInFlight = true;
+            return send(Collections.singletonList(item));
+        }
+        if (pendingFuture == null) {
+            pendingFuture = new CompletableFuture<>();
+        }
+        pendingItems.add(item);
+        return pendingFuture;
+    }
+
+    private CompletableFuture<Void> send(List<T> items) {
+        // complete a future of our own, so that the callers are the only dependents of what is returned
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        sender.apply(items).whenComplete((ignore, throwable) -> {
+            if (throwable != null) {
+                future.completeExceptionally(throwable);
+            } else {
+                future.complete(null);
+            }
+            sendPending();
+        });
+        return future;
+    }
+
+    private synchronized void sendPending() {
+        if (pendingItems.isEmpty()) {
+            requestInFlight = false;
+            return;
+        }
+        List<T> items = pendingItems;
+        CompletableFuture<Void> future = pendingFuture;
+        pendingItems = new ArrayList<>();
+        pendingFuture = null;
+        sender.apply(items).whenComplete((ignore, throwable) -> {
+            if (throwable != null) {
+                future.completeExceptionally(throwable);
+            } else {
+                future.complete(null);
+            }
+            sendPending();
+        });
+    }
+}
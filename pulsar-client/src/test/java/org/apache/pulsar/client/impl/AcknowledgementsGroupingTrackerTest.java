@@ -18,10 +18,13 @@
  */
 package org.apache.pulsar.client.impl;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
@@ -37,9 +40,12 @@ import java.util.concurrent.TimeUnit;
 import org.apache.pulsar.client.impl.conf.ClientConfigurationData;
 import org.apache.pulsar.client.impl.conf.ConsumerConfigurationData;
 import org.apache.pulsar.client.util.TimedCompletableFuture;
+import org.apache.pulsar.common.api.proto.BaseCommand;
+import org.apache.pulsar.common.api.proto.CommandAck;
 import org.apache.pulsar.common.api.proto.CommandAck.AckType;
 import org.apache.pulsar.common.util.collections.ConcurrentOpenHashMap;
 import org.apache.pulsar.common.api.proto.ProtocolVersion;
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
@@ -61,7 +67,7 @@ public class AcknowledgementsGroupingTrackerTest {
         doReturn(client).when(consumer).getClient();
         doReturn(cnx).when(consumer).getClientCnx();
         doReturn(new ConsumerStatsRecorderImpl()).when(consumer).getStats();
-        doReturn(new UnAckedMessageTracker().UNACKED_MESSAGE_TRACKER_DISABLED)
+        doReturn(UnAckedMessageTracker.UNACKED_MESSAGE_TRACKER_DISABLED)
                 .when(consumer).getUnAckedMessageTracker();
         ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
         when(cnx.ctx()).thenReturn(ctx);
@@ -381,6 +387,58 @@ public class AcknowledgementsGroupingTrackerTest {
         tracker.close();
     }
 
+    @Test
+    public void testAckTrackerRangeAck() throws Exception {
+        ConsumerConfigurationData<?> conf = new ConsumerConfigurationData<>();
+        conf.setAcknowledgementsGroupTimeMicros(TimeUnit.SECONDS.toMicros(10));
+        PersistentAcknowledgmentsGroupingTracker tracker =
+                new PersistentAcknowledgmentsGroupingTracker(consumer, conf, eventLoopGroup);
+
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+        when(cnx.ctx()).thenReturn(ctx);
+        when(cnx.getRemoteEndpointProtocolVersion()).thenReturn(ProtocolVersion.v17_VALUE);
+        when(cnx.isSupportsRangeAcks()).thenReturn(true);
+        when(consumer.getClientCnx()).thenReturn(cnx);
+
+        try {
+            for (long entryId : new long[] { 1, 2, 3, 5, 6 }) {
+                tracker.addAcknowledgment(new MessageIdImpl(5, entryId, 0), AckType.Individual,
+                        Collections.emptyMap());
+            }
+            tracker.addAcknowledgment(new MessageIdImpl(7, 0, 0), AckType.Individual, Collections.emptyMap());
+            assertTrue(tracker.isDuplicate(new MessageIdImpl(5, 2, 0)));
+            assertFalse(tracker.isDuplicate(new MessageIdImpl(5, 4, 0)));
+
+            tracker.flush();
+            assertFalse(tracker.isDuplicate(new MessageIdImpl(5, 2, 0)));
+
+            ArgumentCaptor<ByteBuf> captor = ArgumentCaptor.forClass(ByteBuf.class);
+            verify(ctx).writeAndFlush(captor.capture(), any());
+            ByteBuf cmdBuf = captor.getValue();
+            cmdBuf.skipBytes(4);
+            int cmdSize = cmdBuf.readInt();
+            BaseCommand cmd = new BaseCommand();
+            cmd.parseFrom(cmdBuf, cmdSize);
+            cmdBuf.release();
+
+            CommandAck ack = cmd.getAck();
+            assertEquals(ack.getMessageIdsCount(), 0);
+            assertEquals(ack.getMessageIdRangesCount(), 3);
+            assertEquals(ack.getMessageIdRangeAt(0).getLedgerId(), 5);
+            assertEquals(ack.getMessageIdRangeAt(0).getFirstEntryId(), 1);
+            assertEquals(ack.getMessageIdRangeAt(0).getLastEntryId(), 3);
+            assertEquals(ack.getMessageIdRangeAt(1).getLedgerId(), 5);
+            assertEquals(ack.getMessageIdRangeAt(1).getFirstEntryId(), 5);
+            assertEquals(ack.getMessageIdRangeAt(1).getLastEntryId(), 6);
+            assertEquals(ack.getMessageIdRangeAt(2).getLedgerId(), 7);
+            assertEquals(ack.getMessageIdRangeAt(2).getFirstEntryId(), 0);
+            assertEquals(ack.getMessageIdRangeAt(2).getLastEntryId(), 0);
+        } finally {
+            tracker.close();
+            when(cnx.ctx()).thenReturn(mock(ChannelHandlerContext.class));
+        }
+    }
+
     public class ClientCnxTest extends ClientCnx {
 
         public ClientCnxTest(ClientConfigurationData conf, EventLoopGroup eventLoopGroup) {
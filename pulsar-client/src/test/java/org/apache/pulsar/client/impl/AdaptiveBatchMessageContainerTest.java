@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.pulsar.client.api.CompressionType;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.client.impl.conf.ProducerConfigurationData;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests of {@link AdaptiveBatchMessageContainer}.
+ */
+public class AdaptiveBatchMessageContainerTest {
+
+    private static final int MAX_MESSAGES = 100;
+
+    private AdaptiveBatchMessageContainer createContainer(ProducerImpl<?> producer) {
+        ProducerConfigurationData conf = new ProducerConfigurationData();
+        conf.setCompressionType(CompressionType.NONE);
+        conf.setBatchingMaxMessages(MAX_MESSAGES);
+        when(producer.getTopic()).thenReturn("topic-test");
+        when(producer.getProducerName()).thenReturn("producer-test");
+        when(producer.getConfiguration()).thenReturn(conf);
+        AdaptiveBatchMessageContainer container = new AdaptiveBatchMessageContainer();
+        container.setProducer(producer);
+        return container;
+    }
+
+    private static MessageImpl<byte[]> createMessage(long sequenceId) {
+        MessageMetadata metadata = new MessageMetadata()
+                .setProducerName("producer-test")
+                .setSequenceId(sequenceId)
+                .setPublishTime(System.currentTimeMillis());
+        return MessageImpl.create(metadata, ByteBuffer.wrap(new byte[10]), Schema.BYTES);
+    }
+
+    private static SendCallback createCallback() {
+        CompletableFuture<MessageId> future = new CompletableFuture<>();
+        return new SendCallback() {
+            @Override
+            public void sendComplete(Exception e) {
+            }
+
+            @Override
+            public void addCallback(MessageImpl<?> msg, SendCallback scb) {
+            }
+
+            @Override
+            public SendCallback getNextSendCallback() {
+                return null;
+            }
+
+            @Override
+            public MessageImpl<?> getNextMessage() {
+                return null;
+            }
+
+            @Override
+            public CompletableFuture<MessageId> getFuture() {
+                return future;
+            }
+        };
+    }
+
+    @Test
+    public void testFlushImmediatelyWhenIdle() {
+        ProducerImpl<?> producer = mock(ProducerImpl.class);
+        AdaptiveBatchMessageContainer container = createContainer(producer);
+        when(producer.getPendingQueueSize()).thenReturn(0);
+
+        assertTrue(container.add(createMessage(0), createCallback()));
+        container.discard(new Exception("test"));
+    }
+
+    @Test
+    public void testBatchGrowsWithLoad() {
+        ProducerImpl<?> producer = mock(ProducerImpl.class);
+        AdaptiveBatchMessageContainer container = createContainer(producer);
+        when(producer.getPendingQueueSize()).thenReturn(1);
+
+        // No samples yet, only the static limit applies
+        assertEquals(container.getTargetNumMessagesInBatch(), MAX_MESSAGES);
+        assertFalse(container.add(createMessage(0), createCallback()));
+        assertFalse(container.add(createMessage(1), createCallback()));
+
+        // A receipt latency much longer than the inter-arrival time grows the batch up to the static limit
+        container.onSendReceipt(TimeUnit.HOURS.toNanos(1));
+        assertEquals(container.getTargetNumMessagesInBatch(), MAX_MESSAGES);
+
+        // A receipt latency shorter than the inter-arrival time closes the batch right away
+        for (int i = 0; i < 200; i++) {
+            container.onSendReceipt(0);
+        }
+        assertTrue(container.add(createMessage(2), createCallback()));
+        assertEquals(container.getTargetNumMessagesInBatch(), 1);
+        container.discard(new Exception("test"));
+    }
+}
@@ -20,14 +20,20 @@ package org.apache.pulsar.client.impl;
 
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import com.google.common.base.Ticker;
 import io.netty.buffer.ByteBuf;
 
 import java.lang.reflect.Field;
@@ -35,6 +41,8 @@ import java.net.InetSocketAddress;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.client.api.PulsarClientException.LookupException;
@@ -47,6 +55,7 @@ import org.testng.annotations.Test;
 public class BinaryProtoLookupServiceTest {
     private BinaryProtoLookupService lookup;
     private TopicName topicName;
+    private ClientCnx clientCnx;
 
     @BeforeMethod
     public void setup() throws Exception {
@@ -56,7 +65,7 @@ public class BinaryProtoLookupServiceTest {
         CompletableFuture<LookupDataResult> lookupFuture1 = CompletableFuture.completedFuture(lookupResult1);
         CompletableFuture<LookupDataResult> lookupFuture2 = CompletableFuture.completedFuture(lookupResult2);
 
-        ClientCnx clientCnx = mock(ClientCnx.class);
+        clientCnx = mock(ClientCnx.class);
         when(clientCnx.newLookup(any(ByteBuf.class), anyLong())).thenReturn(lookupFuture1, lookupFuture1,
                 lookupFuture2);
 
@@ -112,6 +121,89 @@ public class BinaryProtoLookupServiceTest {
         }
     }
 
+    @Test(invocationTimeOut = 3000)
+    public void testLookupCache() throws Exception {
+        TopicName sameNamespaceTopic = TopicName.get("persistent://tenant1/ns1/t2");
+        TopicName otherNamespaceTopic = TopicName.get("persistent://tenant1/ns2/t1");
+
+        // The initial lookup follows 2 redirects, the other topics are directly found on broker2
+        assertEquals(lookup.getBroker(topicName).get().getLeft().toString(), "broker2.pulsar.apache.org:6650");
+        assertEquals(lookup.getBroker(sameNamespaceTopic).get().getLeft().toString(),
+                "broker2.pulsar.apache.org:6650");
+        assertEquals(lookup.getBroker(otherNamespaceTopic).get().getLeft().toString(),
+                "broker2.pulsar.apache.org:6650");
+        verify(clientCnx, times(5)).newLookup(any(ByteBuf.class), anyLong());
+
+        // The lookups are not repeated
+        lookup.getBroker(topicName).get();
+        lookup.getBroker(sameNamespaceTopic).get();
+        lookup.getBroker(otherNamespaceTopic).get();
+        verify(clientCnx, times(5)).newLookup(any(ByteBuf.class), anyLong());
+
+        // Invalidating a topic drops the topics of its namespace on the same broker
+        lookup.invalidateBroker(topicName);
+        lookup.getBroker(topicName).get();
+        lookup.getBroker(sameNamespaceTopic).get();
+        lookup.getBroker(otherNamespaceTopic).get();
+        verify(clientCnx, times(7)).newLookup(any(ByteBuf.class), anyLong());
+    }
+
+    @Test(invocationTimeOut = 3000)
+    public void testCachedLookupExpires() throws Exception {
+        AtomicLong nanos = new AtomicLong();
+        Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        };
+        Field field = BinaryProtoLookupService.class.getDeclaredField("brokerLookupCache");
+        field.setAccessible(true);
+        field.set(lookup, BinaryProtoLookupService.newBrokerLookupCache(ticker).asMap());
+        CompletableFuture<LookupDataResult> lookupFuture = CompletableFuture.completedFuture(
+                createLookupDataResult("pulsar://broker3.pulsar.apache.org:6650", false));
+        when(clientCnx.newLookup(any(ByteBuf.class), anyLong())).thenReturn(lookupFuture);
+
+        lookup.getBroker(topicName).get();
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(10));
+        lookup.getBroker(topicName).get();
+        verify(clientCnx, times(1)).newLookup(any(ByteBuf.class), anyLong());
+
+        // The topic may have moved without the client noticing
+        nanos.addAndGet(TimeUnit.HOURS.toNanos(1));
+        lookup.getBroker(topicName).get();
+        verify(clientCnx, times(2)).newLookup(any(ByteBuf.class), anyLong());
+    }
+
+    @Test(invocationTimeOut = 3000)
+    public void testFailedLookupIsNotCached() throws Exception {
+        CompletableFuture<LookupDataResult> failedFuture = new CompletableFuture<>();
+        failedFuture.completeExceptionally(new LookupException("failed"));
+        CompletableFuture<LookupDataResult> lookupFuture = CompletableFuture.completedFuture(
+                createLookupDataResult("pulsar://broker3.pulsar.apache.org:6650", false));
+        when(clientCnx.newLookup(any(ByteBuf.class), anyLong())).thenReturn(failedFuture, lookupFuture);
+
+        try {
+            lookup.getBroker(topicName).get();
+            fail("should have thrown ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof LookupException);
+        }
+        assertEquals(lookup.getBroker(topicName).get().getLeft().toString(), "broker3.pulsar.apache.org:6650");
+    }
+
+    @Test(invocationTimeOut = 3000)
+    public void testBatchedLookup() throws Exception {
+        CompletableFuture<LookupDataResult> lookupFuture = CompletableFuture.completedFuture(
+                createLookupDataResult("pulsar://broker3.pulsar.apache.org:6650", false));
+        when(clientCnx.isSupportsLookupTopics()).thenReturn(true);
+        when(clientCnx.newBatchedLookup(anyString(), any(), anyLong())).thenReturn(lookupFuture);
+
+        assertEquals(lookup.getBroker(topicName).get().getLeft().toString(), "broker3.pulsar.apache.org:6650");
+        verify(clientCnx).newBatchedLookup(eq(topicName.toString()), any(), anyLong());
+        verify(clientCnx, never()).newLookup(any(ByteBuf.class), anyLong());
+    }
+
     private static LookupDataResult createLookupDataResult(String brokerUrl, boolean redirect) throws Exception {
         LookupDataResult lookupResult = new LookupDataResult(-1);
 
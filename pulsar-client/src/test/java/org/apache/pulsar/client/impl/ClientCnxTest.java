@@ -19,13 +19,19 @@
 package org.apache.pulsar.client.impl;
 
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ThreadFactory;
@@ -44,6 +50,7 @@ import org.testng.annotations.Test;
 
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.util.concurrent.DefaultThreadFactory;
 
@@ -153,4 +160,41 @@ public class ClientCnxTest {
 
         eventLoop.shutdownGracefully();
     }
+
+    @Test
+    public void testWriteAndCoalesceFlush() throws Exception {
+        EventLoopGroup eventLoop = EventLoopUtil.newEventLoopGroup(1, new DefaultThreadFactory("testCoalesceFlush"));
+        ClientConfigurationData conf = new ClientConfigurationData();
+        ClientCnx cnx = new ClientCnx(conf, eventLoop);
+
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+        Channel channel = mock(Channel.class);
+        EventLoop channelEventLoop = mock(EventLoop.class);
+        when(ctx.channel()).thenReturn(channel);
+        when(channel.eventLoop()).thenReturn(channelEventLoop);
+        List<Runnable> tasks = new ArrayList<>();
+        doAnswer(invocation -> tasks.add(invocation.getArgument(0))).when(channelEventLoop).execute(any());
+
+        Field ctxField = PulsarHandler.class.getDeclaredField("ctx");
+        ctxField.setAccessible(true);
+        ctxField.set(cnx, ctx);
+
+        cnx.writeAndCoalesceFlush("a");
+        cnx.writeAndCoalesceFlush("b");
+        cnx.writeAndCoalesceFlush("c");
+        verify(ctx, times(3)).write(any(), any());
+        verify(ctx, never()).flush();
+        assertEquals(tasks.size(), 1);
+
+        tasks.remove(0).run();
+        verify(ctx, times(1)).flush();
+
+        // a write after the flush ran schedules a new one
+        cnx.writeAndCoalesceFlush("d");
+        assertEquals(tasks.size(), 1);
+        tasks.remove(0).run();
+        verify(ctx, times(2)).flush();
+
+        eventLoop.shutdownGracefully();
+    }
 }
@@ -19,18 +19,28 @@
 package org.apache.pulsar.client.impl;
 
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.pulsar.client.api.Consumer;
 import org.apache.pulsar.client.api.Message;
@@ -38,6 +48,11 @@ import org.apache.pulsar.client.api.Messages;
 import org.apache.pulsar.client.api.PulsarClientException;
 import org.apache.pulsar.client.impl.conf.ClientConfigurationData;
 import org.apache.pulsar.client.impl.conf.ConsumerConfigurationData;
+import org.apache.pulsar.client.util.ExecutorProvider;
+import org.apache.pulsar.common.api.proto.MessageIdData;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.protocol.Commands;
+import org.apache.pulsar.common.protocol.Commands.ChecksumType;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -169,4 +184,225 @@ public class ConsumerImplTest {
         // then
         Assert.assertFalse(consumer.hasPendingBatchReceive());
     }
+
+    @Test
+    public void testMessageWithUnknownDictionaryIsNegativelyAcked() throws Exception {
+        PulsarClientImpl client = ClientTestFixtures.createPulsarClientMockWithMockedClientCnx();
+        client.getConfiguration().setStatsIntervalSeconds(0);
+        ConsumerImpl<byte[]> consumer = ConsumerImpl.newConsumerImpl(client, "persistent://tenant/ns1/my-topic",
+                consumerConf, executorService, -1, false, new CompletableFuture<>(), null, null, null, true);
+        consumer.setState(HandlerState.State.Ready);
+        ClientCnx cnx = client.getConnection(null).get();
+        consumer.setClientCnx(cnx);
+        clearInvocations(client.timer());
+        int permits = consumer.getAvailablePermits();
+
+        MessageMetadata metadata = new MessageMetadata().setProducerName("producer").setSequenceId(1)
+                .setPublishTime(1).setUncompressedSize(1)
+                .setCompression(org.apache.pulsar.common.api.proto.CompressionType.ZSTD_DICTIONARY)
+                .setCompressionDictionaryId(42);
+        ByteBuf headersAndPayload = Commands.serializeMetadataAndPayload(ChecksumType.Crc32c, metadata,
+                Unpooled.wrappedBuffer(new byte[] { 1 }));
+        consumer.messageReceived(new MessageIdData().setLedgerId(1).setEntryId(1), 0, null, headersAndPayload, cnx);
+        headersAndPayload.release();
+
+        // The ack timeout is disabled, the message is negatively acked to be redelivered, and its permit is given back
+        Assert.assertEquals(consumer.incomingMessages.size(), 0);
+        Assert.assertEquals(consumer.getAvailablePermits(), permits + 1);
+        verify(client.timer(), times(1)).newTimeout(any(), anyLong(), any());
+    }
+
+    @Test
+    public void testMessagesDecodedOnDecodeExecutorKeepOrder() throws Exception {
+        ExecutorProvider decodeExecutorProvider = new ExecutorProvider(2, new DefaultThreadFactory("test-decode"));
+        try {
+            PulsarClientImpl client = ClientTestFixtures.createPulsarClientMockWithMockedClientCnx();
+            client.getConfiguration().setStatsIntervalSeconds(0);
+            when(client.decodeExecutorProvider()).thenReturn(decodeExecutorProvider);
+            ConsumerImpl<byte[]> consumer = ConsumerImpl.newConsumerImpl(client, "persistent://tenant/ns1/my-topic",
+                    consumerConf, executorService, -1, false, new CompletableFuture<>(), null, null, null, true);
+            consumer.setState(HandlerState.State.Ready);
+            ClientCnx cnx = client.getConnection(null).get();
+            consumer.setClientCnx(cnx);
+
+            int numMessages = 100;
+            List<ByteBuf> buffers = new ArrayList<>();
+            for (int i = 0; i < numMessages; i++) {
+                MessageMetadata metadata = new MessageMetadata().setProducerName("producer").setSequenceId(i)
+                        .setPublishTime(1);
+                ByteBuf headersAndPayload = Commands.serializeMetadataAndPayload(ChecksumType.Crc32c, metadata,
+                        Unpooled.wrappedBuffer(new byte[] { (byte) i }));
+                buffers.add(headersAndPayload);
+                // The id is reused for every message, like the command of a connection
+                MessageIdData messageId = new MessageIdData().setLedgerId(1).setEntryId(i);
+                consumer.messageReceived(messageId, 0, null, headersAndPayload, cnx);
+                messageId.setEntryId(-1);
+                headersAndPayload.release();
+            }
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (consumer.getPendingDecodeMessages() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(consumer.getPendingDecodeMessages(), 0);
+            Assert.assertEquals(consumer.incomingMessages.size(), numMessages);
+            for (int i = 0; i < numMessages; i++) {
+                Message<byte[]> msg = consumer.incomingMessages.poll();
+                Assert.assertEquals(msg.getSequenceId(), i);
+                Assert.assertEquals(((MessageIdImpl) msg.getMessageId()).getEntryId(), i);
+                Assert.assertEquals(msg.getData(), new byte[] { (byte) i });
+                Assert.assertEquals(buffers.get(i).refCnt(), 0);
+            }
+        } finally {
+            decodeExecutorProvider.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPermitsAreWithheldWhileDecodeIsBacklogged() throws Exception {
+        ExecutorProvider decodeExecutorProvider = new ExecutorProvider(1, new DefaultThreadFactory("test-decode"));
+        CountDownLatch decodeBlocked = new CountDownLatch(1);
+        try {
+            PulsarClientImpl client = ClientTestFixtures.createPulsarClientMockWithMockedClientCnx();
+            client.getConfiguration().setStatsIntervalSeconds(0);
+            when(client.decodeExecutorProvider()).thenReturn(decodeExecutorProvider);
+            consumerConf.setReceiverQueueSize(10);
+            ConsumerImpl<byte[]> consumer = ConsumerImpl.newConsumerImpl(client, "persistent://tenant/ns1/my-topic",
+                    consumerConf, executorService, -1, false, new CompletableFuture<>(), null, null, null, true);
+            consumer.setState(HandlerState.State.Ready);
+            ClientCnx cnx = client.getConnection(null).get();
+            consumer.setClientCnx(cnx);
+            decodeExecutorProvider.getExecutor().execute(() -> {
+                try {
+                    decodeBlocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            int numMessages = 6;
+            for (int i = 0; i < numMessages; i++) {
+                MessageMetadata metadata = new MessageMetadata().setProducerName("producer").setSequenceId(i)
+                        .setPublishTime(1);
+                ByteBuf headersAndPayload = Commands.serializeMetadataAndPayload(ChecksumType.Crc32c, metadata,
+                        Unpooled.wrappedBuffer(new byte[] { (byte) i }));
+                consumer.messageReceived(new MessageIdData().setLedgerId(1).setEntryId(i), 0, null,
+                        headersAndPayload, cnx);
+                headersAndPayload.release();
+            }
+
+            // more than half of the receiver queue is waiting on the decode executor
+            consumer.increaseAvailablePermits(cnx, 5);
+            Assert.assertEquals(consumer.getAvailablePermits(), 5);
+
+            decodeBlocked.countDown();
+            long deadline = System.currentTimeMillis() + 10_000;
+            while ((consumer.getAvailablePermits() > 0 || consumer.incomingMessages.size() < numMessages)
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(consumer.getAvailablePermits(), 0);
+            Assert.assertEquals(consumer.incomingMessages.size(), numMessages);
+        } finally {
+            decodeBlocked.countDown();
+            decodeExecutorProvider.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testMessagesHandedToParentKeepOrder() throws Exception {
+        PulsarClientImpl client = ClientTestFixtures.createPulsarClientMockWithMockedClientCnx();
+        client.getConfiguration().setStatsIntervalSeconds(0);
+        ConsumerImpl<byte[]> consumer = ConsumerImpl.newConsumerImpl(client, "persistent://tenant/ns1/my-topic",
+                consumerConf, executorService, -1, true, new CompletableFuture<>(), null, null, null, true);
+        consumer.setState(HandlerState.State.Ready);
+        ClientCnx cnx = client.getConnection(null).get();
+        consumer.setClientCnx(cnx);
+
+        List<Message<byte[]>> handedMessages = new ArrayList<>();
+        AtomicBoolean parentFull = new AtomicBoolean(false);
+        consumer.setParentMessageHandler(msg -> !parentFull.get() && handedMessages.add(msg));
+
+        int numMessages = 10;
+        for (int i = 0; i < numMessages; i++) {
+            if (i == 3) {
+                parentFull.set(true);
+            } else if (i == 6) {
+                // The queued messages must be handed first, even once the parent accepts messages again
+                parentFull.set(false);
+            }
+            MessageMetadata metadata = new MessageMetadata().setProducerName("producer").setSequenceId(i)
+                    .setPublishTime(1);
+            ByteBuf headersAndPayload = Commands.serializeMetadataAndPayload(ChecksumType.Crc32c, metadata,
+                    Unpooled.wrappedBuffer(new byte[] { (byte) i }));
+            consumer.messageReceived(new MessageIdData().setLedgerId(1).setEntryId(i), 0, null, headersAndPayload,
+                    cnx);
+            headersAndPayload.release();
+        }
+        Assert.assertEquals(handedMessages.size(), 3);
+        Assert.assertEquals(consumer.incomingMessages.size(), numMessages - 3);
+
+        consumer.handQueuedMessagesToParent();
+        Assert.assertEquals(consumer.incomingMessages.size(), 0);
+        Assert.assertEquals(consumer.getIncomingMessageSize(), 0);
+        Assert.assertEquals(handedMessages.size(), numMessages);
+        for (int i = 0; i < numMessages; i++) {
+            Assert.assertEquals(handedMessages.get(i).getSequenceId(), i);
+        }
+    }
+
+    @Test
+    public void testMessagesWaitingOnDecodeExecutorAreDroppedWhenQueueIsCleared() throws Exception {
+        ExecutorProvider decodeExecutorProvider = new ExecutorProvider(1, new DefaultThreadFactory("test-decode"));
+        CountDownLatch decodeBlocked = new CountDownLatch(1);
+        try {
+            PulsarClientImpl client = ClientTestFixtures.createPulsarClientMockWithMockedClientCnx();
+            client.getConfiguration().setStatsIntervalSeconds(0);
+            when(client.decodeExecutorProvider()).thenReturn(decodeExecutorProvider);
+            ConsumerImpl<byte[]> consumer = ConsumerImpl.newConsumerImpl(client, "persistent://tenant/ns1/my-topic",
+                    consumerConf, executorService, -1, false, new CompletableFuture<>(), null, null, null, true);
+            consumer.setState(HandlerState.State.Ready);
+            ClientCnx cnx = client.getConnection(null).get();
+            consumer.setClientCnx(cnx);
+            decodeExecutorProvider.getExecutor().execute(() -> {
+                try {
+                    decodeBlocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            int numMessages = 10;
+            List<ByteBuf> buffers = new ArrayList<>();
+            for (int i = 0; i < numMessages; i++) {
+                MessageMetadata metadata = new MessageMetadata().setProducerName("producer").setSequenceId(i)
+                        .setPublishTime(1);
+                ByteBuf headersAndPayload = Commands.serializeMetadataAndPayload(ChecksumType.Crc32c, metadata,
+                        Unpooled.wrappedBuffer(new byte[] { (byte) i }));
+                buffers.add(headersAndPayload);
+                consumer.messageReceived(new MessageIdData().setLedgerId(1).setEntryId(i), 0, null,
+                        headersAndPayload, cnx);
+                headersAndPayload.release();
+            }
+            int permitsBefore = consumer.getAvailablePermits();
+
+            // the messages are still queued on the decode executor when the consumer clears its queue
+            Assert.assertEquals(consumer.clearIncomingMessagesAndGetMessageNumber(), 0);
+            decodeBlocked.countDown();
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (consumer.getPendingDecodeMessages() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(consumer.getPendingDecodeMessages(), 0);
+            Assert.assertEquals(consumer.incomingMessages.size(), 0);
+            Assert.assertEquals(consumer.getAvailablePermits(), permitsBefore + numMessages);
+            for (ByteBuf buffer : buffers) {
+                Assert.assertEquals(buffer.refCnt(), 0);
+            }
+        } finally {
+            decodeBlocked.countDown();
+            decodeExecutorProvider.shutdownNow();
+        }
+    }
 }
@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.pulsar.client.api.HashingScheme;
+import org.apache.pulsar.client.api.Message;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test of {@link LoadAwarePartitionMessageRouterImpl}.
+ */
+public class LoadAwarePartitionMessageRouterImplTest {
+
+    @Test
+    public void testChoosePartitionWithoutKey() {
+        Message<?> msg = mock(Message.class);
+        when(msg.getKey()).thenReturn(null);
+
+        long[] loads = { 100, 10 };
+        LoadAwarePartitionMessageRouterImpl router = new LoadAwarePartitionMessageRouterImpl(
+                HashingScheme.JavaStringHash, partition -> loads[partition], false, 0);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(router.choosePartition(msg, new TopicMetadataImpl(2)), 1);
+        }
+
+        loads[0] = 1;
+        for (int i = 0; i < 10; i++) {
+            assertEquals(router.choosePartition(msg, new TopicMetadataImpl(2)), 0);
+        }
+    }
+
+    @Test
+    public void testSlowPartitionIsTriedAgainOnceIdle() {
+        Message<?> msg = mock(Message.class);
+        when(msg.getKey()).thenReturn(null);
+
+        long[] idleNanos = { 0 };
+        LoadAwarePartitionMessageRouterImpl router = new LoadAwarePartitionMessageRouterImpl(
+                HashingScheme.JavaStringHash,
+                partition -> partition == 0
+                        ? ProducerImpl.decayLatencyNanos(TimeUnit.MILLISECONDS.toNanos(100), idleNanos[0])
+                        : TimeUnit.MILLISECONDS.toNanos(5),
+                false, 0);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(router.choosePartition(msg, new TopicMetadataImpl(2)), 1);
+        }
+
+        // Partition 0 got no receipt since it was slow, its estimate decays until it is picked again
+        idleNanos[0] = TimeUnit.SECONDS.toNanos(10);
+        assertEquals(router.choosePartition(msg, new TopicMetadataImpl(2)), 0);
+    }
+
+    @Test
+    public void testFullPartitionIsAvoided() {
+        Message<?> msg = mock(Message.class);
+        when(msg.getKey()).thenReturn(null);
+
+        long[] loads = { Long.MAX_VALUE, 5, 5 };
+        LoadAwarePartitionMessageRouterImpl router = new LoadAwarePartitionMessageRouterImpl(
+                HashingScheme.JavaStringHash, partition -> loads[partition], false, 0);
+        for (int i = 0; i < 100; i++) {
+            assertNotEquals(router.choosePartition(msg, new TopicMetadataImpl(3)), 0);
+        }
+    }
+
+    @Test
+    public void testBatchingAwareness() {
+        Message<?> msg = mock(Message.class);
+        when(msg.getKey()).thenReturn(null);
+
+        Clock clock = mock(Clock.class);
+        long[] loads = { 100, 10 };
+        LoadAwarePartitionMessageRouterImpl router = new LoadAwarePartitionMessageRouterImpl(
+                HashingScheme.JavaStringHash, partition -> loads[partition], true, 10, clock);
+        TopicMetadataImpl metadata = new TopicMetadataImpl(2);
+
+        when(clock.millis()).thenReturn(1000L);
+        assertEquals(router.choosePartition(msg, metadata), 1);
+
+        // The partition is kept until the switch interval elapses
+        loads[1] = 1000;
+        for (int i = 0; i < 10; i++) {
+            when(clock.millis()).thenReturn(1000L + i);
+            assertEquals(router.choosePartition(msg, metadata), 1);
+        }
+        when(clock.millis()).thenReturn(1010L);
+        assertEquals(router.choosePartition(msg, metadata), 0);
+
+        // Unless it cannot take more messages
+        when(clock.millis()).thenReturn(1011L);
+        loads[0] = Long.MAX_VALUE;
+        assertEquals(router.choosePartition(msg, metadata), 1);
+    }
+
+    @Test
+    public void testChoosePartitionWithKey() {
+        String key1 = "key1";
+        String key2 = "key2";
+        Message<?> msg1 = mock(Message.class);
+        when(msg1.hasKey()).thenReturn(true);
+        when(msg1.getKey()).thenReturn(key1);
+        Message<?> msg2 = mock(Message.class);
+        when(msg2.hasKey()).thenReturn(true);
+        when(msg2.getKey()).thenReturn(key2);
+
+        LoadAwarePartitionMessageRouterImpl router = new LoadAwarePartitionMessageRouterImpl(
+                HashingScheme.JavaStringHash, partition -> 0, false, 0);
+        TopicMetadataImpl metadata = new TopicMetadataImpl(100);
+
+        assertEquals(key1.hashCode() % 100, router.choosePartition(msg1, metadata));
+        assertEquals(key2.hashCode() % 100, router.choosePartition(msg2, metadata));
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.pulsar.common.util.collections.ConcurrentLongPairSet.LongPair;
+import org.testng.annotations.Test;
+
+public class LongPairTimingWheelTest {
+
+    private static List<LongPair> advance(LongPairTimingWheel wheel) {
+        List<LongPair> expired = new ArrayList<>();
+        assertEquals(wheel.advance((item1, item2) -> expired.add(new LongPair(item1, item2))), expired.size());
+        return expired;
+    }
+
+    @Test
+    public void testAddAndRemove() {
+        LongPairTimingWheel wheel = new LongPairTimingWheel(3);
+        assertTrue(wheel.isEmpty());
+
+        assertTrue(wheel.add(1, 1));
+        assertFalse(wheel.add(1, 1));
+        assertTrue(wheel.add(1, 2));
+        assertEquals(wheel.size(), 2);
+        assertTrue(wheel.contains(1, 1));
+
+        assertTrue(wheel.remove(1, 1));
+        assertFalse(wheel.remove(1, 1));
+        assertFalse(wheel.contains(1, 1));
+        assertEquals(wheel.size(), 1);
+
+        wheel.clear();
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void testExpiry() {
+        LongPairTimingWheel wheel = new LongPairTimingWheel(3);
+
+        wheel.add(1, 1);
+        assertTrue(advance(wheel).isEmpty());
+        wheel.add(1, 2);
+        wheel.add(1, 3);
+        assertTrue(advance(wheel).isEmpty());
+
+        // Pairs expire after (numberOfSlots - 1) ticks
+        assertEquals(advance(wheel), Collections.singletonList(new LongPair(1, 1)));
+        assertTrue(wheel.remove(1, 3));
+        assertEquals(advance(wheel), Collections.singletonList(new LongPair(1, 2)));
+        assertTrue(wheel.isEmpty());
+        assertTrue(advance(wheel).isEmpty());
+    }
+
+    @Test
+    public void testAddDoesNotResetExpiry() {
+        LongPairTimingWheel wheel = new LongPairTimingWheel(2);
+
+        wheel.add(1, 1);
+        advance(wheel);
+        assertFalse(wheel.add(1, 1));
+        assertEquals(advance(wheel), Collections.singletonList(new LongPair(1, 1)));
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void testAddOrReset() {
+        LongPairTimingWheel wheel = new LongPairTimingWheel(2);
+
+        assertTrue(wheel.addOrReset(1, 1));
+        advance(wheel);
+        assertFalse(wheel.addOrReset(1, 1));
+        assertTrue(advance(wheel).isEmpty());
+        assertEquals(advance(wheel), Collections.singletonList(new LongPair(1, 1)));
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void testRemoveIf() {
+        LongPairTimingWheel wheel = new LongPairTimingWheel(2);
+
+        for (long i = 0; i < 10; i++) {
+            wheel.add(1, i);
+        }
+        assertEquals(wheel.removeIf((item1, item2) -> item2 < 5), 5);
+        assertEquals(wheel.size(), 5);
+
+        // Pairs re-added after being removed are still expired exactly once
+        wheel.add(1, 0);
+        List<LongPair> expired = advance(wheel);
+        assertTrue(expired.isEmpty());
+        expired = advance(wheel);
+        assertEquals(expired.size(), 6);
+        assertTrue(wheel.isEmpty());
+    }
+}
@@ -26,6 +26,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
@@ -162,4 +163,41 @@ public class MemoryLimitControllerTest {
         assertTrue(l3.await(1, TimeUnit.SECONDS));
         assertEquals(mlc.currentUsage(), 101);
     }
+
+    @Test
+    public void testConsumerMemoryLimited() {
+        AtomicInteger memoryAvailable = new AtomicInteger();
+        MemoryLimitController mlc = new MemoryLimitController(100, memoryAvailable::incrementAndGet);
+
+        // two consumers share the memory, they are only throttled past half of the limit
+        mlc.consumerStartedHoldingMemory();
+        mlc.consumerStartedHoldingMemory();
+        mlc.forceReserveMemory(40);
+        assertFalse(mlc.isConsumerMemoryLimited(40));
+
+        // past half of the limit, only the consumer holding more than its share is throttled
+        mlc.forceReserveMemory(20);
+        assertTrue(mlc.isConsumerMemoryLimited(55));
+        assertFalse(mlc.isConsumerMemoryLimited(5));
+
+        // past the limit, all of them are
+        mlc.forceReserveMemory(50);
+        assertEquals(mlc.currentUsage(), 110);
+        assertTrue(mlc.isConsumerMemoryLimited(5));
+        assertFalse(mlc.tryReserveMemory(1));
+        // except a consumer that holds nothing, it can always refill its queue
+        assertFalse(mlc.isConsumerMemoryLimited(0));
+
+        mlc.releaseMemory(5);
+        assertEquals(memoryAvailable.get(), 0);
+        mlc.releaseMemory(5);
+        assertEquals(memoryAvailable.get(), 1);
+        assertFalse(mlc.isConsumerMemoryLimited(5));
+
+        mlc.consumerStoppedHoldingMemory();
+        mlc.consumerStoppedHoldingMemory();
+        mlc.releaseMemory(100);
+        assertEquals(mlc.currentUsage(), 0);
+        assertFalse(new MemoryLimitController(0).isConsumerMemoryLimited(Long.MAX_VALUE));
+    }
 }
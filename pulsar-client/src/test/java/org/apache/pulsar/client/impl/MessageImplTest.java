@@ -18,8 +18,13 @@
  */
 package org.apache.pulsar.client.impl;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import java.nio.ByteBuffer;
 import java.util.Base64;
+import java.util.Optional;
 
 import java.util.concurrent.CompletableFuture;
 import org.apache.pulsar.client.api.Schema;
@@ -30,6 +35,8 @@ import org.apache.pulsar.client.impl.schema.JSONSchema;
 import org.apache.pulsar.client.impl.schema.SchemaTestUtils;
 import org.apache.pulsar.client.impl.schema.generic.MultiVersionSchemaInfoProvider;
 import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.api.proto.SingleMessageMetadata;
+import org.apache.pulsar.common.protocol.Commands;
 import org.apache.pulsar.common.schema.KeyValue;
 import org.apache.pulsar.common.schema.KeyValueEncodingType;
 import org.testng.Assert;
@@ -416,4 +423,69 @@ public class MessageImplTest {
         MessageImpl<Boolean> msg = MessageImpl.create(builder, ByteBuffer.wrap(encodeBytes), BooleanSchema.of());
         assertNull(msg.getValue());
     }
+
+    @Test
+    public void testBatchedMessageMetadataIsDecodedLazily() throws Exception {
+        ByteBuf batchBuffer = Unpooled.buffer();
+        SingleMessageMetadata first = new SingleMessageMetadata().setPartitionKey("key-1").setSequenceId(10)
+                .setEventTime(100);
+        first.addProperty().setKey("prop").setValue("value-1");
+        batchBuffer = Commands.serializeSingleMessageInBatchWithPayload(first,
+                Unpooled.wrappedBuffer("payload-1".getBytes(UTF_8)), batchBuffer);
+        batchBuffer = Commands.serializeSingleMessageInBatchWithPayload(new SingleMessageMetadata(),
+                Unpooled.wrappedBuffer("payload-2".getBytes(UTF_8)), batchBuffer);
+
+        MessageMetadata batchMetadata = new MessageMetadata().setProducerName("producer").setSequenceId(1)
+                .setPublishTime(1000).setPartitionKey("batch-key").setNumMessagesInBatch(2);
+        MessageImpl<byte[]>[] msgs = new MessageImpl[2];
+        for (int i = 0; i < 2; i++) {
+            SingleMessageMetadata singleMessageMetadata = new SingleMessageMetadata();
+            ByteBuf payload = Commands.deSerializeSingleMessageInBatch(batchBuffer, singleMessageMetadata, i, 2);
+            msgs[i] = new MessageImpl<>("topic", new BatchMessageIdImpl(1, 2, -1, i), batchMetadata,
+                    singleMessageMetadata, payload, Optional.empty(), null, Schema.BYTES, 0);
+            payload.release();
+        }
+
+        assertEquals(msgs[0].getKey(), "key-1");
+        assertEquals(msgs[0].getSequenceId(), 10);
+        assertEquals(msgs[0].getEventTime(), 100);
+        assertEquals(msgs[0].getProperty("prop"), "value-1");
+        assertEquals(msgs[0].getProducerName(), "producer");
+        assertEquals(msgs[0].getPublishTime(), 1000);
+        assertEquals(new String(msgs[0].getData(), UTF_8), "payload-1");
+        assertEquals(new String(msgs[0].getData(), UTF_8), "payload-1");
+
+        assertFalse(msgs[1].hasKey());
+        assertNull(msgs[1].getKey());
+        assertEquals(msgs[1].getSequenceId(), 1);
+        assertTrue(msgs[1].getProperties().isEmpty());
+        assertEquals(new String(msgs[1].getValue(), UTF_8), "payload-2");
+
+        // Materializing the metadata of a message must neither change what it exposes nor affect the batch
+        MessageMetadata merged = msgs[0].getMessageBuilder();
+        assertEquals(merged.getPartitionKey(), "key-1");
+        assertEquals(merged.getSequenceId(), 10);
+        assertEquals(msgs[0].getKey(), "key-1");
+        assertEquals(msgs[0].getProperty("prop"), "value-1");
+        assertFalse(msgs[1].getMessageBuilder().hasPartitionKey());
+        assertEquals(batchMetadata.getPartitionKey(), "batch-key");
+        assertEquals(batchMetadata.getSequenceId(), 1);
+    }
+
+    @Test
+    public void testGetPayloadSize() throws Exception {
+        ByteBuf batchBuffer = Commands.serializeSingleMessageInBatchWithPayload(new SingleMessageMetadata(),
+                Unpooled.wrappedBuffer("payload-1".getBytes(UTF_8)), Unpooled.buffer());
+        SingleMessageMetadata singleMessageMetadata = new SingleMessageMetadata();
+        ByteBuf payload = Commands.deSerializeSingleMessageInBatch(batchBuffer, singleMessageMetadata, 0, 1);
+        MessageImpl<byte[]> msg = new MessageImpl<>("topic", new BatchMessageIdImpl(1, 2, -1, 0),
+                new MessageMetadata().setNumMessagesInBatch(1), singleMessageMetadata, payload, Optional.empty(),
+                null, Schema.BYTES, 0);
+
+        assertEquals(MessageImpl.getPayloadSize(msg), "payload-1".length());
+        assertEquals(MessageImpl.getPayloadSize(new TopicMessageImpl<>("topic-partition-0", "topic", msg)),
+                "payload-1".length());
+        // The payload is a slice of the batch, reading its size must not move it
+        assertEquals(new String(msg.getData(), UTF_8), "payload-1");
+    }
 }
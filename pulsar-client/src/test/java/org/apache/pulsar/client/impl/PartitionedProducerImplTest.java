@@ -97,6 +97,15 @@ public class PartitionedProducerImplTest {
         assertTrue(messageRouter instanceof RoundRobinPartitionMessageRouterImpl);
     }
 
+    @Test
+    public void testLoadAwarePartitionMessageRouterImplInstance() throws NoSuchFieldException, IllegalAccessException {
+        ProducerConfigurationData producerConfigurationData = new ProducerConfigurationData();
+        producerConfigurationData.setMessageRoutingMode(MessageRoutingMode.LoadAwarePartition);
+
+        MessageRouter messageRouter = getMessageRouter(producerConfigurationData);
+        assertTrue(messageRouter instanceof LoadAwarePartitionMessageRouterImpl);
+    }
+
     @Test
     public void testCustomMessageRouterInstance() throws NoSuchFieldException, IllegalAccessException {
         ProducerConfigurationData producerConfigurationData = new ProducerConfigurationData();
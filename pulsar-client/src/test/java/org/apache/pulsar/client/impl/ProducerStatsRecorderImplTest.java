@@ -54,4 +54,26 @@ public class ProducerStatsRecorderImplTest {
         Thread.sleep(1200);
         assertEquals(1000.0, recorder.getSendLatencyMillisMax(), 0.5);
     }
+
+    @Test
+    public void testBatchSizePercentiles() throws Exception {
+        ClientConfigurationData conf = new ClientConfigurationData();
+        conf.setStatsIntervalSeconds(1);
+        PulsarClientImpl client = mock(PulsarClientImpl.class);
+        when(client.getConfiguration()).thenReturn(conf);
+        Timer timer = new HashedWheelTimer();
+        when(client.timer()).thenReturn(timer);
+        ProducerImpl<?> producer = mock(ProducerImpl.class);
+        when(producer.getTopic()).thenReturn("topic-test");
+        when(producer.getProducerName()).thenReturn("producer-test");
+        when(producer.getPendingQueueSize()).thenReturn(1);
+        ProducerConfigurationData producerConfigurationData = new ProducerConfigurationData();
+        ProducerStatsRecorderImpl recorder = new ProducerStatsRecorderImpl(client, producerConfigurationData, producer);
+        recorder.updateNumMsgsSent(1, 10);
+        recorder.updateNumMsgsSent(10, 100);
+        recorder.updateNumMsgsSent(100, 1000);
+        Thread.sleep(1200);
+        assertEquals(recorder.getBatchSizeMessagesMax(), 100.0, 0.5);
+        assertEquals(recorder.getBatchSizeMessages50pct(), 10.0, 0.5);
+    }
 }
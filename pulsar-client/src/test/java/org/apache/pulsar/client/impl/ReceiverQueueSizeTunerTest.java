@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests of {@link ReceiverQueueSizeTuner}.
+ */
+public class ReceiverQueueSizeTunerTest {
+
+    private static final long RTT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static void sampleRoundTrip(ReceiverQueueSizeTuner tuner, long flowNanos) {
+        tuner.onFlowSent(flowNanos);
+        tuner.onMessageReceived(flowNanos + RTT_NANOS);
+    }
+
+    private static int dequeue(ReceiverQueueSizeTuner tuner, int currentSize, long startNanos, long intervalNanos,
+                               int count) {
+        int size = currentSize;
+        for (int i = 0; i < count; i++) {
+            size = tuner.onMessageDequeued(startNanos + i * intervalNanos, size);
+        }
+        return size;
+    }
+
+    @Test
+    public void testKeepSizeWithoutSamples() {
+        ReceiverQueueSizeTuner tuner = new ReceiverQueueSizeTuner(1, 1000);
+        assertEquals(tuner.getInitialSize(), 1);
+        assertEquals(tuner.getTargetSize(), -1);
+
+        // No round-trip measured yet
+        assertEquals(dequeue(tuner, 1, 0, TimeUnit.MILLISECONDS.toNanos(1), 10), 1);
+    }
+
+    @Test
+    public void testSizeToBandwidthDelayProduct() {
+        ReceiverQueueSizeTuner tuner = new ReceiverQueueSizeTuner(1, 1000);
+        sampleRoundTrip(tuner, 0);
+
+        // The application consumes 10 messages per round-trip, the queue holds twice that since it is refilled at
+        // half of its size
+        assertEquals(dequeue(tuner, 1, 0, TimeUnit.MILLISECONDS.toNanos(1), 10), 20);
+    }
+
+    @Test
+    public void testSizeBounds() {
+        ReceiverQueueSizeTuner tuner = new ReceiverQueueSizeTuner(5, 100);
+        assertEquals(tuner.getInitialSize(), 5);
+        sampleRoundTrip(tuner, 0);
+
+        // Fast application
+        assertEquals(dequeue(tuner, 5, 0, TimeUnit.MICROSECONDS.toNanos(1), 10), 100);
+
+        // Slow application, the moving average converges to the new rate
+        long start = TimeUnit.MILLISECONDS.toNanos(1);
+        assertEquals(dequeue(tuner, 100, start, TimeUnit.MILLISECONDS.toNanos(100), 100), 5);
+    }
+
+    @Test
+    public void testIgnoreIdlePeriods() {
+        ReceiverQueueSizeTuner tuner = new ReceiverQueueSizeTuner(1, 1000);
+        sampleRoundTrip(tuner, 0);
+        int size = dequeue(tuner, 1, 0, TimeUnit.MILLISECONDS.toNanos(1), 10);
+        assertEquals(size, 20);
+
+        // The application stopped consuming for a while, which is not its consumption rate
+        long resume = TimeUnit.SECONDS.toNanos(10);
+        assertEquals(tuner.onMessageDequeued(resume, size), 20);
+
+        // Same for a flow that waited a long time for the next message to be published
+        tuner.onFlowSent(resume);
+        tuner.onMessageReceived(resume + TimeUnit.SECONDS.toNanos(5));
+        assertEquals(tuner.getTargetSize(), 20);
+    }
+
+    @Test
+    public void testHysteresis() {
+        ReceiverQueueSizeTuner tuner = new ReceiverQueueSizeTuner(1, 1000);
+        sampleRoundTrip(tuner, 0);
+        assertEquals(dequeue(tuner, 1, 0, TimeUnit.MILLISECONDS.toNanos(1), 10), 20);
+
+        // Small variations of the rate don't resize the queue
+        long start = TimeUnit.MILLISECONDS.toNanos(10);
+        assertEquals(dequeue(tuner, 20, start, TimeUnit.MICROSECONDS.toNanos(900), 20), 20);
+        assertEquals(tuner.getTargetSize(), 23);
+    }
+}
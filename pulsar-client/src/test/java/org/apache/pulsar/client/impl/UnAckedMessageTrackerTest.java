@@ -22,6 +22,7 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -30,10 +31,14 @@ import io.netty.util.HashedWheelTimer;
 import io.netty.util.Timer;
 import io.netty.util.concurrent.DefaultThreadFactory;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.pulsar.client.api.MessageId;
-import org.apache.pulsar.common.util.collections.ConcurrentOpenHashSet;
+import org.apache.pulsar.common.util.collections.ConcurrentOpenHashMap;
 import org.testng.annotations.Test;
 
 public class UnAckedMessageTrackerTest  {
@@ -49,7 +54,7 @@ public class UnAckedMessageTrackerTest  {
         doNothing().when(consumer).onAckTimeoutSend(any());
         doNothing().when(consumer).redeliverUnacknowledgedMessages(any());
 
-        UnAckedMessageTracker tracker = new UnAckedMessageTracker(client, consumer, 1000000, 100000);
+        UnAckedMessageTracker tracker = new UnAckedEntryMessageTracker(client, consumer, 1000000, 100000);
         tracker.close();
 
         assertTrue(tracker.isEmpty());
@@ -60,13 +65,6 @@ public class UnAckedMessageTrackerTest  {
         assertFalse(tracker.add(mid));
         assertEquals(tracker.size(), 1);
 
-        ConcurrentOpenHashSet<MessageId> headPartition = tracker.timePartitions.removeFirst();
-        headPartition.clear();
-        tracker.timePartitions.addLast(headPartition);
-
-        assertFalse(tracker.add(mid));
-        assertEquals(tracker.size(), 1);
-
         assertTrue(tracker.remove(mid));
         assertTrue(tracker.isEmpty());
         assertEquals(tracker.size(), 0);
@@ -74,4 +72,102 @@ public class UnAckedMessageTrackerTest  {
         timer.stop();
     }
 
+    @Test
+    public void testBatchAndCumulativeRemoval() throws Exception {
+        PulsarClientImpl client = mock(PulsarClientImpl.class);
+        Timer timer = new HashedWheelTimer(new DefaultThreadFactory("pulsar-timer", Thread.currentThread().isDaemon()),
+                1, TimeUnit.MILLISECONDS);
+        when(client.timer()).thenReturn(timer);
+
+        ConsumerBase<byte[]> consumer = mock(ConsumerBase.class);
+        doNothing().when(consumer).onAckTimeoutSend(any());
+        doNothing().when(consumer).redeliverUnacknowledgedMessages(any());
+
+        UnAckedMessageTracker tracker = new UnAckedEntryMessageTracker(client, consumer, 1000000, 100000);
+        tracker.close();
+
+        for (long entryId = 0; entryId < 10; entryId++) {
+            assertTrue(tracker.add(new MessageIdImpl(1L, entryId, -1)));
+        }
+        assertTrue(tracker.add(new MessageIdImpl(2L, 0L, -1)));
+
+        // A single message of a batch doesn't release the whole entry
+        assertFalse(tracker.remove(new BatchMessageIdImpl(1L, 9L, -1, 0)));
+        assertEquals(tracker.size(), 11);
+
+        assertEquals(tracker.removeMessagesTill(new BatchMessageIdImpl(1L, 4L, -1, 3)), 5);
+        assertEquals(tracker.size(), 6);
+        assertFalse(tracker.remove(new MessageIdImpl(1L, 4L, -1)));
+
+        assertEquals(tracker.removeMessagesTill(new MessageIdImpl(2L, 0L, -1)), 6);
+        assertTrue(tracker.isEmpty());
+
+        timer.stop();
+    }
+
+    @Test
+    public void testRedeliveryOnTimeout() throws Exception {
+        PulsarClientImpl client = mock(PulsarClientImpl.class);
+        Timer timer = new HashedWheelTimer(new DefaultThreadFactory("pulsar-timer", Thread.currentThread().isDaemon()),
+                1, TimeUnit.MILLISECONDS);
+        when(client.timer()).thenReturn(timer);
+
+        ConsumerBase<byte[]> consumer = mock(ConsumerBase.class);
+        consumer.unAckedChunkedMessageIdSequenceMap = new ConcurrentOpenHashMap<>();
+        CompletableFuture<Set<MessageId>> redelivered = new CompletableFuture<>();
+        doNothing().when(consumer).onAckTimeoutSend(any());
+        doAnswer(invocation -> {
+            redelivered.complete(new HashSet<>(invocation.getArgument(0)));
+            return null;
+        }).when(consumer).redeliverUnacknowledgedMessages(any());
+
+        UnAckedMessageTracker tracker = new UnAckedEntryMessageTracker(client, consumer, 200, 50);
+
+        MessageIdImpl acked = new MessageIdImpl(1L, 1L, -1);
+        MessageIdImpl timedOut = new MessageIdImpl(1L, 2L, -1);
+        assertTrue(tracker.add(acked));
+        assertTrue(tracker.add(timedOut));
+        assertTrue(tracker.remove(acked));
+
+        assertEquals(redelivered.get(5, TimeUnit.SECONDS), Collections.singleton(timedOut));
+        assertTrue(tracker.isEmpty());
+
+        tracker.close();
+        timer.stop();
+    }
+
+    @Test
+    public void testTopicMessageRedeliveryOnTimeout() throws Exception {
+        PulsarClientImpl client = mock(PulsarClientImpl.class);
+        Timer timer = new HashedWheelTimer(new DefaultThreadFactory("pulsar-timer", Thread.currentThread().isDaemon()),
+                1, TimeUnit.MILLISECONDS);
+        when(client.timer()).thenReturn(timer);
+
+        ConsumerBase<byte[]> consumer = mock(ConsumerBase.class);
+        consumer.unAckedChunkedMessageIdSequenceMap = new ConcurrentOpenHashMap<>();
+        CompletableFuture<Set<MessageId>> redelivered = new CompletableFuture<>();
+        doNothing().when(consumer).onAckTimeoutSend(any());
+        doAnswer(invocation -> {
+            redelivered.complete(new HashSet<>(invocation.getArgument(0)));
+            return null;
+        }).when(consumer).redeliverUnacknowledgedMessages(any());
+
+        UnAckedTopicMessageTracker tracker = new UnAckedTopicMessageTracker(client, consumer, 200, 50);
+
+        TopicMessageIdImpl acked = new TopicMessageIdImpl("t1", "t1", new MessageIdImpl(1L, 1L, -1));
+        TopicMessageIdImpl removedTopic = new TopicMessageIdImpl("t2", "t2", new MessageIdImpl(1L, 1L, -1));
+        TopicMessageIdImpl timedOut = new TopicMessageIdImpl("t1", "t1", new MessageIdImpl(1L, 2L, -1));
+        assertTrue(tracker.add(acked));
+        assertTrue(tracker.add(removedTopic));
+        assertTrue(tracker.add(timedOut));
+        assertTrue(tracker.remove(acked));
+        assertEquals(tracker.removeTopicMessages("t2"), 1);
+
+        assertEquals(redelivered.get(5, TimeUnit.SECONDS), Collections.singleton(timedOut));
+        assertTrue(tracker.isEmpty());
+
+        tracker.close();
+        timer.stop();
+    }
+
 }
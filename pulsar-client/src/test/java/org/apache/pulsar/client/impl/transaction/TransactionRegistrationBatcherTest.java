@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl.transaction;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.testng.annotations.Test;
+
+public class TransactionRegistrationBatcherTest {
+
+    private final List<List<String>> requests = new ArrayList<>();
+    private final List<CompletableFuture<Void>> responses = new ArrayList<>();
+
+    private TransactionRegistrationBatcher<String> newBatcher() {
+        requests.clear();
+        responses.clear();
+        return new TransactionRegistrationBatcher<>(items -> {
+            requests.add(items);
+            CompletableFuture<Void> response = new CompletableFuture<>();
+            responses.add(response);
+            return response;
+        });
+    }
+
+    @Test
+    public void testCoalesceWhileRequestInFlight() {
+        TransactionRegistrationBatcher<String> batcher = newBatcher();
+
+        CompletableFuture<Void> first = batcher.register("t1");
+        assertEquals(requests, Collections.singletonList(Collections.singletonList("t1")));
+
+        CompletableFuture<Void> second = batcher.register("t2");
+        CompletableFuture<Void> third = batcher.register("t3");
+        assertEquals(requests.size(), 1);
+
+        responses.get(0).complete(null);
+        assertTrue(first.isDone());
+        assertFalse(second.isDone());
+        assertEquals(requests.size(), 2);
+        assertEquals(requests.get(1), Arrays.asList("t2", "t3"));
+
+        responses.get(1).complete(null);
+        assertTrue(second.isDone() && !second.isCompletedExceptionally());
+        assertTrue(third.isDone() && !third.isCompletedExceptionally());
+
+        // nothing is in flight anymore, the next registration is sent right away
+        batcher.register("t4");
+        assertEquals(requests.size(), 3);
+        assertEquals(requests.get(2), Collections.singletonList("t4"));
+    }
+
+    @Test
+    public void testFailedBatch() {
+        TransactionRegistrationBatcher<String> batcher = newBatcher();
+
+        CompletableFuture<Void> first = batcher.register("t1");
+        CompletableFuture<Void> second = batcher.register("t2");
+
+        responses.get(0).completeExceptionally(new RuntimeException("first"));
+        assertTrue(first.isCompletedExceptionally());
+        assertEquals(requests.size(), 2);
+
+        responses.get(1).completeExceptionally(new RuntimeException("second"));
+        assertTrue(second.isCompletedExceptionally());
+    }
+}
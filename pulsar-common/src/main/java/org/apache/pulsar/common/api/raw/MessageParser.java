@@ -137,7 +137,12 @@ public class MessageParser {
 
     public static ByteBuf uncompressPayloadIfNeeded(TopicName topic, MessageMetadata msgMetadata,
             ByteBuf payload, long ledgerId, long entryId, int maxMessageSize) {
-        CompressionCodec codec = CompressionCodecProvider.getCompressionCodec(msgMetadata.getCompression());
+        CompressionCodec codec = CompressionCodecProvider.getCompressionCodec(msgMetadata);
+        if (codec == null) {
+            log.error("[{}] Unknown compression dictionary {} at {}:{}", topic,
+                    msgMetadata.getCompressionDictionaryId(), ledgerId, entryId);
+            return null;
+        }
         int uncompressedSize = msgMetadata.getUncompressedSize();
         int payloadSize = payload.readableBytes();
         if (payloadSize > maxMessageSize) {
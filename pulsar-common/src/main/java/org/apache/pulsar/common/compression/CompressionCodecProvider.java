@@ -19,8 +19,11 @@
 package org.apache.pulsar.common.compression;
 
 import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.experimental.UtilityClass;
 import org.apache.pulsar.client.api.CompressionType;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
 
 /**
  * Provider of compression codecs used in Pulsar.
@@ -30,10 +33,13 @@ import org.apache.pulsar.client.api.CompressionType;
  * @see CompressionCodecZLib
  * @see CompressionCodecZstd
  * @see CompressionCodecSnappy
+ * @see CompressionCodecZstdDictionary
  */
 @UtilityClass
 public class CompressionCodecProvider {
     private static final EnumMap<org.apache.pulsar.common.api.proto.CompressionType, CompressionCodec> codecs;
+    private static final Map<Long, CompressionCodecZstdDictionary> zstdDictionaryCodecs = new ConcurrentHashMap<>();
+    private static final boolean zstdDictionaryCompressionAvailable = checkZstdDictionaryCompressionAvailable();
 
     static {
         codecs = new EnumMap<>(org.apache.pulsar.common.api.proto.CompressionType.class);
@@ -52,6 +58,63 @@ public class CompressionCodecProvider {
         return codecs.get(convertToWireProtocol(type));
     }
 
+    /**
+     * Get the codec to decompress a message with.
+     *
+     * @return the codec, or null if the message was compressed with a zstd dictionary that was not registered
+     */
+    public static CompressionCodec getCompressionCodec(MessageMetadata msgMetadata) {
+        if (msgMetadata.getCompression() == org.apache.pulsar.common.api.proto.CompressionType.ZSTD_DICTIONARY) {
+            return msgMetadata.hasCompressionDictionaryId()
+                    ? zstdDictionaryCodecs.get(msgMetadata.getCompressionDictionaryId()) : null;
+        }
+        return codecs.get(msgMetadata.getCompression());
+    }
+
+    private static boolean checkZstdDictionaryCompressionAvailable() {
+        try {
+            Class.forName("com.github.luben.zstd.ZstdDictCompress");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Check whether zstd dictionary compression can be used.
+     *
+     * <p>It relies on zstd-jni, which is an optional dependency that applications using dictionaries must provide.
+     */
+    public static boolean isZstdDictionaryCompressionAvailable() {
+        return zstdDictionaryCompressionAvailable;
+    }
+
+    /**
+     * Register a zstd dictionary, so that the messages compressed with it can be decompressed.
+     *
+     * <p>Dictionaries are identified by the id stored in their header, registering the same dictionary again returns
+     * the existing codec.
+     *
+     * @return the codec compressing with the dictionary
+     * @throws IllegalStateException if zstd-jni is not in the classpath
+     * @throws IllegalArgumentException if a different dictionary was already registered with the same id, the
+     *             messages compressed with either of them couldn't be told apart
+     */
+    public static CompressionCodecZstdDictionary registerZstdDictionary(byte[] dictionary) {
+        if (!zstdDictionaryCompressionAvailable) {
+            throw new IllegalStateException("zstd dictionary compression requires com.github.luben:zstd-jni"
+                    + " in the classpath");
+        }
+        long dictionaryId = CompressionCodecZstdDictionary.getDictionaryId(dictionary);
+        CompressionCodecZstdDictionary codec = zstdDictionaryCodecs.computeIfAbsent(dictionaryId,
+                id -> new CompressionCodecZstdDictionary(dictionary));
+        if (!codec.hasDictionary(dictionary)) {
+            throw new IllegalArgumentException("A different zstd dictionary is already registered with the id "
+                    + dictionaryId);
+        }
+        return codec;
+    }
+
     public static org.apache.pulsar.common.api.proto.CompressionType convertToWireProtocol(
             CompressionType compressionType) {
         switch (compressionType) {
@@ -81,6 +144,7 @@ public class CompressionCodecProvider {
         case ZLIB:
             return CompressionType.ZLIB;
         case ZSTD:
+        case ZSTD_DICTIONARY:
             return CompressionType.ZSTD;
         case SNAPPY:
             return CompressionType.SNAPPY;
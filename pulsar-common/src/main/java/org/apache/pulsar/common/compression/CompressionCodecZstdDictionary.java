@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.common.compression;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
+
+/**
+ * Zstandard compression with a trained dictionary.
+ *
+ * <p>Small payloads don't give the compressor enough history to find repetitions. A dictionary trained on sample
+ * payloads provides it upfront, which typically improves the ratio of small messages several times. The pure Java
+ * implementation used by {@link CompressionCodecZstd} has no dictionary support, so this codec relies on zstd-jni.
+ */
+public class CompressionCodecZstdDictionary implements CompressionCodec {
+
+    private static final int ZSTD_COMPRESSION_LEVEL = 3;
+
+    private final long dictionaryId;
+    private final byte[] dictionary;
+    private final ZstdDictCompress compressDictionary;
+    private final ZstdDictDecompress decompressDictionary;
+
+    public CompressionCodecZstdDictionary(byte[] dictionary) {
+        this.dictionaryId = getDictionaryId(dictionary);
+        this.dictionary = dictionary.clone();
+        this.compressDictionary = new ZstdDictCompress(dictionary, ZSTD_COMPRESSION_LEVEL);
+        this.decompressDictionary = new ZstdDictDecompress(dictionary);
+    }
+
+    /**
+     * Get the id of a dictionary, as stored in its header.
+     *
+     * @throws IllegalArgumentException if the content is not a trained zstd dictionary
+     */
+    public static long getDictionaryId(byte[] dictionary) {
+        long dictionaryId = Zstd.getDictIdFromDict(dictionary);
+        if (dictionaryId == 0) {
+            throw new IllegalArgumentException("Not a trained zstd dictionary");
+        }
+        return dictionaryId;
+    }
+
+    /**
+     * Train a dictionary from sample payloads.
+     *
+     * @param samples
+     *            payloads representative of the messages to compress, typically a few thousands of them
+     * @param maxDictionarySize
+     *            the maximum size of the dictionary, a few KB are usually enough for small messages
+     * @return the dictionary
+     */
+    public static byte[] trainDictionary(List<byte[]> samples, int maxDictionarySize) {
+        byte[] dictionary = new byte[maxDictionarySize];
+        long dictionarySize = Zstd.trainFromBuffer(samples.toArray(new byte[0][]), dictionary);
+        if (Zstd.isError(dictionarySize)) {
+            throw new IllegalArgumentException("Failed to train zstd dictionary: "
+                    + Zstd.getErrorName(dictionarySize));
+        }
+        return Arrays.copyOf(dictionary, (int) dictionarySize);
+    }
+
+    public long getDictionaryId() {
+        return dictionaryId;
+    }
+
+    /**
+     * Check whether the codec uses the given dictionary, the ids only identify the dictionaries the application
+     * gave them to.
+     */
+    public boolean hasDictionary(byte[] dictionary) {
+        return Arrays.equals(this.dictionary, dictionary);
+    }
+
+    @Override
+    public ByteBuf encode(ByteBuf source) {
+        int uncompressedLength = source.readableBytes();
+        int maxLength = (int) Zstd.compressBound(uncompressedLength);
+
+        ByteBuf directSource = toDirect(source);
+        ByteBuf target = PulsarByteBufAllocator.DEFAULT.directBuffer(maxLength, maxLength);
+        try {
+            long compressedLength = Zstd.compressDirectByteBufferFastDict(
+                    target.nioBuffer(0, maxLength), 0, maxLength,
+                    directSource.nioBuffer(directSource.readerIndex(), uncompressedLength), 0, uncompressedLength,
+                    compressDictionary);
+            if (Zstd.isError(compressedLength)) {
+                target.release();
+                throw new IllegalStateException("Failed to compress with zstd dictionary " + dictionaryId + ": "
+                        + Zstd.getErrorName(compressedLength));
+            }
+            target.writerIndex((int) compressedLength);
+            return target;
+        } finally {
+            if (directSource != source) {
+                directSource.release();
+            }
+        }
+    }
+
+    @Override
+    public ByteBuf decode(ByteBuf encoded, int uncompressedLength) throws IOException {
+        ByteBuf directEncoded = toDirect(encoded);
+        ByteBuf uncompressed = PulsarByteBufAllocator.DEFAULT.directBuffer(uncompressedLength, uncompressedLength);
+        try {
+            long decompressedLength = Zstd.decompressDirectByteBufferFastDict(
+                    uncompressed.nioBuffer(0, uncompressedLength), 0, uncompressedLength,
+                    directEncoded.nioBuffer(directEncoded.readerIndex(), directEncoded.readableBytes()), 0,
+                    directEncoded.readableBytes(), decompressDictionary);
+            if (Zstd.isError(decompressedLength) || decompressedLength != uncompressedLength) {
+                uncompressed.release();
+                throw new IOException("Failed to decompress with zstd dictionary " + dictionaryId + ": "
+                        + (Zstd.isError(decompressedLength) ? Zstd.getErrorName(decompressedLength)
+                                : "unexpected size " + decompressedLength));
+            }
+            uncompressed.writerIndex(uncompressedLength);
+            return uncompressed;
+        } finally {
+            if (directEncoded != encoded) {
+                directEncoded.release();
+            }
+        }
+    }
+
+    private static ByteBuf toDirect(ByteBuf buf) {
+        if (buf.isDirect() && buf.nioBufferCount() == 1) {
+            return buf;
+        }
+        ByteBuf direct = PulsarByteBufAllocator.DEFAULT.directBuffer(buf.readableBytes());
+        direct.writeBytes(buf, buf.readerIndex(), buf.readableBytes());
+        return direct;
+    }
+}
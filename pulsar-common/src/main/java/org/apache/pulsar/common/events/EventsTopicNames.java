@@ -18,6 +18,8 @@
  */
 package org.apache.pulsar.common.events;
 
+import org.apache.pulsar.common.naming.TopicName;
+
 /**
  * System topic name for the event type.
  */
@@ -29,4 +31,24 @@ public class EventsTopicNames {
      */
     public static final String NAMESPACE_EVENTS_LOCAL_NAME = "__change_events";
 
+    /**
+     * Suffix of the managed ledgers that log the transactional pending acks of a subscription. They live next to
+     * the topics of the namespace, but are not topics.
+     */
+    public static final String PENDING_ACK_STORE_SUFFIX = "__transaction_pending_ack";
+
+    /**
+     * Suffix of the managed ledgers that store the snapshots of the transaction buffer of a topic. They live next
+     * to the topics of the namespace, but are not topics.
+     */
+    public static final String TRANSACTION_BUFFER_SNAPSHOT_SUFFIX = "__transaction_buffer_snapshot";
+
+    /**
+     * Check whether a name listed among the topics of a namespace is internal to transactions, and must not be
+     * exposed as a topic.
+     */
+    public static boolean isTransactionInternalName(TopicName topicName) {
+        String localName = topicName.getLocalName();
+        return localName.endsWith(PENDING_ACK_STORE_SUFFIX) || localName.endsWith(TRANSACTION_BUFFER_SNAPSHOT_SUFFIX);
+    }
 }
@@ -37,6 +37,7 @@ import java.util.Set;
 import lombok.experimental.UtilityClass;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 import org.apache.pulsar.PulsarVersion;
 import org.apache.pulsar.client.api.KeySharedPolicy;
@@ -70,6 +71,7 @@ import org.apache.pulsar.common.api.proto.CommandGetTopicsOfNamespace.Mode;
 import org.apache.pulsar.common.api.proto.CommandGetTopicsOfNamespaceResponse;
 import org.apache.pulsar.common.api.proto.CommandLookupTopic;
 import org.apache.pulsar.common.api.proto.CommandLookupTopicResponse;
+import org.apache.pulsar.common.api.proto.CommandLookupTopics;
 import org.apache.pulsar.common.api.proto.CommandLookupTopicResponse.LookupType;
 import org.apache.pulsar.common.api.proto.CommandMessage;
 import org.apache.pulsar.common.api.proto.CommandNewTxnResponse;
@@ -82,6 +84,9 @@ import org.apache.pulsar.common.api.proto.CommandSend;
 import org.apache.pulsar.common.api.proto.CommandSubscribe;
 import org.apache.pulsar.common.api.proto.CommandSubscribe.InitialPosition;
 import org.apache.pulsar.common.api.proto.CommandSubscribe.SubType;
+import org.apache.pulsar.common.api.proto.CommandWatchTopicList;
+import org.apache.pulsar.common.api.proto.CommandWatchTopicListSuccess;
+import org.apache.pulsar.common.api.proto.CommandWatchTopicUpdate;
 import org.apache.pulsar.common.api.proto.FeatureFlags;
 import org.apache.pulsar.common.api.proto.IntRange;
 import org.apache.pulsar.common.api.proto.KeySharedMeta;
@@ -99,6 +104,8 @@ import org.apache.pulsar.common.schema.SchemaInfo;
 import org.apache.pulsar.common.schema.SchemaType;
 import org.apache.pulsar.common.util.collections.BitSetRecyclable;
 import org.apache.pulsar.common.util.collections.ConcurrentBitSetRecyclable;
+import org.apache.pulsar.common.util.collections.LongPairRangeSet;
+import org.apache.pulsar.common.util.collections.LongPairRangeSet.LongPair;
 
 @UtilityClass
 @Slf4j
@@ -109,6 +116,8 @@ public class Commands {
     public static final int DEFAULT_MAX_MESSAGE_SIZE = 5 * 1024 * 1024;
     public static final int MESSAGE_SIZE_FRAME_PADDING = 10 * 1024;
     public static final int INVALID_MAX_MESSAGE_SIZE = -1;
+    // Max number of entries in a single range of an individual ack, brokers reject larger ranges
+    public static final long MAX_ACK_RANGE_SIZE = 100_000;
 
     @SuppressWarnings("checkstyle:ConstantName")
     public static final short magicCrc32c = 0x0e01;
@@ -254,6 +263,23 @@ public class Commands {
     }
 
     public static BaseCommand newConnectedCommand(int clientProtocolVersion, int maxMessageSize) {
+        return newConnectedCommand(clientProtocolVersion, maxMessageSize, null);
+    }
+
+    /**
+     * Features that the broker implements on top of the protocol version it advertises. They are advertised as
+     * feature flags rather than through the protocol version, which other brokers may use for different features.
+     */
+    public static FeatureFlags newBrokerFeatureFlags() {
+        return new FeatureFlags()
+                .setSupportsLookupTopics(true)
+                .setSupportsRangeAcks(true)
+                .setSupportsTopicListWatchers(true)
+                .setSupportsZstdDictionaryCompression(true);
+    }
+
+    public static BaseCommand newConnectedCommand(int clientProtocolVersion, int maxMessageSize,
+                                                  FeatureFlags featureFlags) {
         BaseCommand cmd = localCmd(Type.CONNECTED);
         CommandConnected connected = cmd.setConnected()
                 .setServerVersion("Pulsar Server" + PulsarVersion.getVersion());
@@ -268,6 +294,9 @@ public class Commands {
         int versionToAdvertise = Math.min(currentProtocolVersion, clientProtocolVersion);
 
         connected.setProtocolVersion(versionToAdvertise);
+        if (featureFlags != null) {
+            connected.setFeatureFlags().copyFrom(featureFlags);
+        }
         return cmd;
     }
 
@@ -275,6 +304,10 @@ public class Commands {
         return serializeWithSize(newConnectedCommand(clientProtocolVersion, maxMessageSize));
     }
 
+    public static ByteBuf newConnected(int clientProtocolVersion, int maxMessageSize, FeatureFlags featureFlags) {
+        return serializeWithSize(newConnectedCommand(clientProtocolVersion, maxMessageSize, featureFlags));
+    }
+
     public static ByteBuf newAuthChallenge(String authMethod, AuthData brokerData, int clientProtocolVersion) {
         BaseCommand cmd = localCmd(Type.AUTH_CHALLENGE);
         CommandAuthChallenge challenge = cmd.setAuthChallenge();
@@ -784,6 +817,25 @@ public class Commands {
         return serializeWithSize(cmd);
     }
 
+    /**
+     * Create a command carrying several lookups, each one made of a topic and the id of the request to answer it.
+     */
+    public static ByteBuf newLookupTopics(List<Pair<String, Long>> topicsAndRequestIds, String listenerName,
+                                          boolean authoritative) {
+        BaseCommand cmd = localCmd(Type.LOOKUP_TOPICS);
+        CommandLookupTopics lookupTopics = cmd.setLookupTopics();
+        for (Pair<String, Long> topicAndRequestId : topicsAndRequestIds) {
+            CommandLookupTopic lookup = lookupTopics.addLookup()
+                    .setTopic(topicAndRequestId.getLeft())
+                    .setRequestId(topicAndRequestId.getRight())
+                    .setAuthoritative(authoritative);
+            if (StringUtils.isNotBlank(listenerName)) {
+                lookup.setAdvertisedListenerName(listenerName);
+            }
+        }
+        return serializeWithSize(cmd);
+    }
+
     public static BaseCommand newLookupResponseCommand(String brokerServiceUrl, String brokerServiceUrlTls,
         boolean authoritative, LookupType lookupType, long requestId, boolean proxyThroughServiceUrl) {
         BaseCommand cmd = localCmd(Type.LOOKUP_RESPONSE);
@@ -870,6 +922,33 @@ public class Commands {
         return serializeWithSize(cmd);
     }
 
+    public static ByteBuf newMultiMessageAck(long consumerId,
+                                             List<Triple<Long, Long, ConcurrentBitSetRecyclable>> entries,
+                                             LongPairRangeSet<LongPair> entryRanges,
+                                             long requestId) {
+        BaseCommand cmd = newMultiMessageAckCommon(entries);
+        CommandAck ack = cmd.getAck()
+                .setConsumerId(consumerId)
+                .setAckType(AckType.Individual);
+        entryRanges.forEach(range -> {
+            // Ranges are open on the lower end and never span multiple ledgers
+            long ledgerId = range.upperEndpoint().getKey();
+            long lastEntryId = range.upperEndpoint().getValue();
+            for (long firstEntryId = range.lowerEndpoint().getValue() + 1; firstEntryId <= lastEntryId;
+                 firstEntryId += MAX_ACK_RANGE_SIZE) {
+                ack.addMessageIdRange()
+                        .setLedgerId(ledgerId)
+                        .setFirstEntryId(firstEntryId)
+                        .setLastEntryId(Math.min(lastEntryId, firstEntryId + MAX_ACK_RANGE_SIZE - 1));
+            }
+            return true;
+        });
+        if (requestId >= 0) {
+            ack.setRequestId(requestId);
+        }
+        return serializeWithSize(cmd);
+    }
+
     public static ByteBuf newAck(long consumerId, long ledgerId, long entryId, BitSetRecyclable ackSet, AckType ackType,
                                  ValidationError validationError, Map<String, Long> properties, long requestId) {
         return newAck(consumerId, ledgerId, entryId, ackSet, ackType, validationError,
@@ -1012,6 +1091,56 @@ public class Commands {
         return serializeWithSize(newGetTopicsOfNamespaceResponseCommand(topics, requestId));
     }
 
+    public static ByteBuf newWatchTopicList(long requestId, long watcherId, String namespace, String topicsPattern,
+                                            String topicsHash) {
+        BaseCommand cmd = localCmd(Type.WATCH_TOPIC_LIST);
+        CommandWatchTopicList watchTopicList = cmd.setWatchTopicList()
+                .setRequestId(requestId)
+                .setWatcherId(watcherId)
+                .setNamespace(namespace)
+                .setTopicsPattern(topicsPattern);
+        if (topicsHash != null) {
+            watchTopicList.setTopicsHash(topicsHash);
+        }
+        return serializeWithSize(cmd);
+    }
+
+    public static BaseCommand newWatchTopicListSuccessCommand(long requestId, long watcherId, String topicsHash,
+                                                              List<String> topics) {
+        BaseCommand cmd = localCmd(Type.WATCH_TOPIC_LIST_SUCCESS);
+        CommandWatchTopicListSuccess success = cmd.setWatchTopicListSuccess()
+                .setRequestId(requestId)
+                .setWatcherId(watcherId)
+                .setTopicsHash(topicsHash);
+        for (int i = 0; i < topics.size(); i++) {
+            success.addTopic(topics.get(i));
+        }
+        return cmd;
+    }
+
+    public static BaseCommand newWatchTopicUpdateCommand(long watcherId, List<String> newTopics,
+                                                         List<String> deletedTopics, String topicsHash) {
+        BaseCommand cmd = localCmd(Type.WATCH_TOPIC_UPDATE);
+        CommandWatchTopicUpdate update = cmd.setWatchTopicUpdate()
+                .setWatcherId(watcherId)
+                .setTopicsHash(topicsHash);
+        for (int i = 0; i < newTopics.size(); i++) {
+            update.addNewTopic(newTopics.get(i));
+        }
+        for (int i = 0; i < deletedTopics.size(); i++) {
+            update.addDeletedTopic(deletedTopics.get(i));
+        }
+        return cmd;
+    }
+
+    public static ByteBuf newWatchTopicListClose(long requestId, long watcherId) {
+        BaseCommand cmd = localCmd(Type.WATCH_TOPIC_LIST_CLOSE);
+        cmd.setWatchTopicListClose()
+                .setRequestId(requestId)
+                .setWatcherId(watcherId);
+        return serializeWithSize(cmd);
+    }
+
     private final static ByteBuf cmdPing;
 
     static {
@@ -58,6 +58,7 @@ import org.apache.pulsar.common.api.proto.CommandGetTopicsOfNamespace;
 import org.apache.pulsar.common.api.proto.CommandGetTopicsOfNamespaceResponse;
 import org.apache.pulsar.common.api.proto.CommandLookupTopic;
 import org.apache.pulsar.common.api.proto.CommandLookupTopicResponse;
+import org.apache.pulsar.common.api.proto.CommandLookupTopics;
 import org.apache.pulsar.common.api.proto.CommandMessage;
 import org.apache.pulsar.common.api.proto.CommandNewTxn;
 import org.apache.pulsar.common.api.proto.CommandNewTxnResponse;
@@ -76,6 +77,10 @@ import org.apache.pulsar.common.api.proto.CommandSendReceipt;
 import org.apache.pulsar.common.api.proto.CommandSubscribe;
 import org.apache.pulsar.common.api.proto.CommandSuccess;
 import org.apache.pulsar.common.api.proto.CommandUnsubscribe;
+import org.apache.pulsar.common.api.proto.CommandWatchTopicList;
+import org.apache.pulsar.common.api.proto.CommandWatchTopicListClose;
+import org.apache.pulsar.common.api.proto.CommandWatchTopicListSuccess;
+import org.apache.pulsar.common.api.proto.CommandWatchTopicUpdate;
 import org.apache.pulsar.common.api.proto.ServerError;
 import org.apache.pulsar.common.intercept.InterceptException;
 import org.slf4j.Logger;
@@ -420,6 +425,33 @@ public abstract class PulsarDecoder extends ChannelInboundHandlerAdapter {
                 checkArgument(cmd.hasEndTxnOnSubscriptionResponse());
                 handleEndTxnOnSubscriptionResponse(cmd.getEndTxnOnSubscriptionResponse());
                 break;
+
+            case WATCH_TOPIC_LIST:
+                checkArgument(cmd.hasWatchTopicList());
+                safeInterceptCommand(cmd);
+                handleWatchTopicList(cmd.getWatchTopicList());
+                break;
+
+            case WATCH_TOPIC_LIST_SUCCESS:
+                checkArgument(cmd.hasWatchTopicListSuccess());
+                handleWatchTopicListSuccess(cmd.getWatchTopicListSuccess());
+                break;
+
+            case WATCH_TOPIC_UPDATE:
+                checkArgument(cmd.hasWatchTopicUpdate());
+                handleWatchTopicUpdate(cmd.getWatchTopicUpdate());
+                break;
+
+            case WATCH_TOPIC_LIST_CLOSE:
+                checkArgument(cmd.hasWatchTopicListClose());
+                safeInterceptCommand(cmd);
+                handleWatchTopicListClose(cmd.getWatchTopicListClose());
+                break;
+
+            case LOOKUP_TOPICS:
+                checkArgument(cmd.hasLookupTopics());
+                handleLookupTopics(cmd.getLookupTopics());
+                break;
             default:
                 break;
             }
@@ -652,5 +684,25 @@ public abstract class PulsarDecoder extends ChannelInboundHandlerAdapter {
         throw new UnsupportedOperationException();
     }
 
+    protected void handleWatchTopicList(CommandWatchTopicList commandWatchTopicList) {
+        throw new UnsupportedOperationException();
+    }
+
+    protected void handleWatchTopicListSuccess(CommandWatchTopicListSuccess commandWatchTopicListSuccess) {
+        throw new UnsupportedOperationException();
+    }
+
+    protected void handleWatchTopicUpdate(CommandWatchTopicUpdate commandWatchTopicUpdate) {
+        throw new UnsupportedOperationException();
+    }
+
+    protected void handleWatchTopicListClose(CommandWatchTopicListClose commandWatchTopicListClose) {
+        throw new UnsupportedOperationException();
+    }
+
+    protected void handleLookupTopics(CommandLookupTopics lookupTopics) {
+        throw new UnsupportedOperationException();
+    }
+
     private static final Logger log = LoggerFactory.getLogger(PulsarDecoder.class);
 }
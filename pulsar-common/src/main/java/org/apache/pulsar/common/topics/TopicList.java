@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.common.topics;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.apache.pulsar.common.events.EventsTopicNames;
+import org.apache.pulsar.common.naming.TopicName;
+
+/**
+ * Utilities to match topic lists against a subscription pattern and to compare them.
+ */
+public class TopicList {
+
+    private static final String SCHEME_SEPARATOR = "://";
+
+    // get topics that match 'topicsPattern' from original topics list
+    // return result should contain only topic names, without partition part
+    public static List<String> filterTopics(List<String> original, Pattern topicsPattern) {
+        final Pattern shortenedTopicsPattern = getShortenedPattern(topicsPattern);
+        return filterTopics(original, topic -> shortenedTopicsPattern.matcher(topic).matches());
+    }
+
+    /**
+     * Get the topics of a list whose name without the domain, as matched by {@link #getShortenedPattern(Pattern)},
+     * is accepted by the given filter.
+     */
+    public static List<String> filterTopics(List<String> original, Predicate<String> shortenedTopicFilter) {
+        return original.stream()
+            .map(TopicName::get)
+            .filter(topicName -> !EventsTopicNames.isTransactionInternalName(topicName))
+            .map(TopicName::toString)
+            .filter(topic -> shortenedTopicFilter.test(topic.split("\\:\\/\\/")[1]))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Get the pattern matching the topic names without their domain, so that a pattern matches the topics of all
+     * the domains.
+     */
+    public static Pattern getShortenedPattern(Pattern topicsPattern) {
+        return topicsPattern.toString().contains(SCHEME_SEPARATOR)
+            ? Pattern.compile(topicsPattern.toString().split("\\:\\/\\/")[1]) : topicsPattern;
+    }
+
+    // get topics, which are contained in list1, and not in list2
+    public static List<String> minus(Collection<String> list1, Collection<String> list2) {
+        Set<String> s1 = new HashSet<>(list1);
+        s1.removeAll(list2);
+        return new ArrayList<>(s1);
+    }
+
+    /**
+     * Hash of a topic list, independent of the order of the topics.
+     *
+     * <p>The client and the broker compare hashes to find out whether their views of the list diverged, without
+     * having to send the full list.
+     */
+    public static String calculateHash(Collection<String> topics) {
+        Hasher hasher = Hashing.crc32c().newHasher();
+        topics.stream().sorted().forEach(topic -> hasher.putString(topic, StandardCharsets.UTF_8).putByte((byte) 0));
+        return hasher.hash().toString();
+    }
+}
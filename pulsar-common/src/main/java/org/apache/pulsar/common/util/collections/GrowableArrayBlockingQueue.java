@@ -36,6 +36,10 @@ import java.util.function.Consumer;
  * This implements a {@link BlockingQueue} backed by an array with no fixed capacity.
  *
  * <p>When the capacity is reached, data will be moved to a bigger array.
+ *
+ * <p>Producers only take the head lock to wake up a consumer blocked in {@link #take()} or
+ * {@link #poll(long, TimeUnit)}, and polling an empty queue doesn't take any lock, so a producer and a non-blocking
+ * consumer don't contend with each other.
  */
 public class GrowableArrayBlockingQueue<T> extends AbstractQueue<T> implements BlockingQueue<T> {
 
@@ -52,6 +56,12 @@ public class GrowableArrayBlockingQueue<T> extends AbstractQueue<T> implements B
             .newUpdater(GrowableArrayBlockingQueue.class, "size");
     private volatile int size = 0;
 
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<GrowableArrayBlockingQueue> WAITING_CONSUMERS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(GrowableArrayBlockingQueue.class, "waitingConsumers");
+    // Number of consumers that are (or are about to be) waiting on isNotEmpty
+    private volatile int waitingConsumers = 0;
+
     public GrowableArrayBlockingQueue() {
         this(64);
     }
@@ -77,6 +87,10 @@ public class GrowableArrayBlockingQueue<T> extends AbstractQueue<T> implements B
 
     @Override
     public T poll() {
+        if (SIZE_UPDATER.get(this) == 0) {
+            return null;
+        }
+
         headLock.lock();
         try {
             if (SIZE_UPDATER.get(this) > 0) {
@@ -105,6 +119,10 @@ public class GrowableArrayBlockingQueue<T> extends AbstractQueue<T> implements B
 
     @Override
     public T peek() {
+        if (SIZE_UPDATER.get(this) == 0) {
+            return null;
+        }
+
         headLock.lock();
         try {
             if (SIZE_UPDATER.get(this) > 0) {
@@ -144,7 +162,9 @@ public class GrowableArrayBlockingQueue<T> extends AbstractQueue<T> implements B
             tailLock.unlock();
         }
 
-        if (wasEmpty) {
+        // The waiting consumer registers itself before checking the size again, so either it sees the new item or
+        // we see it waiting
+        if (wasEmpty && WAITING_CONSUMERS_UPDATER.get(this) > 0) {
             headLock.lock();
             try {
                 isNotEmpty.signal();
@@ -173,7 +193,14 @@ public class GrowableArrayBlockingQueue<T> extends AbstractQueue<T> implements B
 
         try {
             while (SIZE_UPDATER.get(this) == 0) {
-                isNotEmpty.await();
+                WAITING_CONSUMERS_UPDATER.incrementAndGet(this);
+                try {
+                    if (SIZE_UPDATER.get(this) == 0) {
+                        isNotEmpty.await();
+                    }
+                } finally {
+                    WAITING_CONSUMERS_UPDATER.decrementAndGet(this);
+                }
             }
 
             T item = data[headIndex.value];
@@ -200,7 +227,14 @@ public class GrowableArrayBlockingQueue<T> extends AbstractQueue<T> implements B
                     return null;
                 }
 
-                timeoutNanos = isNotEmpty.awaitNanos(timeoutNanos);
+                WAITING_CONSUMERS_UPDATER.incrementAndGet(this);
+                try {
+                    if (SIZE_UPDATER.get(this) == 0) {
+                        timeoutNanos = isNotEmpty.awaitNanos(timeoutNanos);
+                    }
+                } finally {
+                    WAITING_CONSUMERS_UPDATER.decrementAndGet(this);
+                }
             }
 
             T item = data[headIndex.value];
@@ -28,12 +28,18 @@ import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 
 import java.io.IOException;
+import java.util.Collections;
 
 import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
+import org.apache.pulsar.common.api.proto.BaseCommand;
+import org.apache.pulsar.common.api.proto.CommandAck;
 import org.apache.pulsar.common.api.proto.MessageMetadata;
 import org.apache.pulsar.common.protocol.ByteBufPair;
 import org.apache.pulsar.common.protocol.Commands;
 import org.apache.pulsar.common.protocol.Commands.ChecksumType;
+import org.apache.pulsar.common.util.collections.ConcurrentOpenLongPairRangeSet;
+import org.apache.pulsar.common.util.collections.LongPairRangeSet;
+import org.apache.pulsar.common.util.collections.LongPairRangeSet.LongPair;
 import org.testng.annotations.Test;
 
 public class CommandsTest {
@@ -94,4 +100,31 @@ public class CommandsTest {
     }
 
 
+
+    @Test
+    public void testMultiMessageAckSplitsLargeRanges() {
+        LongPairRangeSet<LongPair> entryRanges = new ConcurrentOpenLongPairRangeSet<>(64, false, LongPair::new);
+        long lastEntryId = 2 * Commands.MAX_ACK_RANGE_SIZE + 10;
+        // ranges are open on the lower end
+        entryRanges.addOpenClosed(5, -1, 5, lastEntryId);
+
+        ByteBuf cmdBuf = Commands.newMultiMessageAck(1, Collections.emptyList(), entryRanges, -1);
+        cmdBuf.skipBytes(4);
+        int cmdSize = cmdBuf.readInt();
+        BaseCommand cmd = new BaseCommand();
+        cmd.parseFrom(cmdBuf, cmdSize);
+        cmdBuf.release();
+
+        // brokers reject ranges larger than MAX_ACK_RANGE_SIZE entries
+        CommandAck ack = cmd.getAck();
+        assertEquals(ack.getMessageIdRangesCount(), 3);
+        long firstEntryId = 0;
+        for (int i = 0; i < ack.getMessageIdRangesCount(); i++) {
+            assertEquals(ack.getMessageIdRangeAt(i).getLedgerId(), 5);
+            assertEquals(ack.getMessageIdRangeAt(i).getFirstEntryId(), firstEntryId);
+            assertEquals(ack.getMessageIdRangeAt(i).getLastEntryId(),
+                    Math.min(lastEntryId, firstEntryId + Commands.MAX_ACK_RANGE_SIZE - 1));
+            firstEntryId += Commands.MAX_ACK_RANGE_SIZE;
+        }
+    }
 }
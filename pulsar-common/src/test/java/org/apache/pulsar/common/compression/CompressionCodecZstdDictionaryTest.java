@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.common.compression;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
+import org.apache.pulsar.common.api.proto.CompressionType;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class CompressionCodecZstdDictionaryTest {
+
+    private byte[] dictionary;
+
+    private static byte[] sample(int i) {
+        return String.format("{\"id\":%d,\"user\":\"user-%d\",\"event\":\"page_view\",\"country\":\"%s\"}",
+                i, i % 97, i % 2 == 0 ? "FR" : "US").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @BeforeClass
+    public void setup() {
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            samples.add(sample(i));
+        }
+        dictionary = CompressionCodecZstdDictionary.trainDictionary(samples, 4096);
+    }
+
+    @Test
+    public void testCompressDecompress() throws IOException {
+        CompressionCodecZstdDictionary codec = new CompressionCodecZstdDictionary(dictionary);
+        byte[] data = sample(12345);
+
+        ByteBuf raw = PulsarByteBufAllocator.DEFAULT.directBuffer();
+        raw.writeBytes(data);
+        ByteBuf compressed = codec.encode(raw);
+        assertEquals(raw.readableBytes(), data.length);
+        assertTrue(compressed.readableBytes() < CompressionCodecProvider.getCompressionCodec(CompressionType.ZSTD)
+                .encode(Unpooled.wrappedBuffer(data)).readableBytes());
+
+        // Heap buffers are copied to direct memory before hitting the native library
+        ByteBuf heapCompressed = Unpooled.copiedBuffer(compressed);
+        ByteBuf uncompressed = codec.decode(heapCompressed, data.length);
+        assertEquals(uncompressed, raw);
+
+        raw.release();
+        compressed.release();
+        uncompressed.release();
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testDecompressWithOtherDictionary() throws IOException {
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            samples.add(("other sample payload number " + i).getBytes(StandardCharsets.UTF_8));
+        }
+        CompressionCodecZstdDictionary codec = new CompressionCodecZstdDictionary(dictionary);
+        CompressionCodecZstdDictionary otherCodec =
+                new CompressionCodecZstdDictionary(CompressionCodecZstdDictionary.trainDictionary(samples, 4096));
+
+        byte[] data = sample(1);
+        otherCodec.decode(codec.encode(Unpooled.wrappedBuffer(data)), data.length);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidDictionary() {
+        new CompressionCodecZstdDictionary("not a dictionary".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testProviderRegistry() {
+        long dictionaryId = CompressionCodecZstdDictionary.getDictionaryId(dictionary);
+        MessageMetadata metadata = new MessageMetadata()
+                .setCompression(CompressionType.ZSTD_DICTIONARY)
+                .setCompressionDictionaryId(dictionaryId);
+
+        assertTrue(CompressionCodecProvider.isZstdDictionaryCompressionAvailable());
+        CompressionCodecZstdDictionary codec = CompressionCodecProvider.registerZstdDictionary(dictionary);
+        assertEquals(codec.getDictionaryId(), dictionaryId);
+        assertSame(CompressionCodecProvider.registerZstdDictionary(dictionary.clone()), codec);
+        assertSame(CompressionCodecProvider.getCompressionCodec(metadata), codec);
+        // A different dictionary with the same id in its header would decode the messages into garbage
+        byte[] conflictingDictionary = dictionary.clone();
+        conflictingDictionary[conflictingDictionary.length - 1]++;
+        assertEquals(CompressionCodecZstdDictionary.getDictionaryId(conflictingDictionary), dictionaryId);
+        assertThrows(IllegalArgumentException.class,
+                () -> CompressionCodecProvider.registerZstdDictionary(conflictingDictionary));
+        assertSame(CompressionCodecProvider.getCompressionCodec(metadata), codec);
+        assertEquals(CompressionCodecProvider.convertFromWireProtocol(CompressionType.ZSTD_DICTIONARY),
+                org.apache.pulsar.client.api.CompressionType.ZSTD);
+
+        assertNull(CompressionCodecProvider.getCompressionCodec(new MessageMetadata()
+                .setCompression(CompressionType.ZSTD_DICTIONARY)
+                .setCompressionDictionaryId(dictionaryId + 1)));
+        assertNull(CompressionCodecProvider.getCompressionCodec(new MessageMetadata()
+                .setCompression(CompressionType.ZSTD_DICTIONARY)));
+        // Plain zstd payloads never go through a dictionary
+        assertSame(CompressionCodecProvider.getCompressionCodec(new MessageMetadata()
+                .setCompression(CompressionType.ZSTD)
+                .setCompressionDictionaryId(dictionaryId)),
+                CompressionCodecProvider.getCompressionCodec(CompressionType.ZSTD));
+        assertSame(CompressionCodecProvider.getCompressionCodec(new MessageMetadata()
+                .setCompression(CompressionType.LZ4)), CompressionCodecProvider.getCompressionCodec(CompressionType.LZ4));
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.common.topics;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.testng.annotations.Test;
+
+public class TopicListTest {
+
+    @Test
+    public void testFilterTopics() {
+        List<String> topics = Lists.newArrayList(
+                "persistent://my-property/my-ns/pattern-topic-1",
+                "persistent://my-property/my-ns/pattern-topic-2-partition-0",
+                "persistent://my-property/my-ns/other-topic",
+                "non-persistent://my-property/my-ns/pattern-topic-3");
+
+        assertEquals(TopicList.filterTopics(topics,
+                Pattern.compile("persistent://my-property/my-ns/pattern-topic.*")),
+                Lists.newArrayList(
+                        "persistent://my-property/my-ns/pattern-topic-1",
+                        "persistent://my-property/my-ns/pattern-topic-2-partition-0",
+                        "non-persistent://my-property/my-ns/pattern-topic-3"));
+        assertEquals(TopicList.filterTopics(topics, Pattern.compile("my-property/my-ns/other.*")),
+                Lists.newArrayList("persistent://my-property/my-ns/other-topic"));
+    }
+
+    @Test
+    public void testMinus() {
+        List<String> topics1 = Lists.newArrayList("a", "b", "c");
+        List<String> topics2 = Lists.newArrayList("b", "d");
+
+        assertEquals(Sets.newHashSet(TopicList.minus(topics1, topics2)), Sets.newHashSet("a", "c"));
+        assertEquals(TopicList.minus(topics2, topics1), Lists.newArrayList("d"));
+        assertEquals(TopicList.minus(topics1, topics1), Collections.emptyList());
+    }
+
+    @Test
+    public void testCalculateHash() {
+        String hash = TopicList.calculateHash(Lists.newArrayList(
+                "persistent://my-property/my-ns/topic-1", "persistent://my-property/my-ns/topic-2"));
+
+        // The order doesn't matter
+        assertEquals(TopicList.calculateHash(Lists.newArrayList(
+                "persistent://my-property/my-ns/topic-2", "persistent://my-property/my-ns/topic-1")), hash);
+        assertNotEquals(TopicList.calculateHash(Lists.newArrayList(
+                "persistent://my-property/my-ns/topic-1")), hash);
+        // Topic names are delimited
+        assertNotEquals(TopicList.calculateHash(Lists.newArrayList("ab", "c")),
+                TopicList.calculateHash(Lists.newArrayList("a", "bc")));
+        assertEquals(TopicList.calculateHash(Collections.emptyList()),
+                TopicList.calculateHash(Collections.emptyList()));
+    }
+}
@@ -0,0 +1,247 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.common.util.collections;
+
+import static org.apache.pulsar.common.util.collections.ConcurrentLongPairLongHashMap.ValueNotFound;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.pulsar.common.util.collections.ConcurrentLongPairSet.LongPair;
+import org.testng.annotations.Test;
+
+public class ConcurrentLongPairLongHashMapTest {
+
+    @Test
+    public void testConstructor() {
+        try {
+            new ConcurrentLongPairLongHashMap(0);
+            fail("should have thrown exception");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+
+        try {
+            new ConcurrentLongPairLongHashMap(16, 0);
+            fail("should have thrown exception");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+
+        try {
+            new ConcurrentLongPairLongHashMap(4, 8);
+            fail("should have thrown exception");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void simpleInsertions() {
+        ConcurrentLongPairLongHashMap map = new ConcurrentLongPairLongHashMap(16);
+
+        assertTrue(map.isEmpty());
+        assertEquals(map.put(1, 1, 11), ValueNotFound);
+        assertFalse(map.isEmpty());
+
+        assertEquals(map.put(2, 2, 22), ValueNotFound);
+        assertEquals(map.put(3, 3, 33), ValueNotFound);
+
+        assertEquals(map.size(), 3);
+
+        assertEquals(map.get(1, 1), 11);
+        assertEquals(map.get(1, 2), ValueNotFound);
+        assertTrue(map.containsKey(2, 2));
+        assertFalse(map.containsKey(2, 3));
+
+        assertEquals(map.put(1, 1, 111), 11);
+        assertEquals(map.get(1, 1), 111);
+        assertEquals(map.size(), 3);
+
+        assertEquals(map.remove(1, 1), 111);
+        assertEquals(map.size(), 2);
+        assertEquals(map.get(1, 1), ValueNotFound);
+        assertEquals(map.remove(1, 1), ValueNotFound);
+
+        assertEquals(map.put(1, 1, 11), ValueNotFound);
+        assertEquals(map.size(), 3);
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(map.get(2, 2), ValueNotFound);
+    }
+
+    @Test
+    public void testPutIfAbsent() {
+        ConcurrentLongPairLongHashMap map = new ConcurrentLongPairLongHashMap(16);
+
+        assertEquals(map.putIfAbsent(1, 1, 11), ValueNotFound);
+        assertEquals(map.get(1, 1), 11);
+
+        assertEquals(map.putIfAbsent(1, 1, 111), 11);
+        assertEquals(map.get(1, 1), 11);
+        assertEquals(map.size(), 1);
+    }
+
+    @Test
+    public void testConditionalRemove() {
+        ConcurrentLongPairLongHashMap map = new ConcurrentLongPairLongHashMap(16);
+
+        map.put(1, 1, 11);
+        assertFalse(map.remove(1, 1, 12));
+        assertEquals(map.get(1, 1), 11);
+        assertFalse(map.remove(1, 2, 11));
+
+        assertTrue(map.remove(1, 1, 11));
+        assertTrue(map.isEmpty());
+        assertFalse(map.remove(1, 1, 11));
+    }
+
+    @Test
+    public void testNegativeKeysAndValues() {
+        ConcurrentLongPairLongHashMap map = new ConcurrentLongPairLongHashMap(16);
+
+        try {
+            map.put(-1, 1, 1);
+            fail("should have thrown exception");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+
+        try {
+            map.put(1, 1, -1);
+            fail("should have thrown exception");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void testRehashing() {
+        int n = 16;
+        ConcurrentLongPairLongHashMap map = new ConcurrentLongPairLongHashMap(n / 2, 1);
+        assertEquals(map.capacity(), n);
+        assertEquals(map.size(), 0);
+
+        for (int i = 0; i < n; i++) {
+            map.put(i, 1, i);
+        }
+
+        assertEquals(map.capacity(), 2 * n);
+        assertEquals(map.size(), n);
+
+        for (int i = 0; i < n; i++) {
+            assertEquals(map.get(i, 1), i);
+        }
+    }
+
+    @Test
+    public void testRehashingRemoval() {
+        int n = 16;
+        ConcurrentLongPairLongHashMap map = new ConcurrentLongPairLongHashMap(n / 2, 1);
+
+        int insertItems = 1000 * n;
+        for (int i = 0; i < insertItems; i++) {
+            map.put(i, -1 - i, i);
+        }
+
+        for (int i = 0; i < insertItems; i += 2) {
+            assertEquals(map.remove(i, -1 - i), i);
+        }
+
+        assertEquals(map.size(), insertItems / 2);
+        for (int i = 0; i < insertItems; i++) {
+            assertEquals(map.get(i, -1 - i), i % 2 == 0 ? ValueNotFound : i);
+        }
+    }
+
+    @Test
+    public void testForEach() {
+        ConcurrentLongPairLongHashMap map = new ConcurrentLongPairLongHashMap(16);
+        Map<LongPair, Long> expected = new HashMap<>();
+
+        for (long i = 0; i < 100; i++) {
+            map.put(i, i + 1, i + 2);
+            expected.put(new LongPair(i, i + 1), i + 2);
+        }
+
+        Map<LongPair, Long> values = new HashMap<>();
+        map.forEach((key1, key2, value) -> values.put(new LongPair(key1, key2), value));
+        assertEquals(values, expected);
+    }
+
+    @Test
+    public void testRemoveIf() {
+        ConcurrentLongPairLongHashMap map = new ConcurrentLongPairLongHashMap(16);
+
+        for (long i = 0; i < 100; i++) {
+            map.put(i, i, i % 3);
+        }
+
+        assertEquals(map.removeIf((key1, key2, value) -> value == 0), 34);
+        assertEquals(map.size(), 66);
+        for (long i = 0; i < 100; i++) {
+            assertEquals(map.containsKey(i, i), i % 3 != 0);
+        }
+    }
+
+    @Test
+    public void concurrentInsertions() throws Throwable {
+        ConcurrentLongPairLongHashMap map = new ConcurrentLongPairLongHashMap();
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        final int nThreads = 16;
+        final int N = 100_000;
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < nThreads; i++) {
+            final int threadIdx = i;
+
+            futures.add(executor.submit(() -> {
+                Random random = new Random();
+
+                for (int j = 0; j < N; j++) {
+                    long key = random.nextLong();
+                    // Ensure keys are unique
+                    key -= key % (threadIdx + 1);
+                    key = Math.abs(key);
+                    map.put(key, threadIdx, j);
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        assertEquals(map.size(), N * nThreads);
+
+        executor.shutdown();
+    }
+}
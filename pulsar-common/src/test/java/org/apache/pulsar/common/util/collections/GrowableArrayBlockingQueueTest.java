@@ -280,4 +280,46 @@ public class GrowableArrayBlockingQueueTest {
         assertEquals(queue.size(), 1);
         assertEquals(queue.toString(), "[3]");
     }
+
+    @Test(timeOut = 30000)
+    public void producerWakesUpBlockedConsumers() throws Exception {
+        final int numConsumers = 4;
+        final int numItems = 100_000;
+        BlockingQueue<Integer> queue = new GrowableArrayBlockingQueue<>(4);
+        AtomicInteger received = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(numItems);
+
+        for (int i = 0; i < numConsumers; i++) {
+            Thread consumer = new Thread(() -> {
+                try {
+                    while (true) {
+                        Integer item = queue.poll();
+                        if (item == null) {
+                            item = queue.take();
+                        }
+                        received.addAndGet(item);
+                        latch.countDown();
+                    }
+                } catch (InterruptedException e) {
+                    // Exit
+                }
+            });
+            consumer.setDaemon(true);
+            consumer.start();
+        }
+
+        int expected = 0;
+        for (int i = 0; i < numItems; i++) {
+            queue.put(1);
+            expected++;
+            if (i % 1000 == 0) {
+                // Let the consumers drain the queue and block again
+                Thread.sleep(1);
+            }
+        }
+
+        latch.await();
+        assertEquals(received.get(), expected);
+        assertEquals(queue.size(), 0);
+    }
 }
@@ -332,13 +332,11 @@ public class DirectProxyHandler {
 
             state = BackendState.HandshakeCompleted;
 
-            ChannelFuture channelFuture;
-            if (connected.hasMaxMessageSize()) {
-                channelFuture = inboundChannel.writeAndFlush(
-                    Commands.newConnected(connected.getProtocolVersion(), connected.getMaxMessageSize()));
-            } else {
-                channelFuture = inboundChannel.writeAndFlush(Commands.newConnected(connected.getProtocolVersion()));
-            }
+            // the feature flags are forwarded since the client talks to the broker through this connection
+            ChannelFuture channelFuture = inboundChannel.writeAndFlush(Commands.newConnected(
+                    connected.getProtocolVersion(),
+                    connected.hasMaxMessageSize() ? connected.getMaxMessageSize() : Commands.INVALID_MAX_MESSAGE_SIZE,
+                    connected.hasFeatureFlags() ? connected.getFeatureFlags() : null));
 
             channelFuture.addListener(future -> {
                 if (log.isDebugEnabled()) {
@@ -100,6 +100,9 @@ public class PulsarConnectorMetricsTracker implements AutoCloseable{
 
     private static final String TOTAL_EXECUTION_TIME = "total-execution-time";
 
+    // number of entries skipped because their metadata doesn't match the predicate
+    private static final String NUM_ENTRIES_SKIPPED = "num-entries-skipped";
+
     // stats loggers
 
     private final OpStatsLogger statsLoggerEntryQueueDequeueWaitTime;
@@ -114,6 +117,7 @@ public class PulsarConnectorMetricsTracker implements AutoCloseable{
     private final OpStatsLogger statsLoggerRecordDeserializeTime;
     private final Counter statsLoggerNumRecordDeserialized;
     private final OpStatsLogger statsLoggerTotalExecutionTime;
+    private final Counter statsLoggerNumEntriesSkipped;
 
     // internal tracking variables
     private long entryQueueDequeueWaitTimeStartTime;
@@ -152,6 +156,7 @@ public class PulsarConnectorMetricsTracker implements AutoCloseable{
             statsLoggerRecordDeserializeTime = statsLogger.getOpStatsLogger(RECORD_DESERIALIZE_TIME);
             statsLoggerNumRecordDeserialized = statsLogger.getCounter(NUM_RECORD_DESERIALIZED);
             statsLoggerTotalExecutionTime = statsLogger.getOpStatsLogger(TOTAL_EXECUTION_TIME);
+            statsLoggerNumEntriesSkipped = statsLogger.getCounter(NUM_ENTRIES_SKIPPED);
         } else {
             statsLoggerEntryQueueDequeueWaitTime = null;
             statsLoggerBytesRead = null;
@@ -165,6 +170,7 @@ public class PulsarConnectorMetricsTracker implements AutoCloseable{
             statsLoggerRecordDeserializeTime = null;
             statsLoggerNumRecordDeserialized = null;
             statsLoggerTotalExecutionTime = null;
+            statsLoggerNumEntriesSkipped = null;
         }
     }
 
@@ -299,6 +305,12 @@ public class PulsarConnectorMetricsTracker implements AutoCloseable{
         }
     }
 
+    public void incr_NUM_ENTRIES_SKIPPED() {
+        if (statsLogger != null) {
+            statsLoggerNumEntriesSkipped.add(1);
+        }
+    }
+
     public void register_TOTAL_EXECUTION_TIME(long latency) {
         if (statsLogger != null) {
             statsLoggerTotalExecutionTime.registerSuccessfulEvent(latency, TimeUnit.NANOSECONDS);
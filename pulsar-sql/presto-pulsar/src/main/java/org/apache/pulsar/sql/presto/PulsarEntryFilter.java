@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.sql.presto;
+
+import static io.prestosql.spi.type.BigintType.BIGINT;
+import io.airlift.slice.Slices;
+import io.prestosql.spi.connector.ColumnHandle;
+import io.prestosql.spi.predicate.Domain;
+import io.prestosql.spi.predicate.Range;
+import io.prestosql.spi.predicate.TupleDomain;
+import io.prestosql.spi.predicate.ValueSet;
+import java.util.Map;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+
+/**
+ * Skips the entries of a split that cannot contain any row matching the query predicate.
+ *
+ * <p>An entry is the unit in which messages are written, compressed and read back, like the row group of a columnar
+ * file. Its metadata holds the statistics of a few columns over all the messages it contains: the publish time and
+ * the producer name they share, and the range of their sequence ids. These are checked against the predicate on
+ * the internal columns before the entry is decompressed and its messages are decoded.
+ */
+public class PulsarEntryFilter {
+
+    private final Domain publishTimeDomain;
+    private final Domain sequenceIdDomain;
+    private final Domain producerNameDomain;
+
+    public PulsarEntryFilter(String connectorId, TupleDomain<ColumnHandle> tupleDomain) {
+        Map<ColumnHandle, Domain> domains = tupleDomain.getDomains().orElse(null);
+        if (domains == null) {
+            this.publishTimeDomain = null;
+            this.sequenceIdDomain = null;
+            this.producerNameDomain = null;
+        } else {
+            this.publishTimeDomain = domains.get(PulsarInternalColumn.PUBLISH_TIME.getColumnHandle(connectorId,
+                    false));
+            this.sequenceIdDomain = domains.get(PulsarInternalColumn.SEQUENCE_ID.getColumnHandle(connectorId,
+                    false));
+            this.producerNameDomain = domains.get(PulsarInternalColumn.PRODUCER_NAME.getColumnHandle(connectorId,
+                    false));
+        }
+    }
+
+    /**
+     * Whether the predicate restricts any of the columns the entries have statistics for.
+     */
+    public boolean isEmpty() {
+        return publishTimeDomain == null && sequenceIdDomain == null && producerNameDomain == null;
+    }
+
+    /**
+     * Check the statistics of an entry against the predicate.
+     *
+     * @return false if none of the messages of the entry can match the predicate
+     */
+    public boolean mayMatch(MessageMetadata metadata) {
+        // a publish time of 0 is read as null
+        if (publishTimeDomain != null && metadata.getPublishTime() != 0
+                && !publishTimeDomain.includesNullableValue(metadata.getPublishTime())) {
+            return false;
+        }
+        if (sequenceIdDomain != null) {
+            // the messages of a batch have consecutive sequence ids
+            long firstSequenceId = metadata.getSequenceId();
+            long lastSequenceId = metadata.hasNumMessagesInBatch()
+                    ? firstSequenceId + metadata.getNumMessagesInBatch() - 1 : firstSequenceId;
+            Domain entryDomain = Domain.create(ValueSet.ofRanges(
+                    Range.range(BIGINT, firstSequenceId, true, lastSequenceId, true)), false);
+            if (!sequenceIdDomain.overlaps(entryDomain)) {
+                return false;
+            }
+        }
+        if (producerNameDomain != null && metadata.hasProducerName()
+                && !producerNameDomain.includesNullableValue(Slices.utf8Slice(metadata.getProducerName()))) {
+            return false;
+        }
+        return true;
+    }
+}
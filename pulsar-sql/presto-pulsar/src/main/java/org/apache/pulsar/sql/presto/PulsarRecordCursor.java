@@ -40,7 +40,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicLong;
@@ -55,12 +54,14 @@ import org.apache.bookkeeper.mledger.impl.PositionImpl;
 import org.apache.bookkeeper.mledger.impl.ReadOnlyCursorImpl;
 import org.apache.pulsar.client.api.PulsarClientException;
 import org.apache.pulsar.client.impl.schema.KeyValueSchemaInfo;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
 import org.apache.pulsar.common.api.raw.MessageParser;
 import org.apache.pulsar.common.api.raw.RawMessage;
 import org.apache.pulsar.common.naming.NamespaceName;
 import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.policies.data.OffloadPolicies;
-import org.apache.pulsar.common.schema.KeyValue;
+import org.apache.pulsar.common.protocol.Commands;
+import org.apache.pulsar.common.protocol.schema.BytesSchemaVersion;
 import org.apache.pulsar.common.schema.KeyValueEncodingType;
 import org.apache.pulsar.common.schema.SchemaInfo;
 import org.apache.pulsar.common.schema.SchemaType;
@@ -98,6 +99,22 @@ public class PulsarRecordCursor implements RecordCursor {
     private long entriesProcessed = 0;
     private int partition = -1;
 
+    // the projected schema columns, the payload is only decoded if at least one of them is selected
+    private Set<DecoderColumnHandle> keyColumnHandles;
+    private Set<DecoderColumnHandle> valueColumnHandles;
+    private Set<DecoderColumnHandle> messageColumnHandles;
+
+    // row decoders are built once per schema version instead of once per row
+    private final Map<BytesSchemaVersion, PulsarRowDecoder> keyDecoders = new HashMap<>();
+    private final Map<BytesSchemaVersion, PulsarRowDecoder> valueDecoders = new HashMap<>();
+    private final Map<BytesSchemaVersion, PulsarRowDecoder> messageDecoders = new HashMap<>();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // entries that can't match the predicate are skipped before being decompressed
+    private PulsarEntryFilter entryFilter;
+    // only used by the deserialize thread
+    private final MessageMetadata entryMetadata = new MessageMetadata();
 
     private PulsarSqlSchemaInfoProvider schemaInfoProvider;
 
@@ -153,8 +170,14 @@ public class PulsarRecordCursor implements RecordCursor {
         pulsarConnectorConfig, ManagedLedgerFactory managedLedgerFactory, ManagedLedgerConfig managedLedgerConfig,
                             PulsarConnectorMetricsTracker pulsarConnectorMetricsTracker) {
         this.columnHandles = columnHandles;
+        this.keyColumnHandles = getSchemaColumnHandles(columnHandles, PulsarColumnHandle.HandleKeyValueType.KEY);
+        this.valueColumnHandles = getSchemaColumnHandles(columnHandles,
+                PulsarColumnHandle.HandleKeyValueType.VALUE);
+        this.messageColumnHandles = getSchemaColumnHandles(columnHandles,
+                PulsarColumnHandle.HandleKeyValueType.NONE);
         this.currentRowValues = new FieldValueProvider[columnHandles.size()];
         this.pulsarSplit = pulsarSplit;
+        this.entryFilter = new PulsarEntryFilter(pulsarSplit.getConnectorId(), pulsarSplit.getTupleDomain());
         this.partition = TopicName.getPartitionIndex(pulsarSplit.getTableName());
         this.pulsarConnectorConfig = pulsarConnectorConfig;
         this.maxBatchSize = pulsarConnectorConfig.getMaxEntryReadBatchSize();
@@ -187,6 +210,14 @@ public class PulsarRecordCursor implements RecordCursor {
         }
     }
 
+    private static Set<DecoderColumnHandle> getSchemaColumnHandles(
+            List<PulsarColumnHandle> columnHandles, PulsarColumnHandle.HandleKeyValueType handleKeyValueType) {
+        return columnHandles.stream()
+                .filter(col -> !col.isInternal())
+                .filter(col -> handleKeyValueType.equals(col.getHandleKeyValueType()))
+                .collect(toImmutableSet());
+    }
+
     private ReadOnlyCursor getCursor(TopicName topicName, Position startPosition, ManagedLedgerFactory
             managedLedgerFactory, ManagedLedgerConfig managedLedgerConfig)
             throws ManagedLedgerException, InterruptedException {
@@ -258,6 +289,11 @@ public class PulsarRecordCursor implements RecordCursor {
                                 return;
                             }
 
+                            if (!entryFilter.isEmpty() && !entryMayMatch(entry)) {
+                                metricsTracker.incr_NUM_ENTRIES_SKIPPED();
+                                return;
+                            }
+
                             // set start time for time deserializing entries for stats
                             metricsTracker.start_ENTRY_DESERIALIZE_TIME();
 
@@ -310,6 +346,21 @@ public class PulsarRecordCursor implements RecordCursor {
         }
     }
 
+    private boolean entryMayMatch(Entry entry) {
+        ByteBuf buffer = entry.getDataBuffer();
+        int readerIndex = buffer.readerIndex();
+        try {
+            Commands.skipBrokerEntryMetadataIfExist(buffer);
+            Commands.parseMessageMetadata(buffer, entryMetadata);
+            return entryFilter.mayMatch(entryMetadata);
+        } catch (Throwable t) {
+            // corrupted entries are reported by the message parser
+            return true;
+        } finally {
+            buffer.readerIndex(readerIndex);
+        }
+    }
+
     @VisibleForTesting
     class ReadEntries implements AsyncCallbacks.ReadEntriesCallback {
 
@@ -441,77 +492,11 @@ public class PulsarRecordCursor implements RecordCursor {
         //start time for deseralizing record
         metricsTracker.start_RECORD_DESERIALIZE_TIME();
 
-        SchemaInfo schemaInfo;
-        try {
-            schemaInfo =  schemaInfoProvider.getSchemaByVersion(this.currentMessage.getSchemaVersion()).get();
-        } catch (InterruptedException | ExecutionException e) {
-            throw new RuntimeException(e);
-        }
-
         Map<ColumnHandle, FieldValueProvider> currentRowValuesMap = new HashMap<>();
 
-        if (schemaInfo.getType().equals(SchemaType.KEY_VALUE)) {
-            ByteBuf keyByteBuf;
-            ByteBuf valueByteBuf;
-
-            KeyValueEncodingType keyValueEncodingType = KeyValueSchemaInfo.decodeKeyValueEncodingType(schemaInfo);
-            if (Objects.equals(keyValueEncodingType, KeyValueEncodingType.INLINE)) {
-                ByteBuf dataPayload = this.currentMessage.getData();
-                int keyLength = dataPayload.readInt();
-                keyByteBuf = dataPayload.readSlice(keyLength);
-                int valueLength = dataPayload.readInt();
-                valueByteBuf = dataPayload.readSlice(valueLength);
-            } else {
-                keyByteBuf = this.currentMessage.getKeyBytes().get();
-                valueByteBuf = this.currentMessage.getData();
-            }
-
-            KeyValue<SchemaInfo, SchemaInfo> kvSchemaInfo = KeyValueSchemaInfo.decodeKeyValueSchemaInfo(schemaInfo);
-            Set<DecoderColumnHandle> keyColumnHandles = columnHandles.stream()
-                    .filter(col -> !col.isInternal())
-                    .filter(col -> PulsarColumnHandle.HandleKeyValueType.KEY
-                            .equals(col.getHandleKeyValueType()))
-                    .collect(toImmutableSet());
-            PulsarRowDecoder keyDecoder = null;
-            if (keyColumnHandles.size() > 0) {
-                keyDecoder = decoderFactory.createRowDecoder(topicName,
-                        kvSchemaInfo.getKey(), keyColumnHandles
-                );
-            }
-
-            Set<DecoderColumnHandle> valueColumnHandles = columnHandles.stream()
-                    .filter(col -> !col.isInternal())
-                    .filter(col -> PulsarColumnHandle.HandleKeyValueType.VALUE
-                            .equals(col.getHandleKeyValueType()))
-                    .collect(toImmutableSet());
-            PulsarRowDecoder valueDecoder = null;
-            if (valueColumnHandles.size() > 0) {
-                valueDecoder = decoderFactory.createRowDecoder(topicName,
-                        kvSchemaInfo.getValue(),
-                        valueColumnHandles);
-            }
-
-            Optional<Map<DecoderColumnHandle, FieldValueProvider>> decodedKey;
-            if (keyColumnHandles.size() > 0) {
-                decodedKey = keyDecoder.decodeRow(keyByteBuf);
-                decodedKey.ifPresent(currentRowValuesMap::putAll);
-            }
-            if (valueColumnHandles.size() > 0) {
-                Optional<Map<DecoderColumnHandle, FieldValueProvider>> decodedValue =
-                        valueDecoder.decodeRow(valueByteBuf);
-                decodedValue.ifPresent(currentRowValuesMap::putAll);
-            }
-        } else {
-            PulsarRowDecoder messageDecoder = decoderFactory.createRowDecoder(topicName,
-                    schemaInfo,
-                    columnHandles.stream()
-                            .filter(col -> !col.isInternal())
-                            .filter(col -> PulsarColumnHandle.HandleKeyValueType.NONE
-                                    .equals(col.getHandleKeyValueType()))
-                            .collect(toImmutableSet()));
-            Optional<Map<DecoderColumnHandle, FieldValueProvider>> decodedValue =
-                    messageDecoder.decodeRow(this.currentMessage.getData());
-            decodedValue.ifPresent(currentRowValuesMap::putAll);
+        // skip fetching the schema and decoding the payload if only internal columns are selected
+        if (!keyColumnHandles.isEmpty() || !valueColumnHandles.isEmpty() || !messageColumnHandles.isEmpty()) {
+            decodeSchemaColumns(currentRowValuesMap);
         }
 
         for (DecoderColumnHandle columnHandle : columnHandles) {
@@ -538,7 +523,7 @@ public class PulsarRecordCursor implements RecordCursor {
                 } else if (PulsarInternalColumn.PROPERTIES.getName().equals(columnHandle.getName())) {
                     try {
                         currentRowValuesMap.put(columnHandle, bytesValueProvider(
-                                new ObjectMapper().writeValueAsBytes(this.currentMessage.getProperties())));
+                                objectMapper.writeValueAsBytes(this.currentMessage.getProperties())));
                     } catch (JsonProcessingException e) {
                         throw new RuntimeException(e);
                     }
@@ -560,6 +545,52 @@ public class PulsarRecordCursor implements RecordCursor {
         return true;
     }
 
+    private void decodeSchemaColumns(Map<ColumnHandle, FieldValueProvider> currentRowValuesMap) {
+        byte[] schemaVersion = this.currentMessage.getSchemaVersion();
+        SchemaInfo schemaInfo;
+        try {
+            schemaInfo =  schemaInfoProvider.getSchemaByVersion(schemaVersion).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+        BytesSchemaVersion bytesSchemaVersion = BytesSchemaVersion.of(schemaVersion);
+
+        if (schemaInfo.getType().equals(SchemaType.KEY_VALUE)) {
+            ByteBuf keyByteBuf;
+            ByteBuf valueByteBuf;
+
+            KeyValueEncodingType keyValueEncodingType = KeyValueSchemaInfo.decodeKeyValueEncodingType(schemaInfo);
+            if (Objects.equals(keyValueEncodingType, KeyValueEncodingType.INLINE)) {
+                ByteBuf dataPayload = this.currentMessage.getData();
+                int keyLength = dataPayload.readInt();
+                keyByteBuf = dataPayload.readSlice(keyLength);
+                int valueLength = dataPayload.readInt();
+                valueByteBuf = dataPayload.readSlice(valueLength);
+            } else {
+                keyByteBuf = this.currentMessage.getKeyBytes().get();
+                valueByteBuf = this.currentMessage.getData();
+            }
+
+            if (keyColumnHandles.size() > 0) {
+                PulsarRowDecoder keyDecoder = keyDecoders.computeIfAbsent(bytesSchemaVersion,
+                        version -> decoderFactory.createRowDecoder(topicName,
+                                KeyValueSchemaInfo.decodeKeyValueSchemaInfo(schemaInfo).getKey(),
+                                keyColumnHandles));
+                keyDecoder.decodeRow(keyByteBuf).ifPresent(currentRowValuesMap::putAll);
+            }
+            if (valueColumnHandles.size() > 0) {
+                PulsarRowDecoder valueDecoder = valueDecoders.computeIfAbsent(bytesSchemaVersion,
+                        version -> decoderFactory.createRowDecoder(topicName,
+                                KeyValueSchemaInfo.decodeKeyValueSchemaInfo(schemaInfo).getValue(),
+                                valueColumnHandles));
+                valueDecoder.decodeRow(valueByteBuf).ifPresent(currentRowValuesMap::putAll);
+            }
+        } else if (messageColumnHandles.size() > 0) {
+            PulsarRowDecoder messageDecoder = messageDecoders.computeIfAbsent(bytesSchemaVersion,
+                    version -> decoderFactory.createRowDecoder(topicName, schemaInfo, messageColumnHandles));
+            messageDecoder.decodeRow(this.currentMessage.getData()).ifPresent(currentRowValuesMap::putAll);
+        }
+    }
 
     @Override
     public boolean getBoolean(int field) {
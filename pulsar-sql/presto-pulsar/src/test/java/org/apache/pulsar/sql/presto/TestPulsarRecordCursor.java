@@ -19,9 +19,14 @@
 package org.apache.pulsar.sql.presto;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
 import io.airlift.log.Logger;
 import io.netty.buffer.ByteBuf;
+import io.prestosql.spi.connector.ColumnHandle;
+import io.prestosql.spi.predicate.Domain;
+import io.prestosql.spi.predicate.Range;
 import io.prestosql.spi.predicate.TupleDomain;
+import io.prestosql.spi.predicate.ValueSet;
 import io.prestosql.spi.type.RowType;
 import lombok.Data;
 import org.apache.bookkeeper.mledger.AsyncCallbacks;
@@ -51,7 +56,9 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
+import static io.prestosql.spi.type.BigintType.BIGINT;
 import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.apache.pulsar.common.protocol.Commands.serializeMetadataAndPayload;
 import static org.mockito.ArgumentMatchers.anyInt;
@@ -59,7 +66,10 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
@@ -259,6 +269,100 @@ public class TestPulsarRecordCursor extends TestPulsarConnector {
     }
 
 
+    @Test(singleThreaded = true)
+    public void testSkipDecodingWhenOnlyInternalColumnsAreProjected() throws Exception {
+        TopicName topicName = TopicName.get("persistent", NAMESPACE_NAME_1, "topic-4");
+        Long entriesNum = 5L;
+        KeyValueSchema schema = (KeyValueSchema) Schema.KeyValue(Schema.INT32, Schema.STRING,
+                KeyValueEncodingType.SEPARATED);
+
+        List<PulsarColumnHandle> columnHandles = getColumnColumnHandles(topicName, schema.getSchemaInfo(),
+                PulsarColumnHandle.HandleKeyValueType.NONE, true).stream()
+                .filter(PulsarColumnHandle::isInternal)
+                .collect(Collectors.toList());
+        PulsarDispatchingRowDecoderFactory decoderFactory = spy(dispatchingRowDecoderFactory);
+        PulsarRecordCursor pulsarRecordCursor = mockKeyValueSchemaPulsarRecordCursor(entriesNum, topicName,
+                schema, new KeyValue<>(23, "value"), columnHandles, decoderFactory);
+        PulsarSqlSchemaInfoProvider pulsarSqlSchemaInfoProvider = mock(PulsarSqlSchemaInfoProvider.class);
+        pulsarRecordCursor.setPulsarSqlSchemaInfoProvider(pulsarSqlSchemaInfoProvider);
+
+        long count = 0;
+        while (pulsarRecordCursor.advanceNextPosition()) {
+            for (int i = 0; i < columnHandles.size(); i++) {
+                if (PulsarInternalColumn.SEQUENCE_ID.getName().equals(columnHandles.get(i).getName())) {
+                    assertEquals(pulsarRecordCursor.getLong(i), count);
+                }
+            }
+            count++;
+        }
+        assertEquals(count, entriesNum.longValue());
+        verify(pulsarSqlSchemaInfoProvider, never()).getSchemaByVersion(any());
+        verify(decoderFactory, never()).createRowDecoder(any(), any(), any());
+        pulsarRecordCursor.close();
+    }
+
+    @Test(singleThreaded = true)
+    public void testRowDecodersAreCachedPerSchemaVersion() throws Exception {
+        TopicName topicName = TopicName.get("persistent", NAMESPACE_NAME_1, "topic-4");
+        Long entriesNum = 5L;
+        KeyValueSchema schema = (KeyValueSchema) Schema.KeyValue(Schema.INT32, Schema.STRING,
+                KeyValueEncodingType.SEPARATED);
+
+        List<PulsarColumnHandle> columnHandles = getColumnColumnHandles(topicName, schema.getSchemaInfo(),
+                PulsarColumnHandle.HandleKeyValueType.NONE, true);
+        PulsarDispatchingRowDecoderFactory decoderFactory = spy(dispatchingRowDecoderFactory);
+        PulsarRecordCursor pulsarRecordCursor = mockKeyValueSchemaPulsarRecordCursor(entriesNum, topicName,
+                schema, new KeyValue<>(23, "value"), columnHandles, decoderFactory);
+
+        long count = 0;
+        while (pulsarRecordCursor.advanceNextPosition()) {
+            for (int i = 0; i < columnHandles.size(); i++) {
+                if (columnHandles.get(i).getName().equals(PRIMITIVE_COLUMN_NAME)) {
+                    assertEquals(pulsarRecordCursor.getSlice(i).getBytes(), "value".getBytes());
+                }
+            }
+            count++;
+        }
+        assertEquals(count, entriesNum.longValue());
+        // one decoder for the key and one for the value, all the entries share the same schema version
+        verify(decoderFactory, times(2)).createRowDecoder(any(), any(), any());
+        pulsarRecordCursor.close();
+    }
+
+    @Test(singleThreaded = true)
+    public void testSkipEntriesNotMatchingPredicate() throws Exception {
+        TopicName topicName = TopicName.get("persistent", NAMESPACE_NAME_1, "topic-4");
+        Long entriesNum = 5L;
+        KeyValueSchema schema = (KeyValueSchema) Schema.KeyValue(Schema.INT32, Schema.STRING,
+                KeyValueEncodingType.SEPARATED);
+
+        List<PulsarColumnHandle> columnHandles = getColumnColumnHandles(topicName, schema.getSchemaInfo(),
+                PulsarColumnHandle.HandleKeyValueType.NONE, true);
+        TupleDomain<ColumnHandle> tupleDomain = TupleDomain.withColumnDomains(ImmutableMap.of(
+                PulsarInternalColumn.SEQUENCE_ID.getColumnHandle(pulsarConnectorId.toString(), false),
+                Domain.create(ValueSet.ofRanges(Range.range(BIGINT, 1L, true, 2L, true)), false)));
+        PulsarRecordCursor pulsarRecordCursor = mockKeyValueSchemaPulsarRecordCursor(entriesNum, topicName,
+                schema, new KeyValue<>(23, "value"), columnHandles, dispatchingRowDecoderFactory, tupleDomain);
+
+        List<Long> sequenceIds = new LinkedList<>();
+        while (pulsarRecordCursor.advanceNextPosition()) {
+            for (int i = 0; i < columnHandles.size(); i++) {
+                if (PulsarInternalColumn.SEQUENCE_ID.getName().equals(columnHandles.get(i).getName())) {
+                    sequenceIds.add(pulsarRecordCursor.getLong(i));
+                }
+            }
+        }
+        // the entries with the other sequence ids are skipped before being decoded
+        assertEquals(sequenceIds, Arrays.asList(1L, 2L));
+        pulsarRecordCursor.close();
+    }
+
+    private PulsarRecordCursor mockKeyValueSchemaPulsarRecordCursor(final Long entriesNum, final TopicName topicName,
+                                                                    final KeyValueSchema schema, KeyValue message, List<PulsarColumnHandle> ColumnHandles) throws Exception {
+        return mockKeyValueSchemaPulsarRecordCursor(entriesNum, topicName, schema, message, ColumnHandles,
+                dispatchingRowDecoderFactory);
+    }
+
     /**
      * mock a simple PulsarRecordCursor for KeyValueSchema test.
      * @param entriesNum
@@ -266,11 +370,21 @@ public class TestPulsarRecordCursor extends TestPulsarConnector {
      * @param schema
      * @param message
      * @param ColumnHandles
+     * @param decoderFactory
      * @return
      * @throws Exception
      */
     private PulsarRecordCursor mockKeyValueSchemaPulsarRecordCursor(final Long entriesNum, final TopicName topicName,
-                                                                    final KeyValueSchema schema, KeyValue message, List<PulsarColumnHandle> ColumnHandles) throws Exception {
+                                                                    final KeyValueSchema schema, KeyValue message, List<PulsarColumnHandle> ColumnHandles,
+                                                                    PulsarDispatchingRowDecoderFactory decoderFactory) throws Exception {
+        return mockKeyValueSchemaPulsarRecordCursor(entriesNum, topicName, schema, message, ColumnHandles,
+                decoderFactory, TupleDomain.all());
+    }
+
+    private PulsarRecordCursor mockKeyValueSchemaPulsarRecordCursor(final Long entriesNum, final TopicName topicName,
+                                                                    final KeyValueSchema schema, KeyValue message, List<PulsarColumnHandle> ColumnHandles,
+                                                                    PulsarDispatchingRowDecoderFactory decoderFactory,
+                                                                    TupleDomain<ColumnHandle> tupleDomain) throws Exception {
 
         ManagedLedgerFactory managedLedgerFactory = mock(ManagedLedgerFactory.class);
 
@@ -382,14 +496,14 @@ public class TestPulsarRecordCursor extends TestPulsarConnector {
                 new String(schema.getSchemaInfo().getSchema()),
                 schema.getSchemaInfo().getType(),
                 0, entriesNum,
-                0, 0, TupleDomain.all(),
+                0, 0, tupleDomain,
                 objectMapper.writeValueAsString(
                         schema.getSchemaInfo().getProperties()), null);
 
         PulsarRecordCursor pulsarRecordCursor = spy(new PulsarRecordCursor(
                 ColumnHandles, split,
                 pulsarConnectorConfig, managedLedgerFactory, new ManagedLedgerConfig(),
-                new PulsarConnectorMetricsTracker(new NullStatsProvider()), dispatchingRowDecoderFactory));
+                new PulsarConnectorMetricsTracker(new NullStatsProvider()), decoderFactory));
 
         PulsarSqlSchemaInfoProvider pulsarSqlSchemaInfoProvider = mock(PulsarSqlSchemaInfoProvider.class);
         when(pulsarSqlSchemaInfoProvider.getSchemaByVersion(any())).thenReturn(completedFuture(schema.getSchemaInfo()));
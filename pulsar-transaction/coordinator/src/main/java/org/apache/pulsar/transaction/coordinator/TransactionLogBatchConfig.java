@@ -0,0 +1,63 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.transaction.coordinator;
+
+import com.google.common.annotations.Beta;
+import io.netty.util.Timer;
+import lombok.Data;
+
+/**
+ * Settings for group committing transaction log operations.
+ *
+ * <p>When enabled, the operations appended within {@link #getMaxDelayInMillis()} of each other are packed into
+ * a single managed ledger entry, as long as the batch stays under {@link #getMaxRecords()} operations and
+ * {@link #getMaxSizeInBytes()} bytes.
+ */
+@Beta
+@Data
+public class TransactionLogBatchConfig {
+
+    public static final TransactionLogBatchConfig DISABLED = new TransactionLogBatchConfig(false, 0, 0, 0, null);
+
+    /**
+     * Whether operations are group committed.
+     */
+    private final boolean enabled;
+
+    /**
+     * The maximum number of operations in a batch.
+     */
+    private final int maxRecords;
+
+    /**
+     * The maximum size of a batch in bytes.
+     */
+    private final int maxSizeInBytes;
+
+    /**
+     * How long the first operation of a batch waits for others before the batch is written.
+     */
+    private final long maxDelayInMillis;
+
+    /**
+     * The timer used to flush batches that do not fill up within the delay.
+     */
+    private final Timer timer;
+
+}
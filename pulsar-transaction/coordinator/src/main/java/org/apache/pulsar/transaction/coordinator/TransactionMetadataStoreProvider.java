@@ -67,4 +67,26 @@ public interface TransactionMetadataStoreProvider {
     CompletableFuture<TransactionMetadataStore> openStore(
             TransactionCoordinatorID transactionCoordinatorId, ManagedLedgerFactory managedLedgerFactory,
             ManagedLedgerConfig managedLedgerConfig, TransactionTimeoutTracker timeoutTracker);
+
+    /**
+     * Open the transaction metadata store for transaction coordinator
+     * identified by <tt>transactionCoordinatorId</tt>, group committing its log writes.
+     *
+     * <p>Providers which do not support group commit ignore <tt>batchConfig</tt>.
+     *
+     * @param transactionCoordinatorId {@link TransactionCoordinatorID} the coordinator id.
+     * @param managedLedgerFactory {@link ManagedLedgerFactory} the managedLedgerFactory to create managedLedger.
+     * @param managedLedgerConfig {@link ManagedLedgerConfig} the managedLedgerConfig to create managedLedger.
+     * @param timeoutTracker {@link TransactionTimeoutTracker} the timeoutTracker to handle transaction time out.
+     * @param batchConfig {@link TransactionLogBatchConfig} the group commit settings of the transaction log.
+     * @return a future represents the result of the operation.
+     *         an instance of {@link TransactionMetadataStore} is returned
+     *         if the operation succeeds.
+     */
+    default CompletableFuture<TransactionMetadataStore> openStore(
+            TransactionCoordinatorID transactionCoordinatorId, ManagedLedgerFactory managedLedgerFactory,
+            ManagedLedgerConfig managedLedgerConfig, TransactionTimeoutTracker timeoutTracker,
+            TransactionLogBatchConfig batchConfig) {
+        return openStore(transactionCoordinatorId, managedLedgerFactory, managedLedgerConfig, timeoutTracker);
+    }
 }
@@ -19,8 +19,12 @@
 package org.apache.pulsar.transaction.coordinator.impl;
 
 import io.netty.buffer.ByteBuf;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.bookkeeper.mledger.AsyncCallbacks;
 import org.apache.bookkeeper.mledger.Entry;
@@ -36,6 +40,7 @@ import org.apache.pulsar.common.api.proto.CommandSubscribe;
 import org.apache.pulsar.common.naming.NamespaceName;
 import org.apache.pulsar.transaction.coordinator.TransactionCoordinatorID;
 import org.apache.pulsar.transaction.coordinator.TransactionLog;
+import org.apache.pulsar.transaction.coordinator.TransactionLogBatchConfig;
 import org.apache.pulsar.transaction.coordinator.TransactionLogReplayCallback;
 import org.apache.pulsar.transaction.coordinator.proto.TransactionMetadataEntry;
 import org.jctools.queues.MessagePassingQueue;
@@ -66,9 +71,21 @@ public class MLTransactionLogImpl implements TransactionLog {
 
     private final String topicName;
 
+    private final TransactionLogBatchWriter batchWriter;
+
+    // the batch indexes of each batched entry whose operations are not all deleted yet
+    private final ConcurrentMap<PositionImpl, BitSet> pendingBatchIndexes = new ConcurrentHashMap<>();
+
     public MLTransactionLogImpl(TransactionCoordinatorID tcID,
                                 ManagedLedgerFactory managedLedgerFactory,
                                 ManagedLedgerConfig managedLedgerConfig) throws Exception {
+        this(tcID, managedLedgerFactory, managedLedgerConfig, TransactionLogBatchConfig.DISABLED);
+    }
+
+    public MLTransactionLogImpl(TransactionCoordinatorID tcID,
+                                ManagedLedgerFactory managedLedgerFactory,
+                                ManagedLedgerConfig managedLedgerConfig,
+                                TransactionLogBatchConfig batchConfig) throws Exception {
         this.topicName = TRANSACTION_LOG_PREFIX + tcID;
         this.tcId = tcID.getId();
         this.managedLedger = managedLedgerFactory.open(topicName, managedLedgerConfig);
@@ -77,6 +94,8 @@ public class MLTransactionLogImpl implements TransactionLog {
         this.currentLoadPosition = (PositionImpl) this.cursor.getMarkDeletedPosition();
         this.entryQueue = new SpscArrayQueue<>(2000);
         this.lastConfirmedEntry = (PositionImpl) managedLedger.getLastConfirmedEntry();
+        this.batchWriter = batchConfig.isEnabled()
+                ? new TransactionLogBatchWriter(managedLedger, batchConfig, this::trackBatch) : null;
     }
 
     @Override
@@ -93,6 +112,10 @@ public class MLTransactionLogImpl implements TransactionLog {
     public CompletableFuture<Void> closeAsync() {
         CompletableFuture<Void> completableFuture = new CompletableFuture<>();
 
+        if (batchWriter != null) {
+            batchWriter.flush();
+        }
+
         managedLedger.asyncClose(new AsyncCallbacks.CloseCallback() {
             @Override
             public void closeComplete(Object ctx) {
@@ -112,6 +135,9 @@ public class MLTransactionLogImpl implements TransactionLog {
 
     @Override
     public CompletableFuture<Position> append(TransactionMetadataEntry transactionMetadataEntry) {
+        if (batchWriter != null) {
+            return batchWriter.append(transactionMetadataEntry);
+        }
         int transactionMetadataEntrySize = transactionMetadataEntry.getSerializedSize();
         ByteBuf buf = PulsarByteBufAllocator.DEFAULT.buffer(transactionMetadataEntrySize, transactionMetadataEntrySize);
         CompletableFuture<Position> completableFuture = new CompletableFuture<>();
@@ -134,9 +160,42 @@ public class MLTransactionLogImpl implements TransactionLog {
         return completableFuture;
     }
 
+    private void trackBatch(Position position, int batchSize) {
+        BitSet batchIndexes = new BitSet(batchSize);
+        batchIndexes.set(0, batchSize);
+        pendingBatchIndexes.put(PositionImpl.get(position.getLedgerId(), position.getEntryId()), batchIndexes);
+    }
+
     public CompletableFuture<Void> deletePosition(List<Position> positions) {
+        List<Position> entryPositions = new ArrayList<>(positions.size());
+        for (Position position : positions) {
+            if (position instanceof TxnBatchedPositionImpl) {
+                // a batched entry is only deleted once every operation packed into it is deleted
+                TxnBatchedPositionImpl batchedPosition = (TxnBatchedPositionImpl) position;
+                PositionImpl entryPosition = PositionImpl.get(batchedPosition.getLedgerId(),
+                        batchedPosition.getEntryId());
+                boolean[] released = new boolean[1];
+                pendingBatchIndexes.computeIfPresent(entryPosition, (k, batchIndexes) -> {
+                    batchIndexes.clear(batchedPosition.getBatchIndex());
+                    if (batchIndexes.isEmpty()) {
+                        released[0] = true;
+                        return null;
+                    }
+                    return batchIndexes;
+                });
+                if (released[0]) {
+                    entryPositions.add(entryPosition);
+                }
+            } else {
+                entryPositions.add(position);
+            }
+        }
+        if (entryPositions.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
         CompletableFuture<Void> completableFuture = new CompletableFuture<>();
-        this.cursor.asyncDelete(positions, new AsyncCallbacks.DeleteCallback() {
+        this.cursor.asyncDelete(entryPositions, new AsyncCallbacks.DeleteCallback() {
             @Override
             public void deleteComplete(Object position) {
                 if (log.isDebugEnabled()) {
@@ -170,14 +229,32 @@ public class MLTransactionLogImpl implements TransactionLog {
             TransactionMetadataEntry transactionMetadataEntry = new TransactionMetadataEntry();
 
             while (lastConfirmedEntry.compareTo(currentLoadPosition) > 0) {
-                fillEntryQueueCallback.fillQueue();
+                // the trailing entries may already be deleted, in which case the cursor never reads up to the
+                // last confirmed entry
+                if (!fillEntryQueueCallback.fillQueue() && entryQueue.isEmpty()) {
+                    break;
+                }
                 Entry entry = entryQueue.poll();
                 if (entry != null) {
                     try {
                         ByteBuf buffer = entry.getDataBuffer();
                         currentLoadPosition = PositionImpl.get(entry.getLedgerId(), entry.getEntryId());
-                        transactionMetadataEntry.parseFrom(buffer, buffer.readableBytes());
-                        transactionLogReplayCallback.handleMetadataEntry(entry.getPosition(), transactionMetadataEntry);
+                        if (TransactionLogBatchWriter.isBatchedEntry(buffer)) {
+                            List<ByteBuf> records = TransactionLogBatchWriter.splitBatchedEntry(buffer);
+                            int batchSize = records.size();
+                            trackBatch(currentLoadPosition, batchSize);
+                            for (int i = 0; i < batchSize; i++) {
+                                ByteBuf record = records.get(i);
+                                transactionMetadataEntry.parseFrom(record, record.readableBytes());
+                                transactionLogReplayCallback.handleMetadataEntry(
+                                        new TxnBatchedPositionImpl(entry.getLedgerId(), entry.getEntryId(),
+                                                batchSize, i), transactionMetadataEntry);
+                            }
+                        } else {
+                            transactionMetadataEntry.parseFrom(buffer, buffer.readableBytes());
+                            transactionLogReplayCallback.handleMetadataEntry(entry.getPosition(),
+                                    transactionMetadataEntry);
+                        }
                     } finally {
                         entry.release();
                     }
@@ -197,13 +274,21 @@ public class MLTransactionLogImpl implements TransactionLog {
 
         private final AtomicLong outstandingReadsRequests = new AtomicLong(0);
 
-        void fillQueue() {
+        /**
+         * Issue a read if the queue has room for it.
+         *
+         * @return false if the cursor has no more entries and no read is outstanding
+         */
+        boolean fillQueue() {
             if (entryQueue.size() < entryQueue.capacity() && outstandingReadsRequests.get() == 0) {
                 if (cursor.hasMoreEntries()) {
                     outstandingReadsRequests.incrementAndGet();
                     readAsync(100, this);
+                } else {
+                    return false;
                 }
             }
+            return true;
         }
 
         @Override
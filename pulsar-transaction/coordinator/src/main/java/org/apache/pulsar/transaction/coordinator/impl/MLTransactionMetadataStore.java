@@ -21,15 +21,9 @@ package org.apache.pulsar.transaction.coordinator.impl;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.NoSuchElementException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.bookkeeper.mledger.Position;
-import org.apache.commons.lang3.tuple.MutablePair;
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.client.api.transaction.TxnID;
 import org.apache.pulsar.common.api.proto.Subscription;
 import org.apache.pulsar.common.util.FutureUtil;
@@ -62,17 +56,30 @@ public class MLTransactionMetadataStore
     private final AtomicLong sequenceId = new AtomicLong(TC_ID_NOT_USED);
     private final MLTransactionLogImpl transactionLog;
     private static final long TC_ID_NOT_USED = -1L;
-    private final ConcurrentMap<TxnID, Pair<TxnMeta, List<Position>>> txnMetaMap = new ConcurrentHashMap<>();
-    private final ConcurrentSkipListSet<Long> txnIdSortedSet = new ConcurrentSkipListSet<>();
+    public static final int DEFAULT_NUM_SHARDS = 16;
+    // open transactions are striped across shards by sequence id, so that concurrent operations on different
+    // transactions rarely touch the same map
+    private final TxnMetaShard[] shards;
     private final TransactionTimeoutTracker timeoutTracker;
 
     public MLTransactionMetadataStore(TransactionCoordinatorID tcID,
                                       MLTransactionLogImpl mlTransactionLog,
                                       TransactionTimeoutTracker timeoutTracker) {
+        this(tcID, mlTransactionLog, timeoutTracker, DEFAULT_NUM_SHARDS);
+    }
+
+    public MLTransactionMetadataStore(TransactionCoordinatorID tcID,
+                                      MLTransactionLogImpl mlTransactionLog,
+                                      TransactionTimeoutTracker timeoutTracker,
+                                      int numShards) {
         super(State.None);
         this.tcID = tcID;
         this.transactionLog = mlTransactionLog;
         this.timeoutTracker = timeoutTracker;
+        this.shards = new TxnMetaShard[numShards];
+        for (int i = 0; i < numShards; i++) {
+            shards[i] = new TxnMetaShard(tcID.getId(), i);
+        }
 
         if (!changeToInitializingState()) {
             log.error("Managed ledger transaction metadata store change state error when init it");
@@ -96,58 +103,58 @@ public class MLTransactionMetadataStore
 
                     TxnID txnID = new TxnID(transactionMetadataEntry.getTxnidMostBits(),
                             transactionMetadataEntry.getTxnidLeastBits());
+                    TxnMetaShard shard = shardOf(txnID);
+                    TxnMetaImpl txnMeta = shard.get(txnID);
                     switch (transactionMetadataEntry.getMetadataOp()) {
                         case NEW:
                             if (sequenceId.get() < transactionMetadataEntry.getTxnidLeastBits()) {
                                 sequenceId.set(transactionMetadataEntry.getTxnidLeastBits());
                             }
-                            if (txnMetaMap.containsKey(txnID)) {
-                                txnMetaMap.get(txnID).getRight().add(position);
+                            if (txnMeta != null) {
+                                txnMeta.addPosition(position);
                             } else {
-                                List<Position> positions = new ArrayList<>();
-                                positions.add(position);
-                                txnMetaMap.put(txnID, MutablePair.of(TxnMetaImpl.create(txnID), positions));
-                                txnIdSortedSet.add(transactionMetadataEntry.getTxnidLeastBits());
+                                txnMeta = TxnMetaImpl.create(txnID);
+                                txnMeta.addPosition(position);
+                                shard.add(txnMeta);
                                 timeoutTracker.replayAddTransaction(transactionMetadataEntry.getTxnidLeastBits(),
                                         transactionMetadataEntry.getTimeoutMs());
                             }
                             break;
                         case ADD_PARTITION:
-                            if (!txnMetaMap.containsKey(txnID)) {
+                            if (txnMeta == null) {
                                 transactionLog.deletePosition(Collections.singletonList(position));
                             } else {
-                                txnMetaMap.get(txnID).getLeft()
-                                        .addProducedPartitions(transactionMetadataEntry.getPartitionsList());
-                                txnMetaMap.get(txnID).getRight().add(position);
+                                txnMeta.addProducedPartitions(transactionMetadataEntry.getPartitionsList());
+                                txnMeta.addPosition(position);
                             }
                             break;
                         case ADD_SUBSCRIPTION:
-                            if (!txnMetaMap.containsKey(txnID)) {
+                            if (txnMeta == null) {
                                 transactionLog.deletePosition(Collections.singletonList(position));
                             } else {
-                                txnMetaMap.get(txnID).getLeft()
-                                        .addAckedPartitions(subscriptionToTxnSubscription(
-                                                transactionMetadataEntry.getSubscriptionsList()));
-                                txnMetaMap.get(txnID).getRight().add(position);
+                                txnMeta.addAckedPartitions(subscriptionToTxnSubscription(
+                                        transactionMetadataEntry.getSubscriptionsList()));
+                                txnMeta.addPosition(position);
                             }
                             break;
                         case UPDATE:
-                            if (!txnMetaMap.containsKey(txnID)) {
+                            if (txnMeta == null) {
                                 transactionLog.deletePosition(Collections.singletonList(position));
                             } else {
                                 TxnStatus newStatus = transactionMetadataEntry.getNewStatus();
+                                txnMeta.addPosition(position);
                                 if (newStatus == TxnStatus.COMMITTED || newStatus == TxnStatus.ABORTED) {
-                                    transactionLog.deletePosition(txnMetaMap.get(txnID).getRight()).thenAccept(v -> {
-                                        TxnMeta txnMeta = txnMetaMap.remove(txnID).getLeft();
-                                        txnIdSortedSet.remove(transactionMetadataEntry.getTxnidLeastBits());
-                                        ((TxnMetaImpl) txnMeta).recycle();
+                                    // the deletion may complete inline and remove the transaction from the shard
+                                    TxnMetaImpl endedTxnMeta = txnMeta;
+                                    transactionLog.deletePosition(txnMeta.positions()).thenAccept(v -> {
+                                        if (shard.remove(endedTxnMeta)) {
+                                            endedTxnMeta.recycle();
+                                        }
                                     });
                                 } else {
-                                    txnMetaMap.get(txnID).getLeft()
-                                            .updateTxnStatus(transactionMetadataEntry.getNewStatus(),
-                                                    transactionMetadataEntry.getExpectedStatus());
+                                    txnMeta.updateTxnStatus(transactionMetadataEntry.getNewStatus(),
+                                            transactionMetadataEntry.getExpectedStatus());
                                 }
-                                txnMetaMap.get(txnID).getRight().add(position);
                             }
                             break;
                         default:
@@ -164,19 +171,12 @@ public class MLTransactionMetadataStore
 
     @Override
     public CompletableFuture<TxnStatus> getTxnStatus(TxnID txnID) {
-        return CompletableFuture.completedFuture(txnMetaMap.get(txnID).getLeft().status());
+        return CompletableFuture.completedFuture(shardOf(txnID).get(txnID).status());
     }
 
     @Override
     public CompletableFuture<TxnMeta> getTxnMeta(TxnID txnID) {
-        Pair<TxnMeta, List<Position>> txnMetaListPair = txnMetaMap.get(txnID);
-        CompletableFuture<TxnMeta> completableFuture = new CompletableFuture<>();
-        if (txnMetaListPair == null) {
-            completableFuture.completeExceptionally(new TransactionNotFoundException(txnID));
-        } else {
-            completableFuture.complete(txnMetaListPair.getLeft());
-        }
-        return completableFuture;
+        return getTxnMetaImpl(txnID).thenApply(txnMeta -> txnMeta);
     }
 
     @Override
@@ -187,9 +187,11 @@ public class MLTransactionMetadataStore
                             .TransactionMetadataStoreStateException(tcID, State.Ready, getState(), "new Transaction"));
         }
 
+        long startNanos = System.nanoTime();
         long mostSigBits = tcID.getId();
         long leastSigBits = sequenceId.incrementAndGet();
         TxnID txnID = new TxnID(mostSigBits, leastSigBits);
+        TxnMetaShard shard = shardOf(txnID);
         long currentTimeMillis = System.currentTimeMillis();
         TransactionMetadataEntry transactionMetadataEntry = new TransactionMetadataEntry()
                 .setTxnidMostBits(mostSigBits)
@@ -200,13 +202,11 @@ public class MLTransactionMetadataStore
                 .setLastModificationTime(currentTimeMillis);
         return transactionLog.append(transactionMetadataEntry)
                 .thenCompose(position -> {
-                    TxnMeta txn = TxnMetaImpl.create(txnID);
-                    List<Position> positions = new ArrayList<>();
-                    positions.add(position);
-                    Pair<TxnMeta, List<Position>> pair = MutablePair.of(txn, positions);
-                    txnMetaMap.put(txnID, pair);
+                    TxnMetaImpl txn = TxnMetaImpl.create(txnID);
+                    txn.addPosition(position);
+                    shard.add(txn);
                     this.timeoutTracker.addTransaction(leastSigBits, timeOut);
-                    this.txnIdSortedSet.add(leastSigBits);
+                    shard.recordOperation(startNanos);
                     return CompletableFuture.completedFuture(txnID);
                 });
     }
@@ -218,7 +218,8 @@ public class MLTransactionMetadataStore
                     new CoordinatorException.TransactionMetadataStoreStateException(tcID,
                             State.Ready, getState(), "add produced partition"));
         }
-        return getTxnPositionPair(txnID).thenCompose(txnMetaListPair -> {
+        long startNanos = System.nanoTime();
+        return getTxnMetaImpl(txnID).thenCompose(txnMeta -> {
             TransactionMetadataEntry transactionMetadataEntry = new TransactionMetadataEntry()
                     .setTxnidMostBits(txnID.getMostSigBits())
                     .setTxnidLeastBits(txnID.getLeastSigBits())
@@ -228,15 +229,16 @@ public class MLTransactionMetadataStore
 
             return transactionLog.append(transactionMetadataEntry)
                     .thenCompose(position -> {
+                        shardOf(txnID).recordOperation(startNanos);
                         try {
-                            txnMetaListPair.getLeft().addProducedPartitions(partitions);
-                            txnMetaMap.get(txnID).getRight().add(position);
+                            txnMeta.addProducedPartitions(partitions);
+                            txnMeta.addPosition(position);
                             return CompletableFuture.completedFuture(null);
                         } catch (InvalidTxnStatusException e) {
-                            txnMetaMap.get(txnID).getRight().add(position);
-                            log.error("TxnID : " + txnMetaListPair.getLeft().id().toString()
+                            txnMeta.addPosition(position);
+                            log.error("TxnID : " + txnMeta.id().toString()
                                     + " add produced partition error with TxnStatus : "
-                                    + txnMetaListPair.getLeft().status().name(), e);
+                                    + txnMeta.status().name(), e);
                             return FutureUtil.failedFuture(e);
                         }
                     });
@@ -251,7 +253,8 @@ public class MLTransactionMetadataStore
                     new CoordinatorException.TransactionMetadataStoreStateException(tcID,
                             State.Ready, getState(), "add acked partition"));
         }
-        return getTxnPositionPair(txnID).thenCompose(txnMetaListPair -> {
+        long startNanos = System.nanoTime();
+        return getTxnMetaImpl(txnID).thenCompose(txnMeta -> {
             TransactionMetadataEntry transactionMetadataEntry = new TransactionMetadataEntry()
                     .setTxnidMostBits(txnID.getMostSigBits())
                     .setTxnidLeastBits(txnID.getLeastSigBits())
@@ -261,15 +264,16 @@ public class MLTransactionMetadataStore
 
             return transactionLog.append(transactionMetadataEntry)
                     .thenCompose(position -> {
+                        shardOf(txnID).recordOperation(startNanos);
                         try {
-                            txnMetaListPair.getLeft().addAckedPartitions(txnSubscriptions);
-                            txnMetaMap.get(txnID).getRight().add(position);
+                            txnMeta.addAckedPartitions(txnSubscriptions);
+                            txnMeta.addPosition(position);
                             return CompletableFuture.completedFuture(null);
                         } catch (InvalidTxnStatusException e) {
-                            txnMetaMap.get(txnID).getRight().add(position);
-                            log.error("TxnID : " + txnMetaListPair.getLeft().id().toString()
+                            txnMeta.addPosition(position);
+                            log.error("TxnID : " + txnMeta.id().toString()
                                     + " add acked subscription error with TxnStatus : "
-                                    + txnMetaListPair.getLeft().status().name(), e);
+                                    + txnMeta.status().name(), e);
                             return FutureUtil.failedFuture(e);
                         }
                     });
@@ -283,7 +287,8 @@ public class MLTransactionMetadataStore
                     new CoordinatorException.TransactionMetadataStoreStateException(tcID,
                             State.Ready, getState(), "update transaction status"));
         }
-        return getTxnPositionPair(txnID).thenCompose(txnMetaListPair -> {
+        long startNanos = System.nanoTime();
+        return getTxnMetaImpl(txnID).thenCompose(txnMeta -> {
 
             TransactionMetadataEntry transactionMetadataEntry = new TransactionMetadataEntry()
                     .setTxnidMostBits(txnID.getMostSigBits())
@@ -294,23 +299,25 @@ public class MLTransactionMetadataStore
                     .setNewStatus(newStatus);
 
             return transactionLog.append(transactionMetadataEntry).thenCompose(position -> {
+                TxnMetaShard shard = shardOf(txnID);
+                shard.recordOperation(startNanos);
                 try {
-                    txnMetaListPair.getLeft().updateTxnStatus(newStatus, expectedStatus);
-                    txnMetaListPair.getRight().add(position);
+                    txnMeta.updateTxnStatus(newStatus, expectedStatus);
+                    txnMeta.addPosition(position);
                     if (newStatus == TxnStatus.COMMITTED || newStatus == TxnStatus.ABORTED) {
-                        return transactionLog.deletePosition(txnMetaListPair.getRight()).thenCompose(v -> {
-                            txnMetaMap.remove(txnID);
-                            txnIdSortedSet.remove(txnID.getLeastSigBits());
-                            ((TxnMetaImpl) txnMetaListPair.getLeft()).recycle();
+                        return transactionLog.deletePosition(txnMeta.positions()).thenCompose(v -> {
+                            if (shard.remove(txnMeta)) {
+                                txnMeta.recycle();
+                            }
                             return CompletableFuture.completedFuture(null);
                         });
                     }
                     return CompletableFuture.completedFuture(null);
                 } catch (InvalidTxnStatusException e) {
-                    txnMetaListPair.getRight().add(position);
-                    log.error("TxnID : " + txnMetaListPair.getLeft().id().toString()
+                    txnMeta.addPosition(position);
+                    log.error("TxnID : " + txnMeta.id().toString()
                             + " add update txn status error with TxnStatus : "
-                            + txnMetaListPair.getLeft().status().name(), e);
+                            + txnMeta.status().name(), e);
                     return FutureUtil.failedFuture(e);
                 }
             });
@@ -319,11 +326,26 @@ public class MLTransactionMetadataStore
 
     @Override
     public long getLowWaterMark() {
-        try {
-            return this.txnIdSortedSet.first() - 1;
-        } catch (NoSuchElementException e) {
-            return 0L;
+        long lowestSequenceId = -1L;
+        for (TxnMetaShard shard : shards) {
+            long shardLowestSequenceId = shard.lowestSequenceId();
+            if (shardLowestSequenceId != -1L
+                    && (lowestSequenceId == -1L || shardLowestSequenceId < lowestSequenceId)) {
+                lowestSequenceId = shardLowestSequenceId;
+            }
+        }
+        return lowestSequenceId == -1L ? 0L : lowestSequenceId - 1;
+    }
+
+    /**
+     * Return the number of open transactions of this store.
+     */
+    public long getOpenTransactionCount() {
+        long count = 0;
+        for (TxnMetaShard shard : shards) {
+            count += shard.size();
         }
+        return count;
     }
 
     @Override
@@ -331,13 +353,17 @@ public class MLTransactionMetadataStore
         return tcID;
     }
 
-    private CompletableFuture<Pair<TxnMeta, List<Position>>> getTxnPositionPair(TxnID txnID) {
-        CompletableFuture<Pair<TxnMeta, List<Position>>> completableFuture = new CompletableFuture<>();
-        Pair<TxnMeta, List<Position>> txnMetaListPair = txnMetaMap.get(txnID);
-        if (txnMetaListPair == null) {
+    private TxnMetaShard shardOf(TxnID txnID) {
+        return shards[(int) Math.floorMod(txnID.getLeastSigBits(), (long) shards.length)];
+    }
+
+    private CompletableFuture<TxnMetaImpl> getTxnMetaImpl(TxnID txnID) {
+        CompletableFuture<TxnMetaImpl> completableFuture = new CompletableFuture<>();
+        TxnMetaImpl txnMeta = shardOf(txnID).get(txnID);
+        if (txnMeta == null) {
             completableFuture.completeExceptionally(new TransactionNotFoundException(txnID));
         } else {
-            completableFuture.complete(txnMetaListPair);
+            completableFuture.complete(txnMeta);
         }
         return completableFuture;
     }
@@ -345,7 +371,9 @@ public class MLTransactionMetadataStore
     @Override
     public CompletableFuture<Void> closeAsync() {
         return transactionLog.closeAsync().thenCompose(v -> {
-            txnMetaMap.clear();
+            for (TxnMetaShard shard : shards) {
+                shard.close();
+            }
             if (!this.changeToCloseState()) {
                 return FutureUtil.failedFuture(
                         new IllegalStateException("Managed ledger transaction metadata store state to close error!"));
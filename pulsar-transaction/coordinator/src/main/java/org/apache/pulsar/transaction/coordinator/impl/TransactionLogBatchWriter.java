@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.transaction.coordinator.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.Timeout;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.mledger.AsyncCallbacks;
+import org.apache.bookkeeper.mledger.ManagedLedger;
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.Position;
+import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
+import org.apache.pulsar.transaction.coordinator.TransactionLogBatchConfig;
+import org.apache.pulsar.transaction.coordinator.proto.TransactionMetadataEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Group commits transaction log operations into batched managed ledger entries.
+ *
+ * <p>A batched entry is framed as:
+ * <pre>
+ * [MAGIC (2 bytes)] [COUNT (4 bytes)] ([SIZE (4 bytes)] [TransactionMetadataEntry (SIZE bytes)])*
+ * </pre>
+ * The magic can never start a serialized {@link TransactionMetadataEntry}, because its first byte would be a
+ * protobuf tag with the unused wire type 6, so batched and plain entries can live in the same log.
+ */
+class TransactionLogBatchWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionLogBatchWriter.class);
+
+    static final short BATCHED_ENTRY_MAGIC = 0x0e01;
+
+    private static final int HEADER_SIZE = 2 + 4;
+
+    private final ManagedLedger managedLedger;
+
+    private final TransactionLogBatchConfig config;
+
+    private final BatchAddedListener batchAddedListener;
+
+    private ByteBuf pendingBuffer;
+
+    private List<CompletableFuture<Position>> pendingFutures = new ArrayList<>();
+
+    private Timeout flushTimeout;
+
+    /**
+     * Notified of every persisted batch before the futures of its operations complete.
+     */
+    interface BatchAddedListener {
+        void batchAdded(Position position, int batchSize);
+    }
+
+    TransactionLogBatchWriter(ManagedLedger managedLedger, TransactionLogBatchConfig config,
+                              BatchAddedListener batchAddedListener) {
+        this.managedLedger = managedLedger;
+        this.config = config;
+        this.batchAddedListener = batchAddedListener;
+    }
+
+    static boolean isBatchedEntry(ByteBuf buffer) {
+        return buffer.readableBytes() >= HEADER_SIZE && buffer.getShort(buffer.readerIndex()) == BATCHED_ENTRY_MAGIC;
+    }
+
+    /**
+     * Split a batched entry into its operations, leaving the reader index of the buffer untouched.
+     */
+    static List<ByteBuf> splitBatchedEntry(ByteBuf buffer) {
+        int index = buffer.readerIndex() + 2;
+        int count = buffer.getInt(index);
+        index += 4;
+        List<ByteBuf> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int size = buffer.getInt(index);
+            index += 4;
+            records.add(buffer.slice(index, size));
+            index += size;
+        }
+        return records;
+    }
+
+    synchronized CompletableFuture<Position> append(TransactionMetadataEntry transactionMetadataEntry) {
+        int size = transactionMetadataEntry.getSerializedSize();
+        if (pendingBuffer == null) {
+            pendingBuffer = PulsarByteBufAllocator.DEFAULT.buffer(Math.min(config.getMaxSizeInBytes(),
+                    HEADER_SIZE + 4 + size) * 2);
+            pendingBuffer.writeShort(BATCHED_ENTRY_MAGIC);
+            pendingBuffer.writeInt(0);
+        }
+        pendingBuffer.writeInt(size);
+        transactionMetadataEntry.writeTo(pendingBuffer);
+        CompletableFuture<Position> future = new CompletableFuture<>();
+        pendingFutures.add(future);
+
+        if (pendingFutures.size() >= config.getMaxRecords()
+                || pendingBuffer.readableBytes() >= config.getMaxSizeInBytes()) {
+            flush();
+        } else if (flushTimeout == null) {
+            flushTimeout = config.getTimer().newTimeout(timeout -> flushOnTimeout(timeout),
+                    config.getMaxDelayInMillis(), TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+
+    private synchronized void flushOnTimeout(Timeout timeout) {
+        // a size triggered flush may already have written the batch this timeout was scheduled for
+        if (flushTimeout == timeout) {
+            flush();
+        }
+    }
+
+    synchronized void flush() {
+        if (flushTimeout != null) {
+            flushTimeout.cancel();
+            flushTimeout = null;
+        }
+        if (pendingFutures.isEmpty()) {
+            return;
+        }
+        ByteBuf buffer = pendingBuffer;
+        List<CompletableFuture<Position>> futures = pendingFutures;
+        pendingBuffer = null;
+        pendingFutures = new ArrayList<>();
+
+        int batchSize = futures.size();
+        buffer.setInt(buffer.readerIndex() + 2, batchSize);
+        managedLedger.asyncAddEntry(buffer, new AsyncCallbacks.AddEntryCallback() {
+            @Override
+            public void addComplete(Position position, ByteBuf entryData, Object ctx) {
+                buffer.release();
+                batchAddedListener.batchAdded(position, batchSize);
+                for (int i = 0; i < batchSize; i++) {
+                    futures.get(i).complete(new TxnBatchedPositionImpl(position.getLedgerId(),
+                            position.getEntryId(), batchSize, i));
+                }
+            }
+
+            @Override
+            public void addFailed(ManagedLedgerException exception, Object ctx) {
+                log.error("Transaction log write batch of {} transaction operations error", batchSize, exception);
+                buffer.release();
+                futures.forEach(future -> future.completeExceptionally(exception));
+            }
+        }, null);
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.transaction.coordinator.impl;
+
+import org.apache.bookkeeper.mledger.impl.PositionImpl;
+
+/**
+ * The position of an operation which was group committed with others into a single transaction log entry.
+ *
+ * <p>Equality is inherited from {@link PositionImpl}, so all the operations of a batch map to the same entry.
+ */
+public class TxnBatchedPositionImpl extends PositionImpl {
+
+    private final int batchSize;
+
+    private final int batchIndex;
+
+    public TxnBatchedPositionImpl(long ledgerId, long entryId, int batchSize, int batchIndex) {
+        super(ledgerId, entryId);
+        this.batchSize = batchSize;
+        this.batchIndex = batchIndex;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getBatchIndex() {
+        return batchIndex;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + ":" + batchIndex + "/" + batchSize;
+    }
+}
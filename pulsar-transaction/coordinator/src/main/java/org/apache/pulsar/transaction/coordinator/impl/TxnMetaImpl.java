@@ -18,13 +18,18 @@
  */
 package org.apache.pulsar.transaction.coordinator.impl;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import io.netty.util.Recycler;
 import io.netty.util.Recycler.Handle;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.impl.PositionImpl;
 import org.apache.pulsar.client.api.transaction.TxnID;
 import org.apache.pulsar.transaction.coordinator.TransactionSubscription;
 import org.apache.pulsar.transaction.coordinator.TxnMeta;
@@ -38,9 +43,21 @@ import org.apache.pulsar.transaction.coordinator.util.TransactionUtil;
  */
 class TxnMetaImpl implements TxnMeta {
 
+    // the same few topics and subscriptions show up in most transactions, so share a single instance of each
+    private static final Interner<String> PARTITION_INTERNER = Interners.newWeakInterner();
+    private static final Interner<TransactionSubscription> SUBSCRIPTION_INTERNER = Interners.newWeakInterner();
+
+    // the log positions are packed as (ledgerId, entryId, batch) triples, see packBatch
+    private static final int POSITION_STRIDE = 3;
+    private static final int MAX_RETAINED_POSITIONS = 16;
+    private static final long[] EMPTY_POSITIONS = new long[0];
+    private static final long NOT_BATCHED = -1L;
+
     private TxnID txnID;
     private final Set<String> producedPartitions = new HashSet<>();
     private final Set<TransactionSubscription> ackedPartitions = new HashSet<>();
+    private long[] positions = EMPTY_POSITIONS;
+    private int positionCount;
     private volatile TxnStatus txnStatus = TxnStatus.OPEN;
     private final Handle<TxnMetaImpl> recycleHandle;
 
@@ -65,6 +82,10 @@ class TxnMetaImpl implements TxnMeta {
     public void recycle() {
         this.producedPartitions.clear();
         this.ackedPartitions.clear();
+        if (this.positions.length > MAX_RETAINED_POSITIONS * POSITION_STRIDE) {
+            this.positions = EMPTY_POSITIONS;
+        }
+        this.positionCount = 0;
         this.txnStatus = TxnStatus.OPEN;
 
         if (recycleHandle != null) {
@@ -133,7 +154,9 @@ class TxnMetaImpl implements TxnMeta {
     public synchronized TxnMetaImpl addProducedPartitions(List<String> partitions) throws InvalidTxnStatusException {
         checkTxnStatus(TxnStatus.OPEN);
 
-        this.producedPartitions.addAll(partitions);
+        for (String partition : partitions) {
+            this.producedPartitions.add(PARTITION_INTERNER.intern(partition));
+        }
         return this;
     }
 
@@ -148,7 +171,9 @@ class TxnMetaImpl implements TxnMeta {
     public synchronized TxnMetaImpl addAckedPartitions(List<TransactionSubscription> partitions)
             throws InvalidTxnStatusException {
         checkTxnStatus(TxnStatus.OPEN);
-        this.ackedPartitions.addAll(partitions);
+        for (TransactionSubscription partition : partitions) {
+            this.ackedPartitions.add(SUBSCRIPTION_INTERNER.intern(partition));
+        }
         return this;
     }
 
@@ -174,4 +199,45 @@ class TxnMetaImpl implements TxnMeta {
         return this;
     }
 
+    /**
+     * Record the position of a transaction log entry holding an operation of this transaction.
+     *
+     * @param position the position of the operation
+     */
+    synchronized void addPosition(Position position) {
+        int index = positionCount * POSITION_STRIDE;
+        if (index == positions.length) {
+            positions = Arrays.copyOf(positions, Math.max(POSITION_STRIDE * 4, positions.length * 2));
+        }
+        positions[index] = position.getLedgerId();
+        positions[index + 1] = position.getEntryId();
+        positions[index + 2] = position instanceof TxnBatchedPositionImpl
+                ? packBatch((TxnBatchedPositionImpl) position) : NOT_BATCHED;
+        positionCount++;
+    }
+
+    /**
+     * Return the positions of the transaction log entries holding the operations of this transaction.
+     *
+     * @return the positions, in the order they were added.
+     */
+    synchronized List<Position> positions() {
+        List<Position> returnedPositions = new ArrayList<>(positionCount);
+        for (int i = 0; i < positionCount; i++) {
+            int index = i * POSITION_STRIDE;
+            long batch = positions[index + 2];
+            if (batch == NOT_BATCHED) {
+                returnedPositions.add(PositionImpl.get(positions[index], positions[index + 1]));
+            } else {
+                returnedPositions.add(new TxnBatchedPositionImpl(positions[index], positions[index + 1],
+                        (int) (batch >>> 32), (int) batch));
+            }
+        }
+        return returnedPositions;
+    }
+
+    private static long packBatch(TxnBatchedPositionImpl position) {
+        return ((long) position.getBatchSize() << 32) | (position.getBatchIndex() & 0xFFFFFFFFL);
+    }
+
 }
@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.transaction.coordinator.impl;
+
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Summary;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import org.apache.pulsar.client.api.transaction.TxnID;
+import org.apache.pulsar.common.util.collections.ConcurrentLongHashMap;
+
+/**
+ * A shard of the open transactions of a {@link MLTransactionMetadataStore}.
+ *
+ * <p>Transactions are keyed by the least significant bits of their id, since the most significant bits are the
+ * id of the transaction coordinator owning the store.
+ */
+class TxnMetaShard {
+
+    private static final Gauge OPEN_TRANSACTIONS = Gauge
+            .build("pulsar_txn_tc_shard_open_transactions",
+                    "Number of open transactions in a shard of a transaction coordinator")
+            .labelNames("coordinator_id", "shard")
+            .register();
+
+    private static final Summary OPERATION_LATENCY = Summary
+            .build("pulsar_txn_tc_shard_op_latency_ms",
+                    "Latency in milliseconds of the transaction operations of a shard of a transaction coordinator, "
+                    + "from the request until the metadata log is updated")
+            .labelNames("coordinator_id", "shard")
+            .quantile(0.50, 0.01)
+            .quantile(0.99, 0.01)
+            .register();
+
+    private final String[] labelValues;
+    private final ConcurrentLongHashMap<TxnMetaImpl> txns;
+    private final ConcurrentSkipListSet<Long> sortedTxnIds = new ConcurrentSkipListSet<>();
+    private final Gauge.Child openTransactions;
+    private final Summary.Child operationLatency;
+
+    TxnMetaShard(long tcId, int shardId) {
+        this.labelValues = new String[] {String.valueOf(tcId), String.valueOf(shardId)};
+        // the shard is already a stripe of the store, so a single section per map is enough
+        this.txns = new ConcurrentLongHashMap<>(16, 1);
+        this.openTransactions = OPEN_TRANSACTIONS.labels(labelValues);
+        this.operationLatency = OPERATION_LATENCY.labels(labelValues);
+    }
+
+    TxnMetaImpl get(TxnID txnID) {
+        TxnMetaImpl txnMeta = txns.get(txnID.getLeastSigBits());
+        return txnMeta != null && txnMeta.id().equals(txnID) ? txnMeta : null;
+    }
+
+    void add(TxnMetaImpl txnMeta) {
+        long sequenceId = txnMeta.id().getLeastSigBits();
+        if (txns.put(sequenceId, txnMeta) == null) {
+            sortedTxnIds.add(sequenceId);
+            openTransactions.inc();
+        }
+    }
+
+    boolean remove(TxnMetaImpl txnMeta) {
+        long sequenceId = txnMeta.id().getLeastSigBits();
+        if (txns.remove(sequenceId, txnMeta)) {
+            sortedTxnIds.remove(sequenceId);
+            openTransactions.dec();
+            return true;
+        }
+        return false;
+    }
+
+    long size() {
+        return txns.size();
+    }
+
+    /**
+     * Return the lowest sequence id of the open transactions of this shard, or -1 if there are none.
+     */
+    long lowestSequenceId() {
+        try {
+            return sortedTxnIds.first();
+        } catch (NoSuchElementException e) {
+            return -1L;
+        }
+    }
+
+    void recordOperation(long startNanos) {
+        operationLatency.observe(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos) / 1000.0);
+    }
+
+    void close() {
+        txns.clear();
+        sortedTxnIds.clear();
+        OPEN_TRANSACTIONS.remove(labelValues);
+        OPERATION_LATENCY.remove(labelValues);
+    }
+}
@@ -18,12 +18,14 @@
  */
 package org.apache.pulsar.transaction.coordinator;
 
+import io.netty.util.HashedWheelTimer;
 import org.apache.bookkeeper.mledger.ManagedCursor;
 import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
 import org.apache.bookkeeper.mledger.ManagedLedgerFactory;
 import org.apache.bookkeeper.mledger.ManagedLedgerFactoryConfig;
 import org.apache.bookkeeper.mledger.impl.ManagedLedgerFactoryImpl;
 import org.apache.pulsar.client.api.transaction.TxnID;
+import org.apache.pulsar.common.util.FutureUtil;
 import org.apache.pulsar.transaction.coordinator.exceptions.CoordinatorException.TransactionNotFoundException;
 import org.apache.pulsar.transaction.coordinator.impl.MLTransactionLogImpl;
 import org.apache.pulsar.transaction.coordinator.impl.MLTransactionMetadataStore;
@@ -37,6 +39,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 public class MLTransactionMetadataStoreTest extends MockedBookKeeperTestCase {
 
@@ -270,6 +273,138 @@ public class MLTransactionMetadataStoreTest extends MockedBookKeeperTestCase {
         }
     }
 
+    @Test
+    public void testBatchedWriteAndReplay() throws Exception {
+        ManagedLedgerFactoryConfig factoryConf = new ManagedLedgerFactoryConfig();
+        factoryConf.setMaxCacheSize(0);
+        ManagedLedgerFactory factory = new ManagedLedgerFactoryImpl(bkc, zkc, factoryConf);
+        HashedWheelTimer timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS);
+        TransactionLogBatchConfig batchConfig = new TransactionLogBatchConfig(true, 10, 1024 * 1024, 10, timer);
+        TransactionCoordinatorID transactionCoordinatorID = new TransactionCoordinatorID(1);
+        MLTransactionLogImpl mlTransactionLog = new MLTransactionLogImpl(transactionCoordinatorID, factory,
+                new ManagedLedgerConfig(), batchConfig);
+        MLTransactionMetadataStore transactionMetadataStore =
+                new MLTransactionMetadataStore(transactionCoordinatorID, mlTransactionLog,
+                        new TransactionTimeoutTrackerImpl());
+        waitUntilReady(transactionMetadataStore);
+
+        int numTxns = 20;
+        List<CompletableFuture<TxnID>> newTxnFutures = new ArrayList<>();
+        for (int i = 0; i < numTxns; i++) {
+            newTxnFutures.add(transactionMetadataStore.newTransaction(5000));
+        }
+        List<TxnID> txnIDs = new ArrayList<>();
+        for (CompletableFuture<TxnID> future : newTxnFutures) {
+            txnIDs.add(future.get());
+        }
+        List<String> partitions = new ArrayList<>();
+        partitions.add("pt-1");
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (TxnID txnID : txnIDs) {
+            futures.add(transactionMetadataStore.addProducedPartitionToTxn(txnID, partitions));
+        }
+        FutureUtil.waitForAll(futures).get();
+
+        Field field = mlTransactionLog.getClass().getDeclaredField("cursor");
+        field.setAccessible(true);
+        ManagedCursor cursor = (ManagedCursor) field.get(mlTransactionLog);
+        // 40 operations packed into batches of at most 10
+        Assert.assertTrue(cursor.getManagedLedger().getNumberOfEntries() <= 2 * numTxns / 2);
+
+        // completing only half of the transactions must not delete the batches they share with the others
+        for (int i = 0; i < numTxns / 2; i++) {
+            transactionMetadataStore.updateTxnStatus(txnIDs.get(i), TxnStatus.ABORTING, TxnStatus.OPEN).get();
+            transactionMetadataStore.updateTxnStatus(txnIDs.get(i), TxnStatus.ABORTED, TxnStatus.ABORTING).get();
+        }
+        transactionMetadataStore.closeAsync().get();
+
+        MLTransactionLogImpl replayedLog = new MLTransactionLogImpl(transactionCoordinatorID, factory,
+                new ManagedLedgerConfig(), batchConfig);
+        MLTransactionMetadataStore replayedStore = new MLTransactionMetadataStore(transactionCoordinatorID,
+                replayedLog, new TransactionTimeoutTrackerImpl());
+        waitUntilReady(replayedStore);
+        for (int i = 0; i < numTxns; i++) {
+            if (i < numTxns / 2) {
+                try {
+                    replayedStore.getTxnMeta(txnIDs.get(i)).get();
+                    Assert.fail();
+                } catch (ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof TransactionNotFoundException);
+                }
+            } else {
+                TxnMeta txnMeta = replayedStore.getTxnMeta(txnIDs.get(i)).get();
+                Assert.assertEquals(txnMeta.status(), TxnStatus.OPEN);
+                Assert.assertEquals(txnMeta.producedPartitions(), partitions);
+            }
+        }
+
+        for (int i = numTxns / 2; i < numTxns; i++) {
+            replayedStore.updateTxnStatus(txnIDs.get(i), TxnStatus.COMMITTING, TxnStatus.OPEN).get();
+            replayedStore.updateTxnStatus(txnIDs.get(i), TxnStatus.COMMITTED, TxnStatus.COMMITTING).get();
+        }
+        ManagedCursor replayedCursor = (ManagedCursor) field.get(replayedLog);
+        for (int i = 0; i < 30 && !replayedCursor.getMarkDeletedPosition()
+                .equals(replayedCursor.getManagedLedger().getLastConfirmedEntry()); i++) {
+            Thread.sleep(100);
+        }
+        Assert.assertEquals(replayedCursor.getMarkDeletedPosition(),
+                replayedCursor.getManagedLedger().getLastConfirmedEntry());
+        replayedStore.closeAsync().get();
+        timer.stop();
+    }
+
+    @Test
+    public void testShardedTransactions() throws Exception {
+        ManagedLedgerFactoryConfig factoryConf = new ManagedLedgerFactoryConfig();
+        factoryConf.setMaxCacheSize(0);
+        ManagedLedgerFactory factory = new ManagedLedgerFactoryImpl(bkc, zkc, factoryConf);
+        TransactionCoordinatorID transactionCoordinatorID = new TransactionCoordinatorID(1);
+        MLTransactionLogImpl mlTransactionLog = new MLTransactionLogImpl(transactionCoordinatorID, factory,
+                new ManagedLedgerConfig());
+        MLTransactionMetadataStore transactionMetadataStore =
+                new MLTransactionMetadataStore(transactionCoordinatorID, mlTransactionLog,
+                        new TransactionTimeoutTrackerImpl(), 4);
+        waitUntilReady(transactionMetadataStore);
+
+        List<TxnID> txnIDs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            txnIDs.add(transactionMetadataStore.newTransaction(5000).get());
+        }
+        Assert.assertEquals(transactionMetadataStore.getOpenTransactionCount(), 10);
+        Assert.assertEquals(transactionMetadataStore.getLowWaterMark(), txnIDs.get(0).getLeastSigBits() - 1);
+
+        // a transaction id of another coordinator maps to a shard but must not be found in it
+        try {
+            transactionMetadataStore.getTxnMeta(new TxnID(2, txnIDs.get(0).getLeastSigBits())).get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TransactionNotFoundException);
+        }
+
+        // end the transactions of the first shards, the low water mark moves to the oldest open one
+        for (int i = 0; i < 3; i++) {
+            transactionMetadataStore.updateTxnStatus(txnIDs.get(i), TxnStatus.ABORTING, TxnStatus.OPEN).get();
+            transactionMetadataStore.updateTxnStatus(txnIDs.get(i), TxnStatus.ABORTED, TxnStatus.ABORTING).get();
+        }
+        Assert.assertEquals(transactionMetadataStore.getOpenTransactionCount(), 7);
+        Assert.assertEquals(transactionMetadataStore.getLowWaterMark(), txnIDs.get(3).getLeastSigBits() - 1);
+
+        for (int i = 3; i < txnIDs.size(); i++) {
+            transactionMetadataStore.updateTxnStatus(txnIDs.get(i), TxnStatus.COMMITTING, TxnStatus.OPEN).get();
+            transactionMetadataStore.updateTxnStatus(txnIDs.get(i), TxnStatus.COMMITTED, TxnStatus.COMMITTING).get();
+        }
+        Assert.assertEquals(transactionMetadataStore.getOpenTransactionCount(), 0);
+        Assert.assertEquals(transactionMetadataStore.getLowWaterMark(), 0L);
+        transactionMetadataStore.closeAsync().get();
+    }
+
+    private static void waitUntilReady(MLTransactionMetadataStore transactionMetadataStore) throws Exception {
+        for (int i = 0; i < 30 && !transactionMetadataStore.checkIfReady(); i++) {
+            Thread.sleep(100);
+        }
+        Assert.assertTrue(transactionMetadataStore.checkIfReady());
+    }
+
     public class TransactionTimeoutTrackerImpl implements TransactionTimeoutTracker {
 
         @Override
@@ -21,17 +21,22 @@ package org.apache.pulsar.zookeeper;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.Watcher.Event.EventType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 public class ZooKeeperManagedLedgerCache implements Watcher {
     private static final Logger LOG = LoggerFactory.getLogger(ZooKeeperManagedLedgerCache.class);
 
     private final ZooKeeperCache cache;
     private final String path;
+    private final List<Consumer<String>> childrenChangedListeners = new CopyOnWriteArrayList<>();
 
     public ZooKeeperManagedLedgerCache(ZooKeeperCache cache, String path) {
         this.cache = cache;
@@ -59,6 +64,15 @@ public class ZooKeeperManagedLedgerCache implements Watcher {
         cache.invalidateRoot(path);
     }
 
+    /**
+     * Register a listener called with the path whose children changed, after the cached children were invalidated.
+     *
+     * <p>Only the paths read through this cache are watched.
+     */
+    public void registerChildrenChangedListener(Consumer<String> listener) {
+        childrenChangedListeners.add(listener);
+    }
+
     @Override
     public void process(WatchedEvent watchedEvent) {
         LOG.info("[{}] Received ZooKeeper watch event: {}", cache.zkSession.get(), watchedEvent);
@@ -66,6 +80,11 @@ public class ZooKeeperManagedLedgerCache implements Watcher {
         if (watchedEventPath != null) {
             LOG.info("invalidate called in zookeeperChildrenCache for path {}", watchedEventPath);
             cache.invalidate(watchedEventPath);
+            EventType type = watchedEvent.getType();
+            if (type == EventType.NodeChildrenChanged || type == EventType.NodeCreated
+                    || type == EventType.NodeDeleted) {
+                childrenChangedListeners.forEach(listener -> listener.accept(watchedEventPath));
+            }
         }
     }
 }
@@ -28,6 +28,8 @@ import org.apache.bookkeeper.client.api.LedgerMetadata;
 import org.apache.bookkeeper.client.api.ReadHandle;
 import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
 import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.apache.bookkeeper.mledger.offload.OffloadIndexCache;
+import org.apache.bookkeeper.mledger.offload.OffloadedLedgerIndex;
 
 import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.LongWritable;
@@ -38,6 +40,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
@@ -51,16 +54,21 @@ public class FileStoreBackedReadHandleImpl implements ReadHandle {
     private final long ledgerId;
     private final LedgerMetadata ledgerMetadata;
 
-    private FileStoreBackedReadHandleImpl(ExecutorService executor, MapFile.Reader reader, long ledgerId) throws IOException {
+    private FileStoreBackedReadHandleImpl(ExecutorService executor, MapFile.Reader reader, long ledgerId,
+                                          LedgerMetadata ledgerMetadata) {
         this.ledgerId = ledgerId;
         this.executor = executor;
         this.reader = reader;
+        this.ledgerMetadata = ledgerMetadata;
+    }
+
+    private static LedgerMetadata readLedgerMetadata(MapFile.Reader reader, long ledgerId) throws IOException {
         LongWritable key = new LongWritable();
         BytesWritable value = new BytesWritable();
         try {
             key.set(FileSystemManagedLedgerOffloader.METADATA_KEY_INDEX);
             reader.get(key, value);
-            this.ledgerMetadata = parseLedgerMetadata(ledgerId, value.copyBytes());
+            return parseLedgerMetadata(ledgerId, value.copyBytes());
         } catch (IOException e) {
             log.error("Fail to read LedgerMetadata for ledgerId {}",
                     ledgerId);
@@ -177,7 +185,10 @@ public class FileStoreBackedReadHandleImpl implements ReadHandle {
         return promise;
     }
 
-    public static ReadHandle open(ScheduledExecutorService executor, MapFile.Reader reader, long ledgerId) throws IOException {
-            return new FileStoreBackedReadHandleImpl(executor, reader, ledgerId);
+    public static ReadHandle open(ScheduledExecutorService executor, MapFile.Reader reader, long ledgerId, UUID uuid)
+            throws IOException {
+        OffloadedLedgerIndex index = OffloadIndexCache.getInstance().get(ledgerId, uuid,
+                () -> new OffloadedLedgerIndex(readLedgerMetadata(reader, ledgerId)));
+        return new FileStoreBackedReadHandleImpl(executor, reader, ledgerId, index.getLedgerMetadata());
     }
 }
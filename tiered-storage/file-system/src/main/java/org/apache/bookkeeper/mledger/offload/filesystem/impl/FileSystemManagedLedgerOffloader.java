@@ -26,9 +26,11 @@ import org.apache.bookkeeper.client.api.LedgerEntry;
 import org.apache.bookkeeper.client.api.ReadHandle;
 import org.apache.bookkeeper.common.util.OrderedScheduler;
 import org.apache.bookkeeper.mledger.LedgerOffloader;
+import org.apache.bookkeeper.mledger.offload.OffloadIndexCache;
 import org.apache.bookkeeper.mledger.offload.filesystem.FileSystemLedgerOffloaderFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocalFileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.IOUtils;
@@ -38,6 +40,7 @@ import org.apache.pulsar.common.policies.data.OffloadPolicies;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.Map;
@@ -58,6 +61,11 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
     private static final String DRIVER_NAMES = "filesystem";
     private static final String MANAGED_LEDGER_NAME = "ManagedLedgerName";
     static final long METADATA_KEY_INDEX = -1;
+    /**
+     * When set in the file system profile and the offload target is a local (or NFS mounted) path, ledgers are
+     * written as a contiguous data file plus a dense offset index, which are read back through memory mapping.
+     */
+    static final String INDEXED_FILE_FORMAT_ENABLED = "pulsar.offload.indexed.file.format.enabled";
     private final Configuration configuration;
     private final String driverName;
     private final String storageBasePath;
@@ -141,7 +149,7 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
     @Override
     public CompletableFuture<Void> offload(ReadHandle readHandle, UUID uuid, Map<String, String> extraMetadata) {
         CompletableFuture<Void> promise = new CompletableFuture<>();
-        scheduler.chooseThread(readHandle.getId()).submit(new LedgerReader(readHandle, uuid, extraMetadata, promise, storageBasePath, configuration, assignmentScheduler, offloadPolicies.getManagedLedgerOffloadPrefetchRounds()));
+        scheduler.chooseThread(readHandle.getId()).submit(new LedgerReader(readHandle, uuid, extraMetadata, promise, storageBasePath, configuration, assignmentScheduler, offloadPolicies.getManagedLedgerOffloadPrefetchRounds(), getIndexedFileSystem()));
         return promise;
     }
 
@@ -156,9 +164,11 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
         volatile Exception fileSystemWriteException = null;
         private OrderedScheduler assignmentScheduler;
         private int managedLedgerOffloadPrefetchRounds = 1;
+        private final LocalFileSystem indexedFileSystem;
 
         private LedgerReader(ReadHandle readHandle, UUID uuid, Map<String, String> extraMetadata, CompletableFuture<Void> promise,
-                             String storageBasePath, Configuration configuration, OrderedScheduler assignmentScheduler, int managedLedgerOffloadPrefetchRounds) {
+                             String storageBasePath, Configuration configuration, OrderedScheduler assignmentScheduler, int managedLedgerOffloadPrefetchRounds,
+                             LocalFileSystem indexedFileSystem) {
             this.readHandle = readHandle;
             this.uuid = uuid;
             this.extraMetadata = extraMetadata;
@@ -167,6 +177,19 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
             this.configuration = configuration;
             this.assignmentScheduler = assignmentScheduler;
             this.managedLedgerOffloadPrefetchRounds = managedLedgerOffloadPrefetchRounds;
+            this.indexedFileSystem = indexedFileSystem;
+        }
+
+        private LedgerEntryWriter createWriter(String dataFilePath) throws IOException {
+            byte[] ledgerMetadata = buildLedgerMetadataFormat(readHandle.getLedgerMetadata());
+            if (indexedFileSystem != null) {
+                File dataFile = indexedFileSystem.pathToFile(new Path(dataFilePath));
+                return new IndexedLedgerFileWriter(
+                        new File(dataFile.getPath() + IndexedLedgerFileWriter.DATA_FILE_SUFFIX),
+                        new File(dataFile.getPath() + IndexedLedgerFileWriter.INDEX_FILE_SUFFIX),
+                        ledgerMetadata);
+            }
+            return new MapFileEntryWriter(configuration, dataFilePath, ledgerMetadata);
         }
 
         @Override
@@ -179,18 +202,10 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
             long ledgerId = readHandle.getId();
             String storagePath = getStoragePath(storageBasePath, extraMetadata.get(MANAGED_LEDGER_NAME));
             String dataFilePath = getDataFilePath(storagePath, ledgerId, uuid);
-            LongWritable key = new LongWritable();
-            BytesWritable value = new BytesWritable();
+            LedgerEntryWriter dataWriter = null;
+            boolean offloaded = false;
             try {
-                MapFile.Writer dataWriter = new MapFile.Writer(configuration,
-                        new Path(dataFilePath),
-                        MapFile.Writer.keyClass(LongWritable.class),
-                        MapFile.Writer.valueClass(BytesWritable.class));
-                //store the ledgerMetadata in -1 index
-                key.set(METADATA_KEY_INDEX);
-                byte[] ledgerMetadata = buildLedgerMetadataFormat(readHandle.getLedgerMetadata());
-                value.set(ledgerMetadata, 0, ledgerMetadata.length);
-                dataWriter.append(key, value);
+                dataWriter = createWriter(dataFilePath);
                 AtomicLong haveOffloadEntryNumber = new AtomicLong(0);
                 long needToOffloadFirstEntryNumber = 0;
                 CountDownLatch countDownLatch;
@@ -211,7 +226,8 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
                 if (fileSystemWriteException != null) {
                     throw fileSystemWriteException;
                 }
-                IOUtils.closeStream(dataWriter);
+                dataWriter.close();
+                offloaded = true;
                 promise.complete(null);
             } catch (Exception e) {
                 log.error("Exception when get CompletableFuture<LedgerEntries> : ManagerLedgerName: {}, " +
@@ -220,18 +236,56 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
                     Thread.currentThread().interrupt();
                 }
                 promise.completeExceptionally(e);
+            } finally {
+                if (!offloaded && dataWriter != null) {
+                    dataWriter.abort();
+                }
             }
         }
     }
 
-    private static class FileSystemWriter implements Runnable {
-
-        private LedgerEntries ledgerEntriesOnce;
+    private static class MapFileEntryWriter implements LedgerEntryWriter {
 
         private final LongWritable key = new LongWritable();
         private final BytesWritable value = new BytesWritable();
+        private final MapFile.Writer dataWriter;
+
+        private MapFileEntryWriter(Configuration configuration, String dataFilePath, byte[] ledgerMetadata)
+                throws IOException {
+            this.dataWriter = new MapFile.Writer(configuration,
+                    new Path(dataFilePath),
+                    MapFile.Writer.keyClass(LongWritable.class),
+                    MapFile.Writer.valueClass(BytesWritable.class));
+            //store the ledgerMetadata in -1 index
+            key.set(METADATA_KEY_INDEX);
+            value.set(ledgerMetadata, 0, ledgerMetadata.length);
+            dataWriter.append(key, value);
+        }
+
+        @Override
+        public void append(LedgerEntry entry) throws IOException {
+            key.set(entry.getEntryId());
+            byte[] entryBytes = entry.getEntryBytes();
+            value.set(entryBytes, 0, entryBytes.length);
+            dataWriter.append(key, value);
+        }
+
+        @Override
+        public void abort() {
+            IOUtils.closeStream(dataWriter);
+        }
 
-        private MapFile.Writer dataWriter;
+        @Override
+        public void close() {
+            IOUtils.closeStream(dataWriter);
+        }
+    }
+
+    private static class FileSystemWriter implements Runnable {
+
+        private LedgerEntries ledgerEntriesOnce;
+
+        private LedgerEntryWriter dataWriter;
         private CountDownLatch countDownLatch;
         private AtomicLong haveOffloadEntryNumber;
         private LedgerReader ledgerReader;
@@ -260,7 +314,7 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
         }
 
 
-        public static FileSystemWriter create(LedgerEntries ledgerEntriesOnce, MapFile.Writer dataWriter, Semaphore semaphore,
+        public static FileSystemWriter create(LedgerEntries ledgerEntriesOnce, LedgerEntryWriter dataWriter, Semaphore semaphore,
                                               CountDownLatch countDownLatch, AtomicLong haveOffloadEntryNumber, LedgerReader ledgerReader) {
             FileSystemWriter writer = RECYCLER.get();
             writer.ledgerReader = ledgerReader;
@@ -278,11 +332,8 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
                 Iterator<LedgerEntry> iterator = ledgerEntriesOnce.iterator();
                 while (iterator.hasNext()) {
                     LedgerEntry entry = iterator.next();
-                    long entryId = entry.getEntryId();
-                    key.set(entryId);
                     try {
-                        value.set(entry.getEntryBytes(), 0, entry.getEntryBytes().length);
-                        dataWriter.append(key, value);
+                        dataWriter.append(entry);
                     } catch (IOException e) {
                         ledgerReader.fileSystemWriteException = e;
                         break;
@@ -305,9 +356,20 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
         String dataFilePath = getDataFilePath(storagePath, ledgerId, uuid);
         scheduler.chooseThread(ledgerId).submit(() -> {
             try {
+                if (fileSystem instanceof LocalFileSystem) {
+                    File dataFile = ((LocalFileSystem) fileSystem).pathToFile(new Path(dataFilePath));
+                    File indexFile = new File(dataFile.getPath() + IndexedLedgerFileWriter.INDEX_FILE_SUFFIX);
+                    if (indexFile.exists()) {
+                        promise.complete(MappedFileStoreBackedReadHandleImpl.open(scheduler.chooseThread(ledgerId),
+                                new File(dataFile.getPath() + IndexedLedgerFileWriter.DATA_FILE_SUFFIX), indexFile,
+                                ledgerId, uuid));
+                        return;
+                    }
+                }
                 MapFile.Reader reader = new MapFile.Reader(new Path(dataFilePath),
                         configuration);
-                promise.complete(FileStoreBackedReadHandleImpl.open(scheduler.chooseThread(ledgerId), reader, ledgerId));
+                promise.complete(FileStoreBackedReadHandleImpl.open(scheduler.chooseThread(ledgerId), reader, ledgerId,
+                        uuid));
             } catch (Throwable t) {
                 log.error("Failed to open FileStoreBackedReadHandleImpl: ManagerLedgerName: {}, " +
                         "LegerId: {}, UUID: {}", offloadDriverMetadata.get(MANAGED_LEDGER_NAME), ledgerId, uuid, t);
@@ -317,6 +379,13 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
         return promise;
     }
 
+    private LocalFileSystem getIndexedFileSystem() {
+        if (configuration.getBoolean(INDEXED_FILE_FORMAT_ENABLED, false) && fileSystem instanceof LocalFileSystem) {
+            return (LocalFileSystem) fileSystem;
+        }
+        return null;
+    }
+
     private static String getStoragePath(String storageBasePath, String managedLedgerName) {
         return storageBasePath == null ? managedLedgerName + "/" : storageBasePath + "/" + managedLedgerName + "/";
     }
@@ -330,8 +399,11 @@ public class FileSystemManagedLedgerOffloader implements LedgerOffloader {
         String storagePath = getStoragePath(storageBasePath, offloadDriverMetadata.get(MANAGED_LEDGER_NAME));
         String dataFilePath = getDataFilePath(storagePath, ledgerId, uid);
         CompletableFuture<Void> promise = new CompletableFuture<>();
+        OffloadIndexCache.getInstance().invalidate(ledgerId, uid);
         try {
             fileSystem.delete(new Path(dataFilePath), true);
+            fileSystem.delete(new Path(dataFilePath + IndexedLedgerFileWriter.INDEX_FILE_SUFFIX), false);
+            fileSystem.delete(new Path(dataFilePath + IndexedLedgerFileWriter.DATA_FILE_SUFFIX), false);
             promise.complete(null);
         } catch (IOException e) {
             log.error("Failed to delete Offloaded: ", e);
@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.filesystem.impl;
+
+import io.netty.buffer.ByteBuf;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes an offloaded ledger to a local (or NFS mounted) directory as two plain files.
+ *
+ * <p>The data file holds the payload of every entry back to back, without any framing. The index file
+ * is written once all the entries have been appended and has the following layout:
+ * <pre>
+ * | magic (int) | version (int) | metadata length (int) | ledger metadata |
+ * | entry count (long) | entry offsets (long) * (entry count + 1) |
+ * </pre>
+ * The offsets are dense: entry {@code i} spans {@code [offsets[i], offsets[i + 1])} in the data file. The
+ * index is written to a temporary file and then moved into place, so its presence marks a complete ledger.
+ */
+class IndexedLedgerFileWriter implements LedgerEntryWriter {
+
+    static final String DATA_FILE_SUFFIX = ".entries";
+    static final String INDEX_FILE_SUFFIX = ".offsets";
+    static final int INDEX_MAGIC_WORD = 0xF11E0DEF;
+    static final int INDEX_VERSION = 1;
+    static final int INDEX_HEADER_LENGTH = 4 + 4 + 4;
+
+    private static final Logger log = LoggerFactory.getLogger(IndexedLedgerFileWriter.class);
+
+    private final File dataFile;
+    private final File indexFile;
+    private final byte[] ledgerMetadata;
+    private final FileChannel dataChannel;
+    private long[] offsets = new long[1024];
+    private int entryCount = 0;
+    private long position = 0;
+
+    IndexedLedgerFileWriter(File dataFile, File indexFile, byte[] ledgerMetadata) throws IOException {
+        this.dataFile = dataFile;
+        this.indexFile = indexFile;
+        this.ledgerMetadata = ledgerMetadata;
+        Files.createDirectories(dataFile.getAbsoluteFile().getParentFile().toPath());
+        this.dataChannel = FileChannel.open(dataFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public void append(LedgerEntry entry) throws IOException {
+        if (entry.getEntryId() != entryCount) {
+            throw new IOException("Entries of " + dataFile + " must be appended densely: expected entry "
+                    + entryCount + " but got " + entry.getEntryId());
+        }
+        ByteBuf buf = entry.getEntryBuffer();
+        ByteBuffer[] nioBuffers = buf.nioBuffers(buf.readerIndex(), buf.readableBytes());
+        long remaining = buf.readableBytes();
+        while (remaining > 0) {
+            remaining -= dataChannel.write(nioBuffers);
+        }
+        if (entryCount + 1 >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[entryCount] = position;
+        position += buf.readableBytes();
+        entryCount++;
+    }
+
+    @Override
+    public void abort() {
+        try {
+            dataChannel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close {} after a failed offload", dataFile, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            dataChannel.force(false);
+        } finally {
+            dataChannel.close();
+        }
+        offsets[entryCount] = position;
+
+        File tmpIndexFile = new File(indexFile.getPath() + ".tmp");
+        ByteBuffer index = ByteBuffer.allocate(INDEX_HEADER_LENGTH + ledgerMetadata.length
+                + 8 + 8 * (entryCount + 1));
+        index.putInt(INDEX_MAGIC_WORD)
+                .putInt(INDEX_VERSION)
+                .putInt(ledgerMetadata.length)
+                .put(ledgerMetadata)
+                .putLong(entryCount);
+        index.asLongBuffer().put(offsets, 0, entryCount + 1);
+        index.clear();
+        try (FileChannel indexChannel = FileChannel.open(tmpIndexFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (index.hasRemaining()) {
+                indexChannel.write(index);
+            }
+            indexChannel.force(false);
+        }
+        Files.move(tmpIndexFile.toPath(), indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.filesystem.impl;
+
+import org.apache.bookkeeper.client.api.LedgerEntry;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Sink for the entries of a ledger that is being offloaded to the file system.
+ *
+ * <p>Entries are appended in entry id order. The offloaded ledger is only considered complete once
+ * {@link #close()} returns successfully.
+ */
+interface LedgerEntryWriter extends Closeable {
+
+    void append(LedgerEntry entry) throws IOException;
+
+    /**
+     * Release the resources of an offload that failed, without completing the offloaded ledger.
+     */
+    void abort();
+}
@@ -0,0 +1,277 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.filesystem.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.util.internal.PlatformDependent;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.api.LastConfirmedAndEntry;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
+import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.apache.bookkeeper.mledger.offload.OffloadIndexCache;
+import org.apache.bookkeeper.mledger.offload.OffloadedLedgerIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.apache.bookkeeper.mledger.offload.OffloadUtils.parseLedgerMetadata;
+import static org.apache.bookkeeper.mledger.offload.filesystem.impl.IndexedLedgerFileWriter.INDEX_HEADER_LENGTH;
+import static org.apache.bookkeeper.mledger.offload.filesystem.impl.IndexedLedgerFileWriter.INDEX_MAGIC_WORD;
+import static org.apache.bookkeeper.mledger.offload.filesystem.impl.IndexedLedgerFileWriter.INDEX_VERSION;
+
+/**
+ * Read handle over a ledger written by {@link IndexedLedgerFileWriter}.
+ *
+ * <p>Both files are memory mapped, so a read is a lookup in the offset index followed by slicing the mapped
+ * data file: entries are handed out as read-only {@link ByteBuf} views of the mapping without any copy.
+ * Data files larger than 2GB cannot be mapped in one go, in which case every read maps only the range it covers.
+ * A mapping is unmapped once the handle is closed and the last entry sliced from it is released.
+ */
+public class MappedFileStoreBackedReadHandleImpl implements ReadHandle {
+    private static final Logger log = LoggerFactory.getLogger(MappedFileStoreBackedReadHandleImpl.class);
+    private final ExecutorService executor;
+    private final long ledgerId;
+    private final LedgerMetadata ledgerMetadata;
+    private final FileChannel dataChannel;
+    private final MappedByteBuffer index;
+    private final LongBuffer offsets;
+    private final ByteBuf mappedData;
+    // Only accessed from the executor, which runs the reads and the close of a ledger one after the other
+    private boolean closed = false;
+
+    private MappedFileStoreBackedReadHandleImpl(ExecutorService executor, long ledgerId, LedgerMetadata ledgerMetadata,
+                                                FileChannel dataChannel, MappedByteBuffer index, LongBuffer offsets)
+            throws IOException {
+        this.executor = executor;
+        this.ledgerId = ledgerId;
+        this.ledgerMetadata = ledgerMetadata;
+        this.dataChannel = dataChannel;
+        this.index = index;
+        this.offsets = offsets;
+        long dataLength = offsets.get(offsets.limit() - 1);
+        this.mappedData = dataLength <= Integer.MAX_VALUE
+                ? new UnmappingByteBuf(dataChannel.map(FileChannel.MapMode.READ_ONLY, 0, dataLength))
+                : null;
+    }
+
+    /**
+     * Unmaps the file once the last slice of it is released, a mapping is otherwise only released when the garbage
+     * collector finds it, which may keep a deleted ledger on the disk for a long time.
+     */
+    private static final class UnmappingByteBuf extends CompositeByteBuf {
+        private final MappedByteBuffer mapping;
+
+        UnmappingByteBuf(MappedByteBuffer mapping) {
+            super(UnpooledByteBufAllocator.DEFAULT, true, 1, Unpooled.wrappedBuffer(mapping));
+            this.mapping = mapping;
+        }
+
+        @Override
+        protected void deallocate() {
+            super.deallocate();
+            unmap(mapping);
+        }
+    }
+
+    private static void unmap(MappedByteBuffer mapping) {
+        PlatformDependent.freeDirectBuffer(mapping);
+    }
+
+    private static MappedByteBuffer mapIndex(File indexFile) throws IOException {
+        try (FileChannel indexChannel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            return indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size());
+        }
+    }
+
+    private static LedgerMetadata readLedgerMetadata(ByteBuffer index, long ledgerId) throws IOException {
+        byte[] metadata = new byte[index.getInt(8)];
+        ByteBuffer duplicate = index.duplicate();
+        duplicate.position(INDEX_HEADER_LENGTH);
+        duplicate.get(metadata);
+        return parseLedgerMetadata(ledgerId, metadata);
+    }
+
+    @Override
+    public long getId() {
+        return ledgerId;
+    }
+
+    @Override
+    public LedgerMetadata getLedgerMetadata() {
+        return ledgerMetadata;
+    }
+
+    @Override
+    public CompletableFuture<Void> closeAsync() {
+        CompletableFuture<Void> promise = new CompletableFuture<>();
+        executor.submit(() -> {
+            if (closed) {
+                promise.complete(null);
+                return;
+            }
+            closed = true;
+            try {
+                if (mappedData != null) {
+                    mappedData.release();
+                }
+                // the offsets are only read by the reads, which are rejected from now on
+                unmap(index);
+                dataChannel.close();
+                promise.complete(null);
+            } catch (IOException t) {
+                promise.completeExceptionally(t);
+            }
+        });
+        return promise;
+    }
+
+    @Override
+    public CompletableFuture<LedgerEntries> readAsync(long firstEntry, long lastEntry) {
+        if (log.isDebugEnabled()) {
+            log.debug("Ledger {}: reading {} - {}", getId(), firstEntry, lastEntry);
+        }
+        CompletableFuture<LedgerEntries> promise = new CompletableFuture<>();
+        executor.submit(() -> {
+            if (closed) {
+                promise.completeExceptionally(new BKException.BKLedgerClosedException());
+                return;
+            }
+            if (firstEntry > lastEntry
+                    || firstEntry < 0
+                    || lastEntry > getLastAddConfirmed()) {
+                promise.completeExceptionally(new BKException.BKIncorrectParameterException());
+                return;
+            }
+            List<LedgerEntry> entries = new ArrayList<>((int) (lastEntry - firstEntry + 1));
+            long rangeStart = offsets.get((int) firstEntry);
+            long rangeEnd = offsets.get((int) lastEntry + 1);
+            ByteBuf range = null;
+            try {
+                if (mappedData != null) {
+                    range = mappedData.retainedSlice((int) rangeStart, (int) (rangeEnd - rangeStart));
+                } else {
+                    range = new UnmappingByteBuf(
+                            dataChannel.map(FileChannel.MapMode.READ_ONLY, rangeStart, rangeEnd - rangeStart));
+                }
+                for (long entryId = firstEntry; entryId <= lastEntry; entryId++) {
+                    int offset = (int) (offsets.get((int) entryId) - rangeStart);
+                    int length = (int) (offsets.get((int) entryId + 1) - rangeStart) - offset;
+                    entries.add(LedgerEntryImpl.create(ledgerId, entryId, length, range.retainedSlice(offset, length)));
+                }
+                promise.complete(LedgerEntriesImpl.create(entries));
+            } catch (Throwable t) {
+                promise.completeExceptionally(t);
+                entries.forEach(LedgerEntry::close);
+            } finally {
+                if (range != null) {
+                    range.release();
+                }
+            }
+        });
+        return promise;
+    }
+
+    @Override
+    public CompletableFuture<LedgerEntries> readUnconfirmedAsync(long firstEntry, long lastEntry) {
+        return readAsync(firstEntry, lastEntry);
+    }
+
+    @Override
+    public CompletableFuture<Long> readLastAddConfirmedAsync() {
+        return CompletableFuture.completedFuture(getLastAddConfirmed());
+    }
+
+    @Override
+    public CompletableFuture<Long> tryReadLastAddConfirmedAsync() {
+        return CompletableFuture.completedFuture(getLastAddConfirmed());
+    }
+
+    @Override
+    public long getLastAddConfirmed() {
+        return getLedgerMetadata().getLastEntryId();
+    }
+
+    @Override
+    public long getLength() {
+        return getLedgerMetadata().getLength();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return getLedgerMetadata().isClosed();
+    }
+
+    @Override
+    public CompletableFuture<LastConfirmedAndEntry> readLastAddConfirmedAndEntryAsync(long entryId,
+                                                                                      long timeOutInMillis,
+                                                                                      boolean parallel) {
+        CompletableFuture<LastConfirmedAndEntry> promise = new CompletableFuture<>();
+        promise.completeExceptionally(new UnsupportedOperationException());
+        return promise;
+    }
+
+    public static ReadHandle open(ScheduledExecutorService executor, File dataFile, File indexFile, long ledgerId,
+                                  UUID uuid) throws IOException {
+        MappedByteBuffer index = mapIndex(indexFile);
+        FileChannel dataChannel = null;
+        try {
+            if (index.getInt(0) != INDEX_MAGIC_WORD || index.getInt(4) != INDEX_VERSION) {
+                throw new IOException("Invalid offload index " + indexFile + " for ledgerId " + ledgerId);
+            }
+            OffloadedLedgerIndex ledgerIndex = OffloadIndexCache.getInstance().get(ledgerId, uuid,
+                    () -> new OffloadedLedgerIndex(readLedgerMetadata(index, ledgerId)));
+            int entryCountPosition = INDEX_HEADER_LENGTH + index.getInt(8);
+            long entryCount = index.getLong(entryCountPosition);
+            index.position(entryCountPosition + 8);
+            LongBuffer offsets = index.slice().asLongBuffer();
+            if (offsets.limit() != entryCount + 1) {
+                throw new IOException("Truncated offload index " + indexFile + " for ledgerId " + ledgerId);
+            }
+            dataChannel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ);
+            return new MappedFileStoreBackedReadHandleImpl(executor, ledgerId, ledgerIndex.getLedgerMetadata(),
+                    dataChannel, index, offsets);
+        } catch (IOException e) {
+            if (dataChannel != null) {
+                dataChannel.close();
+            }
+            unmap(index);
+            throw e;
+        }
+    }
+}
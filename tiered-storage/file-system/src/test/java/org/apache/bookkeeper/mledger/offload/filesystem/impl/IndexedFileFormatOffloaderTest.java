@@ -0,0 +1,220 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.filesystem.impl;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.BookKeeper;
+import org.apache.bookkeeper.client.LedgerHandle;
+import org.apache.bookkeeper.client.PulsarMockBookKeeper;
+import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.common.util.OrderedScheduler;
+import org.apache.bookkeeper.util.ZkUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.pulsar.common.policies.data.OffloadPolicies;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.MockZooKeeper;
+import org.apache.zookeeper.data.ACL;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import io.netty.buffer.ByteBuf;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class IndexedFileFormatOffloaderTest {
+    private final OrderedScheduler scheduler = OrderedScheduler.newSchedulerBuilder().numThreads(1).name("offloader").build();
+    private final String topic = "public/default/persistent/testOffload";
+    private final int numberOfEntries = 601;
+    private final Map<String, String> map = new HashMap<>();
+    private File baseDir;
+    private FileSystemManagedLedgerOffloader offloader;
+    private ReadHandle toWrite;
+
+    @BeforeMethod
+    public void start() throws Exception {
+        baseDir = Files.createTempDirectory("pulsar").toFile().getAbsoluteFile();
+        File profile = new File(baseDir, "core-site.xml");
+        FileUtils.writeStringToFile(profile, "<configuration>"
+                + "<property><name>fs.defaultFS</name><value>file:///</value></property>"
+                + "<property><name>hadoop.tmp.dir</name><value>" + baseDir.getAbsolutePath() + "</value></property>"
+                + "<property><name>" + FileSystemManagedLedgerOffloader.INDEXED_FILE_FORMAT_ENABLED
+                + "</name><value>true</value></property>"
+                + "</configuration>", UTF_8);
+        Properties properties = new Properties();
+        properties.setProperty("fileSystemProfilePath", profile.getAbsolutePath());
+        offloader = FileSystemManagedLedgerOffloader.create(OffloadPolicies.create(properties), scheduler);
+        map.put("ManagedLedgerName", topic);
+        toWrite = buildReadHandle();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        offloader.close();
+        FileUtils.deleteDirectory(baseDir);
+    }
+
+    private static MockZooKeeper createMockZooKeeper() throws Exception {
+        MockZooKeeper zk = MockZooKeeper.newInstance(MoreExecutors.newDirectExecutorService());
+        List<ACL> dummyAclList = new ArrayList<ACL>(0);
+
+        ZkUtils.createFullPathOptimistic(zk, "/ledgers/available/192.168.1.1:" + 5000,
+                "".getBytes(UTF_8), dummyAclList, CreateMode.PERSISTENT);
+
+        zk.create("/ledgers/LAYOUT", "1\nflat:1".getBytes(UTF_8), dummyAclList,
+                CreateMode.PERSISTENT);
+        return zk;
+    }
+
+    private ReadHandle buildReadHandle() throws Exception {
+        PulsarMockBookKeeper bk = new PulsarMockBookKeeper(createMockZooKeeper(), scheduler.chooseThread(this));
+        LedgerHandle lh = bk.createLedger(1, 1, 1, BookKeeper.DigestType.CRC32, "foobar".getBytes());
+        for (int i = 0; i < numberOfEntries; i++) {
+            lh.addEntry(("foobar" + i).getBytes());
+        }
+        lh.close();
+
+        return bk.newOpenLedgerOp().withLedgerId(lh.getId())
+                .withPassword("foobar".getBytes()).withDigestType(DigestType.CRC32).execute().get();
+    }
+
+    private File ledgerFile(UUID uuid, String suffix) {
+        return new File(baseDir, topic + "/" + toWrite.getId() + "-" + uuid + suffix);
+    }
+
+    private void assertSameEntries(ReadHandle toTest, long firstEntry, long lastEntry) throws Exception {
+        try (LedgerEntries toTestEntries = toTest.read(firstEntry, lastEntry);
+             LedgerEntries toWriteEntries = toWrite.read(firstEntry, lastEntry)) {
+            Iterator<LedgerEntry> toTestIter = toTestEntries.iterator();
+            Iterator<LedgerEntry> toWriteIter = toWriteEntries.iterator();
+            while (toWriteIter.hasNext()) {
+                LedgerEntry toWriteEntry = toWriteIter.next();
+                LedgerEntry toTestEntry = toTestIter.next();
+
+                assertEquals(toWriteEntry.getLedgerId(), toTestEntry.getLedgerId());
+                assertEquals(toWriteEntry.getEntryId(), toTestEntry.getEntryId());
+                assertEquals(toWriteEntry.getLength(), toTestEntry.getLength());
+                assertEquals(toWriteEntry.getEntryBuffer(), toTestEntry.getEntryBuffer());
+            }
+            assertFalse(toTestIter.hasNext());
+        }
+    }
+
+    @Test
+    public void testOffloadAndRead() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        offloader.offload(toWrite, uuid, map).get();
+        assertTrue(ledgerFile(uuid, IndexedLedgerFileWriter.DATA_FILE_SUFFIX).exists());
+        assertTrue(ledgerFile(uuid, IndexedLedgerFileWriter.INDEX_FILE_SUFFIX).exists());
+        assertFalse(ledgerFile(uuid, "").exists());
+
+        ReadHandle toTest = offloader.readOffloaded(toWrite.getId(), uuid, map).get();
+        assertTrue(toTest instanceof MappedFileStoreBackedReadHandleImpl);
+        assertEquals(toTest.getLastAddConfirmed(), toWrite.getLastAddConfirmed());
+        assertEquals(toTest.getLength(), toWrite.getLength());
+        assertSameEntries(toTest, 0, numberOfEntries - 1);
+        assertSameEntries(toTest, 1, numberOfEntries - 1);
+        assertSameEntries(toTest, 250, 250);
+        try {
+            toTest.read(0, numberOfEntries);
+            fail("Should not be able to read past the last entry");
+        } catch (Exception e) {
+            // expected
+        }
+        toTest.closeAsync().get();
+    }
+
+    @Test
+    public void testDeleteOffload() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        offloader.offload(toWrite, uuid, map).get();
+        assertTrue(ledgerFile(uuid, IndexedLedgerFileWriter.DATA_FILE_SUFFIX).exists());
+        assertTrue(ledgerFile(uuid, IndexedLedgerFileWriter.INDEX_FILE_SUFFIX).exists());
+        offloader.deleteOffloaded(toWrite.getId(), uuid, map).get();
+        assertFalse(ledgerFile(uuid, IndexedLedgerFileWriter.DATA_FILE_SUFFIX).exists());
+        assertFalse(ledgerFile(uuid, IndexedLedgerFileWriter.INDEX_FILE_SUFFIX).exists());
+    }
+
+    private static Object getField(Object object, String name) throws Exception {
+        Field field = object.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(object);
+    }
+
+    @Test
+    public void testEntriesOutliveClosedHandle() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        offloader.offload(toWrite, uuid, map).get();
+        ReadHandle toTest = offloader.readOffloaded(toWrite.getId(), uuid, map).get();
+        ByteBuf mappedData = (ByteBuf) getField(toTest, "mappedData");
+
+        LedgerEntries entries = toTest.read(0, numberOfEntries - 1);
+        toTest.closeAsync().get();
+        try {
+            toTest.read(0, 0);
+            fail("Should not be able to read from a closed handle");
+        } catch (BKException.BKLedgerClosedException e) {
+            // expected
+        }
+
+        // The file stays mapped until the entries read before the close are released
+        assertTrue(mappedData.refCnt() > 0);
+        try (LedgerEntries toWriteEntries = toWrite.read(0, numberOfEntries - 1)) {
+            Iterator<LedgerEntry> toTestIter = entries.iterator();
+            for (LedgerEntry toWriteEntry : toWriteEntries) {
+                assertEquals(toWriteEntry.getEntryBuffer(), toTestIter.next().getEntryBuffer());
+            }
+        }
+        entries.close();
+        assertEquals(mappedData.refCnt(), 0);
+    }
+
+    @Test
+    public void testWriterAbortClosesDataFile() throws Exception {
+        File dataFile = new File(baseDir, "aborted" + IndexedLedgerFileWriter.DATA_FILE_SUFFIX);
+        File indexFile = new File(baseDir, "aborted" + IndexedLedgerFileWriter.INDEX_FILE_SUFFIX);
+        IndexedLedgerFileWriter writer = new IndexedLedgerFileWriter(dataFile, indexFile, new byte[0]);
+        try (LedgerEntries entries = toWrite.read(0, 0)) {
+            writer.append(entries.getEntry(0));
+        }
+
+        writer.abort();
+        assertFalse(((FileChannel) getField(writer, "dataChannel")).isOpen());
+        assertFalse(indexFile.exists());
+    }
+}
@@ -22,6 +22,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import org.apache.bookkeeper.client.api.LedgerMetadata;
 import org.apache.bookkeeper.common.annotation.InterfaceStability.Unstable;
+import org.apache.bookkeeper.mledger.offload.OffloadedLedgerIndex;
 
 /**
  * The Index block abstraction used for offload a ledger to long term storage.
@@ -68,5 +69,11 @@ public interface OffloadIndexBlockV2 extends Closeable {
      * Get the length of the header in the blocks in the data object.
      */
     long getDataBlockHeaderLength();
+
+    /**
+     * Get the index entries of the given ledger in the compact layout used by the
+     * {@link org.apache.bookkeeper.mledger.offload.OffloadIndexCache}.
+     */
+    OffloadedLedgerIndex toLedgerIndex(long ledgerId);
 }
 
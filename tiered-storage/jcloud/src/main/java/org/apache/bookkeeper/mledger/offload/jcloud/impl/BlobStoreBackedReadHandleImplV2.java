@@ -26,6 +26,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
@@ -273,7 +274,7 @@ public class BlobStoreBackedReadHandleImplV2 implements ReadHandle {
 
     public static ReadHandle open(ScheduledExecutorService executor,
                                   BlobStore blobStore, String bucket, List<String> keys, List<String> indexKeys,
-                                  VersionCheck versionCheck,
+                                  List<UUID> uuids, VersionCheck versionCheck,
                                   long ledgerId, int readBufferSize)
             throws IOException {
         List<BackedInputStream> inputStreams = new LinkedList<>();
@@ -281,14 +282,16 @@ public class BlobStoreBackedReadHandleImplV2 implements ReadHandle {
         for (int i = 0; i < indexKeys.size(); i++) {
             String indexKey = indexKeys.get(i);
             String key = keys.get(i);
-            log.debug("open bucket: {} index key: {}", bucket, indexKey);
-            Blob blob = blobStore.getBlob(bucket, indexKey);
-            log.debug("indexKey blob: {} {}", indexKey, blob);
-            versionCheck.check(indexKey, blob);
-            OffloadIndexBlockV2Builder indexBuilder = OffloadIndexBlockV2Builder.create();
-            final InputStream payloadStream = blob.getPayload().openStream();
-            OffloadIndexBlockV2 index = indexBuilder.fromStream(payloadStream);
-            payloadStream.close();
+            OffloadIndexBlockV2 index = CachedOffloadIndexBlock.open(ledgerId, uuids.get(i), () -> {
+                log.debug("open bucket: {} index key: {}", bucket, indexKey);
+                Blob blob = blobStore.getBlob(bucket, indexKey);
+                log.debug("indexKey blob: {} {}", indexKey, blob);
+                versionCheck.check(indexKey, blob);
+                OffloadIndexBlockV2Builder indexBuilder = OffloadIndexBlockV2Builder.create();
+                try (InputStream payloadStream = blob.getPayload().openStream()) {
+                    return indexBuilder.fromStream(payloadStream);
+                }
+            });
 
             BackedInputStream inputStream = new BlobStoreBackedInputStreamImpl(blobStore, bucket, key,
                     versionCheck,
@@ -46,6 +46,7 @@ import org.apache.bookkeeper.mledger.Position;
 import org.apache.bookkeeper.mledger.impl.EntryImpl;
 import org.apache.bookkeeper.mledger.impl.OffloadSegmentInfoImpl;
 import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.bookkeeper.mledger.offload.OffloadIndexCache;
 import org.apache.bookkeeper.mledger.offload.jcloud.BlockAwareSegmentInputStream;
 import org.apache.bookkeeper.mledger.offload.jcloud.OffloadIndexBlock;
 import org.apache.bookkeeper.mledger.offload.jcloud.OffloadIndexBlock.IndexInputStream;
@@ -507,7 +508,7 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
                         readBlobstore,
                         readBucket, key, indexKey,
                         DataBlockUtils.VERSION_CHECK,
-                        ledgerId, config.getReadBufferSizeInBytes()));
+                        ledgerId, uid, config.getReadBufferSizeInBytes()));
             } catch (Throwable t) {
                 log.error("Failed readOffloaded: ", t);
                 promise.completeExceptionally(t);
@@ -526,19 +527,21 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
         final List<MLDataFormats.OffloadSegment> offloadSegmentList = ledgerContext.getOffloadSegmentList();
         List<String> keys = Lists.newLinkedList();
         List<String> indexKeys = Lists.newLinkedList();
+        List<UUID> uuids = Lists.newLinkedList();
         offloadSegmentList.forEach(seg -> {
             final UUID uuid = new UUID(seg.getUidMsb(), seg.getUidLsb());
             final String key = uuid.toString();
             final String indexKey = DataBlockUtils.indexBlockOffloadKey(uuid);
             keys.add(key);
             indexKeys.add(indexKey);
+            uuids.add(uuid);
         });
 
         scheduler.chooseThread(ledgerId).submit(() -> {
             try {
                 promise.complete(BlobStoreBackedReadHandleImplV2.open(scheduler.chooseThread(ledgerId),
                         readBlobstore,
-                        readBucket, keys, indexKeys,
+                        readBucket, keys, indexKeys, uuids,
                         DataBlockUtils.VERSION_CHECK,
                         ledgerId, config.getReadBufferSizeInBytes()));
             } catch (Throwable t) {
@@ -557,6 +560,7 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
         BlobStore readBlobstore = blobStores.get(config.getBlobStoreLocation());
 
         CompletableFuture<Void> promise = new CompletableFuture<>();
+        OffloadIndexCache.getInstance().invalidate(ledgerId, uid);
         scheduler.chooseThread(ledgerId).submit(() -> {
             try {
                 readBlobstore.removeBlobs(readBucket,
@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.jcloud.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.mledger.offload.OffloadIndexCache;
+import org.apache.bookkeeper.mledger.offload.OffloadedLedgerIndex;
+import org.apache.bookkeeper.mledger.offload.jcloud.OffloadIndexBlock;
+import org.apache.bookkeeper.mledger.offload.jcloud.OffloadIndexBlockV2;
+import org.apache.bookkeeper.mledger.offload.jcloud.OffloadIndexEntry;
+
+/**
+ * Read only index block of a single ledger, backed by an index shared through the {@link OffloadIndexCache}.
+ *
+ * <p>Closing the block does nothing, as the same index may be used by other read handles.
+ */
+public class CachedOffloadIndexBlock implements OffloadIndexBlock {
+
+    private final OffloadedLedgerIndex index;
+
+    CachedOffloadIndexBlock(OffloadedLedgerIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Get the index block of the given ledger from the shared cache, loading it with the given
+     * loader on a cache miss. The loaded index block is closed once its entries have been copied.
+     */
+    public static CachedOffloadIndexBlock open(long ledgerId, UUID uuid,
+                                               Callable<? extends OffloadIndexBlockV2> loader) throws IOException {
+        OffloadedLedgerIndex index = OffloadIndexCache.getInstance().get(ledgerId, uuid, () -> {
+            try (OffloadIndexBlockV2 indexBlock = loader.call()) {
+                return indexBlock.toLedgerIndex(ledgerId);
+            }
+        });
+        return new CachedOffloadIndexBlock(index);
+    }
+
+    @Override
+    public IndexInputStream toStream() throws IOException {
+        List<OffloadIndexEntryImpl> entries = new ArrayList<>(index.getIndexEntryCount());
+        for (int i = 0; i < index.getIndexEntryCount(); i++) {
+            entries.add(entryAt(i));
+        }
+        OffloadIndexBlockImpl indexBlock = OffloadIndexBlockImpl.get(index.getLedgerMetadata(),
+                index.getDataObjectLength(), index.getDataHeaderLength(), entries);
+        try {
+            return indexBlock.toStream();
+        } finally {
+            indexBlock.close();
+        }
+    }
+
+    @Override
+    public OffloadIndexEntry getIndexEntryForEntry(long messageEntryId) throws IOException {
+        long lastEntryId = index.getLedgerMetadata().getLastEntryId();
+        if (messageEntryId > lastEntryId) {
+            throw new IndexOutOfBoundsException("Entry index: " + messageEntryId
+                + " beyond lastEntryId: " + lastEntryId);
+        }
+        int position = index.floorIndexOf(messageEntryId);
+        if (position < 0) {
+            throw new IndexOutOfBoundsException("Entry index: " + messageEntryId
+                + " before the first indexed entry");
+        }
+        return entryAt(position);
+    }
+
+    @Override
+    public long getStartEntryId(long ledgerId) {
+        return index.getIndexEntryCount() > 0 ? index.getEntryId(0) : 0;
+    }
+
+    @Override
+    public int getEntryCount() {
+        return index.getIndexEntryCount();
+    }
+
+    @Override
+    public LedgerMetadata getLedgerMetadata() {
+        return index.getLedgerMetadata();
+    }
+
+    @Override
+    public long getDataObjectLength() {
+        return index.getDataObjectLength();
+    }
+
+    @Override
+    public long getDataBlockHeaderLength() {
+        return index.getDataHeaderLength();
+    }
+
+    @Override
+    public OffloadedLedgerIndex toLedgerIndex(long ledgerId) {
+        return index;
+    }
+
+    @Override
+    public void close() {
+        // the index is owned by the cache
+    }
+
+    private OffloadIndexEntryImpl entryAt(int position) {
+        return OffloadIndexEntryImpl.of(index.getEntryId(position), index.getPartId(position),
+                index.getOffset(position), index.getDataHeaderLength());
+    }
+}
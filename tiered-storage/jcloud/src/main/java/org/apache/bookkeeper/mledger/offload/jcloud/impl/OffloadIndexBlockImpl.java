@@ -35,6 +35,7 @@ import java.util.TreeMap;
 import org.apache.bookkeeper.client.api.DigestType;
 import org.apache.bookkeeper.client.api.LedgerMetadata;
 import org.apache.bookkeeper.mledger.offload.jcloud.OffloadIndexBlock;
+import org.apache.bookkeeper.mledger.offload.OffloadedLedgerIndex;
 import org.apache.bookkeeper.mledger.offload.jcloud.OffloadIndexEntry;
 import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.proto.DataFormats;
@@ -133,6 +134,23 @@ public class OffloadIndexBlockImpl implements OffloadIndexBlock {
         return this.dataHeaderLength;
     }
 
+    @Override
+    public OffloadedLedgerIndex toLedgerIndex(long ledgerId) {
+        int indexEntryCount = this.indexEntries.size();
+        long[] entryIds = new long[indexEntryCount];
+        int[] partIds = new int[indexEntryCount];
+        long[] offsets = new long[indexEntryCount];
+        int i = 0;
+        for (OffloadIndexEntryImpl entry : this.indexEntries.values()) {
+            entryIds[i] = entry.getEntryId();
+            partIds[i] = entry.getPartId();
+            offsets[i] = entry.getOffset();
+            i++;
+        }
+        return new OffloadedLedgerIndex(segmentMetadata, dataObjectLength, dataHeaderLength,
+                entryIds, partIds, offsets);
+    }
+
     /**
      * Get the content of the index block as InputStream.
      * Read out in format:
@@ -18,6 +18,7 @@
  */
 package org.apache.bookkeeper.mledger.offload.jcloud.impl;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Maps;
 import io.netty.buffer.ByteBuf;
@@ -34,6 +35,7 @@ import java.util.Objects;
 import java.util.TreeMap;
 import org.apache.bookkeeper.client.api.DigestType;
 import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.mledger.offload.OffloadedLedgerIndex;
 import org.apache.bookkeeper.mledger.offload.jcloud.OffloadIndexBlock.IndexInputStream;
 import org.apache.bookkeeper.mledger.offload.jcloud.OffloadIndexBlockV2;
 import org.apache.bookkeeper.mledger.offload.jcloud.OffloadIndexEntry;
@@ -161,6 +163,25 @@ public class OffloadIndexBlockV2Impl implements OffloadIndexBlockV2 {
         return this.dataHeaderLength;
     }
 
+    @Override
+    public OffloadedLedgerIndex toLedgerIndex(long ledgerId) {
+        TreeMap<Long, OffloadIndexEntryImpl> ledgerIndexEntries = this.indexEntries.get(ledgerId);
+        checkArgument(ledgerIndexEntries != null, "Ledger %s is not in this index block", ledgerId);
+        int indexEntryCount = ledgerIndexEntries.size();
+        long[] entryIds = new long[indexEntryCount];
+        int[] partIds = new int[indexEntryCount];
+        long[] offsets = new long[indexEntryCount];
+        int i = 0;
+        for (OffloadIndexEntryImpl entry : ledgerIndexEntries.values()) {
+            entryIds[i] = entry.getEntryId();
+            partIds[i] = entry.getPartId();
+            offsets[i] = entry.getOffset();
+            i++;
+        }
+        return new OffloadedLedgerIndex(getLedgerMetadata(ledgerId), dataObjectLength, dataHeaderLength,
+                entryIds, partIds, offsets);
+    }
+
     /**
      * Get the content of the index block as InputStream.
      * Read out in format:
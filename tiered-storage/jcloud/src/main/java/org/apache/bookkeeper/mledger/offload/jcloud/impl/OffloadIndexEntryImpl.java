@@ -18,6 +18,7 @@
  */
 package org.apache.bookkeeper.mledger.offload.jcloud.impl;
 
+import java.util.Objects;
 import org.apache.bookkeeper.mledger.offload.jcloud.OffloadIndexEntry;
 
 /**
@@ -60,6 +61,24 @@ public class OffloadIndexEntryImpl implements OffloadIndexEntry {
         this.blockHeaderSize = blockHeaderSize;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof OffloadIndexEntryImpl)) {
+            return false;
+        }
+        OffloadIndexEntryImpl other = (OffloadIndexEntryImpl) o;
+        return entryId == other.entryId && partId == other.partId && offset == other.offset
+                && blockHeaderSize == other.blockHeaderSize;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(entryId, partId, offset, blockHeaderSize);
+    }
+
     @Override
     public String toString() {
         return String.format("[eid:%d, part:%d, offset:%d, doffset:%d]",